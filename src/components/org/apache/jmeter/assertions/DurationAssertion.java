@@ -21,6 +21,7 @@ package org.apache.jmeter.assertions;
 import java.io.Serializable;
 import java.text.MessageFormat;
 
+import org.apache.jmeter.samplers.ResponseDataUsage;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.AbstractScopedAssertion;
 import org.apache.jmeter.util.JMeterUtils;
@@ -30,12 +31,17 @@ import org.apache.jmeter.util.JMeterUtils;
  * is larger than the timeframe the Assertion is considered a failure.
  * 
  */
-public class DurationAssertion extends AbstractScopedAssertion implements Serializable, Assertion {
+public class DurationAssertion extends AbstractScopedAssertion implements Serializable, Assertion, ResponseDataUsage {
     private static final long serialVersionUID = 241L;
 
     /** Key for storing assertion-information in the jmx-file. */
     public static final String DURATION_KEY = "DurationAssertion.duration"; // $NON-NLS-1$
 
+    @Override
+    public long getResponseDataUsage() {
+        return ResponseDataUsage.NONE;
+    }
+
     /**
      * Returns the result of the Assertion. Here it checks whether the Sample
      * took to long to be considered successful. If so an AssertionResult
@@ -30,6 +30,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
 
+import org.apache.jmeter.samplers.ResponseDataUsage;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.AbstractTestElement;
 import org.apache.jmeter.testelement.property.StringProperty;
@@ -38,7 +39,7 @@ import org.apache.jorphan.util.JOrphanUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class MD5HexAssertion extends AbstractTestElement implements Serializable, Assertion {
+public class MD5HexAssertion extends AbstractTestElement implements Serializable, Assertion, ResponseDataUsage {
 
     private static final long serialVersionUID = 241L;
 
@@ -47,14 +48,31 @@ public class MD5HexAssertion extends AbstractTestElement implements Serializable
     /** Key for storing assertion-information in the jmx-file. */
     private static final String MD5HEX_KEY = "MD5HexAssertion.size";
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the MD5 of the response data is needed.
+     */
+    @Override
+    public long getResponseDataUsage() {
+        return ResponseDataUsage.NONE;
+    }
+
+    @Override
+    public boolean usesResponseDataMD5() {
+        return true;
+    }
+
     @Override
     public AssertionResult getResult(SampleResult response) {
 
         AssertionResult result = new AssertionResult(getName());
         result.setFailure(false);
         byte[] resultData = response.getResponseData();
+        // Computed by the sampler when it did not keep the response data
+        String dataMD5Hex = response.getResponseDataMD5Hex();
 
-        if (resultData.length == 0) {
+        if (dataMD5Hex == null && resultData.length == 0) {
             result.setError(false);
             result.setFailure(true);
             result.setFailureMessage("Response was null");
@@ -69,7 +87,7 @@ public class MD5HexAssertion extends AbstractTestElement implements Serializable
             return result;
         }
 
-        String md5Result = md5Hex(resultData);
+        String md5Result = dataMD5Hex != null ? dataMD5Hex : md5Hex(resultData);
 
         if (!md5Result.equalsIgnoreCase(getAllowedMD5Hex())) {
             result.setFailure(true);
@@ -26,6 +26,7 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jmeter.assertions.gui.AssertionGui;
+import org.apache.jmeter.samplers.ResponseDataUsage;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.AbstractScopedAssertion;
 import org.apache.jmeter.testelement.property.CollectionProperty;
@@ -46,7 +47,7 @@ import org.slf4j.LoggerFactory;
  * Test element to handle Response Assertions.
  * See {@link AssertionGui} for GUI.
  */
-public class ResponseAssertion extends AbstractScopedAssertion implements Serializable, Assertion {
+public class ResponseAssertion extends AbstractScopedAssertion implements Serializable, Assertion, ResponseDataUsage {
     private static final Logger log = LoggerFactory.getLogger(ResponseAssertion.class);
 
     private static final long serialVersionUID = 242L;
@@ -198,6 +199,19 @@ public class ResponseAssertion extends AbstractScopedAssertion implements Serial
         getTestStrings().clear();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The response data is only read when testing the text or document of the response.
+     */
+    @Override
+    public long getResponseDataUsage() {
+        if (!isScopeVariable() && (isTestFieldResponseData() || isTestFieldResponseDataAsDocument())) {
+            return ResponseDataUsage.ALL;
+        }
+        return ResponseDataUsage.NONE;
+    }
+
     @Override
     public AssertionResult getResult(SampleResult response) {
         return evaluateResponse(response);
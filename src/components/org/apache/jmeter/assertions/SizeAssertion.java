@@ -21,6 +21,7 @@ package org.apache.jmeter.assertions;
 import java.io.Serializable;
 import java.text.MessageFormat;
 
+import org.apache.jmeter.samplers.ResponseDataUsage;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.AbstractScopedAssertion;
 import org.apache.jmeter.testelement.property.IntegerProperty;
@@ -32,7 +33,7 @@ import org.apache.jmeter.util.JMeterUtils;
  * Checks if the results of a Sample matches a particular size.
  * 
  */
-public class SizeAssertion extends AbstractScopedAssertion implements Serializable, Assertion {
+public class SizeAssertion extends AbstractScopedAssertion implements Serializable, Assertion, ResponseDataUsage {
 
     private static final long serialVersionUID = 241L;
 
@@ -66,6 +67,16 @@ public class SizeAssertion extends AbstractScopedAssertion implements Serializab
 
     private static final String RESPONSE_MESSAGE = "SizeAssertion.response_message"; // $NON-NLS-1$
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Sizes are read from the byte counts of the sample.
+     */
+    @Override
+    public long getResponseDataUsage() {
+        return ResponseDataUsage.NONE;
+    }
+
     /**
      * Returns the result of the Assertion. 
      * Here it checks the Sample responseData length.
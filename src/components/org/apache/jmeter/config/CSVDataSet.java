@@ -94,6 +94,9 @@ public class CSVDataSet extends ConfigTestElement
 
     private transient String[] vars;
 
+    /** slots of the variables in {@link JMeterVariables} */
+    private transient int[] varSlots;
+
     private transient String alias;
 
     private transient String shareMode;
@@ -192,6 +195,10 @@ public class CSVDataSet extends ConfigTestElement
                 vars = JOrphanUtils.split(names, ","); // $NON-NLS-1$
             }
             trimVarNames(vars);
+            varSlots = new int[vars.length];
+            for (int a = 0; a < vars.length; a++) {
+                varSlots[a] = JMeterVariables.getSlot(vars[a]);
+            }
         }
            
         // TODO: fetch this once as per vars above?
@@ -207,7 +214,7 @@ public class CSVDataSet extends ConfigTestElement
                 lineValues = JOrphanUtils.split(line, delim, false);
             }
             for (int a = 0; a < vars.length && a < lineValues.length; a++) {
-                threadVars.put(vars[a], lineValues[a]);
+                putVariable(threadVars, a, lineValues[a]);
             }
         } catch (IOException e) { // treat the same as EOF
             log.error(e.toString());
@@ -217,12 +224,21 @@ public class CSVDataSet extends ConfigTestElement
                 throw new JMeterStopThreadException("End of file:"+ getFilename()+" detected for CSV DataSet:"
                         +getName()+" configured with stopThread:"+ getStopThread()+", recycle:" + getRecycle());
             }
-            for (String var :vars) {
-                threadVars.put(var, EOFVALUE);
+            for (int a = 0; a < vars.length; a++) {
+                putVariable(threadVars, a, EOFVALUE);
             }
         }
     }
 
+    private void putVariable(JMeterVariables threadVars, int index, String value) {
+        if (varSlots[index] >= 0) {
+            threadVars.putObject(varSlots[index], value);
+        } else {
+            // No slot left for this name
+            threadVars.put(vars[index], value);
+        }
+    }
+
     /**
      * trim content of array varNames
      * @param varsNames
@@ -29,6 +29,7 @@ import java.util.stream.Stream;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jmeter.processor.PostProcessor;
+import org.apache.jmeter.samplers.ResponseDataUsage;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.AbstractScopedTestElement;
 import org.apache.jmeter.testelement.property.IntegerProperty;
@@ -42,7 +43,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Extracts Strings from a text response between a start and end boundary.
  */
-public class BoundaryExtractor extends AbstractScopedTestElement implements PostProcessor, Serializable {
+public class BoundaryExtractor extends AbstractScopedTestElement implements PostProcessor, ResponseDataUsage, Serializable {
 
     private static final Logger log = LoggerFactory.getLogger(BoundaryExtractor.class);
 
@@ -391,6 +392,19 @@ public class BoundaryExtractor extends AbstractScopedTestElement implements Post
         return USE_MESSAGE.equalsIgnoreCase(prop);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The response data is only read when matching against the body.
+     */
+    @Override
+    public long getResponseDataUsage() {
+        if (isScopeVariable() || useUrl() || useHeaders() || useRequestHeaders() || useCode() || useMessage()) {
+            return ResponseDataUsage.NONE;
+        }
+        return ResponseDataUsage.ALL;
+    }
+
     public void setUseField(String actionCommand) {
         setProperty(MATCH_AGAINST, actionCommand);
     }
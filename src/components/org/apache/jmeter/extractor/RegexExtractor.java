@@ -25,6 +25,7 @@ import java.util.List;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.jmeter.processor.PostProcessor;
+import org.apache.jmeter.samplers.ResponseDataUsage;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.AbstractScopedTestElement;
 import org.apache.jmeter.testelement.property.IntegerProperty;
@@ -44,7 +45,7 @@ import org.slf4j.LoggerFactory;
 
 // @see org.apache.jmeter.extractor.TestRegexExtractor for unit tests
 
-public class RegexExtractor extends AbstractScopedTestElement implements PostProcessor, Serializable {
+public class RegexExtractor extends AbstractScopedTestElement implements PostProcessor, ResponseDataUsage, Serializable {
 
     private static final long serialVersionUID = 242L;
 
@@ -516,6 +517,19 @@ public class RegexExtractor extends AbstractScopedTestElement implements PostPro
         return USE_MESSAGE.equalsIgnoreCase(prop);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The response data is only read when matching against the body.
+     */
+    @Override
+    public long getResponseDataUsage() {
+        if (isScopeVariable() || useUrl() || useHeaders() || useRequestHeaders() || useCode() || useMessage()) {
+            return ResponseDataUsage.NONE;
+        }
+        return ResponseDataUsage.ALL;
+    }
+
     public void setUseField(String actionCommand) {
         setProperty(MATCH_AGAINST,actionCommand);
     }
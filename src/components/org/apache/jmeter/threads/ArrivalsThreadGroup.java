@@ -0,0 +1,480 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jmeter.engine.StandardJMeterEngine;
+import org.apache.jmeter.engine.event.LoopIterationEvent;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.property.BooleanProperty;
+import org.apache.jmeter.testelement.property.IntegerProperty;
+import org.apache.jmeter.testelement.property.LongProperty;
+import org.apache.jmeter.testelement.property.StringProperty;
+import org.apache.jmeter.timers.poissonarrivals.ArrivalsSchedule;
+import org.apache.jmeter.timers.poissonarrivals.EventProducer;
+import org.apache.jmeter.timers.poissonarrivals.ScheduledArrivalsGenerator;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.apache.jorphan.util.JMeterStopTestException;
+import org.apache.jorphan.util.JMeterStopThreadException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Open model thread group: iterations are started following an arrival rate {@link ArrivalsSchedule}
+ * instead of being driven by a fixed number of threads.
+ * <p>
+ * A dispatcher thread generates the arrivals and hands them to an elastic pool of {@link JMeterThread}
+ * workers, each worker running one iteration of the group per arrival. Workers are added when no idle
+ * worker is available, up to {@link #getMaxConcurrency()}, and leave the pool when they stay idle.
+ * When all workers are busy arrivals are queued, once the queue is full they are dropped.
+ * <p>
+ * The first sample of each iteration holds the intended start time of its arrival, so that late
+ * arrivals show in its corrected response time. Each dropped arrival is notified to the listeners
+ * of the group as a failed sample, unless <code>arrivalsthreadgroup.report_dropped</code> is false.
+ * @since 4.1
+ */
+public class ArrivalsThreadGroup extends ThreadGroup {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = LoggerFactory.getLogger(ArrivalsThreadGroup.class);
+
+    /** How long an idle worker waits for an arrival before leaving the pool, default 30000ms */
+    private static final long IDLE_TIMEOUT =
+            JMeterUtils.getPropDefault("arrivalsthreadgroup.idle_timeout", 30000L); // $NON-NLS-1$
+
+    /** Delay after which an arrival is counted as late, default 100ms */
+    private static final long LATE_THRESHOLD =
+            JMeterUtils.getPropDefault("arrivalsthreadgroup.late_threshold", 100L); // $NON-NLS-1$
+
+    /** Whether dropped arrivals are notified to the listeners as failed samples, default true */
+    private static final boolean REPORT_DROPPED =
+            JMeterUtils.getPropDefault("arrivalsthreadgroup.report_dropped", true); // $NON-NLS-1$
+
+    /** Response code of the samples reporting dropped arrivals */
+    static final String DROPPED_RESPONSE_CODE = "Dropped"; // $NON-NLS-1$
+
+    /** How often waiting workers check for shutdown */
+    private static final long POLL_GRANULARITY = 1000L;
+
+    //+ JMX entries - do not change the string values
+
+    /** Arrival rate schedule, see {@link ArrivalsSchedule} */
+    public static final String SCHEDULE = "ArrivalsThreadGroup.schedule";
+
+    /** Maximum number of concurrent workers */
+    public static final String MAX_CONCURRENCY = "ArrivalsThreadGroup.max_concurrency";
+
+    /** Whether arrivals are random (Poisson) or evenly spaced */
+    public static final String RANDOM_ARRIVALS = "ArrivalsThreadGroup.random_arrivals";
+
+    /** Random seed, 0 to use a random one */
+    public static final String RANDOM_SEED = "ArrivalsThreadGroup.random_seed";
+
+    //- JMX entries
+
+    private transient Thread dispatcher;
+
+    private transient StandardJMeterEngine engine;
+
+    private transient ListenerNotifier listenerNotifier;
+
+    /** Listeners of the group, notified of the dropped arrivals */
+    private transient List<SampleListener> groupListeners;
+
+    /** How long an idle worker waits for an arrival before leaving the pool */
+    private transient long idleTimeout;
+
+    /** Intended start times (ms) of arrivals not yet taken by a worker */
+    private transient BlockingQueue<Long> arrivalsQueue;
+
+    private transient AtomicInteger idleWorkers;
+
+    /** Workers started but not yet waiting for their first arrival */
+    private transient AtomicInteger startingWorkers;
+
+    /** Number of workers started, numbers the next worker */
+    private transient AtomicInteger startedWorkers;
+
+    private final AtomicLong scheduledArrivals = new AtomicLong();
+
+    private final AtomicLong droppedArrivals = new AtomicLong();
+
+    private final AtomicLong lateArrivals = new AtomicLong();
+
+    private volatile boolean dispatching;
+
+    private volatile boolean dispatcherDone;
+
+    /** Worker side: true once the arrival listener is registered on this clone */
+    private transient boolean listenerRegistered;
+
+    /** Worker side: true once this worker waited for its first arrival */
+    private transient boolean workerStarted;
+
+    public ArrivalsThreadGroup() {
+        super();
+    }
+
+    public void setSchedule(String schedule) {
+        setProperty(new StringProperty(SCHEDULE, schedule));
+    }
+
+    public String getSchedule() {
+        return getPropertyAsString(SCHEDULE);
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        setProperty(new IntegerProperty(MAX_CONCURRENCY, maxConcurrency));
+    }
+
+    public int getMaxConcurrency() {
+        return getPropertyAsInt(MAX_CONCURRENCY);
+    }
+
+    public void setRandomArrivals(boolean randomArrivals) {
+        setProperty(new BooleanProperty(RANDOM_ARRIVALS, randomArrivals));
+    }
+
+    public boolean isRandomArrivals() {
+        return getPropertyAsBoolean(RANDOM_ARRIVALS);
+    }
+
+    public void setRandomSeed(long seed) {
+        setProperty(new LongProperty(RANDOM_SEED, seed));
+    }
+
+    public long getRandomSeed() {
+        return getPropertyAsLong(RANDOM_SEED);
+    }
+
+    /**
+     * @return number of arrivals generated by the schedule so far
+     */
+    public long getScheduledArrivals() {
+        return scheduledArrivals.get();
+    }
+
+    /**
+     * @return number of arrivals dropped because all workers were busy and the queue was full
+     */
+    public long getDroppedArrivals() {
+        return droppedArrivals.get();
+    }
+
+    /**
+     * @return number of arrivals started more than arrivalsthreadgroup.late_threshold ms after their intended time
+     */
+    public long getLateArrivals() {
+        return lateArrivals.get();
+    }
+
+    @Override
+    public void start(int groupNum, ListenerNotifier notifier, ListedHashTree threadGroupTree,
+            StandardJMeterEngine engine) {
+        ArrivalsSchedule schedule;
+        try {
+            schedule = ArrivalsSchedule.parse(getSchedule());
+        } catch (IllegalArgumentException e) {
+            throw new JMeterStopTestException("Invalid schedule in Thread Group:" + getName() + ", " + e.getMessage());
+        }
+        int maxConcurrency = getMaxConcurrency();
+        if (maxConcurrency <= 0) {
+            throw new JMeterStopTestException("Invalid max concurrency " + maxConcurrency
+                    + " set in Thread Group:" + getName());
+        }
+        this.engine = engine;
+        List<SampleListener> listeners = new ArrayList<>();
+        for (Object element : threadGroupTree.list(this)) {
+            if (element instanceof SampleListener) {
+                listeners.add((SampleListener) element);
+            }
+        }
+        prepareArrivals(maxConcurrency, notifier, listeners);
+        super.start(groupNum, notifier, threadGroupTree, engine);
+        log.info("Starting arrivals dispatcher for thread group {}, duration={}s expected arrivals={} max concurrency={}",
+                getName(), schedule.getDuration(), Math.round(schedule.getTotalArrivals()), maxConcurrency);
+        Long seed = getRandomSeed() == 0 ? null : getRandomSeed();
+        dispatcher = new Thread(
+                new ArrivalsDispatcher(new ScheduledArrivalsGenerator(schedule, isRandomArrivals(), seed)),
+                getName() + "-ArrivalsDispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Reset the state of the arrivals before the dispatcher starts
+     * @param maxConcurrency maximum number of workers, also the size of the queue of arrivals
+     * @param notifier {@link ListenerNotifier} notifying the dropped arrivals
+     * @param listeners listeners of the group
+     */
+    void prepareArrivals(int maxConcurrency, ListenerNotifier notifier, List<SampleListener> listeners) {
+        this.listenerNotifier = notifier;
+        this.groupListeners = listeners;
+        this.idleTimeout = IDLE_TIMEOUT;
+        this.arrivalsQueue = new ArrayBlockingQueue<>(maxConcurrency);
+        this.idleWorkers = new AtomicInteger();
+        this.startingWorkers = new AtomicInteger();
+        this.startedWorkers = new AtomicInteger();
+        scheduledArrivals.set(0);
+        droppedArrivals.set(0);
+        lateArrivals.set(0);
+        dispatcherDone = false;
+        dispatching = true;
+    }
+
+    // package protected for unit tests
+    void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Workers are only started on demand by the dispatcher
+     * @return 0
+     */
+    @Override
+    protected int getNumThreadsToStart() {
+        return 0;
+    }
+
+    /**
+     * Called in the worker thread on its clone of the thread group
+     */
+    @Override
+    public void initialize() {
+        super.initialize();
+        if (!listenerRegistered) {
+            addIterationListener(this::awaitArrival);
+            listenerRegistered = true;
+        }
+    }
+
+    /**
+     * Block the worker until an arrival is available for the iteration that is starting
+     * @param event {@link LoopIterationEvent}
+     * @throws JMeterStopThreadException if no arrival is available, the worker then leaves the pool
+     */
+    private void awaitArrival(LoopIterationEvent event) {
+        AbstractThreadGroup group = JMeterContextService.getContext().getThreadGroup();
+        boolean newWorker = !workerStarted;
+        workerStarted = true;
+        if (!(group instanceof ArrivalsThreadGroup) || !((ArrivalsThreadGroup) group).takeArrival(newWorker)) {
+            throw new JMeterStopThreadException("No more arrivals for thread in group " + getName());
+        }
+    }
+
+    /**
+     * Wait for an arrival
+     * @param newWorker true if the calling worker has just been started by the dispatcher
+     * @return true if the calling worker must run an iteration, false if it must leave the pool
+     */
+    boolean takeArrival(boolean newWorker) {
+        idleWorkers.incrementAndGet();
+        if (newWorker) {
+            startingWorkers.decrementAndGet();
+        }
+        boolean idle = true;
+        try {
+            long idleUntil = System.currentTimeMillis() + idleTimeout;
+            while (dispatching) {
+                long wait = Math.max(1L, Math.min(POLL_GRANULARITY, idleUntil - System.currentTimeMillis()));
+                Long intendedStart = arrivalsQueue.poll(wait, TimeUnit.MILLISECONDS);
+                if (intendedStart == null && (dispatcherDone || System.currentTimeMillis() >= idleUntil)) {
+                    // Stop being counted as idle before the last check: an arrival queued
+                    // after it makes the dispatcher start a new worker
+                    idleWorkers.decrementAndGet();
+                    idle = false;
+                    intendedStart = arrivalsQueue.poll();
+                    if (intendedStart == null) {
+                        return false;
+                    }
+                }
+                if (intendedStart != null) {
+                    if (System.currentTimeMillis() - intendedStart.longValue() > LATE_THRESHOLD) {
+                        lateArrivals.incrementAndGet();
+                    }
+                    JMeterContextService.getContext().setIntendedStartTime(intendedStart.longValue());
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (idle) {
+                idleWorkers.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Hand an arrival to the pool, starting a new worker if none is idle
+     * @param intendedStart intended start time of the iteration in ms
+     */
+    void dispatch(long intendedStart) {
+        scheduledArrivals.incrementAndGet();
+        if (!arrivalsQueue.offer(Long.valueOf(intendedStart))) {
+            droppedArrivals.incrementAndGet();
+            if (REPORT_DROPPED) {
+                notifyDropped(intendedStart);
+            }
+            return;
+        }
+        // Read the idle workers after queuing, see takeArrival
+        if (idleWorkers.get() + startingWorkers.get() < arrivalsQueue.size()
+                && numberOfActiveThreads() < getMaxConcurrency()) {
+            startingWorkers.incrementAndGet();
+            startWorker(startedWorkers.getAndIncrement());
+        }
+    }
+
+    /**
+     * Start a worker, which takes an arrival with {@link #takeArrival(boolean)}
+     * @param workerNum number of the worker in the group
+     */
+    void startWorker(int workerNum) {
+        startAdditionalThread(workerNum, engine);
+    }
+
+    /**
+     * Notify the listeners of the group of a dropped arrival, as a failed sample
+     * @param intendedStart intended start time of the arrival in ms
+     */
+    private void notifyDropped(long intendedStart) {
+        SampleResult result = new SampleResult();
+        result.setStampAndTime(System.currentTimeMillis(), 0);
+        result.setIntendedStartTime(intendedStart);
+        result.setSampleLabel(getName() + " dropped arrival");
+        result.setThreadName(Thread.currentThread().getName());
+        result.setSuccessful(false);
+        result.setResponseCode(DROPPED_RESPONSE_CODE);
+        result.setResponseMessage("All threads were busy and the queue of arrivals was full");
+        result.setGroupThreads(numberOfActiveThreads());
+        result.setAllThreads(JMeterContextService.getNumberOfThreads());
+        JMeterVariables variables = JMeterContextService.getContext().getVariables();
+        SampleEvent event = variables == null
+                ? new SampleEvent(result, getName())
+                : new SampleEvent(result, getName(), variables);
+        listenerNotifier.notifyListeners(event, groupListeners);
+    }
+
+    private void stopDispatcher() {
+        dispatching = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+    }
+
+    @Override
+    public void tellThreadsToStop(boolean now) {
+        stopDispatcher();
+        super.tellThreadsToStop(now);
+    }
+
+    @Override
+    public void stop() {
+        stopDispatcher();
+        super.stop();
+    }
+
+    @Override
+    public boolean verifyThreadsStopped() {
+        boolean stopped = true;
+        if (dispatcher != null && dispatcher.isAlive()) {
+            try {
+                dispatcher.join(POLL_GRANULARITY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stopped = !dispatcher.isAlive();
+        }
+        return super.verifyThreadsStopped() && stopped;
+    }
+
+    @Override
+    public void waitThreadsStopped() {
+        if (dispatcher != null) {
+            while (dispatcher.isAlive()) {
+                try {
+                    dispatcher.join(POLL_GRANULARITY);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        super.waitThreadsStopped();
+    }
+
+    /**
+     * Generates the arrivals and dispatches them to the workers
+     */
+    private class ArrivalsDispatcher implements Runnable {
+
+        private final EventProducer arrivals;
+        private final JMeterContext context;
+
+        ArrivalsDispatcher(EventProducer arrivals) {
+            this.arrivals = arrivals;
+            // Store context from Root Thread to pass it to created threads
+            this.context = JMeterContextService.getContext();
+        }
+
+        @Override
+        public void run() {
+            try {
+                // Copy in dispatcher thread context from calling Thread
+                JMeterContextService.getContext().setVariables(context.getVariables());
+                long start = System.currentTimeMillis();
+                while (dispatching) {
+                    double next = arrivals.next();
+                    if (Double.isInfinite(next)) {
+                        break;
+                    }
+                    long intendedStart = start + Math.round(next * 1000);
+                    long delay = intendedStart - System.currentTimeMillis();
+                    if (delay > 0) {
+                        TimeUnit.MILLISECONDS.sleep(delay);
+                    }
+                    if (dispatching) {
+                        dispatch(intendedStart);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ex) {
+                log.error("An error occurred dispatching arrivals for Thread Group: {}", getName(), ex);
+            } finally {
+                dispatcherDone = true;
+                log.info("Arrivals dispatcher of thread group {} finished, arrivals={} dropped={} late={}",
+                        getName(), getScheduledArrivals(), getDroppedArrivals(), getLateArrivals());
+            }
+        }
+    }
+}
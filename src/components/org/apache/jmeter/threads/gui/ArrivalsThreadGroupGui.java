@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.threads.gui;
+
+import java.awt.BorderLayout;
+
+import javax.swing.BorderFactory;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.JTextField;
+
+import org.apache.jmeter.control.LoopController;
+import org.apache.jmeter.gui.util.VerticalPanel;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jmeter.threads.ArrivalsThreadGroup;
+import org.apache.jmeter.util.JMeterUtils;
+
+/**
+ * GUI of {@link ArrivalsThreadGroup}
+ * @since 4.1
+ */
+public class ArrivalsThreadGroupGui extends AbstractThreadGroupGui {
+    private static final long serialVersionUID = 1L;
+
+    private static final String DEFAULT_SCHEDULE = "ramp 0 10 60\nsteady 10 600"; // $NON-NLS-1$
+
+    private JTextArea scheduleInput;
+
+    private JTextField maxConcurrencyInput;
+
+    private JCheckBox randomArrivals;
+
+    private JTextField randomSeedInput;
+
+    public ArrivalsThreadGroupGui() {
+        super();
+        init();
+        initGui();
+    }
+
+    @Override
+    public TestElement createTestElement() {
+        ArrivalsThreadGroup tg = new ArrivalsThreadGroup();
+        modifyTestElement(tg);
+        return tg;
+    }
+
+    /**
+     * Modifies a given TestElement to mirror the data in the gui components.
+     *
+     * @see org.apache.jmeter.gui.JMeterGUIComponent#modifyTestElement(TestElement)
+     */
+    @Override
+    public void modifyTestElement(TestElement tg) {
+        super.configureTestElement(tg);
+        if (tg instanceof AbstractThreadGroup) {
+            // Each worker loops over arrivals until it leaves the pool
+            LoopController looper = new LoopController();
+            looper.setLoops(LoopController.INFINITE_LOOP_COUNT);
+            ((AbstractThreadGroup) tg).setSamplerController(looper);
+        }
+        tg.setProperty(ArrivalsThreadGroup.SCHEDULE, scheduleInput.getText());
+        tg.setProperty(ArrivalsThreadGroup.MAX_CONCURRENCY, maxConcurrencyInput.getText());
+        tg.setProperty(ArrivalsThreadGroup.RANDOM_ARRIVALS, randomArrivals.isSelected(), false);
+        tg.setProperty(ArrivalsThreadGroup.RANDOM_SEED, randomSeedInput.getText(), ""); // $NON-NLS-1$
+    }
+
+    @Override
+    public void configure(TestElement tg) {
+        super.configure(tg);
+        scheduleInput.setText(tg.getPropertyAsString(ArrivalsThreadGroup.SCHEDULE));
+        maxConcurrencyInput.setText(tg.getPropertyAsString(ArrivalsThreadGroup.MAX_CONCURRENCY));
+        randomArrivals.setSelected(tg.getPropertyAsBoolean(ArrivalsThreadGroup.RANDOM_ARRIVALS));
+        randomSeedInput.setText(tg.getPropertyAsString(ArrivalsThreadGroup.RANDOM_SEED));
+    }
+
+    @Override
+    public String getLabelResource() {
+        return "arrivals_thread_group_title"; // $NON-NLS-1$
+    }
+
+    @Override
+    public void clearGui(){
+        super.clearGui();
+        initGui();
+    }
+
+    // Initialise the gui field values
+    private void initGui(){
+        scheduleInput.setText(DEFAULT_SCHEDULE);
+        maxConcurrencyInput.setText("100"); // $NON-NLS-1$
+        randomArrivals.setSelected(false);
+        randomSeedInput.setText(""); // $NON-NLS-1$
+    }
+
+    private void init() { // WARNING: called from ctor so must not be overridden (i.e. must be private or final)
+        VerticalPanel arrivalsPanel = new VerticalPanel();
+        arrivalsPanel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(),
+                JMeterUtils.getResString("arrivals_properties"))); // $NON-NLS-1$
+
+        JPanel schedulePanel = new JPanel(new BorderLayout(5, 0));
+        JLabel scheduleLabel = new JLabel(JMeterUtils.getResString("arrivals_schedule")); // $NON-NLS-1$
+        schedulePanel.add(scheduleLabel, BorderLayout.NORTH);
+        scheduleInput = new JTextArea(6, 40);
+        scheduleLabel.setLabelFor(scheduleInput);
+        schedulePanel.add(new JScrollPane(scheduleInput), BorderLayout.CENTER);
+        arrivalsPanel.add(schedulePanel);
+
+        JPanel concurrencyPanel = new JPanel(new BorderLayout(5, 0));
+        JLabel concurrencyLabel = new JLabel(JMeterUtils.getResString("arrivals_max_concurrency")); // $NON-NLS-1$
+        concurrencyPanel.add(concurrencyLabel, BorderLayout.WEST);
+        maxConcurrencyInput = new JTextField(5);
+        concurrencyLabel.setLabelFor(maxConcurrencyInput);
+        concurrencyPanel.add(maxConcurrencyInput, BorderLayout.CENTER);
+        arrivalsPanel.add(concurrencyPanel);
+
+        randomArrivals = new JCheckBox(JMeterUtils.getResString("arrivals_random")); // $NON-NLS-1$
+        arrivalsPanel.add(randomArrivals);
+
+        JPanel seedPanel = new JPanel(new BorderLayout(5, 0));
+        JLabel seedLabel = new JLabel(JMeterUtils.getResString("arrivals_random_seed")); // $NON-NLS-1$
+        seedPanel.add(seedLabel, BorderLayout.WEST);
+        randomSeedInput = new JTextField(10);
+        seedLabel.setLabelFor(randomSeedInput);
+        seedPanel.add(randomSeedInput, BorderLayout.CENTER);
+        arrivalsPanel.add(seedPanel);
+
+        add(arrivalsPanel, BorderLayout.CENTER);
+    }
+}
@@ -150,6 +150,10 @@ public class ConstantThroughputTimer extends AbstractTestElement implements Time
          * This is what we want, so first sample is run without a delay.
         */
         long currentTarget = previousTime  + calculateDelay();
+        if (previousTime > 0 && !isSharedMode()) {
+            // shared modes record it from the common schedule in calculateSharedDelay
+            JMeterContextService.getContext().setIntendedStartTime(currentTarget);
+        }
         if (currentTime > currentTarget) {
             // We're behind schedule -- try to catch up:
             previousTime = currentTime; // assume the sample will run immediately
@@ -220,6 +224,9 @@ public class ConstantThroughputTimer extends AbstractTestElement implements Time
         //Multiple threads don't update the scheduled time simultaneously
         synchronized (info.MUTEX) {
             final long nextRequestTime = info.lastScheduledTime + milliSecPerRequest;
+            if (info.lastScheduledTime > 0) {
+                JMeterContextService.getContext().setIntendedStartTime(nextRequestTime);
+            }
             info.lastScheduledTime = Math.max(now, nextRequestTime);
             calculatedDelay = info.lastScheduledTime - now;
         }
@@ -227,6 +234,10 @@ public class ConstantThroughputTimer extends AbstractTestElement implements Time
         return Math.max(calculatedDelay, 0);
     }
 
+    private boolean isSharedMode() {
+        return mode == Mode.AllActiveThreads_Shared || mode == Mode.AllActiveThreadsInCurrentThreadGroup_Shared;
+    }
+
     private void reset() {
         synchronized (allThreadsInfo.MUTEX) {
             allThreadsInfo.lastScheduledTime = 0;
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.timers.poissonarrivals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Arrival rate schedule made of consecutive segments, rates are expressed in arrivals per second
+ * and durations in seconds.
+ * <p>
+ * Segments are separated by new lines or <code>;</code> and can be:
+ * <ul>
+ *  <li><code>steady RATE DURATION</code>: constant rate</li>
+ *  <li><code>ramp FROM TO DURATION</code>: rate changing linearly from FROM to TO</li>
+ *  <li><code>step FROM TO STEPS DURATION</code>: STEPS constant rates evenly spread from FROM to TO</li>
+ * </ul>
+ * For instance <code>ramp 0 50 60; steady 50 600; ramp 50 0 60</code>.
+ * @since 4.1
+ */
+public final class ArrivalsSchedule {
+
+    /**
+     * Part of the schedule where the rate changes linearly
+     */
+    private static final class Segment {
+        private final double start;
+        private final double duration;
+        private final double fromRate;
+        private final double toRate;
+        /** Number of arrivals expected before start of segment */
+        private final double arrivalsBefore;
+
+        Segment(double start, double duration, double fromRate, double toRate, double arrivalsBefore) {
+            this.start = start;
+            this.duration = duration;
+            this.fromRate = fromRate;
+            this.toRate = toRate;
+            this.arrivalsBefore = arrivalsBefore;
+        }
+
+        double arrivals() {
+            return (fromRate + toRate) / 2 * duration;
+        }
+
+        double rateAt(double time) {
+            return fromRate + (toRate - fromRate) * (time - start) / duration;
+        }
+
+        /**
+         * Solve fromRate*t + (toRate-fromRate)/(2*duration)*t^2 = arrivals
+         * @param arrivals number of arrivals since segment start
+         * @return time since segment start of the last arrival
+         */
+        double timeOf(double arrivals) {
+            double halfSlope = (toRate - fromRate) / (2 * duration);
+            double discriminant = Math.max(0, fromRate * fromRate + 4 * halfSlope * arrivals);
+            double denominator = fromRate + Math.sqrt(discriminant);
+            if (denominator <= 0) {
+                return duration;
+            }
+            return Math.min(duration, 2 * arrivals / denominator);
+        }
+    }
+
+    private final List<Segment> segments;
+
+    private final double duration;
+
+    private final double totalArrivals;
+
+    private ArrivalsSchedule(List<Segment> segments) {
+        this.segments = Collections.unmodifiableList(segments);
+        if (segments.isEmpty()) {
+            this.duration = 0;
+            this.totalArrivals = 0;
+        } else {
+            Segment last = segments.get(segments.size() - 1);
+            this.duration = last.start + last.duration;
+            this.totalArrivals = last.arrivalsBefore + last.arrivals();
+        }
+    }
+
+    /**
+     * Parse a schedule
+     * @param schedule textual schedule, see class documentation
+     * @return {@link ArrivalsSchedule}
+     * @throws IllegalArgumentException if schedule is invalid
+     */
+    public static ArrivalsSchedule parse(String schedule) {
+        List<Segment> segments = new ArrayList<>();
+        double start = 0;
+        double arrivals = 0;
+        for (String line : StringUtils.split(StringUtils.defaultString(schedule), ";\r\n")) { // $NON-NLS-1$
+            String[] tokens = StringUtils.split(line.trim());
+            if (tokens.length == 0) {
+                continue;
+            }
+            List<double[]> parts = parseSegment(line, tokens);
+            for (double[] part : parts) {
+                Segment segment = new Segment(start, part[2], part[0], part[1], arrivals);
+                segments.add(segment);
+                start += segment.duration;
+                arrivals += segment.arrivals();
+            }
+        }
+        return new ArrivalsSchedule(segments);
+    }
+
+    /**
+     * @return list of {fromRate, toRate, duration} for the segment
+     */
+    private static List<double[]> parseSegment(String line, String[] tokens) {
+        String kind = tokens[0].toLowerCase(Locale.ROOT);
+        List<double[]> parts = new ArrayList<>();
+        switch (kind) {
+            case "steady": // $NON-NLS-1$
+                checkArgs(line, tokens, 3);
+                double rate = parseValue(line, tokens[1]);
+                parts.add(new double[]{rate, rate, parseDuration(line, tokens[2])});
+                break;
+            case "ramp": // $NON-NLS-1$
+                checkArgs(line, tokens, 4);
+                parts.add(new double[]{parseValue(line, tokens[1]), parseValue(line, tokens[2]),
+                        parseDuration(line, tokens[3])});
+                break;
+            case "step": // $NON-NLS-1$
+                checkArgs(line, tokens, 5);
+                double from = parseValue(line, tokens[1]);
+                double to = parseValue(line, tokens[2]);
+                int steps = (int) parseValue(line, tokens[3]);
+                double total = parseDuration(line, tokens[4]);
+                if (steps < 1) {
+                    throw new IllegalArgumentException("Number of steps must be positive in '" + line + "'");
+                }
+                for (int i = 0; i < steps; i++) {
+                    double stepRate = steps == 1 ? to : from + (to - from) * i / (steps - 1);
+                    parts.add(new double[]{stepRate, stepRate, total / steps});
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown segment type '" + tokens[0] + "' in '" + line
+                        + "', expected steady, ramp or step");
+        }
+        return parts;
+    }
+
+    private static void checkArgs(String line, String[] tokens, int expected) {
+        if (tokens.length != expected) {
+            throw new IllegalArgumentException("Expected " + (expected - 1) + " values in '" + line + "'");
+        }
+    }
+
+    private static double parseValue(String line, String token) {
+        try {
+            double value = Double.parseDouble(token);
+            if (value < 0 || Double.isNaN(value) || Double.isInfinite(value)) {
+                throw new IllegalArgumentException("Invalid negative or non finite value '" + token + "' in '"
+                        + line + "'");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number '" + token + "' in '" + line + "'", e);
+        }
+    }
+
+    private static double parseDuration(String line, String token) {
+        double value = parseValue(line, token);
+        if (value <= 0) {
+            throw new IllegalArgumentException("Duration must be positive in '" + line + "'");
+        }
+        return value;
+    }
+
+    /**
+     * @return duration of the schedule in seconds
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return number of arrivals expected over the whole schedule
+     */
+    public double getTotalArrivals() {
+        return totalArrivals;
+    }
+
+    /**
+     * @param time seconds since start of schedule
+     * @return target arrival rate (per second) at time, 0 outside of the schedule
+     */
+    public double getRate(double time) {
+        for (Segment segment : segments) {
+            if (time >= segment.start && time < segment.start + segment.duration) {
+                return segment.rateAt(time);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Provides the target rate at the current time for a schedule started at startTime
+     * @param startTime start of the schedule in milliseconds since epoch
+     * @return {@link ThroughputProvider} giving the current arrival rate per second
+     */
+    public ThroughputProvider getThroughputProvider(long startTime) {
+        return () -> getRate((System.currentTimeMillis() - startTime) / 1000.0d);
+    }
+
+    /**
+     * Inverse of the cumulative number of arrivals
+     * @param arrivals number of arrivals since start of schedule
+     * @return time (seconds since start of schedule) at which the given number of arrivals is reached
+     * or {@link Double#POSITIVE_INFINITY} if it is beyond the schedule
+     */
+    public double getTimeOfArrival(double arrivals) {
+        if (arrivals > totalArrivals) {
+            return Double.POSITIVE_INFINITY;
+        }
+        for (Segment segment : segments) {
+            double segmentArrivals = segment.arrivals();
+            if (arrivals <= segment.arrivalsBefore + segmentArrivals && segmentArrivals > 0) {
+                return segment.start + segment.timeOf(arrivals - segment.arrivalsBefore);
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+}
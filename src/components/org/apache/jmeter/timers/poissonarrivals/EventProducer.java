@@ -23,6 +23,6 @@ package org.apache.jmeter.timers.poissonarrivals;
  *
  */
 @FunctionalInterface
-interface EventProducer {
+public interface EventProducer {
     double next();
 }
@@ -113,7 +113,9 @@ public class PreciseThroughputTimer extends AbstractTestElement implements Clone
         synchronized (events) {
             nextEvent = events.next();
         }
-        long delay = (long) (nextEvent * TimeUnit.SECONDS.toMillis(1) + testStarted - System.currentTimeMillis());
+        long intendedStartTime = (long) (nextEvent * TimeUnit.SECONDS.toMillis(1) + testStarted);
+        getThreadContext().setIntendedStartTime(intendedStartTime);
+        long delay = intendedStartTime - System.currentTimeMillis();
         if (log.isDebugEnabled()) {
             log.debug("Calculated delay is {}", delay);
         }
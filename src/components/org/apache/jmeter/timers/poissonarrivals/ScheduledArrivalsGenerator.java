@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.timers.poissonarrivals;
+
+import java.util.Random;
+
+/**
+ * Generates arrivals following an {@link ArrivalsSchedule}.
+ * <p>
+ * Arrivals are either evenly spaced or random. Random arrivals form a non homogeneous Poisson process
+ * obtained by mapping a unit rate Poisson process through the inverse of the cumulative schedule.
+ * @since 4.1
+ */
+public class ScheduledArrivalsGenerator implements EventProducer {
+
+    private final ArrivalsSchedule schedule;
+    private final Random rnd;
+    private final boolean randomArrivals;
+    private double arrivals;
+
+    /**
+     * @param schedule {@link ArrivalsSchedule} to follow
+     * @param randomArrivals true to generate Poisson arrivals, false to generate evenly spaced arrivals
+     * @param seed random seed, null or 0 to use a random one
+     */
+    public ScheduledArrivalsGenerator(ArrivalsSchedule schedule, boolean randomArrivals, Long seed) {
+        this.schedule = schedule;
+        this.randomArrivals = randomArrivals;
+        this.rnd = seed != null && seed.longValue() != 0 ? new Random(seed) : new Random();
+    }
+
+    /**
+     * @return time of the next arrival in seconds since the start of the schedule,
+     * {@link Double#POSITIVE_INFINITY} once the schedule is over
+     */
+    @Override
+    public double next() {
+        if (randomArrivals) {
+            // https://en.wikipedia.org/wiki/Exponential_distribution#Generating_exponential_variates
+            arrivals += -Math.log(1 - rnd.nextDouble());
+        } else {
+            arrivals += 1;
+        }
+        return schedule.getTimeOfArrival(arrivals);
+    }
+}
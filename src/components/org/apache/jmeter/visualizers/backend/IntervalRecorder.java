@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.visualizers.backend;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.jmeter.control.TransactionController;
+import org.apache.jmeter.report.processor.HistogramPercentileAggregator;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the samples of a {@link SamplerMetric} for
+ * {@link WindowMode#HISTOGRAM} mode.
+ * <p>
+ * Samples are added to the current {@link Interval}. The first read after a
+ * reset swaps the current interval with an empty one, so the reading thread
+ * never blocks the threads adding samples while it computes metrics. A writer
+ * that still holds the swapped interval notices it has been retired and
+ * records into the new one, so no sample is lost or counted twice.
+ * <p>
+ * Counts, min, max and mean are exact, percentiles are taken from a
+ * {@link HistogramPercentileAggregator} of precision
+ * <code>backend_metrics_histogram_precision</code>: their relative error is
+ * below 10<sup>-precision</sup>.
+ *
+ * @since 4.1
+ */
+final class IntervalRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(IntervalRecorder.class);
+
+    private static final int DEFAULT_PRECISION = 2;
+
+    private static final int PRECISION = getPrecision();
+
+    private volatile Interval current = new Interval();
+
+    /** Interval being read, null until the first read after a reset */
+    private Interval snapshot;
+
+    private static int getPrecision() {
+        int precision = JMeterUtils.getPropDefault("backend_metrics_histogram_precision", DEFAULT_PRECISION); //$NON-NLS-1$
+        if (precision < HistogramPercentileAggregator.MIN_PRECISION
+                || precision > HistogramPercentileAggregator.MAX_PRECISION) {
+            log.warn("Invalid backend_metrics_histogram_precision {}, defaulting to {}", precision, DEFAULT_PRECISION);
+            return DEFAULT_PRECISION;
+        }
+        return precision;
+    }
+
+    void add(SampleResult result) {
+        while (!current.add(result)) {
+            // Retired while we were trying to record, use the new one
+        }
+    }
+
+    /**
+     * @return the samples recorded since the last reset, the same instance is
+     *         returned until {@link #reset()} is called
+     */
+    synchronized Interval getSnapshot() {
+        if (snapshot == null) {
+            Interval retired = current;
+            current = new Interval();
+            retired.retire();
+            snapshot = retired;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Starts a new time interval, samples not read yet are discarded
+     */
+    synchronized void reset() {
+        if (snapshot == null) {
+            getSnapshot();
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Response times of OK, KO or all samples
+     */
+    static final class ResponseTimes {
+        // Index is not used, percentiles are requested by getPercentile
+        private final HistogramPercentileAggregator histogram = new HistogramPercentileAggregator(50, PRECISION);
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+        private double sum;
+
+        private void add(long time) {
+            histogram.addValue(time);
+            min = Math.min(min, time);
+            max = Math.max(max, time);
+            sum += time;
+        }
+
+        double getMin() {
+            return histogram.getCount() == 0 ? Double.NaN : min;
+        }
+
+        double getMax() {
+            return histogram.getCount() == 0 ? Double.NaN : max;
+        }
+
+        double getMean() {
+            return histogram.getCount() == 0 ? Double.NaN : sum / histogram.getCount();
+        }
+
+        double getPercentile(double percentile) {
+            return histogram.getPercentile(percentile);
+        }
+    }
+
+    /**
+     * Samples of a time interval, only read once retired
+     */
+    static final class Interval {
+        private final ResponseTimes okResponses = new ResponseTimes();
+        private final ResponseTimes koResponses = new ResponseTimes();
+        private final ResponseTimes allResponses = new ResponseTimes();
+        private final Map<ErrorMetric, Integer> errors = new HashMap<>();
+        private int successes;
+        private int failures;
+        private int hits;
+        private long sentBytes;
+        private long receivedBytes;
+        private boolean retired;
+
+        /**
+         * @param result {@link SampleResult} to record
+         * @return false if the interval was retired and nothing was recorded
+         */
+        private synchronized boolean add(SampleResult result) {
+            if (retired) {
+                return false;
+            }
+            long time = result.getTime();
+            allResponses.add(time);
+            if (result.isSuccessful()) {
+                successes += result.getSampleCount() - result.getErrorCount();
+                okResponses.add(time);
+            } else {
+                failures += result.getErrorCount();
+                koResponses.add(time);
+                ErrorMetric error = new ErrorMetric(result);
+                errors.merge(error, result.getErrorCount(), Integer::sum);
+            }
+            hits += SamplerMetric.countHits(result);
+            if (!TransactionController.isFromTransactionController(result)) {
+                sentBytes += result.getSentBytes();
+                receivedBytes += result.getBytesAsLong();
+            }
+            return true;
+        }
+
+        /**
+         * Waits for a writer recording into this interval, later writers will
+         * see it retired
+         */
+        private synchronized void retire() {
+            retired = true;
+        }
+
+        ResponseTimes getOkResponses() {
+            return okResponses;
+        }
+
+        ResponseTimes getKoResponses() {
+            return koResponses;
+        }
+
+        ResponseTimes getAllResponses() {
+            return allResponses;
+        }
+
+        Map<ErrorMetric, Integer> getErrors() {
+            return errors;
+        }
+
+        int getSuccesses() {
+            return successes;
+        }
+
+        int getFailures() {
+            return failures;
+        }
+
+        int getHits() {
+            return hits;
+        }
+
+        long getSentBytes() {
+            return sentBytes;
+        }
+
+        long getReceivedBytes() {
+            return receivedBytes;
+        }
+    }
+}
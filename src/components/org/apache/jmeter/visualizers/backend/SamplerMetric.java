@@ -64,14 +64,28 @@ public class SamplerMetric {
     private Map<ErrorMetric, Integer> errors = new HashMap<>();
     private long sentBytes;
     private long receivedBytes;
+    private final WindowMode windowMode;
+    /**
+     * Samples of the current time slot in {@link WindowMode#HISTOGRAM} mode, null otherwise
+     */
+    private final IntervalRecorder recorder;
 
     
     /**
      * 
      */
     public SamplerMetric() {
+        this(WINDOW_MODE);
+    }
+
+    /**
+     * @param windowMode {@link WindowMode} to use instead of backend_metrics_window_mode
+     */
+    SamplerMetric(WindowMode windowMode) {
+        this.windowMode = windowMode;
+        recorder = windowMode == WindowMode.HISTOGRAM ? new IntervalRecorder() : null;
         // Limit to sliding window of SLIDING_WINDOW_SIZE values for FIXED mode
-        if (WINDOW_MODE == WindowMode.FIXED) {
+        if (windowMode == WindowMode.FIXED) {
             for (DescriptiveStatistics stat : windowedStats) {
                 stat.setWindowSize(SLIDING_WINDOW_SIZE);
             }
@@ -89,7 +103,15 @@ public class SamplerMetric {
      * Add a {@link SampleResult} to be used in the statistics
      * @param result {@link SampleResult} to be used
      */
-    public synchronized void add(SampleResult result) {
+    public void add(SampleResult result) {
+        if (recorder != null) {
+            recorder.add(result);
+        } else {
+            addToWindows(result);
+        }
+    }
+
+    private synchronized void addToWindows(SampleResult result) {
         if(result.isSuccessful()) {
             successes+=result.getSampleCount()-result.getErrorCount();
         } else {
@@ -127,20 +149,27 @@ public class SamplerMetric {
      * @param res {@link SampleResult}
      */
     private void addHits(SampleResult res) {     
-        SampleResult[] subResults = res.getSubResults();
-        if (!TransactionController.isFromTransactionController(res)) {
-            hits += 1;
-        }
-        for (SampleResult subResult : subResults) {
-            addHits(subResult);
+        hits += countHits(res);
+    }
+
+    /**
+     * Count hits of res and its sub results
+     * @param res {@link SampleResult}
+     * @return the number of hits
+     */
+    static int countHits(SampleResult res) {
+        int count = TransactionController.isFromTransactionController(res) ? 0 : 1;
+        for (SampleResult subResult : res.getSubResults()) {
+            count += countHits(subResult);
         }
+        return count;
     }
     
     /**
      * Reset metric except for percentile related data
      */
     public synchronized void resetForTimeInterval() {
-        switch (WINDOW_MODE) {
+        switch (windowMode) {
         case FIXED:
             // We don't clear responsesStats nor usersStats as it will slide as per my understanding of 
             // http://commons.apache.org/proper/commons-math/userguide/stat.html
@@ -150,6 +179,9 @@ public class SamplerMetric {
                 stat.clear();
             }
             break;
+        case HISTOGRAM:
+            recorder.reset();
+            break;
         default: 
             // This cannot happen
         }
@@ -167,6 +199,10 @@ public class SamplerMetric {
      * @return number of total requests
      */
     public int getTotal() {
+        if (recorder != null) {
+            IntervalRecorder.Interval interval = recorder.getSnapshot();
+            return interval.getSuccesses() + interval.getFailures();
+        }
         return successes+failures;
     }
     
@@ -176,6 +212,9 @@ public class SamplerMetric {
      * @return number of successful requests
      */
     public int getSuccesses() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getSuccesses();
+        }
         return successes;
     }
 
@@ -185,6 +224,9 @@ public class SamplerMetric {
      * @return number of failed requests
      */
     public int getFailures() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getFailures();
+        }
         return failures;
     }
 
@@ -195,6 +237,9 @@ public class SamplerMetric {
      *         been added yet
      */
     public double getOkMaxTime() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getOkResponses().getMax();
+        }
         return okResponsesStats.getMax();
     }
 
@@ -205,6 +250,9 @@ public class SamplerMetric {
      *         added yet
      */
     public double getOkMinTime() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getOkResponses().getMin();
+        }
         return okResponsesStats.getMin();
     }
     
@@ -214,6 +262,9 @@ public class SamplerMetric {
      * @return The arithmetic mean of the stored values
      */
     public double getOkMean() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getOkResponses().getMean();
+        }
         return okResponsesStats.getMean();
     }
     
@@ -226,6 +277,9 @@ public class SamplerMetric {
      *         values.
      */
     public double getOkPercentile(double percentile) {
+        if (recorder != null) {
+            return recorder.getSnapshot().getOkResponses().getPercentile(percentile);
+        }
         return okResponsesStats.getPercentile(percentile);
     }
 
@@ -236,6 +290,9 @@ public class SamplerMetric {
      *         been added yet
      */
     public double getKoMaxTime() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getKoResponses().getMax();
+        }
         return koResponsesStats.getMax();
     }
 
@@ -246,6 +303,9 @@ public class SamplerMetric {
      *         added yet
      */
     public double getKoMinTime() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getKoResponses().getMin();
+        }
         return koResponsesStats.getMin();
     }
     
@@ -255,6 +315,9 @@ public class SamplerMetric {
      * @return The arithmetic mean of the stored values
      */
     public double getKoMean() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getKoResponses().getMean();
+        }
         return koResponsesStats.getMean();
     }
     
@@ -267,6 +330,9 @@ public class SamplerMetric {
      *         values.
      */
     public double getKoPercentile(double percentile) {
+        if (recorder != null) {
+            return recorder.getSnapshot().getKoResponses().getPercentile(percentile);
+        }
         return koResponsesStats.getPercentile(percentile);
     }
     
@@ -277,6 +343,9 @@ public class SamplerMetric {
      *         been added yet
      */
     public double getAllMaxTime() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getAllResponses().getMax();
+        }
         return allResponsesStats.getMax();
     }
 
@@ -287,6 +356,9 @@ public class SamplerMetric {
      *         added yet
      */
     public double getAllMinTime() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getAllResponses().getMin();
+        }
         return allResponsesStats.getMin();
     }
     
@@ -296,6 +368,9 @@ public class SamplerMetric {
      * @return The arithmetic mean of the stored values
      */
     public double getAllMean() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getAllResponses().getMean();
+        }
         return allResponsesStats.getMean();
     }
     
@@ -308,6 +383,9 @@ public class SamplerMetric {
      *         values.
      */
     public double getAllPercentile(double percentile) {
+        if (recorder != null) {
+            return recorder.getSnapshot().getAllResponses().getPercentile(percentile);
+        }
         return pctResponseStats.getPercentile(percentile);
     }
 
@@ -316,6 +394,9 @@ public class SamplerMetric {
      * @return the hits
      */
     public int getHits() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getHits();
+        }
         return hits;
     }
     
@@ -324,6 +405,9 @@ public class SamplerMetric {
      * @return errors
      */
     public Map<ErrorMetric, Integer> getErrors() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getErrors();
+        }
         return errors;
     }
 
@@ -331,6 +415,9 @@ public class SamplerMetric {
      * @return the sentBytes
      */
     public long getSentBytes() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getSentBytes();
+        }
         return sentBytes;
     }
 
@@ -338,6 +425,9 @@ public class SamplerMetric {
      * @return the receivedBytes
      */
     public long getReceivedBytes() {
+        if (recorder != null) {
+            return recorder.getSnapshot().getReceivedBytes();
+        }
         return receivedBytes;
     }
 }
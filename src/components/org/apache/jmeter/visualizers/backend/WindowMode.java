@@ -21,14 +21,20 @@ package org.apache.jmeter.visualizers.backend;
 import org.apache.jmeter.util.JMeterUtils;
 
 /**
- * Metrics are sent into boxes which can be {@link #FIXED a fixed-size sliding window} or {@link #TIMED time boxed}.
+ * Metrics are sent into boxes which can be {@link #FIXED a fixed-size sliding window}, {@link #TIMED time boxed}
+ * or {@link #HISTOGRAM time boxed histograms}.
  * @since 3.2
  */
 public enum WindowMode {
     /** Fixed-size sliding window. **/
     FIXED,
     /** Time boxed. **/
-    TIMED;
+    TIMED,
+    /**
+     * Time boxed, all samples of the interval are recorded in histograms.
+     * @since 4.1
+     **/
+    HISTOGRAM;
 
     /**
      * Gets defined JMeter mode.
@@ -74,6 +74,7 @@ import org.apache.jmeter.gui.util.FocusRequester;
 import org.apache.jmeter.plugin.JMeterPlugin;
 import org.apache.jmeter.plugin.PluginManager;
 import org.apache.jmeter.report.config.ConfigurationException;
+import org.apache.jmeter.report.core.BinarySampleWriter;
 import org.apache.jmeter.report.dashboard.GenerationException;
 import org.apache.jmeter.report.dashboard.ReportGenerator;
 import org.apache.jmeter.reporters.ResultCollector;
@@ -154,6 +155,7 @@ public class JMeter implements JMeterPlugin {
     private static final int REPORT_AT_END_OPT      = 'e';// $NON-NLS-1$
     private static final int REPORT_OUTPUT_FOLDER_OPT      = 'o';// $NON-NLS-1$
     private static final int FORCE_DELETE_RESULT_FILE      = 'f';// $NON-NLS-1$
+    private static final int CONVERT_RESULTS_OPT    = 'c';// $NON-NLS-1$
     
     private static final int SYSTEM_PROPERTY    = 'D';// $NON-NLS-1$
     private static final int JMETER_GLOBAL_PROP = 'G';// $NON-NLS-1$
@@ -279,6 +281,11 @@ public class JMeter implements JMeterPlugin {
             new CLOptionDescriptor("forceDeleteResultFile",
                     CLOptionDescriptor.ARGUMENT_DISALLOWED, FORCE_DELETE_RESULT_FILE,
                     "force delete existing results files and web report folder if present before starting the test");
+    private static final CLOptionDescriptor D_CONVERT_RESULTS_OPT =
+            new CLOptionDescriptor("convertresults",
+                    CLOptionDescriptor.ARGUMENT_REQUIRED, CONVERT_RESULTS_OPT,
+                    "convert a CSV results file to the binary results file given by -l",
+                    new CLOptionDescriptor[]{ D_NONGUI_OPT, D_REMOTE_OPT, D_REMOTE_OPT_PARAM, D_REPORT_GENERATING_OPT }); // disallowed
 
     private static final String[][] DEFAULT_ICONS = {
             { "org.apache.jmeter.control.gui.TestPlanGui",               "org/apache/jmeter/images/beaker.gif" },     //$NON-NLS-1$ $NON-NLS-2$
@@ -324,6 +331,7 @@ public class JMeter implements JMeterPlugin {
             D_REPORT_GENERATING_OPT,
             D_REPORT_AT_END_OPT,
             D_REPORT_OUTPUT_FOLDER_OPT,
+            D_CONVERT_RESULTS_OPT,
     };
     
     /** Properties to be sent to remote servers */
@@ -515,7 +523,17 @@ public class JMeter implements JMeterPlugin {
                     }
                 }
                 CLOption testReportOpt = parser.getArgumentById(REPORT_GENERATING_OPT);
-                if (testReportOpt != null) { // generate report from existing file
+                CLOption convertResultsOpt = parser.getArgumentById(CONVERT_RESULTS_OPT);
+                if (convertResultsOpt != null) { // convert existing CSV file to binary
+                    CLOption jtl = parser.getArgumentById(LOGFILE_OPT);
+                    if (jtl == null) {
+                        throw new IllegalUserActionException(
+                                "Option -"+ ((char)CONVERT_RESULTS_OPT)+" requires -"+((char)LOGFILE_OPT )+ " option");
+                    }
+                    long count = BinarySampleWriter.convert(
+                            new File(convertResultsOpt.getArgument()), new File(jtl.getArgument()));
+                    println("Converted " + count + " samples to " + jtl.getArgument());
+                } else if (testReportOpt != null) { // generate report from existing file
                     String reportFile = testReportOpt.getArgument();
                     extractAndSetReportOutputFolder(parser, false);
                     ReportGenerator generator = new ReportGenerator(reportFile, null);
@@ -981,6 +999,7 @@ public class JMeter implements JMeterPlugin {
             ReportGenerator reportGenerator = null;
             if (logFile != null && generateReportDashboard) {
                 reportGenerator = new ReportGenerator(logFile, resultCollector);
+                reportGenerator.startLiveGeneration();
             }
 
             // Used for remote notification of threads start/stop,see BUG 54152
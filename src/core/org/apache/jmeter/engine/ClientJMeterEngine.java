@@ -121,6 +121,17 @@ public class ClientJMeterEngine implements JMeterEngine {
 
     @Override
     public void runTest() throws JMeterEngineException {
+        prepareTest();
+        sendTest();
+        startTest();
+    }
+
+    /**
+     * Prepares the test tree before it is sent to the remote engine. The
+     * elements shared with the test trees of the other remote engines are
+     * modified, so the test trees must be prepared one at a time.
+     */
+    void prepareTest() {
         log.info("running clientengine run method");
         
         // See https://bz.apache.org/bugzilla/show_bug.cgi?id=55510
@@ -134,21 +145,30 @@ public class ClientJMeterEngine implements JMeterEngine {
             testTree.traverse(new TurnElementsOn());
             testTree.traverse(new ConvertListeners());
         }
+        JMeterContextService.startTest();
+    }
 
+    /**
+     * Sends the prepared test tree and the properties to the remote engine.
+     * The test trees of several remote engines can be sent in parallel, but
+     * they are serialized one at a time as they share elements.
+     *
+     * @throws JMeterEngineException if the remote engine cannot be configured
+     */
+    void sendTest() throws JMeterEngineException {
         String methodName="unknown";
         try {
-            JMeterContextService.startTest();
+            File baseDirRelative = FileServer.getFileServer().getBaseDirRelative();
+            String scriptName = FileServer.getFileServer().getScriptName();
             /*
              * Add fix for Deadlocks, see:
              * 
              * See https://bz.apache.org/bugzilla/show_bug.cgi?id=48350
             */
-            File baseDirRelative = FileServer.getFileServer().getBaseDirRelative();
-            String scriptName = FileServer.getFileServer().getScriptName();
             synchronized(LOCK)
             {
                 methodName="rconfigure()"; // NOSONAR Used for tracing
-                remote.rconfigure(testTree, hostAndPort, baseDirRelative, scriptName);
+                remote.rconfigure(test, hostAndPort, baseDirRelative, scriptName);
             }
             log.info("sent test to {} basedir='{}'", hostAndPort, baseDirRelative); // $NON-NLS-1$
             if(savep == null) {
@@ -161,9 +181,6 @@ public class ClientJMeterEngine implements JMeterEngine {
             } catch (RemoteException e) {
                 log.warn("Could not set properties: " + e.toString());
             }
-            methodName="rrunTest()";
-            remote.rrunTest();
-            log.info("sent run command to {}", hostAndPort);
         } catch (IllegalStateException ex) {
             log.error("Error in {} method ", methodName, ex); // $NON-NLS-1$ $NON-NLS-2$
             tidyRMI(log);
@@ -175,6 +192,28 @@ public class ClientJMeterEngine implements JMeterEngine {
         }
     }
 
+    /**
+     * Starts the test on the remote engine, once the test was sent.
+     * Must be called by the thread that sent the test, as the remote engine
+     * only accepts calls from the RMI connection it was configured by.
+     *
+     * @throws JMeterEngineException if the test cannot be started
+     */
+    void startTest() throws JMeterEngineException {
+        try {
+            remote.rrunTest();
+            log.info("sent run command to {}", hostAndPort);
+        } catch (IllegalStateException ex) {
+            log.error("Error in rrunTest() method ", ex); // $NON-NLS-1$
+            tidyRMI(log);
+            throw ex; // Don't wrap this error - display it as is
+        } catch (Exception ex) {
+            log.error("Error in rrunTest() method "+ex); // $NON-NLS-1$
+            tidyRMI(log);
+            throw new JMeterEngineException("Error in rrunTest() method "+ex, ex); // $NON-NLS-1$
+        }
+    }
+
     /**
      * Tidy up RMI access to allow JMeter client to exit.
      * Currently just interrupts the "RMI Reaper" thread.
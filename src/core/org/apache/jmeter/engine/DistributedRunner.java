@@ -24,6 +24,7 @@ import java.io.PrintStream;
 import java.net.MalformedURLException;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -31,6 +32,14 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.collections.HashTree;
@@ -86,11 +95,13 @@ public class DistributedRunner {
                 }
             }
 
+            // Remote engines are located in parallel, as lookups may wait for timeouts
+            Map<String, Object> located = locateEngines(addrs);
             int idx = 0;
             while (idx < addrs.size()) {
                 String address = addrs.get(idx);
                 println("Configuring remote engine: " + address);
-                JMeterEngine engine = getClientEngine(address.trim(), tree);
+                JMeterEngine engine = getClientEngine(address, located.get(address), tree);
                 if (engine != null) {
                     engines.put(address, engine);
                     addrs.remove(address);
@@ -118,26 +129,83 @@ public class DistributedRunner {
     }
 
     /**
-     * Starts a remote testing engines
+     * Starts a remote testing engines.
+     * <p>
+     * The test is sent to all the engines in parallel, then they are started
+     * together once they are all configured, so that they start as close as
+     * possible to a common start time.
      *
      * @param addresses list of the DNS names or IP addresses of the remote testing engines
      */
     public void start(List<String> addresses) {
         println("Starting remote engines");
-        long now = System.currentTimeMillis();
-        println("Starting the test @ " + new Date(now) + " (" + now + ")");
+        List<String> activeAddresses = new ArrayList<>();
         for (String address : addresses) {
-            try {
-                if (engines.containsKey(address)) {
-                    engines.get(address).runTest();
-                } else {
-                    log.warn("Host not found in list of active engines: {}", address);
+            if (engines.containsKey(address)) {
+                activeAddresses.add(address);
+            } else {
+                log.warn("Host not found in list of active engines: {}", address);
+            }
+        }
+        // Test trees share elements, they are prepared one at a time before being sent
+        for (String address : activeAddresses) {
+            JMeterEngine engine = engines.get(address);
+            if (engine instanceof ClientJMeterEngine) {
+                ((ClientJMeterEngine) engine).prepareTest();
+            }
+        }
+        long[] startTime = new long[1];
+        CyclicBarrier configured = new CyclicBarrier(Math.max(1, activeAddresses.size()), () -> {
+            startTime[0] = System.currentTimeMillis();
+            println("Starting the test @ " + new Date(startTime[0]) + " (" + startTime[0] + ")");
+        });
+        List<Callable<EngineTiming>> tasks = new ArrayList<>();
+        for (String address : activeAddresses) {
+            tasks.add(() -> startEngine(address, engines.get(address), configured, startTime));
+        }
+        long begin = System.currentTimeMillis();
+        for (EngineTiming timing : invokeAll(tasks)) {
+            if (timing.error != null) {
+                JMeterUtils.reportErrorToUser(timing.error.getMessage(),
+                        JMeterUtils.getResString("remote_error_starting")); // $NON-NLS-1$
+            } else {
+                println("Remote engine " + timing.address + " configured in " + timing.configureTime
+                        + " ms, started " + timing.startOffset + " ms after the common start time");
+            }
+        }
+        println("Remote engines have been started in " + (System.currentTimeMillis() - begin) + " ms");
+    }
+
+    /**
+     * Sends the test to the engine, waits for the other engines to be
+     * configured, then starts the test. The test is sent and started by the
+     * same thread, as remote engines only accept calls from the RMI connection
+     * they were configured by.
+     */
+    private static EngineTiming startEngine(String address, JMeterEngine engine, CyclicBarrier configured,
+            long[] startTime) throws InterruptedException {
+        EngineTiming timing = new EngineTiming(address);
+        long begin = System.currentTimeMillis();
+        try {
+            if (engine instanceof ClientJMeterEngine) {
+                try {
+                    ((ClientJMeterEngine) engine).sendTest();
+                } finally {
+                    timing.configureTime = System.currentTimeMillis() - begin;
+                    configured.await();
                 }
-            } catch (IllegalStateException | JMeterEngineException e) { // NOSONAR already reported to user
-                JMeterUtils.reportErrorToUser(e.getMessage(), JMeterUtils.getResString("remote_error_starting")); // $NON-NLS-1$  
+                ((ClientJMeterEngine) engine).startTest();
+            } else {
+                configured.await();
+                engine.runTest();
             }
+            timing.startOffset = System.currentTimeMillis() - startTime[0];
+        } catch (IllegalStateException | JMeterEngineException e) { // NOSONAR reported to user by caller
+            timing.error = e;
+        } catch (BrokenBarrierException e) {
+            timing.error = new IllegalStateException("Engine " + address + " not started, start was interrupted", e);
         }
-        println("Remote engines have been started");
+        return timing;
     }
 
     /**
@@ -207,10 +275,38 @@ public class DistributedRunner {
         println("Remote engines have been exited");
     }
 
-    private JMeterEngine getClientEngine(String address, HashTree testTree) {
+    /**
+     * Locates the engines in parallel
+     *
+     * @return the located engine or the exception thrown when locating it, by
+     *         address
+     */
+    private Map<String, Object> locateEngines(List<String> addresses) {
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (String address : addresses) {
+            tasks.add(() -> {
+                try {
+                    return createEngine(address.trim());
+                } catch (Exception ex) { // NOSONAR reported by getClientEngine
+                    return ex;
+                }
+            });
+        }
+        List<Object> results = invokeAll(tasks);
+        Map<String, Object> located = new HashMap<>();
+        for (int i = 0; i < addresses.size(); i++) {
+            located.put(addresses.get(i), results.get(i));
+        }
+        return located;
+    }
+
+    private JMeterEngine getClientEngine(String address, Object located, HashTree testTree) {
         JMeterEngine engine;
         try {
-            engine = createEngine(address);
+            if (located instanceof Exception) {
+                throw (Exception) located;
+            }
+            engine = (JMeterEngine) located;
             engine.configure(testTree);
             if (!remoteProps.isEmpty()) {
                 engine.setProperties(remoteProps);
@@ -224,6 +320,37 @@ public class DistributedRunner {
         }
     }
 
+    /**
+     * Runs the tasks, each in its own thread
+     *
+     * @return the results of the tasks, in the order of the tasks
+     */
+    private static <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        if (tasks.isEmpty()) {
+            return new ArrayList<>();
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size(), r -> {
+            Thread thread = new Thread(r, "DistributedRunner-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for remote engines", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failure while waiting for remote engines", e.getCause()); // NOSONAR
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * A factory method that might be overridden for unit testing
      *
@@ -263,6 +390,20 @@ public class DistributedRunner {
         }
     }
 
+    /**
+     * Timing of the start of an engine
+     */
+    private static final class EngineTiming {
+        private final String address;
+        private long configureTime;
+        private long startOffset;
+        private Exception error;
+
+        private EngineTiming(String address) {
+            this.address = address;
+        }
+    }
+
     /**
      * @return {@link Collection} of {@link JMeterEngine}
      */
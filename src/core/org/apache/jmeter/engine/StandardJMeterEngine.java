@@ -220,6 +220,8 @@ public class StandardJMeterEngine implements JMeterEngine, Runnable {
     }
 
     private void notifyTestListenersOfEnd(SearchByClass<TestStateListener> testListeners) {
+        // Results must be complete before the listeners close their outputs
+        ListenerNotifier.waitForAsyncListeners();
         log.info("Notifying test listeners of end of test");
         for (TestStateListener tl : testListeners.getSearchResults()) {
             try {
@@ -18,6 +18,7 @@
 
 package org.apache.jmeter.engine.util;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -46,6 +47,8 @@ public class CompoundVariable implements Function {
 
     private static final FunctionParser functionParser = new FunctionParser();
 
+    private static final Object[] NO_COMPONENTS = new Object[0];
+
     // Created during class init; not modified thereafter 
     private static final Map<String, Class<? extends Function>> functions = new HashMap<>();
 
@@ -54,7 +57,13 @@ public class CompoundVariable implements Function {
 
     private String permanentResults;
 
-    private LinkedList<Object> compiledComponents = new LinkedList<>();
+    /**
+     * Functions, variables and constant Strings, adjacent constants are joined
+     */
+    private Object[] compiledComponents = NO_COMPONENTS;
+
+    /** sum of the constant Strings lengths, used to size the result */
+    private int constantLength;
 
     static {
         try {
@@ -125,38 +134,47 @@ public class CompoundVariable implements Function {
     /** {@inheritDoc} */
     @Override
     public String execute(SampleResult previousResult, Sampler currentSampler) {
-        if (compiledComponents == null || compiledComponents.isEmpty()) {
+        if (compiledComponents.length == 0) {
             return ""; // $NON-NLS-1$
         }
-        
-        StringBuilder results = new StringBuilder();
-        for (Object item : compiledComponents) {
-            if (item instanceof Function) {
-                try {
-                    results.append(((Function) item).execute(previousResult, currentSampler));
-                } catch (InvalidVariableException e) {
-                    // TODO should level be more than debug ?
-                    log.debug("Invalid variable: {}", item, e);
-                }
-            } else if (item instanceof SimpleVariable) {
-                results.append(((SimpleVariable) item).toString());
-            } else {
-                results.append(item);
-            }
-        }
         if (!isDynamic) {
-            permanentResults = results.toString();
+            return permanentResults;
+        }
+        if (compiledComponents.length == 1) {
+            return evaluate(compiledComponents[0], previousResult, currentSampler);
+        }
+
+        StringBuilder results = new StringBuilder(constantLength + 16 * compiledComponents.length);
+        for (Object item : compiledComponents) {
+            results.append(evaluate(item, previousResult, currentSampler));
         }
         return results.toString();
     }
 
-    @SuppressWarnings("unchecked") // clone will produce correct type
+    // package protected for unit tests
+    static String evaluate(Object item, SampleResult previousResult, Sampler currentSampler) {
+        if (item instanceof Function) {
+            try {
+                // Functions may return null, appended as "null" before templates were compiled
+                return String.valueOf(((Function) item).execute(previousResult, currentSampler));
+            } catch (InvalidVariableException e) {
+                // TODO should level be more than debug ?
+                log.debug("Invalid variable: {}", item, e);
+                return ""; // $NON-NLS-1$
+            }
+        }
+        // SimpleVariable#toString looks up the variable
+        return String.valueOf(item);
+    }
+
     public CompoundVariable getFunction() {
         CompoundVariable func = new CompoundVariable();
-        func.compiledComponents = (LinkedList<Object>) compiledComponents.clone();
+        func.compiledComponents = compiledComponents.clone();
+        func.constantLength = constantLength;
         func.rawParameters = rawParameters;
         func.hasFunction = hasFunction;
         func.isDynamic = isDynamic;
+        func.permanentResults = permanentResults;
         return func;
     }
 
@@ -169,7 +187,8 @@ public class CompoundVariable implements Function {
     public void clear() {
         // TODO should this also clear isDynamic, rawParameters, permanentResults?
         hasFunction = false;
-        compiledComponents.clear();
+        compiledComponents = NO_COMPONENTS;
+        constantLength = 0;
     }
 
     public void setParameters(String parameters) throws InvalidVariableException {
@@ -178,18 +197,36 @@ public class CompoundVariable implements Function {
             return;
         }
 
-        compiledComponents = functionParser.compileString(parameters);
-        if (compiledComponents.size() > 1 || !(compiledComponents.get(0) instanceof String)) {
+        LinkedList<Object> components = functionParser.compileString(parameters);
+        if (components.size() > 1 || !(components.get(0) instanceof String)) {
             hasFunction = true;
         }
-        permanentResults = null; // To be calculated and cached on first execution
         isDynamic = false;
-        for (Object item : compiledComponents) {
+        // Join adjacent constants, so that only the dynamic parts remain to
+        // be evaluated with the constants between them
+        List<Object> compiled = new ArrayList<>(components.size());
+        StringBuilder constant = new StringBuilder();
+        int length = 0;
+        for (Object item : components) {
             if (item instanceof Function || item instanceof SimpleVariable) {
                 isDynamic = true;
-                break;
+                if (constant.length() > 0) {
+                    compiled.add(constant.toString());
+                    constant.setLength(0);
+                }
+                compiled.add(item);
+            } else {
+                constant.append(item);
+                length += String.valueOf(item).length();
             }
         }
+        if (constant.length() > 0 || compiled.isEmpty()) {
+            compiled.add(constant.toString());
+        }
+        compiledComponents = compiled.toArray();
+        constantLength = length;
+        // Constant values are computed once, dynamic ones on each execution
+        permanentResults = isDynamic ? null : constant.toString();
     }
 
     static Object getNamedFunction(String functionName) throws InvalidVariableException {
@@ -26,8 +26,11 @@ public class SimpleVariable {
 
     private String name;
 
+    /** slot of the name in {@link JMeterVariables}, -1 when not interned */
+    private int slot = -1;
+
     public SimpleVariable(String name) {
-        this.name = name;
+        setName(name);
     }
 
     public SimpleVariable() {
@@ -40,6 +43,8 @@ public class SimpleVariable {
 
     public void setName(String name) {
         this.name = name;
+        // Names are known when the functions are compiled
+        this.slot = name != null ? JMeterVariables.getSlot(name) : -1;
     }
 
     /**
@@ -51,7 +56,7 @@ public class SimpleVariable {
         JMeterVariables vars = getVariables();
 
         if (vars != null) {
-            ret = vars.get(name);
+            ret = slot >= 0 ? vars.get(slot) : vars.get(name);
         }
 
         if (ret == null) {
@@ -97,6 +97,25 @@ public class ReportGeneratorConfiguration {
     private static final String REPORT_GENERATOR_KEY_END_DATE = REPORT_GENERATOR_KEY_PREFIX
             + KEY_DELIMITER + "end_date";
 
+    // number of threads used to process the samples
+    private static final String REPORT_GENERATOR_KEY_THREADS = REPORT_GENERATOR_KEY_PREFIX
+            + KEY_DELIMITER + "threads";
+
+    // number of samples kept in memory by graphs waiting for complete time intervals
+    private static final String REPORT_GENERATOR_KEY_REORDER_BUFFER_SIZE = REPORT_GENERATOR_KEY_PREFIX
+            + KEY_DELIMITER + "reorder_buffer_size";
+    private static final Integer REPORT_GENERATOR_KEY_REORDER_BUFFER_SIZE_DEFAULT = Integer.valueOf(50000);
+
+    // maximum delay between the end times of out of order samples
+    private static final String REPORT_GENERATOR_KEY_REORDER_MAX_DELAY = REPORT_GENERATOR_KEY_PREFIX
+            + KEY_DELIMITER + "reorder_max_delay";
+    private static final Long REPORT_GENERATOR_KEY_REORDER_MAX_DELAY_DEFAULT = Long.valueOf(10000L);
+
+    // interval between two generations of the dashboard during the test
+    private static final String REPORT_GENERATOR_KEY_LIVE_REFRESH_INTERVAL = REPORT_GENERATOR_KEY_PREFIX
+            + KEY_DELIMITER + "live_refresh_interval";
+    private static final Long REPORT_GENERATOR_KEY_LIVE_REFRESH_INTERVAL_DEFAULT = Long.valueOf(0L);
+
 
     // Required graph properties
     // Exclude controllers
@@ -283,6 +302,10 @@ public class ReportGeneratorConfiguration {
     private Map<String, Long[]> apdexPerTransaction = new HashMap<>();
     private Pattern filteredSamplesPattern;
     private boolean ignoreTCFromTop5ErrorsBySampler;
+    private int threadCount = 1;
+    private int reorderBufferSize;
+    private long reorderMaxDelay;
+    private long liveRefreshInterval;
     private Map<String, ExporterConfiguration> exportConfigurations = new HashMap<>();
     private Map<String, GraphConfiguration> graphConfigurations = new HashMap<>();
 
@@ -694,6 +717,34 @@ public class ReportGeneratorConfiguration {
         
         log.info("Will use date range start date: {}, end date: {}", startDateValue, endDateValue);
 
+        // Load number of threads, defaults to the number of processors
+        final Integer threadCount = getOptionalProperty(props,
+                REPORT_GENERATOR_KEY_THREADS, Integer.class);
+        if (threadCount == null || threadCount.intValue() <= 0) {
+            configuration.setThreadCount(Runtime.getRuntime().availableProcessors());
+        } else {
+            configuration.setThreadCount(threadCount.intValue());
+        }
+
+        // Load reorder buffer properties
+        final int reorderBufferSize = getRequiredProperty(props,
+                REPORT_GENERATOR_KEY_REORDER_BUFFER_SIZE,
+                REPORT_GENERATOR_KEY_REORDER_BUFFER_SIZE_DEFAULT,
+                Integer.class).intValue();
+        configuration.setReorderBufferSize(reorderBufferSize);
+        final long reorderMaxDelay = getRequiredProperty(props,
+                REPORT_GENERATOR_KEY_REORDER_MAX_DELAY,
+                REPORT_GENERATOR_KEY_REORDER_MAX_DELAY_DEFAULT,
+                Long.class).longValue();
+        configuration.setReorderMaxDelay(reorderMaxDelay);
+
+        // Load live generation interval
+        final long liveRefreshInterval = getRequiredProperty(props,
+                REPORT_GENERATOR_KEY_LIVE_REFRESH_INTERVAL,
+                REPORT_GENERATOR_KEY_LIVE_REFRESH_INTERVAL_DEFAULT,
+                Long.class).longValue();
+        configuration.setLiveRefreshInterval(liveRefreshInterval);
+
         // Find graph identifiers and load a configuration for each
         final Map<String, GraphConfiguration> graphConfigurations = configuration
                 .getGraphConfigurations();
@@ -825,4 +876,92 @@ public class ReportGeneratorConfiguration {
             boolean ignoreTCFromTop5ErrorsBySampler) {
         this.ignoreTCFromTop5ErrorsBySampler = ignoreTCFromTop5ErrorsBySampler;
     }
+
+    /**
+     * Gets the number of threads used to process the samples.
+     *
+     * @return the number of threads, 1 when samples are processed by the
+     *         calling thread only
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Sets the number of threads used to process the samples.
+     *
+     * @param threadCount
+     *            the number of threads, 1 to process samples in the calling
+     *            thread only
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Gets the number of samples the graphs can keep in memory while waiting
+     * for complete time intervals.
+     *
+     * @return the size of the reorder buffer, 0 to always buffer samples in
+     *         temporary files
+     */
+    public int getReorderBufferSize() {
+        return reorderBufferSize;
+    }
+
+    /**
+     * Sets the number of samples the graphs can keep in memory while waiting
+     * for complete time intervals.
+     *
+     * @param reorderBufferSize
+     *            the size of the reorder buffer, 0 to always buffer samples
+     *            in temporary files
+     */
+    public void setReorderBufferSize(int reorderBufferSize) {
+        this.reorderBufferSize = reorderBufferSize;
+    }
+
+    /**
+     * Gets the maximum delay between the end time of a sample and the end
+     * time of the samples written before it in the results file.
+     *
+     * @return the maximum delay in milliseconds
+     */
+    public long getReorderMaxDelay() {
+        return reorderMaxDelay;
+    }
+
+    /**
+     * Sets the maximum delay between the end time of a sample and the end
+     * time of the samples written before it in the results file.
+     *
+     * @param reorderMaxDelay
+     *            the maximum delay in milliseconds
+     */
+    public void setReorderMaxDelay(long reorderMaxDelay) {
+        this.reorderMaxDelay = reorderMaxDelay;
+    }
+
+    /**
+     * Gets the interval between two generations of the dashboard while the
+     * test is running.
+     *
+     * @return the interval in milliseconds, 0 or less when the dashboard is
+     *         only generated at the end of the test
+     */
+    public long getLiveRefreshInterval() {
+        return liveRefreshInterval;
+    }
+
+    /**
+     * Sets the interval between two generations of the dashboard while the
+     * test is running.
+     *
+     * @param liveRefreshInterval
+     *            the interval in milliseconds, 0 or less to only generate the
+     *            dashboard at the end of the test
+     */
+    public void setLiveRefreshInterval(long liveRefreshInterval) {
+        this.liveRefreshInterval = liveRefreshInterval;
+    }
 }
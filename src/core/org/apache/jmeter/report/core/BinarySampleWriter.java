@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.report.core;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.save.BinaryResultWriter;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.util.JOrphanUtils;
+
+/**
+ * Class to be used to write samples in the binary result format, see
+ * {@link BinaryResultWriter}.
+ * <p>
+ * Files written by this class can be read by {@link CsvSampleReader} and so
+ * used to generate the report dashboard.
+ *
+ * @since 4.1
+ */
+public class BinarySampleWriter extends SampleWriter {
+
+    private static final char DEFAULT_SEPARATOR =
+            // Cannot use JMeterUtils#getPropDefault as it trims the value
+            JMeterUtils.getDelimiter(
+                    JMeterUtils.getJMeterProperties().getProperty(
+                            SampleSaveConfiguration.DEFAULT_DELIMITER_PROP,
+                            SampleSaveConfiguration.DEFAULT_DELIMITER))
+                    .charAt(0);
+
+    private final BinaryResultWriter writer;
+
+    private final int columnCount;
+
+    private long sampleCount;
+
+    /**
+     * Constructor for a BinarySampleWriter, writes the header of the file
+     *
+     * @param output
+     *            the output stream to write data to. (Must not be {@code null})
+     * @param metadata
+     *            the description for data that this writer will write. (
+     *            {@code metadata} must not be {@code null}.)
+     */
+    public BinarySampleWriter(OutputStream output, SampleMetadata metadata) {
+        this.columnCount = metadata.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = metadata.getColumnName(i);
+        }
+        try {
+            this.writer = new BinaryResultWriter(output, columnNames);
+        } catch (IOException e) {
+            throw new SampleException("Could not write header", e);
+        }
+    }
+
+    @Override
+    public long write(Sample sample) {
+        String[] row = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            row[i] = sample.getData(i);
+        }
+        try {
+            writer.writeRow(row);
+        } catch (IOException e) {
+            throw new SampleException("Could not write sample <" + sample.getSampleRow() + ">", e);
+        }
+        sampleCount++;
+        return sampleCount;
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new SampleException("Could not close binary result file", e);
+        }
+    }
+
+    /**
+     * Converts a CSV result file to the binary result format
+     *
+     * @param csvFile
+     *            the CSV file to be read, its header or the
+     *            <code>jmeter.save.saveservice.*</code> properties describe its
+     *            columns
+     * @param binaryFile
+     *            the file to be written, overwritten if it exists
+     * @return the number of samples converted
+     * @throws IOException
+     *             when the binary file cannot be created
+     */
+    public static long convert(File csvFile, File binaryFile) throws IOException {
+        FileOutputStream fos = new FileOutputStream(binaryFile);
+        long count = 0;
+        BinarySampleWriter binaryWriter = null;
+        try (CsvSampleReader reader = new CsvSampleReader(csvFile, DEFAULT_SEPARATOR, true)) {
+            binaryWriter = new BinarySampleWriter(new BufferedOutputStream(fos), reader.getMetadata());
+            while (reader.hasNext()) {
+                count = binaryWriter.write(reader.readSample());
+            }
+        } finally {
+            if (binaryWriter != null) {
+                binaryWriter.close();
+            } else {
+                JOrphanUtils.closeQuietly(fos);
+            }
+        }
+        return count;
+    }
+}
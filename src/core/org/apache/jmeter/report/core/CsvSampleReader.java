@@ -32,6 +32,8 @@ import java.nio.charset.StandardCharsets;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.save.BinaryResultReader;
+import org.apache.jmeter.save.BinaryResultWriter;
 import org.apache.jmeter.save.CSVSaveService;
 import org.apache.jmeter.save.SaveService;
 import org.apache.jmeter.util.JMeterUtils;
@@ -44,6 +46,9 @@ import org.slf4j.LoggerFactory;
  * Reader class for reading CSV files.
  * <p>
  * Handles {@link SampleMetadata} reading and sample extraction.
+ * <p>
+ * Files written by {@link BinaryResultWriter} are detected and read the same
+ * way, their metadata being built from the column names of the file.
  *
  * @since 3.0
  */
@@ -65,6 +70,7 @@ public class CsvSampleReader implements Closeable{
     private InputStream fis;
     private Reader isr;
     private BufferedReader reader;
+    private BinaryResultReader binaryReader;
     private char separator;
     private long row;
     private SampleMetadata metadata;
@@ -104,6 +110,10 @@ public class CsvSampleReader implements Closeable{
                     + " does not exist or is not readable");
         }
         this.file = inputFile;
+        if (BinaryResultReader.isBinaryResultFile(file)) {
+            openBinary(metadata, separator);
+            return;
+        }
         try {
             this.fis = new FileInputStream(file); 
             this.isr = new InputStreamReader(fis, CHARSET);
@@ -135,6 +145,23 @@ public class CsvSampleReader implements Closeable{
         this.lastSampleRead = nextSample();
     }
 
+    private void openBinary(SampleMetadata metadata, char separator) {
+        try {
+            this.fis = new FileInputStream(file);
+            this.binaryReader = new BinaryResultReader(fis);
+        } catch (IOException ex) {
+            JOrphanUtils.closeQuietly(fis);
+            throw new SampleException("Could not create file reader !", ex);
+        }
+        this.metadata = metadata != null ? metadata
+                : new SampleMetadata(separator, binaryReader.getColumnNames());
+        this.columnCount = this.metadata.getColumnCount();
+        this.separator = this.metadata.getSeparator();
+        this.row = 0;
+        this.numberOfSampleVariablesInCsv = 0;
+        this.lastSampleRead = nextSample();
+    }
+
     private Pair<Boolean, SampleMetadata> readMetadata(char separator, boolean useSaveSampleCfg) {
         try {
             SampleMetadata result;
@@ -182,7 +209,14 @@ public class CsvSampleReader implements Closeable{
     private Sample nextSample() {
         String[] data;
         try {
-            data = CSVSaveService.csvReadFile(reader, separator);
+            if (binaryReader != null) {
+                data = binaryReader.readRow();
+                if (data == null) {
+                    data = new String[0];
+                }
+            } else {
+                data = CSVSaveService.csvReadFile(reader, separator);
+            }
             Sample sample = null;
             if (data.length > 0) {
                 if (data.length != columnCount+numberOfSampleVariablesInCsv) {
@@ -222,6 +256,7 @@ public class CsvSampleReader implements Closeable{
 
     @Override
     public void close() {
+        JOrphanUtils.closeQuietly(binaryReader);
         JOrphanUtils.closeQuietly(isr);
         JOrphanUtils.closeQuietly(fis);
         JOrphanUtils.closeQuietly(reader);
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.report.core;
+
+/**
+ * Thrown when a consumer that expects samples ordered by time receives a
+ * sample too late to be processed. The samples must then be processed again
+ * without ordering expectation.
+ *
+ * @since 4.1
+ */
+public class OutOfOrderSampleException extends SampleException {
+
+    private static final long serialVersionUID = 4618402287331582411L;
+
+    /**
+     * Instantiates a new out of order sample exception with the specified
+     * message.
+     *
+     * @param message
+     *            the message
+     */
+    public OutOfOrderSampleException(String message) {
+        super(message);
+    }
+}
@@ -38,6 +38,11 @@ public class Sample {
     
     private static final String EMPTY_CONTROLLER_PATTERN = "Number of samples in transaction : 0";
 
+    /**
+     * Format of the name given to series of elapsed times corrected for coordinated omission
+     */
+    public static final String CORRECTED_NAME_FORMAT = "%s (corrected)";
+
     private final boolean storesStartTimeStamp;
     private final SampleMetadata metadata;
     private final String[] data;
@@ -160,6 +165,27 @@ public class Sample {
         return getData(long.class, CSVSaveService.CSV_ELAPSED).longValue();
     }
 
+    /**
+     * Checks if the sample stores an elapsed time corrected for coordinated omission.
+     *
+     * @return true if the corrected elapsed time column is in results
+     */
+    public boolean hasCorrectedElapsedTime() {
+        return metadata.indexOf(CSVSaveService.CSV_CORRECTED_ELAPSED) >= 0;
+    }
+
+    /**
+     * Gets the elapsed time corrected for coordinated omission stored in the sample.
+     *
+     * @return the corrected elapsed time or the elapsed time if column is not in results
+     */
+    public long getCorrectedElapsedTime() {
+        if (hasCorrectedElapsedTime()) {
+            return getData(long.class, CSVSaveService.CSV_CORRECTED_ELAPSED).longValue();
+        }
+        return getElapsedTime();
+    }
+
     /**
      * <p>
      * Gets the start time of the sample.
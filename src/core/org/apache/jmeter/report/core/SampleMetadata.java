@@ -134,6 +134,16 @@ public class SampleMetadata {
         if (saveConfig.saveConnectTime()) {
             configuredColumns.add(CSVSaveService.CSV_CONNECT_TIME);
         }
+        if (saveConfig.saveCorrectedTime()) {
+            configuredColumns.add(CSVSaveService.CSV_CORRECTED_ELAPSED);
+        }
+        if (saveConfig.saveConnectionWaitTime()) {
+            configuredColumns.add(CSVSaveService.CSV_CONNECTION_WAIT_TIME);
+        }
+        if (saveConfig.saveTlsHandshake()) {
+            configuredColumns.add(CSVSaveService.CSV_TLS_HANDSHAKE_TIME);
+            configuredColumns.add(CSVSaveService.CSV_TLS_SESSION_RESUMED);
+        }
         initialize(saveConfig.getDelimiter().charAt(0), configuredColumns);
     }
 
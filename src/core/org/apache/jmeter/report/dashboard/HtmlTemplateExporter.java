@@ -376,7 +376,10 @@ public class HtmlTemplateExporter extends AbstractDataExporter {
             outputDir = new File(globallyDefinedOutputDir);
         }
         
-        JOrphanUtils.canSafelyWriteToFolder(outputDir);
+        // A dashboard generated during the test can be replaced
+        if (!Boolean.TRUE.equals(context.getData().get(ReportGenerator.LIVE_REPORT_EXPORTED_KEY))) {
+            JOrphanUtils.canSafelyWriteToFolder(outputDir);
+        }
 
         if (log.isInfoEnabled()) {
             log.info("Will generate dashboard in folder: {}", outputDir.getAbsolutePath());
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.report.dashboard;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleMetadata;
+import org.apache.jmeter.report.processor.NormalizerSampleConsumer;
+import org.apache.jmeter.report.processor.SampleContext;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.save.CSVSaveService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the dashboard data up to date with the samples saved by a
+ * {@link org.apache.jmeter.reporters.ResultCollector ResultCollector} and
+ * exports it periodically while the test is running.
+ * <p>
+ * Sampler threads only convert the samples to their saved fields, the
+ * consumers chain and the exporters run in a dedicated thread. Samples are
+ * dropped when this thread cannot keep up, the dashboard generated at the end
+ * of the test still reads all the samples from the results file.
+ *
+ * @since 4.1
+ */
+final class LiveReportGenerator implements SampleListener, Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveReportGenerator.class);
+
+    private static final int QUEUE_CAPACITY = 100000;
+
+    // Create unique object as marker for end of samples
+    private static final String[] END_OF_SAMPLES = new String[0];
+
+    private final ReportGenerator reportGenerator;
+
+    private final char separator;
+
+    private final File workingDirectory;
+
+    private final int reorderBufferSize;
+
+    private final long refreshInterval;
+
+    private final BlockingQueue<String[]> queue;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final Thread thread;
+
+    /** names of the saved fields, set by the first sample */
+    private volatile String[] columns;
+
+    private volatile boolean stopped;
+
+    /** whether the dashboard was exported, only read once the thread ended */
+    private boolean exported;
+
+    /**
+     * @param reportGenerator
+     *            builds the consumers chain and exports the dashboard
+     * @param separator
+     *            the separator of the sample metadata
+     * @param workingDirectory
+     *            the working directory of the consumers, dedicated to this
+     *            generator as it is removed at the end
+     * @param reorderBufferSize
+     *            the number of samples graphs can keep in memory while waiting
+     *            for complete time intervals
+     * @param refreshInterval
+     *            the interval between two exports in milliseconds
+     */
+    LiveReportGenerator(ReportGenerator reportGenerator, char separator,
+            File workingDirectory, int reorderBufferSize, long refreshInterval) {
+        this(reportGenerator, separator, workingDirectory, reorderBufferSize,
+                refreshInterval, QUEUE_CAPACITY);
+    }
+
+    // package protected for unit tests
+    LiveReportGenerator(ReportGenerator reportGenerator, char separator,
+            File workingDirectory, int reorderBufferSize, long refreshInterval,
+            int queueCapacity) {
+        this.reportGenerator = reportGenerator;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.separator = separator;
+        this.workingDirectory = workingDirectory;
+        this.reorderBufferSize = reorderBufferSize;
+        this.refreshInterval = refreshInterval;
+        this.thread = new Thread(this, "LiveReportGenerator");
+        // Does not prevent exit if the test ends without generating the report
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops the live generation, once the pending samples are processed.
+     *
+     * @return true if the dashboard was exported at least once
+     */
+    boolean stop() {
+        stopped = true;
+        try {
+            while (thread.isAlive() && !queue.offer(END_OF_SAMPLES, 100, TimeUnit.MILLISECONDS)) {
+                // Retry while the generator thread drains the queue
+            }
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for the end of live report generation");
+            return false;
+        }
+        long dropped = droppedCount.get();
+        if (dropped > 0) {
+            log.warn("Live report generation dropped {} samples", dropped);
+        }
+        return exported;
+    }
+
+    /**
+     * @return the number of samples dropped because the queue was full
+     */
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public void sampleOccurred(SampleEvent event) {
+        if (stopped) {
+            return;
+        }
+        SampleSaveConfiguration config = event.getResult().getSaveConfig();
+        if (columns == null) {
+            columns = CSVSaveService.printableFieldNames(config);
+        }
+        if (!queue.offer(CSVSaveService.resultToFields(event, config))) {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void sampleStarted(SampleEvent e) {
+        // NOOP
+    }
+
+    @Override
+    public void sampleStopped(SampleEvent e) {
+        // NOOP
+    }
+
+    @Override
+    public void run() {
+        if (!workingDirectory.isDirectory() && !workingDirectory.mkdirs()) {
+            log.warn("Cannot create temporary directory {}, live report generation is disabled",
+                    workingDirectory);
+            stopped = true;
+            queue.clear();
+            return;
+        }
+        try {
+            processSamples();
+        } catch (GenerationException | RuntimeException e) {
+            log.warn("Live report generation stopped after error: {}", e.getMessage(), e);
+            stopped = true;
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                FileUtils.deleteDirectory(workingDirectory);
+            } catch (IOException ex) {
+                log.warn("Cannot delete created temporary directory, '{}'.", workingDirectory, ex);
+            }
+        }
+    }
+
+    private void processSamples() throws GenerationException, InterruptedException {
+        String[] fields = queue.take();
+        // The == comparison is not an error
+        if (fields == END_OF_SAMPLES) {
+            return;
+        }
+        SampleContext context = new SampleContext();
+        context.setWorkingDirectory(workingDirectory);
+        SampleMetadata metadata = new SampleMetadata(separator, columns);
+        NormalizerSampleConsumer normalizer = reportGenerator.createConsumers(reorderBufferSize);
+        normalizer.setSampleContext(context);
+        normalizer.setConsumedMetadata(metadata, 0);
+        normalizer.startConsuming();
+
+        long row = 0;
+        long nextRefresh = System.currentTimeMillis() + refreshInterval;
+        while (fields != END_OF_SAMPLES) {
+            if (fields != null) {
+                normalizer.consume(new Sample(row++, metadata, fields), 0);
+            }
+            if (System.currentTimeMillis() >= nextRefresh) {
+                normalizer.storeIntermediateResults();
+                if (exported) {
+                    context.getData().put(ReportGenerator.LIVE_REPORT_EXPORTED_KEY, Boolean.TRUE);
+                }
+                reportGenerator.exportData(context);
+                exported = true;
+                log.info("Live report generated from {} samples", row);
+                nextRefresh = System.currentTimeMillis() + refreshInterval;
+            }
+            fields = queue.poll(Math.max(0, nextRefresh - System.currentTimeMillis()),
+                    TimeUnit.MILLISECONDS);
+        }
+        normalizer.stopConsuming();
+    }
+}
@@ -22,12 +22,16 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.jmeter.report.config.ConfigurationException;
 import org.apache.jmeter.report.config.ExporterConfiguration;
 import org.apache.jmeter.report.config.GraphConfiguration;
@@ -35,9 +39,9 @@ import org.apache.jmeter.report.config.ReportGeneratorConfiguration;
 import org.apache.jmeter.report.core.ControllerSamplePredicate;
 import org.apache.jmeter.report.core.ConvertException;
 import org.apache.jmeter.report.core.Converters;
+import org.apache.jmeter.report.core.OutOfOrderSampleException;
 import org.apache.jmeter.report.core.SampleException;
 import org.apache.jmeter.report.core.StringConverter;
-import org.apache.jmeter.report.processor.AbstractSampleConsumer;
 import org.apache.jmeter.report.processor.AggregateConsumer;
 import org.apache.jmeter.report.processor.ApdexSummaryConsumer;
 import org.apache.jmeter.report.processor.ApdexThresholdsInfo;
@@ -47,13 +51,16 @@ import org.apache.jmeter.report.processor.FilterConsumer;
 import org.apache.jmeter.report.processor.MaxAggregator;
 import org.apache.jmeter.report.processor.MinAggregator;
 import org.apache.jmeter.report.processor.NormalizerSampleConsumer;
+import org.apache.jmeter.report.processor.ParallelSampleConsumer;
 import org.apache.jmeter.report.processor.RequestsSummaryConsumer;
 import org.apache.jmeter.report.processor.SampleConsumer;
 import org.apache.jmeter.report.processor.SampleContext;
+import org.apache.jmeter.report.processor.SampleCountSplitterConsumer;
 import org.apache.jmeter.report.processor.SampleSource;
 import org.apache.jmeter.report.processor.StatisticsSummaryConsumer;
 import org.apache.jmeter.report.processor.Top5ErrorsBySamplerConsumer;
 import org.apache.jmeter.report.processor.graph.AbstractGraphConsumer;
+import org.apache.jmeter.report.processor.graph.AbstractVersusRequestsGraphConsumer;
 import org.apache.jmeter.reporters.ResultCollector;
 import org.apache.jmeter.samplers.SampleSaveConfiguration;
 import org.apache.jmeter.util.JMeterUtils;
@@ -89,6 +96,7 @@ public class ReportGenerator {
     private static final String NOT_SUPPORTED_CONVERSION_FMT = "Not supported conversion to \"%s\"";
 
     public static final String NORMALIZER_CONSUMER_NAME = "normalizer";
+    public static final String SAMPLE_COUNT_SPLITTER_CONSUMER_NAME = "sampleCountSplitter";
     public static final String BEGIN_DATE_CONSUMER_NAME = "beginDate";
     public static final String END_DATE_CONSUMER_NAME = "endDate";
     public static final String NAME_FILTER_CONSUMER_NAME = "nameFilter";
@@ -99,6 +107,14 @@ public class ReportGenerator {
     public static final String STATISTICS_SUMMARY_CONSUMER_NAME = "statisticsSummary";
     public static final String TOP5_ERRORS_BY_SAMPLER_CONSUMER_NAME = "top5ErrorsBySampler";
     public static final String START_INTERVAL_CONTROLLER_FILTER_CONSUMER_NAME = "startIntervalControlerFilter";
+    public static final String PARALLEL_CONSUMER_NAME = "parallelConsumer";
+
+    /**
+     * Key of the sample context data set to {@link Boolean#TRUE} when the
+     * output directory holds a dashboard generated during the test, that can
+     * be overwritten
+     */
+    public static final String LIVE_REPORT_EXPORTED_KEY = "liveReportExported";
 
     private static final Pattern POTENTIAL_CAMEL_CASE_PATTERN = Pattern.compile("_(.)");
 
@@ -110,6 +126,11 @@ public class ReportGenerator {
      */
     private final ResultCollector resultCollector;
 
+    /**
+     * Generates the dashboard while the test is running, null if disabled
+     */
+    private final LiveReportGenerator liveReportGenerator;
+
     /**
      * Instantiates a new report generator.
      *
@@ -153,6 +174,15 @@ public class ReportGenerator {
         log.info("Merging with JMeter properties");
         merged.putAll(JMeterUtils.getJMeterProperties());
         configuration = ReportGeneratorConfiguration.loadFromProperties(merged);
+
+        long liveRefreshInterval = configuration.getLiveRefreshInterval();
+        if (resultCollector != null && liveRefreshInterval > 0) {
+            File liveTmpDir = new File(configuration.getTempDirectory().getPath() + "-live");
+            liveReportGenerator = new LiveReportGenerator(this, CSV_DEFAULT_SEPARATOR, liveTmpDir,
+                    configuration.getReorderBufferSize(), liveRefreshInterval);
+        } else {
+            liveReportGenerator = null;
+        }
     }
 
     private static Properties loadProps(File file) {
@@ -188,6 +218,22 @@ public class ReportGenerator {
         return buffer.toString();
     }
 
+    /**
+     * Starts generating the dashboard from the samples saved by the result
+     * collector while the test is running, if a live refresh interval is
+     * configured. The live generation is stopped by {@link #generate()}.
+     *
+     * @since 4.1
+     */
+    public void startLiveGeneration() {
+        if (liveReportGenerator != null) {
+            log.info("Will generate report every {} ms during the test",
+                    configuration.getLiveRefreshInterval());
+            resultCollector.setSavedSampleListener(liveReportGenerator);
+            liveReportGenerator.start();
+        }
+    }
+
     /**
      * Generate dashboard reports using the data from the specified CSV File.
      *
@@ -196,6 +242,11 @@ public class ReportGenerator {
      */
     public void generate() throws GenerationException {
 
+        boolean liveReportExported = false;
+        if (liveReportGenerator != null) {
+            resultCollector.setSavedSampleListener(null);
+            liveReportExported = liveReportGenerator.stop();
+        }
         if (resultCollector != null) {
             log.info("Flushing result collector before report Generation");
             resultCollector.flushFile();
@@ -205,12 +256,98 @@ public class ReportGenerator {
         File tmpDir = configuration.getTempDirectory();
         boolean tmpDirCreated = createTempDir(tmpDir);
 
+        SampleContext sampleContext = processSamples(tmpDir,
+                configuration.getReorderBufferSize());
+        if (liveReportExported) {
+            sampleContext.getData().put(LIVE_REPORT_EXPORTED_KEY, Boolean.TRUE);
+        }
+
+        exportData(sampleContext);
+
+        removeTempDir(tmpDir, tmpDirCreated);
+
+        log.debug("End of report generation");
+
+    }
+
+    /**
+     * Exports the results of the consumers using all the configured exporters.
+     *
+     * @param sampleContext
+     *            the context holding the results of the consumers
+     * @throws GenerationException
+     *             when an exporter failed
+     */
+    void exportData(SampleContext sampleContext) throws GenerationException {
+        log.debug("Start data exporting");
+
+        // Process configuration to build data exporters
+        String key;
+        ExporterConfiguration value;
+        for (Map.Entry<String, ExporterConfiguration> entry : configuration.getExportConfigurations().entrySet()) {
+            key = entry.getKey();
+            value = entry.getValue();
+            if (log.isInfoEnabled()) {
+                log.info("Exporting data using exporter:'{}' of className:'{}'", key, value.getClassName());
+            }
+            exportData(sampleContext, key, value);
+        }
+
+        log.debug("End of data exporting");
+    }
+
+    /**
+     * Builds the consumers chain and processes the samples of the results
+     * file.
+     *
+     * @param tmpDir
+     *            the working directory of the consumers
+     * @param reorderBufferSize
+     *            the number of samples graphs can keep in memory while waiting
+     *            for complete time intervals, 0 to use temporary files
+     * @return the context holding the results of the consumers
+     * @throws GenerationException
+     *             when the processing failed
+     */
+    // package protected for unit tests
+    SampleContext processSamples(File tmpDir, int reorderBufferSize)
+            throws GenerationException {
         // Build consumers chain
         SampleContext sampleContext = new SampleContext();
         sampleContext.setWorkingDirectory(tmpDir);
         SampleSource source = new CsvFileSampleSource(testFile, CSV_DEFAULT_SEPARATOR);
         source.setSampleContext(sampleContext);
+        source.addSampleConsumer(createConsumers(reorderBufferSize));
+
+        // Generate data
+        log.debug("Start samples processing");
+        try {
+            source.run(); // NOSONAR
+        } catch (SampleException ex) {
+            int index = ExceptionUtils.indexOfType(ex, OutOfOrderSampleException.class);
+            if (index >= 0 && reorderBufferSize > 0) {
+                log.warn("Samples are not ordered by end time, processing them again using temporary files: {}",
+                        ExceptionUtils.getThrowables(ex)[index].getMessage());
+                return processSamples(tmpDir, 0);
+            }
+            throw new GenerationException("Error while processing samples:"+ex.getMessage(), ex);
+        }
+        log.debug("End of samples processing");
+        return sampleContext;
+    }
 
+    /**
+     * Builds the consumers chain computing the dashboard data.
+     *
+     * @param reorderBufferSize
+     *            the number of samples graphs can keep in memory while waiting
+     *            for complete time intervals, 0 to use temporary files
+     * @return the first consumer of the chain
+     * @throws GenerationException
+     *             when a graph consumer cannot be created
+     */
+    NormalizerSampleConsumer createConsumers(int reorderBufferSize)
+            throws GenerationException {
         NormalizerSampleConsumer normalizer = new NormalizerSampleConsumer();
         normalizer.setName(NORMALIZER_CONSUMER_NAME);
         
@@ -220,56 +357,70 @@ public class ReportGenerator {
 
         FilterConsumer nameFilter = createNameFilter();
 
-        FilterConsumer excludeControllerFilter = createExcludeControllerFilter();
-
-        nameFilter.addSampleConsumer(excludeControllerFilter);
-
         dateRangeConsumer.addSampleConsumer(nameFilter);
         
-        normalizer.addSampleConsumer(dateRangeConsumer);
-        
-        source.addSampleConsumer(normalizer);
+        // Aggregated samples are counted as the samples they aggregate
+        SampleCountSplitterConsumer sampleCountSplitter = new SampleCountSplitterConsumer();
+        sampleCountSplitter.setName(SAMPLE_COUNT_SPLITTER_CONSUMER_NAME);
+        sampleCountSplitter.addSampleConsumer(dateRangeConsumer);
+        normalizer.addSampleConsumer(sampleCountSplitter);
+
+        // Consumers of the samples kept by the name filter
+        List<SampleConsumer> consumers = new ArrayList<>();
+        consumers.add(createApdexSummaryConsumer());
+        consumers.add(createRequestsSummaryConsumer());
+        consumers.add(createStatisticsSummaryConsumer());
+        consumers.add(createTop5ErrorsConsumer(configuration));
+
+        // Consumers of the samples that are not generated by controllers
+        List<SampleConsumer> excludeControllerConsumers = new ArrayList<>();
+        excludeControllerConsumers.add(createErrorsSummaryConsumer());
 
         // Get graph configurations
         Map<String, GraphConfiguration> graphConfigurations = configuration
                 .getGraphConfigurations();
 
+        int threadCount = configuration.getThreadCount();
+        ParallelSampleConsumer parallelConsumer = null;
+        if (threadCount > 1) {
+            parallelConsumer = new ParallelSampleConsumer(threadCount);
+            parallelConsumer.setName(PARALLEL_CONSUMER_NAME);
+        }
+
         // Process configuration to build graph consumers
         for (Map.Entry<String, GraphConfiguration> entryGraphCfg : graphConfigurations
                 .entrySet()) {
-            addGraphConsumer(nameFilter, excludeControllerFilter,
-                    entryGraphCfg);
-        }
-
-        // Generate data
-        log.debug("Start samples processing");
-        try {
-            source.run(); // NOSONAR
-        } catch (SampleException ex) {
-            throw new GenerationException("Error while processing samples:"+ex.getMessage(), ex);
+            AbstractGraphConsumer graph = createGraphConsumer(entryGraphCfg, reorderBufferSize);
+            boolean excludesControllers = entryGraphCfg.getValue().excludesControllers();
+            if (parallelConsumer != null && graph.isMergeable()) {
+                addPartitionedGraph(parallelConsumer, graph, entryGraphCfg,
+                        reorderBufferSize, excludesControllers);
+            } else {
+                // Choose which entry point to use to plug the graph
+                List<SampleConsumer> entryPoint = excludesControllers ? excludeControllerConsumers
+                        : consumers;
+                entryPoint.add(graph);
+            }
         }
-        log.debug("End of samples processing");
 
-        log.debug("Start data exporting");
-
-        // Process configuration to build data exporters
-        String key;
-        ExporterConfiguration value;
-        for (Map.Entry<String, ExporterConfiguration> entry : configuration.getExportConfigurations().entrySet()) {
-            key = entry.getKey();
-            value = entry.getValue();
-            if (log.isInfoEnabled()) {
-                log.info("Exporting data using exporter:'{}' of className:'{}'", key, value.getClassName());
+        if (parallelConsumer != null) {
+            // Each consumer gets its own exclude controller filter, so that
+            // it can run in any thread
+            consumers.forEach(parallelConsumer::addSampleConsumer);
+            for (SampleConsumer consumer : excludeControllerConsumers) {
+                FilterConsumer excludeControllerFilter = createExcludeControllerFilter();
+                excludeControllerFilter.addSampleConsumer(consumer);
+                parallelConsumer.addSampleConsumer(excludeControllerFilter);
             }
-            exportData(sampleContext, key, value);
+            nameFilter.addSampleConsumer(parallelConsumer);
+            log.info("Will process samples using {} threads", threadCount);
+        } else {
+            consumers.forEach(nameFilter::addSampleConsumer);
+            FilterConsumer excludeControllerFilter = createExcludeControllerFilter();
+            excludeControllerConsumers.forEach(excludeControllerFilter::addSampleConsumer);
+            nameFilter.addSampleConsumer(excludeControllerFilter);
         }
-
-        log.debug("End of data exporting");
-
-        removeTempDir(tmpDir, tmpDirCreated);
-
-        log.debug("End of report generation");
-
+        return normalizer;
     }
 
     /**
@@ -324,10 +475,43 @@ public class ReportGenerator {
         return tmpDirCreated;
     }
 
-    private void addGraphConsumer(FilterConsumer nameFilter,
-            FilterConsumer excludeControllerFilter,
-            Map.Entry<String, GraphConfiguration> entryGraphCfg)
+    /**
+     * Adds a mergeable graph and copies of it to the parallel consumer, so
+     * that each of them consumes a part of the samples in its own thread
+     */
+    private void addPartitionedGraph(ParallelSampleConsumer parallelConsumer,
+            AbstractGraphConsumer graph,
+            Map.Entry<String, GraphConfiguration> entryGraphCfg,
+            int reorderBufferSize, boolean excludesControllers)
             throws GenerationException {
+        List<AbstractGraphConsumer> copies = new ArrayList<>();
+        for (int i = 1; i < parallelConsumer.getThreadCount(); i++) {
+            copies.add(createGraphConsumer(entryGraphCfg, reorderBufferSize));
+        }
+        if (!excludesControllers) {
+            parallelConsumer.addPartitionedConsumer(graph, copies,
+                    AbstractGraphConsumer::merge);
+            return;
+        }
+        // Graphs are merged through their exclude controller filters
+        Map<SampleConsumer, AbstractGraphConsumer> graphs = new IdentityHashMap<>();
+        FilterConsumer filter = createExcludeControllerFilter();
+        filter.addSampleConsumer(graph);
+        graphs.put(filter, graph);
+        List<SampleConsumer> copyFilters = new ArrayList<>();
+        for (AbstractGraphConsumer copy : copies) {
+            FilterConsumer copyFilter = createExcludeControllerFilter();
+            copyFilter.addSampleConsumer(copy);
+            graphs.put(copyFilter, copy);
+            copyFilters.add(copyFilter);
+        }
+        parallelConsumer.addPartitionedConsumer(filter, copyFilters,
+                (target, copy) -> graphs.get(target).merge(graphs.get(copy)));
+    }
+
+    private AbstractGraphConsumer createGraphConsumer(
+            Map.Entry<String, GraphConfiguration> entryGraphCfg,
+            int reorderBufferSize) throws GenerationException {
         String graphName = entryGraphCfg.getKey();
         GraphConfiguration graphConfiguration = entryGraphCfg.getValue();
 
@@ -353,12 +537,12 @@ public class ReportGenerator {
                 setProperty(className, obj, methods, propertyName,
                         propertyValue, setterName);
             }
-
-            // Choose which entry point to use to plug the graph
-            AbstractSampleConsumer entryPoint = graphConfiguration
-                    .excludesControllers() ? excludeControllerFilter
-                    : nameFilter;
-            entryPoint.addSampleConsumer(graph);
+            if (graph instanceof AbstractVersusRequestsGraphConsumer) {
+                AbstractVersusRequestsGraphConsumer versusGraph = (AbstractVersusRequestsGraphConsumer) graph;
+                versusGraph.setReorderBufferSize(reorderBufferSize);
+                versusGraph.setReorderMaxDelay(configuration.getReorderMaxDelay());
+            }
+            return graph;
         } catch (ClassNotFoundException | IllegalAccessException
                 | InstantiationException | ClassCastException ex) {
             String error = String.format(INVALID_CLASS_FMT, className);
@@ -405,7 +589,6 @@ public class ReportGenerator {
         excludeControllerFilter
                 .setSamplePredicate(new ControllerSamplePredicate());
         excludeControllerFilter.setReverseFilter(true);
-        excludeControllerFilter.addSampleConsumer(createErrorsSummaryConsumer());
         return excludeControllerFilter;
     }
 
@@ -479,10 +662,6 @@ public class ReportGenerator {
                 return filteredSamplesPattern == null 
                         || filteredSamplesPattern.matcher(sample.getName()).matches();
         });
-        nameFilter.addSampleConsumer(createApdexSummaryConsumer());
-        nameFilter.addSampleConsumer(createRequestsSummaryConsumer());
-        nameFilter.addSampleConsumer(createStatisticsSummaryConsumer());
-        nameFilter.addSampleConsumer(createTop5ErrorsConsumer(configuration));
         return nameFilter;
     }
 
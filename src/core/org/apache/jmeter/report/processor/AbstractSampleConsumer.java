@@ -234,6 +234,35 @@ public abstract class AbstractSampleConsumer extends AbstractSampleProcessor
         }
     }
 
+    /**
+     * Stores the results of the samples consumed so far in the sample context,
+     * like {@link #stopConsuming()} does, without ending the consumption.
+     * <p>
+     * This implementation asks the consumers of this consumer to store their
+     * results.
+     *
+     * @since 4.1
+     */
+    public void storeIntermediateResults() {
+        for (SampleConsumer consumer : sampleConsumers) {
+            if (consumer instanceof AbstractSampleConsumer) {
+                ((AbstractSampleConsumer) consumer).storeIntermediateResults();
+            }
+        }
+    }
+
+    /**
+     * Adds samples produced without calling {@link #produce(Sample, int)} to
+     * the number of samples produced by this consumer
+     *
+     * @param count
+     *            the number of samples, all channels and consumers included
+     * @since 4.1
+     */
+    protected final void addProducedSampleCount(long count) {
+        producedSampleCount += count;
+    }
+
     @Override
     public void stopProducing() {
         for (SampleConsumer consumer : this.sampleConsumers) {
@@ -50,4 +50,31 @@ public interface Aggregator {
      * Reset the state of the aggregator.
      */
     void reset();
+
+    /**
+     * Indicates whether the values of another aggregator can be added to this
+     * one using {@link #merge(Aggregator)}.
+     *
+     * @return true if this aggregator supports {@link #merge(Aggregator)}
+     * @since 4.1
+     */
+    default boolean isMergeable() {
+        return false;
+    }
+
+    /**
+     * Adds the values aggregated by another aggregator to this one, as if they
+     * had been added with {@link #addValue(double)}. The result does not depend
+     * on the order in which the values were aggregated.
+     *
+     * @param other
+     *            an aggregator of the same class and configuration, it is left
+     *            unchanged
+     * @throws UnsupportedOperationException
+     *             if this aggregator is not mergeable
+     * @since 4.1
+     */
+    default void merge(Aggregator other) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support merge");
+    }
 }
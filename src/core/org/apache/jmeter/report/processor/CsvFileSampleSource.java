@@ -58,6 +58,8 @@ import org.slf4j.LoggerFactory;
  * <li>If the input file is named <code>results.csv</code> then it will
  * be produced on the channel 0.</li>
  * </ul>
+ * Input files written in the binary result format are read the same way as
+ * CSV files.<br>
  *
  * @since 3.0
  */
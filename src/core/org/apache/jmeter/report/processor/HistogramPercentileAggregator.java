@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.report.processor;
+
+import java.util.Arrays;
+
+/**
+ * The class HistogramPercentileAggregator is used to get percentile from
+ * samples using a log-linear histogram.
+ * <p>
+ * Unlike {@link PercentileAggregator}, all the samples are taken into account
+ * and memory does not depend on the number of samples: values are counted in
+ * buckets whose width keeps the relative error below
+ * <code>10<sup>-precision</sup></code>. Values are rounded to the nearest
+ * integer, values lower than <code>2 * 10<sup>precision</sup></code> are
+ * recorded exactly.
+ * <p>
+ * Histograms with the same precision can be merged.
+ *
+ * @since 4.1
+ */
+public class HistogramPercentileAggregator implements Aggregator {
+
+    /** Lowest supported number of significant decimal digits */
+    public static final int MIN_PRECISION = 1;
+
+    /** Highest supported number of significant decimal digits */
+    public static final int MAX_PRECISION = 5;
+
+    private final double percentileIndex;
+
+    private final int precision;
+
+    /** log2 of half the number of sub buckets in each bucket */
+    private final int subBucketHalfCountMagnitude;
+
+    private final int subBucketHalfCount;
+
+    private final long subBucketMask;
+
+    /** Counts indexed by bucket then sub bucket, grows with the highest value */
+    private long[] counts;
+
+    private long totalCount;
+
+    /**
+     * Instantiates a new histogram percentile aggregator.
+     *
+     * @param index
+     *            the index of the percentile
+     * @param precision
+     *            number of significant decimal digits to keep, between
+     *            {@link #MIN_PRECISION} and {@link #MAX_PRECISION}
+     * @throws IllegalArgumentException
+     *             if precision is out of range
+     */
+    public HistogramPercentileAggregator(double index, int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and "
+                    + MAX_PRECISION + ", got " + precision);
+        }
+        this.percentileIndex = index;
+        this.precision = precision;
+        // Enough sub buckets to distinguish 10^precision values in a bucket
+        long largestExactValue = 2 * (long) Math.pow(10, precision);
+        int subBucketCountMagnitude = 64 - Long.numberOfLeadingZeros(largestExactValue - 1);
+        this.subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+        this.subBucketHalfCount = 1 << subBucketHalfCountMagnitude;
+        this.subBucketMask = (1L << subBucketCountMagnitude) - 1;
+        this.counts = new long[2 * subBucketHalfCount];
+    }
+
+    /**
+     * @param lastAggregator {@link HistogramPercentileAggregator} whose values are copied
+     */
+    public HistogramPercentileAggregator(HistogramPercentileAggregator lastAggregator) {
+        this.percentileIndex = lastAggregator.percentileIndex;
+        this.precision = lastAggregator.precision;
+        this.subBucketHalfCountMagnitude = lastAggregator.subBucketHalfCountMagnitude;
+        this.subBucketHalfCount = lastAggregator.subBucketHalfCount;
+        this.subBucketMask = lastAggregator.subBucketMask;
+        this.counts = lastAggregator.counts.clone();
+        this.totalCount = lastAggregator.totalCount;
+    }
+
+    /**
+     * @return the number of significant decimal digits kept
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.jmeter.report.core.GraphAggregator#getCount()
+     */
+    @Override
+    public long getCount() {
+        return totalCount;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.jmeter.report.core.GraphAggregator#getResult()
+     */
+    @Override
+    public double getResult() {
+        return getPercentile(percentileIndex);
+    }
+
+    /**
+     * Returns the highest value equivalent to the requested percentile of the
+     * recorded values
+     *
+     * @param percentile
+     *            the requested percentile (scaled from 0 - 100)
+     * @return the percentile or {@link Double#NaN} if no value was recorded
+     */
+    public double getPercentile(double percentile) {
+        if (totalCount == 0) {
+            return Double.NaN;
+        }
+        double quantile = Math.min(Math.max(percentile, 0), 100) / 100;
+        long target = Math.max(1, (long) Math.ceil(quantile * totalCount));
+        long cumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulated += counts[i];
+            if (cumulated >= target) {
+                return highestEquivalentValue(i);
+            }
+        }
+        // Not reached as target <= totalCount
+        return highestEquivalentValue(counts.length - 1);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.jmeter.report.core.GraphAggregator#addValue(double)
+     */
+    @Override
+    public void addValue(double value) {
+        addValue(value, 1L);
+    }
+
+    /**
+     * Records several times the same value
+     *
+     * @param value
+     *            the value to record
+     * @param count
+     *            the number of times the value is recorded
+     */
+    public void addValue(double value, long count) {
+        long rounded = value > 0 ? Math.round(value) : 0L;
+        int index = countsIndex(rounded);
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length + subBucketHalfCount));
+        }
+        counts[index] += count;
+        totalCount += count;
+    }
+
+    /**
+     * Calls the consumer for each bucket holding recorded values, by
+     * increasing values
+     *
+     * @param consumer
+     *            called with the highest value equivalent to the values of
+     *            the bucket and their count
+     */
+    public void forEachValue(ValueCountConsumer consumer) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                consumer.accept(highestEquivalentValue(i), counts[i]);
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.jmeter.report.processor.Aggregator#isMergeable()
+     */
+    @Override
+    public boolean isMergeable() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * org.apache.jmeter.report.processor.Aggregator#merge(org.apache.jmeter.
+     * report.processor.Aggregator)
+     */
+    @Override
+    public void merge(Aggregator other) {
+        merge((HistogramPercentileAggregator) other);
+    }
+
+    /**
+     * Adds the values recorded by another histogram to this one
+     *
+     * @param other
+     *            histogram to add, must have the same precision
+     * @throws IllegalArgumentException
+     *             if precisions differ
+     */
+    public void merge(HistogramPercentileAggregator other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge histograms of precision " + other.precision
+                    + " into precision " + precision);
+        }
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.jmeter.report.core.GraphAggregator#reset()
+     */
+    @Override
+    public void reset() {
+        Arrays.fill(counts, 0L);
+        totalCount = 0;
+    }
+
+    /**
+     * Consumer of the values recorded by a histogram
+     */
+    @FunctionalInterface
+    public interface ValueCountConsumer {
+        /**
+         * @param value
+         *            the recorded value
+         * @param count
+         *            the number of times it was recorded
+         */
+        void accept(long value, long count);
+    }
+
+    /**
+     * Bucket i (i &gt; 0) holds values in [2<sup>i</sup> * subBucketHalfCount,
+     * 2<sup>i+1</sup> * subBucketHalfCount) with a width of 2<sup>i</sup>,
+     * bucket 0 holds exact values lower than 2 * subBucketHalfCount.
+     */
+    private int countsIndex(long value) {
+        int bucketIndex = Math.max(0,
+                63 - Long.numberOfLeadingZeros(value | subBucketMask) - subBucketHalfCountMagnitude);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return (bucketIndex << subBucketHalfCountMagnitude) + subBucketIndex;
+    }
+
+    private long highestEquivalentValue(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        long subBucketIndex = (index & (subBucketHalfCount - 1)) + (long) subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        long lowestValue = subBucketIndex << bucketIndex;
+        return lowestValue + (1L << bucketIndex) - 1;
+    }
+}
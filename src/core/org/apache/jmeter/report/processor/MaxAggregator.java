@@ -69,4 +69,28 @@ public class MaxAggregator implements Aggregator {
         value = Double.MIN_VALUE;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.jmeter.report.processor.Aggregator#isMergeable()
+     */
+    @Override
+    public boolean isMergeable() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.jmeter.report.processor.Aggregator#merge(org.apache.jmeter.
+     * report.processor.Aggregator)
+     */
+    @Override
+    public void merge(Aggregator other) {
+        MaxAggregator otherMax = (MaxAggregator) other;
+        count += otherMax.count;
+        value = Math.max(value, otherMax.value);
+    }
+
 }
@@ -17,8 +17,6 @@
  */
 package org.apache.jmeter.report.processor;
 
-import org.apache.commons.math3.stat.descriptive.moment.Mean;
-
 /**
  * The class MeanAggregator is used to get mean from samples.
  * 
@@ -26,7 +24,9 @@ import org.apache.commons.math3.stat.descriptive.moment.Mean;
  */
 public class MeanAggregator implements Aggregator {
 
-    private Mean mean = new Mean();
+    // Updated like commons-math Mean does, but can be merged
+    private long count = 0L;
+    private double mean = Double.NaN;
 
     /*
      * (non-Javadoc)
@@ -35,7 +35,7 @@ public class MeanAggregator implements Aggregator {
      */
     @Override
     public long getCount() {
-        return mean.getN();
+        return count;
     }
 
     /*
@@ -45,7 +45,7 @@ public class MeanAggregator implements Aggregator {
      */
     @Override
     public double getResult() {
-        return mean.getResult();
+        return mean;
     }
 
     /*
@@ -55,7 +55,11 @@ public class MeanAggregator implements Aggregator {
      */
     @Override
     public void addValue(double value) {
-        mean.increment(value);
+        if (count == 0L) {
+            mean = 0d;
+        }
+        count++;
+        mean += (value - mean) / count;
     }
 
     /*
@@ -65,7 +69,38 @@ public class MeanAggregator implements Aggregator {
      */
     @Override
     public void reset() {
-        mean.clear();
+        count = 0L;
+        mean = Double.NaN;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.jmeter.report.processor.Aggregator#isMergeable()
+     */
+    @Override
+    public boolean isMergeable() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.jmeter.report.processor.Aggregator#merge(org.apache.jmeter.
+     * report.processor.Aggregator)
+     */
+    @Override
+    public void merge(Aggregator other) {
+        MeanAggregator otherMean = (MeanAggregator) other;
+        if (otherMean.count == 0L) {
+            return;
+        }
+        if (count == 0L) {
+            mean = 0d;
+        }
+        count += otherMean.count;
+        mean += (otherMean.mean - mean) * otherMean.count / count;
     }
 
 }
@@ -18,9 +18,11 @@
 package org.apache.jmeter.report.processor;
 
 /**
- * A factory for creating PercentileAggregator with index of percentile fixed to
+ * A factory for creating percentile aggregators with index of percentile fixed to
  * value 50.
  *
+ * @see PercentileAggregatorFactory#createPercentileAggregator(double)
+ *
  * @since 3.0
  */
 public class MedianAggregatorFactory extends AbstractAggregatorFactory {
@@ -34,7 +36,7 @@ public class MedianAggregatorFactory extends AbstractAggregatorFactory {
      */
     @Override
     protected Aggregator createAggregator() {
-        return new PercentileAggregator(50);
+        return PercentileAggregatorFactory.createPercentileAggregator(50);
     }
 
 }
@@ -69,4 +69,28 @@ public class MinAggregator implements Aggregator {
         value = Double.MAX_VALUE;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.jmeter.report.processor.Aggregator#isMergeable()
+     */
+    @Override
+    public boolean isMergeable() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.jmeter.report.processor.Aggregator#merge(org.apache.jmeter.
+     * report.processor.Aggregator)
+     */
+    @Override
+    public void merge(Aggregator other) {
+        MinAggregator otherMin = (MinAggregator) other;
+        count += otherMin.count;
+        value = Math.min(value, otherMin.value);
+    }
+
 }
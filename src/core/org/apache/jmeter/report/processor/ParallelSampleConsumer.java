@@ -0,0 +1,412 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.report.processor;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BiConsumer;
+
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleException;
+
+/**
+ * <p>
+ * The class ParallelSampleConsumer reproduces the consumed samples to its
+ * consumers like {@link FilterConsumer} without predicate, but each consumer
+ * runs in one of several worker threads.
+ * </p>
+ * <p>
+ * Each consumer is bound to a single worker and receives all the samples in
+ * the order they were consumed, so its results are the same as if it was run
+ * by the calling thread. Samples are handed to the workers by batches to
+ * limit the synchronization cost. The
+ * {@link SampleConsumer#startConsuming()} and
+ * {@link SampleConsumer#stopConsuming()} methods of the consumers are still
+ * called by the calling thread, as they share the {@link SampleContext}.
+ * </p>
+ * <p>
+ * Consumers whose results can be merged, like mergeable graphs (see
+ * {@link org.apache.jmeter.report.processor.graph.AbstractGraphConsumer#isMergeable()}),
+ * can be added with copies using
+ * {@link #addPartitionedConsumer(SampleConsumer, List, BiConsumer)}. The
+ * batches are then split between the consumer and its copies, each bound to
+ * its own worker, and the data of the copies is merged into the consumer
+ * before it stores its results.
+ * </p>
+ * <p>
+ * Consumers must not share mutable state with consumers bound to other
+ * workers.
+ * </p>
+ *
+ * @since 4.1
+ */
+public class ParallelSampleConsumer extends AbstractSampleConsumer {
+
+    private static final int BATCH_SIZE = 1000;
+
+    /** number of batches a worker can be late */
+    private static final int QUEUE_CAPACITY = 16;
+
+    // Create unique object as marker for end of samples
+    private static final Batch END_BATCH = new Batch(0, -1);
+
+    private final int threadCount;
+
+    private final Map<SampleConsumer, PartitionedConsumer<?>> partitionedConsumers = new IdentityHashMap<>();
+
+    private Worker[] workers;
+
+    private Batch currentBatch;
+
+    private long batchCount;
+
+    /**
+     * Instantiates a new parallel sample consumer.
+     *
+     * @param threadCount
+     *            the maximum number of worker threads, no more threads than
+     *            consumers are started
+     */
+    public ParallelSampleConsumer(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException(
+                    "threadCount must be greater than 0, got:" + threadCount);
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * @return the maximum number of worker threads
+     */
+    public final int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Adds a consumer and copies of it, the samples being split between them
+     * by batches.
+     * <p>
+     * The copies receive the same sample context and metadata as the
+     * consumer and are started with it, but they are never stopped: before
+     * the consumer stores its results, the merger adds the data of each copy
+     * to the consumer and clears the copy.
+     *
+     * @param <T>
+     *            the type of consumer
+     * @param consumer
+     *            the consumer whose results are stored
+     * @param copies
+     *            consumers configured like the consumer, without consumers of
+     *            their own
+     * @param merger
+     *            called with the consumer and a copy whose data must be moved
+     *            to the consumer
+     */
+    public <T extends SampleConsumer> void addPartitionedConsumer(T consumer, List<T> copies,
+            BiConsumer<T, T> merger) {
+        addSampleConsumer(consumer);
+        if (!copies.isEmpty()) {
+            partitionedConsumers.put(consumer, new PartitionedConsumer<>(consumer, copies, merger));
+        }
+    }
+
+    @Override
+    public void setSampleContext(SampleContext sampleContext) {
+        super.setSampleContext(sampleContext);
+        for (PartitionedConsumer<?> partitioned : partitionedConsumers.values()) {
+            for (SampleConsumer copy : partitioned.copies) {
+                copy.setSampleContext(sampleContext);
+            }
+        }
+    }
+
+    @Override
+    public void startConsuming() {
+        // Broadcast metadata to consumers for each channel
+        int channelCount = getConsumedChannelCount();
+        for (int i = 0; i < channelCount; i++) {
+            super.setProducedMetadata(getConsumedMetadata(i), i);
+        }
+        super.startProducing();
+
+        List<Partition> partitions = new ArrayList<>();
+        SampleConsumer consumer;
+        for (int i = 0; (consumer = getConsumer(i)) != null; i++) {
+            PartitionedConsumer<?> partitioned = partitionedConsumers.get(consumer);
+            if (partitioned == null) {
+                partitions.add(new Partition(consumer, 0, 1));
+            } else {
+                int partitionCount = partitioned.copies.size() + 1;
+                partitions.add(new Partition(consumer, 0, partitionCount));
+                for (int j = 1; j < partitionCount; j++) {
+                    SampleConsumer copy = partitioned.copies.get(j - 1);
+                    for (int channel = 0; channel < channelCount; channel++) {
+                        copy.setConsumedMetadata(getConsumedMetadata(channel), channel);
+                    }
+                    copy.startConsuming();
+                    partitions.add(new Partition(copy, j, partitionCount));
+                }
+            }
+        }
+        int workerCount = Math.max(1, Math.min(threadCount, partitions.size()));
+        workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(getName() + "-" + i);
+        }
+        // Partitions of a consumer are consecutive, so they are bound to
+        // different workers
+        for (int i = 0; i < partitions.size(); i++) {
+            workers[i % workerCount].partitions.add(partitions.get(i));
+        }
+        for (Worker worker : workers) {
+            worker.start();
+        }
+        batchCount = 0;
+        currentBatch = newBatch();
+    }
+
+    private Batch newBatch() {
+        return new Batch(BATCH_SIZE, batchCount++);
+    }
+
+    /**
+     * Moves the data of the copies of the partitioned consumers to these
+     * consumers, the workers must be waiting for samples
+     */
+    private void mergePartitions() {
+        for (PartitionedConsumer<?> partitioned : partitionedConsumers.values()) {
+            partitioned.merge();
+        }
+    }
+
+    @Override
+    public void consume(Sample sample, int channel) {
+        currentBatch.add(sample, channel);
+        if (currentBatch.isFull()) {
+            dispatch(currentBatch);
+            currentBatch = newBatch();
+            // Do not read the remaining samples if a consumer failed
+            for (Worker worker : workers) {
+                if (worker.failure != null) {
+                    stopWorkers();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the workers to consume the dispatched samples, then asks the
+     * consumers to store their results
+     */
+    @Override
+    public void storeIntermediateResults() {
+        if (currentBatch.size > 0) {
+            dispatch(currentBatch);
+            currentBatch = newBatch();
+        }
+        Batch barrier = new Batch(0, -1);
+        barrier.consumed = new CountDownLatch(workers.length);
+        dispatch(barrier);
+        try {
+            barrier.consumed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SampleException("Interrupted while waiting for "
+                    + getName() + " workers", e);
+        }
+        mergePartitions();
+        super.storeIntermediateResults();
+    }
+
+    @Override
+    public void stopConsuming() {
+        if (currentBatch.size > 0) {
+            dispatch(currentBatch);
+        }
+        currentBatch = null;
+        long producedCount = stopWorkers();
+        workers = null;
+        mergePartitions();
+        addProducedSampleCount(producedCount);
+        super.stopProducing();
+    }
+
+    /**
+     * Waits for the workers to consume the dispatched samples
+     *
+     * @return the number of samples produced
+     * @throws SampleException
+     *             when a consumer failed
+     */
+    private long stopWorkers() {
+        dispatch(END_BATCH);
+        long producedCount = 0;
+        for (Worker worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SampleException("Interrupted while waiting for "
+                        + worker.getName(), e);
+            }
+            producedCount += worker.producedCount;
+        }
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw new SampleException("Consumer failed with message :"
+                        + worker.failure.getMessage(), worker.failure);
+            }
+        }
+        return producedCount;
+    }
+
+    private void dispatch(Batch batch) {
+        for (Worker worker : workers) {
+            try {
+                worker.queue.put(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SampleException("Interrupted while handing samples to "
+                        + worker.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * A consumer with its copies and the way to merge them
+     */
+    private static final class PartitionedConsumer<T extends SampleConsumer> {
+        private final T consumer;
+        private final List<T> copies;
+        private final BiConsumer<T, T> merger;
+
+        private PartitionedConsumer(T consumer, List<T> copies, BiConsumer<T, T> merger) {
+            this.consumer = consumer;
+            this.copies = new ArrayList<>(copies);
+            this.merger = merger;
+        }
+
+        private void merge() {
+            for (T copy : copies) {
+                merger.accept(consumer, copy);
+            }
+        }
+    }
+
+    /**
+     * A consumer fed with the batches whose number modulo partitionCount is
+     * partitionIndex
+     */
+    private static final class Partition {
+        private final SampleConsumer consumer;
+        private final int partitionIndex;
+        private final int partitionCount;
+
+        private Partition(SampleConsumer consumer, int partitionIndex, int partitionCount) {
+            this.consumer = consumer;
+            this.partitionIndex = partitionIndex;
+            this.partitionCount = partitionCount;
+        }
+
+        private boolean accepts(Batch batch) {
+            return batch.number % partitionCount == partitionIndex;
+        }
+    }
+
+    /**
+     * Samples shared by all the workers, not modified once dispatched
+     */
+    private static final class Batch {
+        private final Sample[] samples;
+        private final int[] channels;
+        private final long number;
+        private int size;
+        // Counted down by the workers once consumed, when not null
+        private CountDownLatch consumed;
+
+        private Batch(int capacity, long number) {
+            samples = new Sample[capacity];
+            channels = new int[capacity];
+            this.number = number;
+        }
+
+        private void add(Sample sample, int channel) {
+            samples[size] = sample;
+            channels[size] = channel;
+            size++;
+        }
+
+        private boolean isFull() {
+            return size == samples.length;
+        }
+    }
+
+    private static final class Worker extends Thread {
+        private final List<Partition> partitions = new ArrayList<>();
+        private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private long producedCount;
+        private volatile Throwable failure;
+
+        private Worker(String name) {
+            super(name);
+            // Does not prevent exit if the calling thread fails
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Batch batch;
+                // The == comparison is not an error
+                while ((batch = queue.take()) != END_BATCH) {
+                    // Keep draining the queue after a failure so that
+                    // the calling thread is not blocked
+                    if (failure == null) {
+                        consume(batch);
+                    }
+                    if (batch.consumed != null) {
+                        batch.consumed.countDown();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            }
+        }
+
+        private void consume(Batch batch) {
+            try {
+                for (int i = 0; i < batch.size; i++) {
+                    for (Partition partition : partitions) {
+                        if (partition.accepts(batch)) {
+                            partition.consumer.consume(batch.samples[i], batch.channels[i]);
+                            producedCount++;
+                        }
+                    }
+                }
+            } catch (Throwable e) { // NOSONAR Reported by the calling thread
+                failure = e;
+            }
+        }
+    }
+}
@@ -17,13 +17,47 @@
  */
 package org.apache.jmeter.report.processor;
 
+import org.apache.jmeter.report.config.ReportGeneratorConfiguration;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
- * A factory for creating PercentileAggregator objects.
+ * A factory for creating percentile aggregators.
+ * <p>
+ * The implementation is selected by the property
+ * <code>jmeter.reportgenerator.percentile_aggregator</code>:
+ * <ul>
+ * <li><code>window</code> (default): {@link PercentileAggregator}, exact
+ * percentiles over a sliding window of samples</li>
+ * <li><code>histogram</code>: {@link HistogramPercentileAggregator}, percentiles
+ * over all samples with a bounded relative error and constant memory</li>
+ * </ul>
  *
  * @since 3.0
  */
 public class PercentileAggregatorFactory extends AbstractAggregatorFactory {
 
+    private static final Logger log = LoggerFactory.getLogger(PercentileAggregatorFactory.class);
+
+    /** Sliding window implementation, see {@link PercentileAggregator} */
+    public static final String WINDOW_IMPLEMENTATION = "window"; // $NON-NLS-1$
+
+    /** Histogram implementation, see {@link HistogramPercentileAggregator} */
+    public static final String HISTOGRAM_IMPLEMENTATION = "histogram"; // $NON-NLS-1$
+
+    private static final String IMPLEMENTATION = JMeterUtils.getPropDefault(
+            ReportGeneratorConfiguration.REPORT_GENERATOR_KEY_PREFIX
+                    + ReportGeneratorConfiguration.KEY_DELIMITER
+                    + "percentile_aggregator", WINDOW_IMPLEMENTATION); // $NON-NLS-1$
+
+    private static final int HISTOGRAM_PRECISION = JMeterUtils.getPropDefault(
+            ReportGeneratorConfiguration.REPORT_GENERATOR_KEY_PREFIX
+                    + ReportGeneratorConfiguration.KEY_DELIMITER
+                    + "histogram_precision", 3); // $NON-NLS-1$
+
+    private static final boolean USE_HISTOGRAM = useHistogram();
+
     private double percentileIndex;
     private Aggregator lastAggregator;
 
@@ -56,13 +90,48 @@ public class PercentileAggregatorFactory extends AbstractAggregatorFactory {
     @Override
     protected Aggregator createAggregator() {
         Aggregator newAggregator = null;
-        if(lastAggregator != null) {
+        if (lastAggregator instanceof HistogramPercentileAggregator) {
+            newAggregator = new HistogramPercentileAggregator((HistogramPercentileAggregator) lastAggregator);
+        } else if(lastAggregator != null) {
             newAggregator = new PercentileAggregator((PercentileAggregator)lastAggregator);
         } else {
-            newAggregator = new PercentileAggregator(percentileIndex);
+            newAggregator = createPercentileAggregator(percentileIndex);
         }
         lastAggregator = newAggregator;
         return newAggregator;
     }
 
+    /**
+     * Creates a percentile aggregator using the implementation configured by
+     * <code>jmeter.reportgenerator.percentile_aggregator</code>
+     *
+     * @param percentileIndex
+     *            the index of the percentile
+     * @return a new percentile aggregator
+     */
+    public static Aggregator createPercentileAggregator(double percentileIndex) {
+        if (USE_HISTOGRAM) {
+            return new HistogramPercentileAggregator(percentileIndex, HISTOGRAM_PRECISION);
+        }
+        return new PercentileAggregator(percentileIndex);
+    }
+
+    private static boolean useHistogram() {
+        if (HISTOGRAM_IMPLEMENTATION.equalsIgnoreCase(IMPLEMENTATION.trim())) {
+            if (HISTOGRAM_PRECISION < HistogramPercentileAggregator.MIN_PRECISION
+                    || HISTOGRAM_PRECISION > HistogramPercentileAggregator.MAX_PRECISION) {
+                log.warn("Invalid histogram precision {}, expected a value between {} and {}, "
+                        + "using sliding window percentiles", HISTOGRAM_PRECISION,
+                        HistogramPercentileAggregator.MIN_PRECISION, HistogramPercentileAggregator.MAX_PRECISION);
+                return false;
+            }
+            return true;
+        }
+        if (!WINDOW_IMPLEMENTATION.equalsIgnoreCase(IMPLEMENTATION.trim())) {
+            log.warn("Unknown percentile aggregator '{}', expected {} or {}, using {}", IMPLEMENTATION,
+                    WINDOW_IMPLEMENTATION, HISTOGRAM_IMPLEMENTATION, WINDOW_IMPLEMENTATION);
+        }
+        return false;
+    }
+
 }
@@ -70,12 +70,22 @@ public class RequestsSummaryConsumer extends AbstractSampleConsumer {
      */
     @Override
     public void stopConsuming() {
+        setDataToContext(getName(), createRequestsResult());
+        super.stopProducing();
+    }
+
+    @Override
+    public void storeIntermediateResults() {
+        setDataToContext(getName(), createRequestsResult());
+        super.storeIntermediateResults();
+    }
+
+    private MapResultData createRequestsResult() {
         MapResultData result = new MapResultData();
         result.setResult("KoPercent", new ValueResultData(Double.valueOf((double) errorCount
                 * 100 / count)));
         result.setResult("OkPercent", new ValueResultData(
                 Double.valueOf((double) (count - errorCount) * 100 / count)));
-        setDataToContext(getName(), result);
-        super.stopProducing();
+        return result;
     }
 }
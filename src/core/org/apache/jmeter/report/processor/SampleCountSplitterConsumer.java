@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.report.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleMetadata;
+import org.apache.jmeter.save.CSVSaveService;
+
+/**
+ * Consume samples aggregating several ones, like the ones saved in the
+ * Statistical or Histogram remote modes, and reproduce them as the samples
+ * they aggregate, so that counts, rates and percentiles are computed on the
+ * individual samples.
+ * <p>
+ * An aggregate sample stores the number of samples and errors in the
+ * {@link CSVSaveService#CSV_SAMPLE_COUNT} and
+ * {@link CSVSaveService#CSV_ERROR_COUNT} columns, and the sum of their elapsed
+ * times, latencies, connect times, idle times and bytes. They are shared
+ * between the reproduced samples, the first ones holding the errors.
+ * <p>
+ * Samples are reproduced unchanged when the sample count column is not in
+ * results.
+ *
+ * @since 4.1
+ */
+public class SampleCountSplitterConsumer extends AbstractSampleConsumer {
+
+    /** Columns holding the sum of the values of the aggregated samples */
+    private static final String[] SUM_COLUMNS = {
+            CSVSaveService.CSV_ELAPSED,
+            CSVSaveService.CSV_LATENCY,
+            CSVSaveService.CSV_CONNECT_TIME,
+            CSVSaveService.CSV_IDLETIME,
+            CSVSaveService.CSV_BYTES,
+            CSVSaveService.CSV_SENT_BYTES };
+
+    private SampleMetadata sampleMetadata;
+
+    private int sampleCountIndex;
+
+    private int errorCountIndex;
+
+    private int successIndex;
+
+    private int elapsedIndex;
+
+    private int correctedElapsedIndex;
+
+    private int[] sumIndexes;
+
+    @Override
+    public void startConsuming() {
+        sampleMetadata = getConsumedMetadata(0);
+        sampleCountIndex = sampleMetadata.indexOf(CSVSaveService.CSV_SAMPLE_COUNT);
+        errorCountIndex = sampleMetadata.indexOf(CSVSaveService.CSV_ERROR_COUNT);
+        successIndex = sampleMetadata.indexOf(CSVSaveService.SUCCESSFUL);
+        elapsedIndex = sampleMetadata.indexOf(CSVSaveService.CSV_ELAPSED);
+        correctedElapsedIndex = sampleMetadata.indexOf(CSVSaveService.CSV_CORRECTED_ELAPSED);
+        List<Integer> indexes = new ArrayList<>();
+        for (String column : SUM_COLUMNS) {
+            int index = sampleMetadata.indexOf(column);
+            if (index >= 0) {
+                indexes.add(Integer.valueOf(index));
+            }
+        }
+        sumIndexes = indexes.stream().mapToInt(Integer::intValue).toArray();
+        super.setProducedMetadata(sampleMetadata, 0);
+        startProducing();
+    }
+
+    @Override
+    public void consume(Sample s, int channel) {
+        long sampleCount = parse(s, sampleCountIndex);
+        if (sampleCount <= 1) {
+            super.produce(s, 0);
+            return;
+        }
+        long errorCount = Math.min(Math.max(parse(s, errorCountIndex), 0), sampleCount);
+        long[] sums = new long[sumIndexes.length];
+        for (int i = 0; i < sumIndexes.length; i++) {
+            sums[i] = parse(s, sumIndexes[i]);
+            if (sums[i] < 0) {
+                // Not an aggregate this consumer understands
+                super.produce(s, 0);
+                return;
+            }
+        }
+        int cc = sampleMetadata.getColumnCount();
+        for (long n = 0; n < sampleCount; n++) {
+            String[] data = new String[cc];
+            for (int i = 0; i < cc; i++) {
+                data[i] = s.getData(i);
+            }
+            for (int i = 0; i < sumIndexes.length; i++) {
+                long value = sums[i] / sampleCount + (n < sums[i] % sampleCount ? 1 : 0);
+                data[sumIndexes[i]] = Long.toString(value);
+            }
+            if (correctedElapsedIndex >= 0 && elapsedIndex >= 0) {
+                data[correctedElapsedIndex] = data[elapsedIndex];
+            }
+            boolean failed = n < errorCount;
+            if (successIndex >= 0) {
+                data[successIndex] = Boolean.toString(!failed);
+            }
+            data[sampleCountIndex] = "1";
+            if (errorCountIndex >= 0) {
+                data[errorCountIndex] = failed ? "1" : "0";
+            }
+            super.produce(new Sample(s.getSampleRow(), sampleMetadata, data), 0);
+        }
+    }
+
+    /**
+     * @return the value of the column, -1 if the column is not in results or
+     *         does not hold a number
+     */
+    private static long parse(Sample s, int index) {
+        if (index < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(s.getData(index));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void stopConsuming() {
+        super.stopProducing();
+    }
+}
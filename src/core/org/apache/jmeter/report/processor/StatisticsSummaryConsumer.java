@@ -36,6 +36,8 @@ import org.apache.jmeter.util.JMeterUtils;
  *      <li>min</li>
  *      <li>max</li>
  * </ul>
+ * When results contain elapsed times corrected for coordinated omission,
+ * a corrected row is computed alongside each sample row.
  * 
  * @since 3.0
  */
@@ -61,8 +63,9 @@ public class StatisticsSummaryConsumer extends
      * @param sample {@link Sample}
      * @param data {@link StatisticsSummaryData}
      * @param isOverall boolean indicating if aggregation concerns the Overall results in which case we ignore Transaction Controller's SampleResult
+     * @param elapsedTime elapsed time to aggregate, raw or corrected for coordinated omission
      */
-    private void aggregateSample(Sample sample, StatisticsSummaryData data, boolean isOverall) {
+    private void aggregateSample(Sample sample, StatisticsSummaryData data, boolean isOverall, long elapsedTime) {
         if(isOverall && sample.isController()) {
             return;
         }
@@ -74,7 +77,6 @@ public class StatisticsSummaryConsumer extends
             data.incErrors();
         }
 
-        long elapsedTime = sample.getElapsedTime();
         data.getPercentile1().addValue(elapsedTime);
         data.getPercentile2().addValue(elapsedTime);
         data.getPercentile3().addValue(elapsedTime);
@@ -113,11 +115,30 @@ public class StatisticsSummaryConsumer extends
         }
 
         if(!sample.isEmptyController()) {
-            aggregateSample(sample, data, false);
-            aggregateSample(sample, overallData, true);
+            aggregateSample(sample, data, false, sample.getElapsedTime());
+            aggregateSample(sample, overallData, true, sample.getElapsedTime());
+            if (sample.hasCorrectedElapsedTime()) {
+                aggregateSample(sample, getCorrectedData(sample), false, sample.getCorrectedElapsedTime());
+            }
         }
     }
 
+    private StatisticsSummaryData getCorrectedData(Sample sample) {
+        String key = String.format(Sample.CORRECTED_NAME_FORMAT, getKeyFromSample(sample));
+        SummaryInfo info = getSummaryInfos().get(key);
+        if (info == null) {
+            info = new SummaryInfo(sample.isController());
+            getSummaryInfos().put(key, info);
+        }
+        StatisticsSummaryData data = info.getData();
+        if (data == null) {
+            data = new StatisticsSummaryData(PERCENTILE_INDEX1,
+                        PERCENTILE_INDEX2, PERCENTILE_INDEX3);
+            info.setData(data);
+        }
+        return data;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -33,9 +33,9 @@ public class StatisticsSummaryData {
     private long errors = 0L;
     private long total = 0L;
     private final MeanAggregator mean;
-    private final PercentileAggregator percentile1;
-    private final PercentileAggregator percentile2;
-    private final PercentileAggregator percentile3;
+    private final Aggregator percentile1;
+    private final Aggregator percentile2;
+    private final Aggregator percentile3;
     private long min = Long.MAX_VALUE;
     private long max = Long.MIN_VALUE;
 
@@ -163,7 +163,7 @@ public class StatisticsSummaryData {
     /**
      * @return the percentile1
      */
-    public final PercentileAggregator getPercentile1() {
+    public final Aggregator getPercentile1() {
         return percentile1;
     }
 
@@ -172,7 +172,7 @@ public class StatisticsSummaryData {
      *
      * @return the percentile2
      */
-    public final PercentileAggregator getPercentile2() {
+    public final Aggregator getPercentile2() {
         return percentile2;
     }
 
@@ -181,7 +181,7 @@ public class StatisticsSummaryData {
      *
      * @return the percentile3
      */
-    public final PercentileAggregator getPercentile3() {
+    public final Aggregator getPercentile3() {
         return percentile3;
     }
 
@@ -193,9 +193,9 @@ public class StatisticsSummaryData {
      */
     public StatisticsSummaryData(long percentileIndex1, long percentileIndex2,
             long percentileIndex3) {
-        percentile1 = new PercentileAggregator(percentileIndex1);
-        percentile2 = new PercentileAggregator(percentileIndex2);
-        percentile3 = new PercentileAggregator(percentileIndex3);
+        percentile1 = PercentileAggregatorFactory.createPercentileAggregator(percentileIndex1);
+        percentile2 = PercentileAggregatorFactory.createPercentileAggregator(percentileIndex2);
+        percentile3 = PercentileAggregatorFactory.createPercentileAggregator(percentileIndex3);
         mean = new MeanAggregator();
     }
 
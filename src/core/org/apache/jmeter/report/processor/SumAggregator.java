@@ -69,4 +69,28 @@ public class SumAggregator implements Aggregator {
         sum = 0;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.jmeter.report.processor.Aggregator#isMergeable()
+     */
+    @Override
+    public boolean isMergeable() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.jmeter.report.processor.Aggregator#merge(org.apache.jmeter.
+     * report.processor.Aggregator)
+     */
+    @Override
+    public void merge(Aggregator other) {
+        SumAggregator otherSum = (SumAggregator) other;
+        count += otherSum.count;
+        sum += otherSum.sum;
+    }
+
 }
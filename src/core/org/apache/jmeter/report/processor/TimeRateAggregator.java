@@ -85,4 +85,28 @@ public class TimeRateAggregator implements Aggregator {
         value = 0;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.jmeter.report.processor.Aggregator#isMergeable()
+     */
+    @Override
+    public boolean isMergeable() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.jmeter.report.processor.Aggregator#merge(org.apache.jmeter.
+     * report.processor.Aggregator)
+     */
+    @Override
+    public void merge(Aggregator other) {
+        TimeRateAggregator otherTimeRate = (TimeRateAggregator) other;
+        count += otherTimeRate.count;
+        value += otherTimeRate.value;
+    }
+
 }
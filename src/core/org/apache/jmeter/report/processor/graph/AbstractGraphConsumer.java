@@ -463,6 +463,22 @@ public abstract class AbstractGraphConsumer extends AbstractSampleConsumer {
      */
     protected abstract void initializeExtraResults(MapResultData parentResult);
 
+    /**
+     * Gets the key of the sample for the specified series.<br>
+     * By default, all series use the key computed by the keys selector.
+     *
+     * @param seriesName
+     *            the name of the series
+     * @param sample
+     *            the sample
+     * @param key
+     *            the key computed by the keys selector
+     * @return the key to use for the series
+     */
+    protected Double selectSeriesKey(String seriesName, Sample sample, Double key) {
+        return key;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -520,10 +536,11 @@ public abstract class AbstractGraphConsumer extends AbstractSampleConsumer {
                 Double value = groupInfo.getValueSelector().select(seriesName,
                         sample);
                 if(value != null) {
-                    aggregateValue(factory, seriesData, key, value);
+                    Double seriesKey = selectSeriesKey(seriesName, sample, key);
+                    aggregateValue(factory, seriesData, seriesKey, value);
                     if (overallSeries) {
                         SeriesData overallData = groupData.getOverallSeries();
-                        aggregateValue(factory, overallData, key, value);
+                        aggregateValue(factory, overallData, seriesKey, value);
                     }
                 }
             }
@@ -548,6 +565,76 @@ public abstract class AbstractGraphConsumer extends AbstractSampleConsumer {
     public void stopConsuming() {
         super.stopProducing();
 
+        // Store the result
+        setDataToContext(getName(), createGraphResult());
+
+        for (GroupInfo groupInfo : groupInfos.values()) {
+            groupInfo.getGroupData().clear();
+        }
+    }
+
+    /**
+     * Indicates whether copies of this graph, each consuming a part of the
+     * samples, can be merged using {@link #merge(AbstractGraphConsumer)} to
+     * get the same results as if this graph had consumed all the samples.
+     * <p>
+     * This implementation returns true when the aggregators of all groups are
+     * mergeable and no consumer is plugged to this graph. Inherited classes
+     * whose results depend on the order of the samples must return false.
+     *
+     * @return true if this graph can be merged
+     * @since 4.1
+     */
+    public boolean isMergeable() {
+        if (getConsumer(0) != null) {
+            return false;
+        }
+        for (GroupInfo groupInfo : groupInfos.values()) {
+            AggregatorFactory factory = groupInfo.getAggregatorFactory();
+            if (!factory.createValueAggregator().isMergeable()) {
+                return false;
+            }
+            if (groupInfo.enablesAggregatedKeysSeries()
+                    && !(factory.createKeyAggregator().isMergeable()
+                            && factory.createAggregatedKeyValueAggregator().isMergeable())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the data consumed by a copy of this graph to this graph, then
+     * clears the data of the copy so that it can go on consuming samples.
+     *
+     * @param other
+     *            a graph of the same class and configuration
+     * @throws IllegalArgumentException
+     *             if the other graph is not of the same class
+     * @throws UnsupportedOperationException
+     *             if an aggregator of this graph is not mergeable
+     * @see #isMergeable()
+     * @since 4.1
+     */
+    public void merge(AbstractGraphConsumer other) {
+        if (other.getClass() != getClass()) {
+            throw new IllegalArgumentException("Cannot merge " + other.getClass().getName()
+                    + " into " + getClass().getName());
+        }
+        for (Map.Entry<String, GroupInfo> groupEntry : groupInfos.entrySet()) {
+            GroupData otherData = other.groupInfos.get(groupEntry.getKey()).getGroupData();
+            groupEntry.getValue().getGroupData().merge(otherData);
+            otherData.clear();
+        }
+    }
+
+    @Override
+    public void storeIntermediateResults() {
+        setDataToContext(getName(), createGraphResult());
+        super.storeIntermediateResults();
+    }
+
+    private MapResultData createGraphResult() {
         MapResultData result = createResult();
 
         // Get the aggregate results from the map
@@ -582,13 +669,7 @@ public abstract class AbstractGraphConsumer extends AbstractSampleConsumer {
                 }
             }
         }
-
-        // Store the result
-        setDataToContext(getName(), result);
-
-        for (GroupInfo groupInfo : groupInfos.values()) {
-            groupInfo.getGroupData().clear();
-        }
+        return result;
     }
 
 }
@@ -19,12 +19,16 @@ package org.apache.jmeter.report.processor.graph;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.jmeter.report.core.CsvSampleReader;
 import org.apache.jmeter.report.core.CsvSampleWriter;
+import org.apache.jmeter.report.core.OutOfOrderSampleException;
 import org.apache.jmeter.report.core.Sample;
 import org.apache.jmeter.report.core.SampleBuilder;
 import org.apache.jmeter.report.core.SampleException;
@@ -49,6 +53,10 @@ public abstract class AbstractVersusRequestsGraphConsumer extends
 
     private long granularity;
 
+    private int reorderBufferSize;
+
+    private long reorderMaxDelay;
+
     /**
      * The embedded time count consumer is used to buffer (disk storage) and tag
      * samples with the number of samples in the same interval.
@@ -75,6 +83,57 @@ public abstract class AbstractVersusRequestsGraphConsumer extends
         this.granularity = granularity;
     }
 
+    /**
+     * Gets the maximum number of samples kept in memory while waiting for the
+     * count of their time interval.
+     *
+     * @return the size of the reorder buffer, 0 when samples are buffered in
+     *         temporary files
+     * @since 4.1
+     */
+    public int getReorderBufferSize() {
+        return reorderBufferSize;
+    }
+
+    /**
+     * Sets the maximum number of samples kept in memory while waiting for the
+     * count of their time interval. Samples are buffered in temporary files
+     * when it is 0 or when samples do not fit in the buffer.
+     *
+     * @param reorderBufferSize
+     *            the size of the reorder buffer
+     * @since 4.1
+     */
+    public void setReorderBufferSize(int reorderBufferSize) {
+        this.reorderBufferSize = reorderBufferSize;
+    }
+
+    /**
+     * Gets the maximum delay between the end time of a sample and the end
+     * time of the samples received before it.
+     *
+     * @return the maximum delay in milliseconds
+     * @since 4.1
+     */
+    public long getReorderMaxDelay() {
+        return reorderMaxDelay;
+    }
+
+    /**
+     * Sets the maximum delay between the end time of a sample and the end
+     * time of the samples received before it. The count of a time interval is
+     * considered complete when a sample ending this delay after the interval
+     * is received. A later sample of a complete interval that is already
+     * processed results in a {@link OutOfOrderSampleException}.
+     *
+     * @param reorderMaxDelay
+     *            the maximum delay in milliseconds
+     * @since 4.1
+     */
+    public void setReorderMaxDelay(long reorderMaxDelay) {
+        this.reorderMaxDelay = reorderMaxDelay;
+    }
+
     /**
      * Instantiates a new abstract over time graph consumer.
      */
@@ -132,6 +191,17 @@ public abstract class AbstractVersusRequestsGraphConsumer extends
         super.consume(sample, channel);
     }
 
+    /**
+     * Versus requests graphs count the samples of each time interval, so
+     * they cannot be fed with parts of the samples.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isMergeable() {
+        return false;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -207,6 +277,16 @@ public abstract class AbstractVersusRequestsGraphConsumer extends
         boolean createdWorkDir = false;
         private final AbstractVersusRequestsGraphConsumer parent;
 
+        /**
+         * Samples of the single channel waiting for the count of their time
+         * interval, in the order they were received. null when samples are
+         * buffered in temporary files.
+         */
+        private ArrayDeque<Sample> reorderBuffer;
+        // Time intervals of the samples already produced to the parent
+        private Set<Long> producedIntervals = new HashSet<>();
+        private long maxEndTime;
+
         public TimeCountConsumer(AbstractVersusRequestsGraphConsumer parent) {
             this.parent = parent;
         }
@@ -256,12 +336,39 @@ public abstract class AbstractVersusRequestsGraphConsumer extends
             return builder.build();
         }
 
+        // Asks parent to consume the sample tagged with the count of its interval
+        private void produceToParent(Sample sample, int channel) {
+            Long requestsPerGranularity = counts.get(getTimeInterval(sample));
+            Long requestsPerSecond = requestsPerGranularity * 1000 / parent.getGranularity();
+            parent.consumeBase(
+                    createIndexedSample(sample, channel, requestsPerSecond), channel);
+        }
+
         @Override
         public void startConsuming() {
+            createdWorkDir = false;
+            fileInfos.clear();
+            counts.clear();
+            producedIntervals.clear();
+            maxEndTime = Long.MIN_VALUE;
+
+            // Override produced metadata
+            initProducedMetadata();
 
+            // Samples of a single channel are produced as soon as the count of
+            // their interval is known, other samples are buffered to disk
+            if (parent.getReorderBufferSize() > 0 && getConsumedChannelCount() == 1) {
+                reorderBuffer = new ArrayDeque<>();
+                parent.startConsumingBase();
+            } else {
+                reorderBuffer = null;
+                createTemporaryFiles();
+            }
+        }
+
+        private void createTemporaryFiles() {
             // Handle the working directory
             File workDir = parent.getWorkingDirectory();
-            createdWorkDir = false;
             if (!workDir.exists()) {
                 createdWorkDir = workDir.mkdir();
                 if (!createdWorkDir) {
@@ -288,9 +395,6 @@ public abstract class AbstractVersusRequestsGraphConsumer extends
                     throw new SampleException(message, ex);
                 }
             }
-
-            // Override produced metadata
-            initProducedMetadata();
         }
 
         /*
@@ -304,24 +408,73 @@ public abstract class AbstractVersusRequestsGraphConsumer extends
         public void consume(Sample sample, int channel) {
             // Count sample depending on time interval
             Long time = getTimeInterval(sample);
+            if (producedIntervals.contains(time)) {
+                throw new OutOfOrderSampleException(String.format(
+                        "Sample at row %d ends more than %d ms before a previous sample,"
+                        + " the count of its interval was already used by %s",
+                        Long.valueOf(sample.getSampleRow()),
+                        Long.valueOf(parent.getReorderMaxDelay()), parent.getName()));
+            }
             Long count = counts.get(time);
             if (count != null) {
                 counts.put(time, Long.valueOf(count.longValue() + 1));
             } else {
                 counts.put(time, ONE);
             }
-            fileInfos.get(channel).getWriter().write(sample);
+            if (fileInfos.isEmpty()) {
+                reorderBuffer.add(sample);
+                long endTime = sample.getEndTime();
+                if (endTime > maxEndTime) {
+                    maxEndTime = endTime;
+                    produceCompleteIntervals();
+                }
+                if (reorderBuffer.size() > parent.getReorderBufferSize()) {
+                    log.info("More than {} samples are waiting for their interval count,"
+                            + " buffering samples of {} to disk",
+                            parent.getReorderBufferSize(), parent.getName());
+                    createTemporaryFiles();
+                    CsvSampleWriter writer = fileInfos.get(0).getWriter();
+                    for (Sample buffered : reorderBuffer) {
+                        writer.write(buffered);
+                    }
+                    reorderBuffer.clear();
+                }
+            } else {
+                fileInfos.get(channel).getWriter().write(sample);
+            }
+        }
+
+        // Produces the first buffered samples whose interval ends before
+        // the watermark, no later sample is expected in these intervals
+        private void produceCompleteIntervals() {
+            long watermark = maxEndTime - parent.getReorderMaxDelay();
+            long granularity = parent.getGranularity();
+            while (!reorderBuffer.isEmpty()) {
+                Sample sample = reorderBuffer.peek();
+                Long time = getTimeInterval(sample);
+                if (time.longValue() + granularity > watermark) {
+                    break;
+                }
+                producedIntervals.add(time);
+                produceToParent(reorderBuffer.poll(), 0);
+            }
         }
 
         @Override
         public void stopConsuming() {
-
-            // Ask parent to start consumption
-            parent.startConsumingBase();
+            if (reorderBuffer == null) {
+                // Ask parent to start consumption
+                parent.startConsumingBase();
+            } else {
+                // All counts are known now
+                while (!reorderBuffer.isEmpty()) {
+                    produceToParent(reorderBuffer.poll(), 0);
+                }
+                reorderBuffer = null;
+            }
 
             // Propagate tagged samples to parent
-            int channelsCount = getConsumedChannelCount();
-            for (int i = 0; i < channelsCount; i++) {
+            for (int i = 0; i < fileInfos.size(); i++) {
                 FileInfo fileInfo = fileInfos.get(i);
 
                 // Clean the writer
@@ -333,12 +486,8 @@ public abstract class AbstractVersusRequestsGraphConsumer extends
                 try (CsvSampleReader reader = new CsvSampleReader(file,
                         getConsumedMetadata(i))) {
                     while (reader.hasNext()) {
-                        Sample sample = reader.readSample();
                         // Ask parent to consume the altered sample
-                        Long requestsPerGranularity = counts.get(getTimeInterval(sample));
-                        Long requestsPerSecond = requestsPerGranularity * 1000 / parent.getGranularity();
-                        parent.consumeBase(
-                                createIndexedSample(sample, i, requestsPerSecond), i);
+                        produceToParent(reader.readSample(), i);
                     }
                 } finally {
                     if(!file.delete()) {
@@ -18,6 +18,7 @@
 package org.apache.jmeter.report.processor.graph;
 
 import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.jmeter.report.processor.AggregatorFactory;
 
@@ -62,6 +63,28 @@ public class GroupData {
                 false, true) : null;
     }
 
+    /**
+     * Adds the data of another group to this one.
+     * <p>
+     * Series of the other group can be moved to this group, so the other
+     * group must be cleared before being used again.
+     *
+     * @param other
+     *            the group to add, built by the same factory
+     * @since 4.1
+     */
+    public void merge(GroupData other) {
+        for (Map.Entry<String, SeriesData> entry : other.seriesData.entrySet()) {
+            SeriesData series = seriesData.putIfAbsent(entry.getKey(), entry.getValue());
+            if (series != null) {
+                series.merge(entry.getValue());
+            }
+        }
+        if (overallSeries != null) {
+            overallSeries.merge(other.overallSeries);
+        }
+    }
+
     public void clear() {
         seriesData.clear();
         if (overallSeries != null) {
@@ -141,6 +141,32 @@ public class SeriesData {
         count++;
     }
 
+    /**
+     * Adds the data of another series to this one.
+     * <p>
+     * Aggregators of the other series can be moved to this series, so the
+     * other series must be cleared before being used again.
+     *
+     * @param other
+     *            the series to add, built by the same factory
+     * @since 4.1
+     */
+    public void merge(SeriesData other) {
+        for (Map.Entry<Double, Aggregator> entry : other.aggregators.entrySet()) {
+            Aggregator aggregator = aggregators.putIfAbsent(entry.getKey(), entry.getValue());
+            if (aggregator != null) {
+                aggregator.merge(entry.getValue());
+            }
+        }
+        count += other.count;
+        if (keysAggregator != null) {
+            keysAggregator.merge(other.keysAggregator);
+        }
+        if (valuesAggregator != null) {
+            valuesAggregator.merge(other.valuesAggregator);
+        }
+    }
+
     public void clear() {
         aggregators.clear();
         count = 0L;
@@ -61,6 +61,17 @@ public class ResponseTimePerSampleGraphConsumer extends AbstractGraphConsumer {
         return new IndexedNameSelector();
     }
 
+    /**
+     * Keys are indexes depending on the order of the sample names, and
+     * percentile aggregators start from the values of the previous one.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isMergeable() {
+        return false;
+    }
+
     /**
      * Creates the group info for elapsed time percentile depending on jmeter
      * properties.
@@ -17,6 +17,7 @@
  */
 package org.apache.jmeter.report.processor.graph.impl;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -31,7 +32,9 @@ import org.apache.jmeter.report.processor.graph.NameSeriesSelector;
 
 /**
  * The Class ResponseTimePercentilesGraphConsumer computes percentile 
- * graph for each samples
+ * graph for each samples.<br>
+ * When results contain elapsed times corrected for coordinated omission,
+ * a corrected series is computed alongside each sample series.
  *
  * @since 3.0
  */
@@ -72,7 +75,17 @@ public class ResponseTimePercentilesGraphConsumer extends AbstractGraphConsumer
         HashMap<String, GroupInfo> groupInfos = new HashMap<>(1);
 
         groupInfos.put(AbstractGraphConsumer.DEFAULT_GROUP, new GroupInfo(
-                new SumAggregatorFactory(), new NameSeriesSelector(),
+                new SumAggregatorFactory(), new NameSeriesSelector() {
+
+                    @Override
+                    public Iterable<String> select(Sample sample) {
+                        if (sample.hasCorrectedElapsedTime()) {
+                            String name = sample.getName();
+                            return Arrays.asList(name, String.format(Sample.CORRECTED_NAME_FORMAT, name));
+                        }
+                        return super.select(sample);
+                    }
+                },
                 // We include Transaction Controller results
                 new CountValueSelector(false), false, false));
 
@@ -89,4 +102,18 @@ public class ResponseTimePercentilesGraphConsumer extends AbstractGraphConsumer
     protected void initializeExtraResults(MapResultData parentResult) {
         // do nothing
     }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.jmeter.report.processor.graph.AbstractGraphConsumer#
+     * selectSeriesKey(java.lang.String, org.apache.jmeter.report.core.Sample, java.lang.Double)
+     */
+    @Override
+    protected Double selectSeriesKey(String seriesName, Sample sample, Double key) {
+        if (sample.hasCorrectedElapsedTime() && !seriesName.equals(sample.getName())) {
+            return Double.valueOf(sample.getCorrectedElapsedTime());
+        }
+        return key;
+    }
 }
@@ -98,6 +98,17 @@ public class ResponseTimePercentilesOverTimeGraphConsumer extends
                 new SuccessfulElapsedTimeValueSelector(), false, false);
     }
 
+    /**
+     * Percentile aggregators start from the values of the previous time
+     * interval, so results depend on the order of the samples.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isMergeable() {
+        return false;
+    }
+
     /**
      *
      * @see org.apache.jmeter.report.processor.graph.AbstractGraphConsumer#createGroupInfos()
@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.reporters;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the samples of a results file in a dedicated thread.
+ * <p>
+ * Sampling threads only queue the sample events, the worker thread formats
+ * and writes them by batches, so a slow disk does not add to the response
+ * times and does not serialize the sampling threads. When the queue is full,
+ * sampling threads either wait for room or drop the sample, depending on
+ * <code>jmeter.save.saveservice.async.queue_full_policy</code>.
+ * <p>
+ * The sample fields are formatted with the save configuration given with
+ * each event, not the one of the result, as other listeners may change it
+ * while the event is queued.
+ *
+ * @since 4.1
+ */
+public final class AsyncResultWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncResultWriter.class);
+
+    // Create unique object as marker for end of queue
+    private static final Entry FINAL_ENTRY = new Entry(null, null);
+
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Writes an event to the results file, called by the worker thread only
+     */
+    @FunctionalInterface
+    interface Sink {
+        void write(SampleEvent event, SampleSaveConfiguration saveConfig) throws Exception; // NOSONAR Same as listeners
+    }
+
+    private final String name;
+
+    private final BlockingQueue<Entry> queue;
+
+    private final boolean dropWhenFull;
+
+    private final Sink sink;
+
+    private final Flushable output;
+
+    private final boolean flushEachBatch;
+
+    private final Thread worker;
+
+    private final AtomicLong submitted = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong queueWaits = new AtomicLong();
+
+    private final AtomicLong queueWaitTime = new AtomicLong();
+
+    private volatile long written;
+
+    private final Object progressLock = new Object();
+
+    /** Number of events taken from the queue, guarded by progressLock */
+    private long processed;
+
+    private volatile boolean closed;
+
+    /**
+     * Starts the worker thread
+     *
+     * @param name
+     *            name of the results file, used for the worker thread name
+     *            and logs
+     * @param capacity
+     *            maximum number of queued events
+     * @param dropWhenFull
+     *            true to drop the events that cannot be queued, false to wait
+     *            for room in the queue
+     * @param sink
+     *            writes the events
+     * @param output
+     *            flushed by {@link #flush()}
+     * @param flushEachBatch
+     *            true to flush output after each batch
+     */
+    AsyncResultWriter(String name, int capacity, boolean dropWhenFull, Sink sink, Flushable output,
+            boolean flushEachBatch) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dropWhenFull = dropWhenFull;
+        this.sink = sink;
+        this.output = output;
+        this.flushEachBatch = flushEachBatch;
+        this.worker = new Thread(this::run, "ResultCollector writer " + name);
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Writing results to {} asynchronously, queue size: {}, queue full policy: {}",
+                name, capacity, dropWhenFull ? "drop" : "block");
+    }
+
+    /**
+     * Queues an event to be written, waits for room in the queue or drops it
+     * when the queue is full.
+     *
+     * @param event
+     *            the event to be written
+     * @param saveConfig
+     *            the configuration of the fields to be written
+     * @return false if the event was dropped
+     */
+    boolean submit(SampleEvent event, SampleSaveConfiguration saveConfig) {
+        if (closed) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        Entry entry = new Entry(event, saveConfig);
+        if (!queue.offer(entry)) { // we failed to add the element first time
+            if (dropWhenFull) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            queueWaits.incrementAndGet();
+            long t1 = System.nanoTime();
+            try {
+                queue.put(entry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped.incrementAndGet();
+                return false;
+            } finally {
+                queueWaitTime.addAndGet(System.nanoTime() - t1);
+            }
+        }
+        submitted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Waits for the events queued before the call to be written, then
+     * flushes the output
+     *
+     * @throws IOException
+     *             when the output cannot be flushed
+     */
+    void flush() throws IOException {
+        long target = submitted.get();
+        synchronized (progressLock) {
+            while (processed < target && worker.isAlive()) {
+                try {
+                    progressLock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * Writes the queued events and stops the worker thread, events submitted
+     * later are dropped. Does not close the output.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(FINAL_ENTRY);
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for {} to be written", name);
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Asynchronous writer of {} ended, written: {}, dropped: {}, queue waits: {}, queue wait time: {} (nanoseconds)",
+                    name, getWrittenCount(), getDroppedCount(), getQueueWaits(), getQueueWaitTime());
+        }
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        boolean eof = false;
+        try {
+            while (!eof) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                for (Entry entry : batch) {
+                    // The == comparison is not an error
+                    if (entry == FINAL_ENTRY) {
+                        eof = true;
+                        break;
+                    }
+                    try {
+                        sink.write(entry.event, entry.saveConfig);
+                        written++; // NOSONAR Only modified by the worker thread
+                    } catch (Exception err) {
+                        log.error("Error trying to record a sample", err);
+                    }
+                }
+                if (flushEachBatch) {
+                    output.flush();
+                }
+                synchronized (progressLock) {
+                    processed += eof ? batch.size() - 1 : batch.size();
+                    progressLock.notifyAll();
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Error flushing {}, stopping asynchronous writes", name, e);
+        } finally {
+            // Unblocks sampling threads waiting for room, later events are dropped
+            closed = true;
+            dropped.addAndGet(queue.size());
+            queue.clear();
+        }
+        log.debug("Asynchronous writer of {} ended", name);
+    }
+
+    /**
+     * @return the number of events waiting to be written
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of events queued
+     */
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * @return the number of events written
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * @return the number of events dropped as the queue was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return how many times a sampling thread had to wait for room in the
+     *         queue
+     */
+    public long getQueueWaits() {
+        return queueWaits.get();
+    }
+
+    /**
+     * @return how long sampling threads waited for room in the queue, in
+     *         nanoseconds
+     */
+    public long getQueueWaitTime() {
+        return queueWaitTime.get();
+    }
+
+    private static final class Entry {
+        private final SampleEvent event;
+        private final SampleSaveConfiguration saveConfig;
+
+        private Entry(SampleEvent event, SampleSaveConfiguration saveConfig) {
+            this.event = event;
+            this.saveConfig = saveConfig;
+        }
+    }
+}
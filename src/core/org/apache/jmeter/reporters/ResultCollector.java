@@ -26,6 +26,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -37,21 +38,28 @@ import java.util.Map;
 
 import org.apache.jmeter.engine.util.NoThreadClone;
 import org.apache.jmeter.gui.GuiPackage;
+import org.apache.jmeter.samplers.AsyncSampleListener;
 import org.apache.jmeter.samplers.Clearable;
+import org.apache.jmeter.samplers.HistogramSampleResult;
 import org.apache.jmeter.samplers.Remoteable;
+import org.apache.jmeter.samplers.ResponseDataUsage;
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.samplers.SampleListener;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.save.BinaryResultReader;
+import org.apache.jmeter.save.BinaryResultWriter;
 import org.apache.jmeter.save.CSVSaveService;
 import org.apache.jmeter.save.SaveService;
 import org.apache.jmeter.services.FileServer;
+import org.apache.jmeter.testelement.TestPlan;
 import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jmeter.testelement.property.BooleanProperty;
 import org.apache.jmeter.testelement.property.ObjectProperty;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.visualizers.Visualizer;
 import org.apache.jorphan.util.JMeterError;
+import org.apache.jorphan.util.JOrphanUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,7 +67,7 @@ import org.slf4j.LoggerFactory;
  * This class handles all saving of samples.
  * The class must be thread-safe because it is shared between threads (NoThreadClone).
  */
-public class ResultCollector extends AbstractListenerElement implements SampleListener, Clearable, Serializable,
+public class ResultCollector extends AbstractListenerElement implements AsyncSampleListener, ResponseDataUsage, Clearable, Serializable,
         TestStateListener, Remoteable, NoThreadClone {
     /**
      * Keep track of the file writer and the configuration,
@@ -68,10 +76,27 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
      */
     private static class FileEntry{
         final PrintWriter pw;
+        final BinaryResultWriter binaryWriter;
         final SampleSaveConfiguration config;
-        FileEntry(PrintWriter _pw, SampleSaveConfiguration _config){
+        /** Writes the samples in a dedicated thread, null unless jmeter.save.saveservice.async */
+        final AsyncResultWriter async;
+        FileEntry(String filename, PrintWriter _pw, SampleSaveConfiguration _config){
             pw =_pw;
+            binaryWriter = null;
             config = _config;
+            async = SAVING_ASYNC ? createAsyncWriter(filename, (event, saveConfig) -> {
+                if (saveConfig.saveAsXml()) {
+                    SaveService.saveSampleResult(event, saveConfig, pw);
+                } else {
+                    pw.println(CSVSaveService.resultToDelimitedString(event, saveConfig));
+                }
+            }, pw) : null;
+        }
+        FileEntry(String filename, BinaryResultWriter _binaryWriter, SampleSaveConfiguration _config){
+            pw = null;
+            binaryWriter = _binaryWriter;
+            config = _config;
+            async = SAVING_ASYNC ? createAsyncWriter(filename, binaryWriter::write, binaryWriter) : null;
         }
     }
     
@@ -118,6 +143,17 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
     /** AutoFlush on each line */
     private static final boolean SAVING_AUTOFLUSH = JMeterUtils.getPropDefault("jmeter.save.saveservice.autoflush", false); //$NON-NLS-1$
 
+    /** Write samples in a dedicated thread */
+    private static final boolean SAVING_ASYNC = JMeterUtils.getPropDefault("jmeter.save.saveservice.async", false); //$NON-NLS-1$
+
+    private static final int DEFAULT_ASYNC_QUEUE_SIZE = 10000;
+
+    /** Maximum number of samples waiting to be written */
+    private static final int ASYNC_QUEUE_SIZE = getAsyncQueueSize();
+
+    /** Drop samples instead of waiting when the queue is full */
+    private static final boolean ASYNC_DROP_WHEN_FULL = isAsyncDropWhenFull();
+
     // Static variables
 
     // Lock used to guard static mutable variables
@@ -141,6 +177,12 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
     // Instance variables (guarded by volatile)
     private transient volatile PrintWriter out;
 
+    /** Used instead of out when results are saved in binary format */
+    private transient volatile BinaryResultWriter binaryOut;
+
+    /** Used instead of out and binaryOut when results are written in a dedicated thread */
+    private transient volatile AsyncResultWriter asyncOut;
+
     /**
      * Is a test running ?
      */
@@ -150,6 +192,9 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
 
     /** the summarizer to which this result collector will forward the samples */
     private volatile Summariser summariser;
+
+    /** notified of the samples saved to the file */
+    private transient volatile SampleListener savedSampleListener;
     
     /**
      * No-arg constructor.
@@ -177,6 +222,7 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         clone.setSaveConfig((SampleSaveConfiguration)clone.getSaveConfig().clone());
         // Unfortunately AbstractTestElement does not call super.clone()
         clone.summariser = this.summariser;
+        clone.savedSampleListener = this.savedSampleListener;
         return clone;
     }
 
@@ -318,12 +364,20 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
             }
             instanceCount++;
             try {
-                if (out == null) {
+                if (out == null && binaryOut == null) {
                     try {
-                        // Note: getFileWriter ignores a null filename
-                        out = getFileWriter(getFilename(), getSaveConfig());
+                        // Note: getFileWriter and getBinaryFileWriter ignore a null filename
+                        if (isBinaryOutput(getSaveConfig())) {
+                            binaryOut = getBinaryFileWriter(getFilename(), getSaveConfig());
+                        } else {
+                            out = getFileWriter(getFilename(), getSaveConfig());
+                        }
                     } catch (FileNotFoundException e) {
                         out = null;
+                        binaryOut = null;
+                    }
+                    if (out != null || binaryOut != null) {
+                        asyncOut = getAsyncWriter(getFilename());
                     }
                 }
                 if (getVisualizer() != null) {
@@ -356,6 +410,7 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
      * <ul>
      *   <li>XStream format</li>
      *   <li>CSV format</li>
+     *   <li>binary format, see {@link BinaryResultWriter}</li>
      * </ul>
      *
      */
@@ -367,7 +422,20 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         boolean parsedOK = false;
         String filename = getFilename();
         File file = new File(filename);
-        if (file.exists()) {
+        if (file.exists() && BinaryResultReader.isBinaryResultFile(file)) {
+            try {
+                CSVSaveService.processBinarySamples(filename, visualizer, this);
+                parsedOK = true;
+            } catch (IOException | JMeterError | RuntimeException e) {
+                log.warn("Problem reading binary JTL file: {}", file, e);
+            } finally {
+                if (!parsedOK) {
+                    GuiPackage.showErrorMessage(
+                                "Error loading results file - see log file",
+                                "Result file loader");
+                }
+            }
+        } else if (file.exists()) {
             try ( FileReader fr = new FileReader(file); 
                     BufferedReader dataReader = new BufferedReader(fr, 300)){
                 // Get the first line, and see if it is XML
@@ -437,6 +505,81 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         }
     }
 
+    private static int getAsyncQueueSize() {
+        int size = JMeterUtils.getPropDefault("jmeter.save.saveservice.async.queue_size", DEFAULT_ASYNC_QUEUE_SIZE); //$NON-NLS-1$
+        if (size <= 0) {
+            log.warn("Invalid jmeter.save.saveservice.async.queue_size {}, defaulting to {}", size, DEFAULT_ASYNC_QUEUE_SIZE);
+            return DEFAULT_ASYNC_QUEUE_SIZE;
+        }
+        return size;
+    }
+
+    private static boolean isAsyncDropWhenFull() {
+        String policy = JMeterUtils.getPropDefault("jmeter.save.saveservice.async.queue_full_policy", "block"); //$NON-NLS-1$ //$NON-NLS-2$
+        if ("drop".equalsIgnoreCase(policy)) { //$NON-NLS-1$
+            return true;
+        }
+        if (!"block".equalsIgnoreCase(policy)) { //$NON-NLS-1$
+            log.warn("Invalid jmeter.save.saveservice.async.queue_full_policy '{}', defaulting to block", policy);
+        }
+        return false;
+    }
+
+    private static AsyncResultWriter createAsyncWriter(String filename, AsyncResultWriter.Sink sink, Flushable output) {
+        return new AsyncResultWriter(filename, ASYNC_QUEUE_SIZE, ASYNC_DROP_WHEN_FULL, sink, output, SAVING_AUTOFLUSH);
+    }
+
+    private static AsyncResultWriter getAsyncWriter(final String pFilename) throws IOException {
+        if (pFilename == null || pFilename.length() == 0) {
+            return null;
+        }
+        String filename = new File(FileServer.resolveBaseRelativeName(pFilename)).getCanonicalPath();
+        FileEntry fe = files.get(filename);
+        return fe == null ? null : fe.async;
+    }
+
+    private static boolean isBinaryOutput(SampleSaveConfiguration saveConfig) {
+        return !saveConfig.saveAsXml() && saveConfig.saveAsBinary();
+    }
+
+    private static BinaryResultWriter getBinaryFileWriter(final String pFilename, SampleSaveConfiguration saveConfig)
+            throws IOException {
+        if (pFilename == null || pFilename.length() == 0) {
+            return null;
+        }
+        String filename = FileServer.resolveBaseRelativeName(pFilename);
+        filename = new File(filename).getCanonicalPath();
+        FileEntry fe = files.get(filename);
+        if (fe != null) {
+            if (fe.binaryWriter == null) {
+                log.warn("File {} is already written as text, results will not be saved in binary format", filename);
+            }
+            return fe.binaryWriter;
+        }
+        File file = new File(filename);
+        if (file.length() > 0 && !BinaryResultReader.isBinaryResultFile(file)) {
+            throw new IOException("Cannot append binary results to " + filename
+                    + " which is not a binary result file");
+        }
+        File pdir = file.getParentFile();
+        if (pdir != null && !pdir.mkdirs() && !pdir.exists()) {
+            log.warn("Error creating directories for {}", pdir);
+        }
+        FileOutputStream fos = new FileOutputStream(filename, true);
+        BinaryResultWriter writer;
+        try {
+            // Each writer starts a new segment, even when appending to an existing file
+            writer = new BinaryResultWriter(new BufferedOutputStream(fos),
+                    CSVSaveService.printableFieldNames(saveConfig));
+        } catch (IOException e) {
+            JOrphanUtils.closeQuietly(fos);
+            throw e;
+        }
+        log.debug("Opened binary file: {} in thread {}", filename, Thread.currentThread().getName());
+        files.put(filename, new FileEntry(filename, writer, saveConfig));
+        return writer;
+    }
+
     private static PrintWriter getFileWriter(final String pFilename, SampleSaveConfiguration saveConfig)
             throws IOException {
         if (pFilename == null || pFilename.length() == 0) {
@@ -451,7 +594,15 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         PrintWriter writer = null;
         boolean trimmed = true;
 
+        if (fe != null && fe.pw == null) {
+            log.warn("File {} is already written in binary format, results will not be saved as text", filename);
+            return null;
+        }
         if (fe == null) {
+            if (BinaryResultReader.isBinaryResultFile(new File(filename))) {
+                throw new IOException("Cannot append text results to " + filename
+                        + " which is a binary result file");
+            }
             if (saveConfig.saveAsXml()) {
                 trimmed = trimLastLine(filename);
             } else {
@@ -476,7 +627,7 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
             if(log.isDebugEnabled()) {
                 log.debug("Opened file: {} in thread {}", filename, Thread.currentThread().getName());
             }
-            files.put(filename, new FileEntry(writer, saveConfig));
+            files.put(filename, new FileEntry(filename, writer, saveConfig));
         } else {
             writer = fe.pw;
         }
@@ -533,6 +684,21 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         // NOOP
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The response data is only read when it is displayed or saved.
+     */
+    @Override
+    public long getResponseDataUsage() {
+        SampleSaveConfiguration config = getSaveConfig();
+        if (getVisualizer() != null || TestPlan.getFunctionalMode()
+                || config.saveResponseData() || config.isResponseDataSavedOnError()) {
+            return ResponseDataUsage.ALL;
+        }
+        return ResponseDataUsage.NONE;
+    }
+
     /**
      * When a test result is received, display it and save it.
      *
@@ -545,18 +711,22 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
 
         if (isSampleWanted(result.isSuccessful())) {
             sendToVisualizer(result);
-            if (out != null && !isResultMarked(result) && !this.isStats) {
+            AsyncResultWriter asyncWriter = asyncOut;
+            BinaryResultWriter binaryWriter = binaryOut;
+            PrintWriter textWriter = out;
+            if ((asyncWriter != null || binaryWriter != null || textWriter != null)
+                    && !isResultMarked(result) && !this.isStats) {
                 SampleSaveConfiguration config = getSaveConfig();
-                result.setSaveConfig(config);
-                try {
-                    if (config.saveAsXml()) {
-                        SaveService.saveSampleResult(event, out);
-                    } else { // !saveAsXml
-                        String savee = CSVSaveService.resultToDelimitedString(event);
-                        out.println(savee);
+                if (result instanceof HistogramSampleResult) {
+                    // Save the distribution of the elapsed times rather than their sum
+                    for (SampleResult row : ((HistogramSampleResult) result).toSampleResults()) {
+                        row.setSaveConfig(config);
+                        saveSample(new SampleEvent(row, event.getThreadGroup(), event.getHostname()),
+                                config, asyncWriter, binaryWriter, textWriter);
                     }
-                } catch (Exception err) {
-                    log.error("Error trying to record a sample", err); // should throw exception back to caller
+                } else {
+                    result.setSaveConfig(config);
+                    saveSample(event, config, asyncWriter, binaryWriter, textWriter);
                 }
             }
         }
@@ -566,6 +736,50 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         }
     }
 
+    private void saveSample(SampleEvent event, SampleSaveConfiguration config,
+            AsyncResultWriter asyncWriter, BinaryResultWriter binaryWriter, PrintWriter textWriter) {
+        if (asyncWriter != null) {
+            asyncWriter.submit(event, config);
+        } else if (binaryWriter != null) {
+            try {
+                binaryWriter.write(event);
+                if (SAVING_AUTOFLUSH) {
+                    binaryWriter.flush();
+                }
+            } catch (Exception err) {
+                log.error("Error trying to record a sample", err); // should throw exception back to caller
+            }
+        } else {
+            try {
+                if (config.saveAsXml()) {
+                    SaveService.saveSampleResult(event, textWriter);
+                } else { // !saveAsXml
+                    String savee = CSVSaveService.resultToDelimitedString(event);
+                    textWriter.println(savee);
+                }
+            } catch (Exception err) {
+                log.error("Error trying to record a sample", err); // should throw exception back to caller
+            }
+        }
+        SampleListener listener = savedSampleListener;
+        if (listener != null) {
+            listener.sampleOccurred(event);
+        }
+    }
+
+    /**
+     * Sets the listener notified of the samples saved by this collector, once
+     * they are handed to the file writer. The save configuration of the
+     * notified results is the one of this collector.
+     *
+     * @param listener
+     *            the listener, {@code null} to remove it
+     * @since 4.1
+     */
+    public void setSavedSampleListener(SampleListener listener) {
+        this.savedSampleListener = listener;
+    }
+
     protected final void sendToVisualizer(SampleResult r) {
         if (getVisualizer() != null) {
             getVisualizer().add(r);
@@ -586,10 +800,29 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
      * Flush PrintWriter to synchronize file contents
      */
     public void flushFile() {
+        AsyncResultWriter asyncWriter = asyncOut;
+        if (asyncWriter != null) {
+            log.info("forced flush through ResultCollector#flushFile");
+            try {
+                asyncWriter.flush();
+            } catch (IOException e) {
+                log.warn("Problem detected during flush of results", e);
+            }
+            return;
+        }
         if (out != null) {
             log.info("forced flush through ResultCollector#flushFile");
             out.flush();
         }
+        BinaryResultWriter binaryWriter = binaryOut;
+        if (binaryWriter != null) {
+            log.info("forced flush through ResultCollector#flushFile");
+            try {
+                binaryWriter.flush();
+            } catch (IOException e) {
+                log.warn("Problem detected during flush of binary results", e);
+            }
+        }
     }
 
     /**
@@ -600,6 +833,21 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
             String key = me.getKey();
             ResultCollector.FileEntry value = me.getValue();
             log.debug("Flushing: {}", key);
+            if (value.async != null) {
+                try {
+                    value.async.flush();
+                } catch (IOException e) {
+                    log.warn("Problem detected during use of {}", key, e);
+                }
+            }
+            if (value.binaryWriter != null) {
+                try {
+                    value.binaryWriter.flush();
+                } catch (IOException e) {
+                    log.warn("Problem detected during use of {}", key, e);
+                }
+                continue;
+            }
             value.pw.flush();
             if (value.pw.checkError()){
                 log.warn("Problem detected during use of {}", key);
@@ -613,6 +861,13 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
             ResultCollector.FileEntry value = me.getValue();
             try {
                 log.debug("Closing: {}", key);
+                if (value.async != null) {
+                    value.async.close();
+                }
+                if (value.binaryWriter != null) {
+                    value.binaryWriter.close();
+                    continue;
+                }
                 writeFileEnd(value.pw, value.config);
                 value.pw.close();
                 if (value.pw.checkError()){
@@ -624,6 +879,21 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         }
         files.clear();
         out = null;
+        binaryOut = null;
+        asyncOut = null;
+    }
+
+    /**
+     * Gives access to the metrics of the asynchronous writer of the results
+     * file, like its queue depth, the dropped samples and the time sampling
+     * threads waited for room in the queue.
+     *
+     * @return the writer of the results file while the test is running, null
+     *         if results are not written asynchronously or not saved
+     * @since 4.1
+     */
+    public AsyncResultWriter getAsyncResultWriter() {
+        return asyncOut;
     }
 
     /**
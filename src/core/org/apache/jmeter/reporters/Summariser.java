@@ -27,9 +27,10 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.jmeter.control.TransactionController;
 import org.apache.jmeter.engine.util.NoThreadClone;
+import org.apache.jmeter.samplers.AsyncSampleListener;
 import org.apache.jmeter.samplers.Remoteable;
+import org.apache.jmeter.samplers.ResponseDataUsage;
 import org.apache.jmeter.samplers.SampleEvent;
-import org.apache.jmeter.samplers.SampleListener;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.AbstractTestElement;
 import org.apache.jmeter.testelement.TestStateListener;
@@ -60,7 +61,7 @@ import org.slf4j.LoggerFactory;
  *
  */
 public class Summariser extends AbstractTestElement
-    implements Serializable, SampleListener, TestStateListener, NoThreadClone, Remoteable {
+    implements Serializable, AsyncSampleListener, ResponseDataUsage, TestStateListener, NoThreadClone, Remoteable {
 
     /*
      * N.B. NoThreadClone is used to ensure that the testStarted() methods will share the same
@@ -163,6 +164,11 @@ public class Summariser extends AbstractTestElement
         }
     }
 
+    @Override
+    public long getResponseDataUsage() {
+        return ResponseDataUsage.NONE;
+    }
+
     /**
      * Accumulates the sample in two SampleResult objects - one for running
      * totals, and the other for deltas.
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+/**
+ * Marks a {@link SampleListener} that can be notified asynchronously.
+ * <p>
+ * When <code>listener.async_dispatch</code> is true, the sample events are
+ * queued for such listeners and delivered by worker threads, so that they do
+ * not add to the time of the sampling threads. Implementations must be thread
+ * safe and must not rely on the context of the sampling thread, like its
+ * variables or previous result: all they need must be in the
+ * {@link SampleEvent}. The events are delivered in the order they were
+ * queued, but possibly after the end of the sampling thread iteration.
+ *
+ * @since 4.1
+ */
+public interface AsyncSampleListener extends SampleListener {
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+/**
+ * {@link SampleResult} subclasses whose specific fields are sent by the
+ * {@link BinarySampleSender} should implement this interface, so that the
+ * client decodes them as an instance of their class rather than as a plain
+ * {@link SampleResult}. Implementations must have a public no-arg constructor.
+ *
+ * @since 4.1
+ */
+public interface BinarySampleFields {
+
+    /**
+     * Get the fields specific to the class, including those used by the
+     * getters it overrides, like the sampler data. The fields of
+     * {@link SampleResult} are sent separately.
+     *
+     * @return the values of the fields, in an order known by
+     *         {@link #setBinaryFields(String[])}
+     */
+    String[] getBinaryFields();
+
+    /**
+     * Set the fields specific to the class, on a new instance where the fields
+     * of {@link SampleResult} are already set.
+     *
+     * @param fields
+     *            the values returned by {@link #getBinaryFields()} on the
+     *            remote engine
+     */
+    void setBinaryFields(String[] fields);
+}
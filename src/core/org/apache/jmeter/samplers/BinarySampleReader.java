@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jmeter.assertions.AssertionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decodes the records written by {@link BinarySampleWriter}.
+ * <p>
+ * Results are decoded as an instance of their class on the remote engine when
+ * it implements {@link BinarySampleFields} and can be loaded, else as
+ * {@link SampleResult}. Instances are not thread safe.
+ */
+final class BinarySampleReader {
+
+    private static final Logger log = LoggerFactory.getLogger(BinarySampleReader.class);
+
+    private final DataInputStream in;
+
+    private final List<String> dictionary = new ArrayList<>();
+
+    /** constructors of the result classes, the one of SampleResult for the classes that cannot be used */
+    private final Map<String, Constructor<? extends SampleResult>> resultConstructors = new HashMap<>();
+
+    private long lastStartTime;
+
+    /**
+     * @param in
+     *            the stream the records are read from, it should be buffered
+     */
+    BinarySampleReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    /**
+     * Reads the next record
+     *
+     * @return the events of a {@link BinarySampleWriter#BATCH} record, null
+     *         for the {@link BinarySampleWriter#END} record
+     * @throws IOException
+     *             when the stream cannot be read or is corrupted
+     */
+    List<SampleEvent> readBatch() throws IOException {
+        int type = in.read();
+        if (type == BinarySampleWriter.END) {
+            return null;
+        }
+        if (type < 0) {
+            throw new EOFException("Stream ended before the end record");
+        }
+        if (type != BinarySampleWriter.BATCH) {
+            throw new IOException("Unexpected record type: " + type);
+        }
+        int size = readSize();
+        List<SampleEvent> events = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            events.add(readEvent());
+        }
+        return events;
+    }
+
+    private SampleEvent readEvent() throws IOException {
+        String threadGroup = readDictionaryString();
+        String hostname = readDictionaryString();
+        boolean isTransaction = (in.readByte() & BinarySampleWriter.TRANSACTION) != 0;
+        String[] values = new String[readSize()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString();
+        }
+        SampleResult result = readResult();
+        return new SampleEvent(result, threadGroup, hostname, values, isTransaction);
+    }
+
+    private SampleResult readResult() throws IOException {
+        String className = readDictionaryString();
+        String label = readDictionaryString();
+        String threadName = readDictionaryString();
+        long startTime = lastStartTime + readSignedVarLong();
+        lastStartTime = startTime;
+        long endTime = startTime + readSignedVarLong();
+        long elapsed = readSignedVarLong();
+        long idleTime = readSignedVarLong();
+
+        SampleResult result = newResult(className);
+        if (startTime != 0 && endTime - startTime - idleTime == elapsed) {
+            result.setStampAndTime(startTime, 0);
+            result.setIdleTime(idleTime);
+            result.setEndTime(endTime);
+        } else {
+            // Times were not set by sampleStart and sampleEnd
+            result.setStampAndTime(result.isStampedAtStart() ? startTime : endTime, elapsed);
+            result.setIdleTime(idleTime);
+        }
+        result.setSampleLabel(label);
+        result.setThreadName(threadName);
+        result.setLatency(readSignedVarLong());
+        result.setConnectTime(readSignedVarLong());
+        result.setConnectionWaitTime(readSignedVarLong());
+        result.setTlsHandshakeTime(readSignedVarLong());
+        long intendedStartDelay = readSignedVarLong();
+        if (intendedStartDelay != 0) {
+            result.setIntendedStartTime(startTime - intendedStartDelay + 1);
+        }
+        int resultFlags = in.readByte();
+        result.setSuccessful((resultFlags & BinarySampleWriter.SUCCESSFUL) != 0);
+        result.setTlsSessionResumed((resultFlags & BinarySampleWriter.TLS_SESSION_RESUMED) != 0);
+        result.setResponseCode(readDictionaryString());
+        result.setResponseMessage(readDictionaryString());
+        result.setDataType(readDictionaryString());
+        result.setContentType(readDictionaryString());
+        result.setDataEncoding(readDictionaryString());
+        result.setHeadersSize((int) readSignedVarLong());
+        result.setBodySize(readSignedVarLong());
+        result.setBytes(readSignedVarLong());
+        result.setSentBytes(readSignedVarLong());
+        result.setGroupThreads((int) readSignedVarLong());
+        result.setAllThreads((int) readSignedVarLong());
+        result.setSampleCount((int) readSignedVarLong());
+        result.setURL(toURL(readDictionaryString()));
+        result.setRequestHeaders(readString());
+        result.setResponseHeaders(readString());
+        result.setSamplerData(readString());
+        result.setResponseData(readBytes());
+        if (className != null) {
+            String[] fields = new String[readSize()];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = readString();
+            }
+            if (result instanceof BinarySampleFields) {
+                ((BinarySampleFields) result).setBinaryFields(fields);
+            }
+        }
+
+        int assertionCount = readSize();
+        for (int i = 0; i < assertionCount; i++) {
+            AssertionResult assertionResult = new AssertionResult(readDictionaryString());
+            int flags = in.readByte();
+            assertionResult.setFailure((flags & BinarySampleWriter.ASSERTION_FAILURE) != 0);
+            assertionResult.setError((flags & BinarySampleWriter.ASSERTION_ERROR) != 0);
+            assertionResult.setFailureMessage(readString());
+            result.addAssertionResult(assertionResult);
+        }
+        int subResultCount = readSize();
+        for (int i = 0; i < subResultCount; i++) {
+            result.storeSubResult(readResult());
+        }
+        return result;
+    }
+
+    private SampleResult newResult(String className) throws IOException {
+        if (className == null) {
+            return new SampleResult();
+        }
+        Constructor<? extends SampleResult> constructor =
+                resultConstructors.computeIfAbsent(className, BinarySampleReader::findResultConstructor);
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IOException("Cannot create remote sample of class " + className, e);
+        }
+    }
+
+    private static Constructor<? extends SampleResult> findResultConstructor(String className) {
+        try {
+            // Not initialized before its type is checked, the name is read from the network
+            Class<?> resultClass = Class.forName(className, false, BinarySampleReader.class.getClassLoader());
+            if (SampleResult.class.isAssignableFrom(resultClass)
+                    && BinarySampleFields.class.isAssignableFrom(resultClass)) {
+                return resultClass.asSubclass(SampleResult.class).getConstructor();
+            }
+            log.warn("Remote samples of class {} are decoded as SampleResult, it does not implement {}",
+                    className, BinarySampleFields.class.getName());
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            log.warn("Remote samples of class {} are decoded as SampleResult: {}", className, e.toString());
+        }
+        try {
+            return SampleResult.class.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static URL toURL(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            log.debug("Ignoring URL {} of remote sample: {}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    private String readDictionaryString() throws IOException {
+        long code = readVarLong();
+        if (code == BinarySampleWriter.NULL_CODE) {
+            return null;
+        }
+        if (code == BinarySampleWriter.LITERAL_CODE) {
+            String value = readString();
+            if (dictionary.size() < BinarySampleWriter.MAX_DICTIONARY_SIZE) {
+                dictionary.add(value);
+            }
+            return value;
+        }
+        long index = code - BinarySampleWriter.FIRST_INDEX_CODE;
+        if (index >= dictionary.size()) {
+            throw new IOException("Unknown dictionary index: " + index);
+        }
+        return dictionary.get((int) index);
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = readBytes();
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes() throws IOException {
+        long length = readVarLong();
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > Integer.MAX_VALUE) {
+            throw new IOException("Invalid length: " + (length - 1));
+        }
+        byte[] bytes = new byte[(int) (length - 1)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private int readSize() throws IOException {
+        long size = readVarLong();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Invalid size: " + size);
+        }
+        return (int) size;
+    }
+
+    private long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length number");
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.rmi.RemoteException;
+import java.rmi.server.RMIServerSocketFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives on the JMeter client the samples sent by the
+ * {@link BinarySampleSender} of the remote engines, and hands them to the
+ * local listener.
+ * <p>
+ * Each remote engine opens its own connection, served by a dedicated thread,
+ * when the test plan is configured, and gets an acknowledgement for each batch
+ * once it is processed. The remote engines are all configured before any of
+ * them is started, so the server socket is closed once all the connections
+ * ended, when no connection was accepted during the accept timeout, or when the
+ * test ends.
+ */
+final class BinarySampleReceiver implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(BinarySampleReceiver.class);
+
+    static final int ACK = 1;
+
+    /** milliseconds without new connection after which the server socket is closed */
+    static final int DEFAULT_ACCEPT_TIMEOUT = 60000;
+
+    /** milliseconds */
+    private static final int HANDSHAKE_TIMEOUT = 30000;
+
+    private final RemoteSampleListener listener;
+
+    private final String token;
+
+    private final ServerSocket serverSocket;
+
+    private final int acceptTimeout;
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    /**
+     * Opens the server socket
+     *
+     * @param listener
+     *            the local listener the samples are handed to
+     * @param token
+     *            the token the remote engines must send to be accepted
+     * @param port
+     *            the port to listen to, 0 for any free port
+     * @param factory
+     *            the factory of the server socket, null for a plain socket
+     * @param acceptTimeout
+     *            milliseconds without new connection after which the server
+     *            socket is closed, 0 to wait until the other conditions
+     * @throws IOException
+     *             when the server socket cannot be opened
+     */
+    BinarySampleReceiver(RemoteSampleListener listener, String token, int port,
+            RMIServerSocketFactory factory, int acceptTimeout) throws IOException {
+        this.listener = listener;
+        this.token = token;
+        this.acceptTimeout = acceptTimeout;
+        this.serverSocket = factory == null ? new ServerSocket(port) : factory.createServerSocket(port);
+        try {
+            serverSocket.setSoTimeout(acceptTimeout);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+    }
+
+    void start() {
+        Thread thread = new Thread(this, "BinarySampleReceiver-" + getPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server socket is closed
+     */
+    @Override
+    public void run() {
+        log.info("Waiting for remote samples on port {}", getPort());
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread thread = new Thread(() -> receive(socket),
+                        "BinarySampleReceiver-" + getPort() + "-" + connectionCount.incrementAndGet());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (SocketTimeoutException e) {
+                log.info("No remote samples connection during {} ms, closing receiver on port {}",
+                        acceptTimeout, getPort());
+                close();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.error("Error accepting remote samples connection", e);
+                    close();
+                }
+            }
+        }
+        log.debug("Receiver on port {} ended", getPort());
+    }
+
+    private void receive(Socket socket) {
+        String remote = socket.getRemoteSocketAddress().toString();
+        long sampleCount = 0;
+        boolean accepted = false;
+        try (Socket s = socket) {
+            InputStream socketIn = new BufferedInputStream(s.getInputStream());
+            DataInputStream handshake = new DataInputStream(socketIn);
+            s.setSoTimeout(HANDSHAKE_TIMEOUT);
+            if (handshake.readInt() != BinarySampleWriter.MAGIC || !token.equals(handshake.readUTF())) {
+                log.warn("Rejecting remote samples connection from {}, invalid handshake", remote);
+                return;
+            }
+            s.setSoTimeout(0);
+            accepted = true;
+            openConnections.incrementAndGet();
+            log.info("Receiving remote samples from {}", remote);
+            BinarySampleReader reader = new BinarySampleReader(
+                    new BufferedInputStream(new InflaterInputStream(socketIn)));
+            OutputStream out = s.getOutputStream();
+            List<SampleEvent> events;
+            while ((events = reader.readBatch()) != null) {
+                sampleCount += events.size();
+                listener.processBatch(events);
+                // The sender keeps the samples until they are acknowledged,
+                // to send them by RMI if the connection fails
+                out.write(ACK);
+                out.flush();
+            }
+            // The sender waits for all the samples to be processed before ending the test
+            out.write(ACK);
+            out.flush();
+            log.info("Received {} remote samples from {}", sampleCount, remote);
+        } catch (RemoteException e) {
+            log.error("Error processing remote samples from {}", remote, e);
+        } catch (IOException e) {
+            log.error("Error receiving remote samples from {} after {} samples", remote, sampleCount, e);
+        } finally {
+            if (accepted && openConnections.decrementAndGet() == 0) {
+                close();
+            }
+        }
+    }
+
+    boolean isClosed() {
+        return serverSocket.isClosed();
+    }
+
+    void close() {
+        if (serverSocket.isClosed()) {
+            return;
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.warn("Error closing remote samples receiver on port {}", getPort(), e);
+        }
+    }
+
+    /**
+     * @return the hostname the remote engines should connect to, the one used
+     *         by RMI
+     */
+    static String getAdvertisedHost() {
+        String host = System.getProperty("java.rmi.server.hostname"); // $NON-NLS-1$
+        return host != null ? host : JMeterUtils.getLocalHostIP();
+    }
+}
@@ -0,0 +1,432 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.Socket;
+import java.rmi.RemoteException;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.jmeter.rmi.RmiUtils;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.util.JMeterError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends samples in a separate Thread and in Batch mode, over a dedicated TCP
+ * connection to the JMeter client rather than over RMI.
+ * <p>
+ * Samples are encoded by {@link BinarySampleWriter}, in a compact format
+ * where labels and thread names are coded with a dictionary, then compressed.
+ * The client opens the server socket when this sender is created, the remote
+ * engine connects to it when the test plan is configured, with the SSL
+ * configuration used by RMI. The client acknowledges each batch once it
+ * processed it. When the connection cannot be established or fails, the
+ * samples are sent by RMI instead, starting from the first batch that was not
+ * acknowledged. The start and end of the test are always notified by RMI,
+ * once all the samples have been processed by the client.
+ */
+public class BinarySampleSender extends AbstractSampleSender implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = LoggerFactory.getLogger(BinarySampleSender.class);
+
+    // Create unique object as marker for end of queue
+    private static final SampleEvent FINAL_EVENT = new SampleEvent();
+
+    private static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    private static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+
+    /** milliseconds to wait for the client to process a batch of samples */
+    private static final int ACK_TIMEOUT = 60000;
+
+    private static final int SERVER_CONFIGURED_QUEUE_SIZE =
+            JMeterUtils.getPropDefault("binary.sender.queue.size", DEFAULT_QUEUE_SIZE); // $NON-NLS-1$
+
+    private static final int SERVER_CONFIGURED_COMPRESSION_LEVEL =
+            JMeterUtils.getPropDefault("binary.sender.compression.level", DEFAULT_COMPRESSION_LEVEL); // $NON-NLS-1$
+
+    // instance fields are copied from the client instance
+    private final int clientConfiguredQueueSize =
+            JMeterUtils.getPropDefault("binary.sender.queue.size", DEFAULT_QUEUE_SIZE); // $NON-NLS-1$
+
+    private final int clientConfiguredCompressionLevel =
+            JMeterUtils.getPropDefault("binary.sender.compression.level", DEFAULT_COMPRESSION_LEVEL); // $NON-NLS-1$
+
+    private final RemoteSampleListener listener;
+
+    // Address of the receiver started by the client, port is 0 if it could not be started
+    private final String host;
+
+    private final int port;
+
+    private final String token;
+
+    private final RMIClientSocketFactory socketFactory;
+
+    private transient BlockingQueue<SampleEvent> queue; // created by server in readResolve method
+
+    private transient Worker worker; // created by server in readResolve method
+
+    // Created by SampleSenderFactory
+    protected BinarySampleSender(RemoteSampleListener listener) {
+        this(listener, RmiUtils.createClientSocketFactory(), createServerSocketFactory());
+    }
+
+    /**
+     * @param listener
+     *            the listener the samples are sent to
+     * @param clientSocketFactory
+     *            the factory used by the remote engine to connect to the
+     *            client, null for a plain socket
+     * @param serverSocketFactory
+     *            the factory used by the client to accept the connections,
+     *            null for a plain socket
+     */
+    BinarySampleSender(RemoteSampleListener listener, RMIClientSocketFactory clientSocketFactory,
+            RMIServerSocketFactory serverSocketFactory) {
+        this.listener = listener;
+        this.socketFactory = clientSocketFactory;
+        this.host = BinarySampleReceiver.getAdvertisedHost();
+        this.token = UUID.randomUUID().toString();
+        this.port = startReceiver(listener, token, serverSocketFactory);
+        log.info("Using Binary Remote Sampler for this test run, receiver {}:{}, queue size: {}", // client log file
+                host, port, getQueueSize());
+    }
+
+    private static RMIServerSocketFactory createServerSocketFactory() {
+        try {
+            return RmiUtils.createServerSocketFactory();
+        } catch (RemoteException e) {
+            throw new IllegalArgumentException("Cannot create the server socket factory of the remote samples receiver", e);
+        }
+    }
+
+    /**
+     * @return the port of the started receiver, 0 if it could not be started
+     */
+    private static int startReceiver(RemoteSampleListener listener, String token,
+            RMIServerSocketFactory serverSocketFactory) {
+        int localPort = JMeterUtils.getPropDefault("binary.sender.port", 0); // $NON-NLS-1$
+        int acceptTimeout = JMeterUtils.getPropDefault("binary.sender.accept.timeout", // $NON-NLS-1$
+                BinarySampleReceiver.DEFAULT_ACCEPT_TIMEOUT);
+        try {
+            BinarySampleReceiver receiver = new BinarySampleReceiver(listener, token, localPort,
+                    serverSocketFactory, acceptTimeout);
+            if (listener instanceof RemoteSampleListenerImpl) {
+                // All the remote engines connected before the first one ends its test
+                ((RemoteSampleListenerImpl) listener).addTestEndedHook(receiver::close);
+            }
+            receiver.start();
+            return receiver.getPort();
+        } catch (IOException e) {
+            log.error("Cannot listen for remote samples on port {}, they will be sent by RMI", localPort, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Processed by the RMI server code.
+     *
+     * @return this
+     * @throws ObjectStreamException never
+     */
+    protected Object readResolve() throws ObjectStreamException {
+        int queueSize = getQueueSize();
+        int compressionLevel = isClientConfigured() ?
+                clientConfiguredCompressionLevel : SERVER_CONFIGURED_COMPRESSION_LEVEL;
+        log.info("Using binary sender queue size: {}, compression level: {}", // server log file
+                queueSize, compressionLevel);
+        queue = new ArrayBlockingQueue<>(queueSize);
+        worker = new Worker(queue, queueSize, listener, connect(compressionLevel, queueSize));
+        worker.setDaemon(true);
+        worker.start();
+        return this;
+    }
+
+    /**
+     * @return queue size
+     */
+    private int getQueueSize() {
+        return isClientConfigured() ?
+                clientConfiguredQueueSize : SERVER_CONFIGURED_QUEUE_SIZE;
+    }
+
+    /**
+     * @return the connection to the client receiver, null if it could not be
+     *         established
+     */
+    private Connection connect(int compressionLevel, int maxUnacknowledged) {
+        if (port == 0) {
+            log.warn("No remote samples receiver was started by the client, samples will be sent by RMI");
+            return null;
+        }
+        try {
+            Socket socket = socketFactory == null ? new Socket(host, port) : socketFactory.createSocket(host, port);
+            log.info("Connected to remote samples receiver {}:{}", host, port);
+            return new Connection(socket, token, compressionLevel, maxUnacknowledged);
+        } catch (IOException e) {
+            log.error("Cannot connect to remote samples receiver {}:{}, samples will be sent by RMI", host, port, e);
+            return null;
+        }
+    }
+
+    @Override
+    public void testEnded(String host) {
+        log.debug("Test Ended on {}", host);
+        try {
+            queue.put(FINAL_EVENT);
+            // The samples must reach the client before the end of the test
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while sending the last samples");
+        }
+        try {
+            listener.testEnded(host);
+        } catch (Exception ex) {
+            log.warn("testEnded(host)", ex);
+        }
+    }
+
+    @Override
+    public void sampleOccurred(SampleEvent e) {
+        try {
+            queue.put(e);
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            log.error("sampleOccurred; interrupted while queuing the sample");
+        }
+    }
+
+    /**
+     * Binary stream to the client receiver
+     */
+    private static final class Connection {
+
+        private final Socket socket;
+
+        private final Deflater deflater;
+
+        private final BinarySampleWriter writer;
+
+        private final InputStream acks;
+
+        /** batches sent and not acknowledged yet, in the order they were sent */
+        private final Deque<List<SampleEvent>> unacknowledged = new ArrayDeque<>();
+
+        private int unacknowledgedCount;
+
+        /** number of samples kept until they are acknowledged, before waiting for the client */
+        private final int maxUnacknowledged;
+
+        private Connection(Socket socket, String token, int compressionLevel, int maxUnacknowledged)
+                throws IOException {
+            this.socket = socket;
+            this.deflater = new Deflater(compressionLevel);
+            this.maxUnacknowledged = maxUnacknowledged;
+            try {
+                socket.setSoTimeout(ACK_TIMEOUT);
+                this.acks = socket.getInputStream();
+                OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+                DataOutputStream handshake = new DataOutputStream(out);
+                handshake.writeInt(BinarySampleWriter.MAGIC);
+                handshake.writeUTF(token);
+                handshake.flush();
+                // Flushing the stream flushes the compressed data of each record
+                this.writer = new BinarySampleWriter(new DeflaterOutputStream(out, deflater, 65536, true));
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Sends a batch, kept until the client acknowledges it
+         */
+        private void send(List<SampleEvent> events) throws IOException {
+            while (acks.available() > 0) {
+                readAck();
+            }
+            unacknowledged.add(events);
+            unacknowledgedCount += events.size();
+            writer.writeBatch(events);
+            // Bounds the memory used by the samples waiting for their acknowledgement
+            while (unacknowledgedCount > maxUnacknowledged) {
+                readAck();
+            }
+        }
+
+        private void readAck() throws IOException {
+            if (acks.read() != BinarySampleReceiver.ACK) {
+                throw new IOException("Remote samples receiver did not acknowledge the samples");
+            }
+            List<SampleEvent> events = unacknowledged.poll();
+            if (events != null) {
+                unacknowledgedCount -= events.size();
+            }
+        }
+
+        /**
+         * Waits for the client to process all the samples
+         */
+        private void end() throws IOException {
+            writer.writeEnd();
+            while (!unacknowledged.isEmpty()) {
+                readAck();
+            }
+            // Acknowledgement of the end record
+            readAck();
+        }
+
+        /**
+         * @return the batches sent and not acknowledged by the client, in the
+         *         order they were sent
+         */
+        private List<List<SampleEvent>> getUnacknowledged() {
+            return new ArrayList<>(unacknowledged);
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.warn("Error closing the connection to the remote samples receiver", e);
+            }
+            deflater.end();
+        }
+    }
+
+    private static class Worker extends Thread {
+
+        private final BlockingQueue<SampleEvent> queue;
+
+        private final int maxBatchSize;
+
+        private final RemoteSampleListener listener;
+
+        private Connection connection;
+
+        private long sampleCount;
+
+        private Worker(BlockingQueue<SampleEvent> q, int maxBatchSize, RemoteSampleListener l, Connection c) {
+            super("BinarySampleSender");
+            queue = q;
+            this.maxBatchSize = maxBatchSize;
+            listener = l;
+            connection = c;
+        }
+
+        @Override
+        public void run() {
+            try {
+                boolean eof = false;
+                while (!eof) {
+                    List<SampleEvent> events = new ArrayList<>();
+                    events.add(queue.take());
+                    // try to send as many as possible
+                    queue.drainTo(events, maxBatchSize - 1);
+                    // The == comparison is not an error
+                    eof = events.get(events.size() - 1) == FINAL_EVENT;
+                    if (eof) {
+                        events.remove(events.size() - 1);
+                    }
+                    if (!events.isEmpty()) {
+                        send(events);
+                    }
+                }
+                if (connection != null) {
+                    end();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            log.info("Worker ended after sending {} samples", sampleCount);
+        }
+
+        private void end() {
+            try {
+                connection.end();
+                connection.close();
+            } catch (IOException e) {
+                log.error("Error ending the connection to the remote samples receiver,"
+                        + " samples it did not acknowledge will be sent by RMI", e);
+                fallBackToRmi();
+            }
+        }
+
+        private void send(List<SampleEvent> events) {
+            sampleCount += events.size();
+            if (connection != null) {
+                try {
+                    connection.send(events);
+                } catch (IOException e) {
+                    log.error("Failed to send samples to the remote samples receiver,"
+                            + " samples it did not acknowledge and the next ones will be sent by RMI", e);
+                    fallBackToRmi();
+                }
+                return;
+            }
+            processBatch(events);
+        }
+
+        /**
+         * Sends by RMI the batches the client did not acknowledge, including
+         * the one being sent, and closes the connection
+         */
+        private void fallBackToRmi() {
+            List<List<SampleEvent>> unacknowledged = connection.getUnacknowledged();
+            connection.close();
+            connection = null;
+            for (List<SampleEvent> events : unacknowledged) {
+                processBatch(events);
+            }
+        }
+
+        private void processBatch(List<SampleEvent> events) {
+            try {
+                listener.processBatch(events);
+            } catch (RemoteException err) {
+                if (err.getCause() instanceof java.net.ConnectException){
+                    throw new JMeterError("Could not return sample",err);
+                }
+                log.error("Failed to return sample", err);
+            }
+        }
+    }
+}
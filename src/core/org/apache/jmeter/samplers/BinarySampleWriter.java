@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jmeter.assertions.AssertionResult;
+
+/**
+ * Encodes batches of {@link SampleEvent} in the compact format read by
+ * {@link BinarySampleReader}.
+ * <p>
+ * The format is a stream of records, each one starting with its type:
+ * <ul>
+ * <li>{@link #BATCH}: the number of events followed by the events</li>
+ * <li>{@link #END}: no more events will be written</li>
+ * </ul>
+ * Numbers are written as variable length integers, timestamps as the
+ * difference with the previous start time. Labels, thread names and the other
+ * strings that repeat from one sample to the other are coded with a
+ * dictionary shared by all the records of the stream: the first occurrence is
+ * written in full, the next ones only by their index.
+ * <p>
+ * Results implementing {@link BinarySampleFields} are written with their
+ * class name and their specific fields, the other ones as {@link SampleResult}.
+ * <p>
+ * Each record is written to the underlying stream at once, followed by a
+ * flush, so that the stream can compress whole records. Instances are not
+ * thread safe.
+ */
+final class BinarySampleWriter {
+
+    /** "JMB2", written by the sender before the records */
+    static final int MAGIC = 0x4A4D4232;
+
+    static final int BATCH = 1;
+
+    static final int END = 2;
+
+    /** maximum number of strings in the dictionary, the next ones are always written in full */
+    static final int MAX_DICTIONARY_SIZE = 65536;
+
+    /** dictionary code of null */
+    static final int NULL_CODE = 0;
+
+    /** dictionary code of a string written in full */
+    static final int LITERAL_CODE = 1;
+
+    /** dictionary code of the first string in the dictionary */
+    static final int FIRST_INDEX_CODE = 2;
+
+    static final int SUCCESSFUL = 1;
+
+    static final int TLS_SESSION_RESUMED = 2;
+
+    static final int TRANSACTION = 2;
+
+    static final int ASSERTION_FAILURE = 1;
+
+    static final int ASSERTION_ERROR = 2;
+
+    private final OutputStream out;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    private byte[] buffer = new byte[8192];
+
+    private int count;
+
+    private long lastStartTime;
+
+    /**
+     * @param out
+     *            the stream the records are written to
+     */
+    BinarySampleWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a {@link #BATCH} record and flushes the stream
+     *
+     * @param events
+     *            the events to write
+     * @throws IOException
+     *             when the stream cannot be written
+     */
+    void writeBatch(List<SampleEvent> events) throws IOException {
+        count = 0;
+        writeByte(BATCH);
+        writeVarLong(events.size());
+        for (SampleEvent event : events) {
+            writeEvent(event);
+        }
+        flushRecord();
+    }
+
+    /**
+     * Writes an {@link #END} record and flushes the stream
+     *
+     * @throws IOException
+     *             when the stream cannot be written
+     */
+    void writeEnd() throws IOException {
+        count = 0;
+        writeByte(END);
+        flushRecord();
+    }
+
+    private void flushRecord() throws IOException {
+        out.write(buffer, 0, count);
+        out.flush();
+        // Do not keep the memory of an exceptionally large batch
+        if (buffer.length > 1024 * 1024) {
+            buffer = new byte[8192];
+        }
+    }
+
+    private void writeEvent(SampleEvent event) {
+        writeDictionaryString(event.getThreadGroup());
+        writeDictionaryString(event.getHostname());
+        writeByte(event.isTransactionSampleEvent() ? TRANSACTION : 0);
+        int varCount = SampleEvent.getVarCount();
+        writeVarLong(varCount);
+        for (int i = 0; i < varCount; i++) {
+            writeString(event.getVarValue(i));
+        }
+        writeResult(event.getResult());
+    }
+
+    private void writeResult(SampleResult result) {
+        BinarySampleFields fields = result instanceof BinarySampleFields ? (BinarySampleFields) result : null;
+        writeDictionaryString(fields == null ? null : result.getClass().getName());
+        writeDictionaryString(result.getSampleLabel());
+        writeDictionaryString(result.getThreadName());
+        long startTime = result.getStartTime();
+        writeSignedVarLong(startTime - lastStartTime);
+        lastStartTime = startTime;
+        writeSignedVarLong(result.getEndTime() - startTime);
+        writeSignedVarLong(result.getTime());
+        writeSignedVarLong(result.getIdleTime());
+        writeSignedVarLong(result.getLatency());
+        writeSignedVarLong(result.getConnectTime());
+        writeSignedVarLong(result.getConnectionWaitTime());
+        writeSignedVarLong(result.getTlsHandshakeTime());
+        long intendedStartTime = result.getIntendedStartTime();
+        writeSignedVarLong(intendedStartTime == 0 ? 0 : startTime - intendedStartTime + 1);
+        writeByte((result.isSuccessful() ? SUCCESSFUL : 0)
+                | (result.isTlsSessionResumed() ? TLS_SESSION_RESUMED : 0));
+        writeDictionaryString(result.getResponseCode());
+        writeDictionaryString(result.getResponseMessage());
+        writeDictionaryString(result.getDataType());
+        writeDictionaryString(result.getContentType());
+        writeDictionaryString(result.getDataEncodingNoDefault());
+        writeSignedVarLong(result.getHeadersSize());
+        writeSignedVarLong(result.getBodySizeAsLong());
+        writeSignedVarLong(result.getBytesAsLong());
+        writeSignedVarLong(result.getSentBytes());
+        writeSignedVarLong(result.getGroupThreads());
+        writeSignedVarLong(result.getAllThreads());
+        writeSignedVarLong(result.getSampleCount());
+        URL url = result.getURL();
+        writeDictionaryString(url == null ? null : url.toString());
+        writeString(result.getRequestHeaders());
+        writeString(result.getResponseHeaders());
+        // The sampler data of the subclasses can be computed from their fields
+        writeString(fields == null ? result.getSamplerData() : null);
+        writeBytes(result.getResponseData());
+        if (fields != null) {
+            String[] values = fields.getBinaryFields();
+            writeVarLong(values.length);
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        AssertionResult[] assertionResults = result.getAssertionResults();
+        writeVarLong(assertionResults.length);
+        for (AssertionResult assertionResult : assertionResults) {
+            writeDictionaryString(assertionResult.getName());
+            writeByte((assertionResult.isFailure() ? ASSERTION_FAILURE : 0)
+                    | (assertionResult.isError() ? ASSERTION_ERROR : 0));
+            writeString(assertionResult.getFailureMessage());
+        }
+        SampleResult[] subResults = result.getSubResults();
+        writeVarLong(subResults.length);
+        for (SampleResult subResult : subResults) {
+            writeResult(subResult);
+        }
+    }
+
+    private void writeDictionaryString(String value) {
+        if (value == null) {
+            writeVarLong(NULL_CODE);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            writeVarLong(FIRST_INDEX_CODE + (long) index);
+            return;
+        }
+        writeVarLong(LITERAL_CODE);
+        writeString(value);
+        if (dictionary.size() < MAX_DICTIONARY_SIZE) {
+            dictionary.put(value, dictionary.size());
+        }
+    }
+
+    /**
+     * Writes the length + 1 of the UTF-8 bytes, 0 for null, then the bytes
+     */
+    private void writeString(String value) {
+        writeBytes(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeBytes(byte[] bytes) {
+        if (bytes == null) {
+            writeVarLong(0);
+            return;
+        }
+        writeVarLong(bytes.length + 1L);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void writeSignedVarLong(long value) {
+        // zig-zag encoding, so that small negative values are short too
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            buffer[count++] = (byte) ((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        buffer[count++] = (byte) remaining;
+    }
+
+    private void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[count++] = (byte) value;
+    }
+
+    private void ensureCapacity(int length) {
+        if (count + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+        }
+    }
+}
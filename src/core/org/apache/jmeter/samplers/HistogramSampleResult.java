@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.jmeter.report.processor.HistogramPercentileAggregator;
+import org.apache.jmeter.report.processor.HistogramPercentileAggregator.ValueCountConsumer;
+
+/**
+ * Aggregate of samples, which unlike {@link StatisticalSampleResult} keeps
+ * the distribution of their elapsed times in mergeable histograms, so that
+ * percentiles of several aggregates can be computed.
+ * <p>
+ * Samples are counted in a histogram per outcome: whether they were
+ * successful, their response code and message. Other fields are aggregated as
+ * by {@link StatisticalSampleResult}, {@link #getTime()} being the sum of the
+ * elapsed times.
+ * <p>
+ * Only the non empty buckets of the histograms are serialized.
+ *
+ * @since 4.1
+ */
+public class HistogramSampleResult extends StatisticalSampleResult {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int precision;
+
+    private long minTime = Long.MAX_VALUE;
+
+    private long maxTime = Long.MIN_VALUE;
+
+    // Serialized by writeObject
+    private transient Map<Outcome, HistogramPercentileAggregator> histograms = new LinkedHashMap<>();
+
+    /**
+     * Create an empty aggregate with the key items of a result
+     *
+     * @param res
+     *            the sample result holding the key items
+     * @param precision
+     *            number of significant decimal digits kept by the histograms,
+     *            see {@link HistogramPercentileAggregator}
+     */
+    public HistogramSampleResult(SampleResult res, int precision) {
+        super(res);
+        this.precision = precision;
+    }
+
+    @Override
+    public void add(SampleResult res) {
+        super.add(res);
+        long count = Math.max(1, res.getSampleCount());
+        long time = res.getTime() / count;
+        minTime = Math.min(minTime, time);
+        maxTime = Math.max(maxTime, time);
+        setGroupThreads(res.getGroupThreads());
+        setAllThreads(res.getAllThreads());
+        Outcome outcome = new Outcome(res.isSuccessful(), res.getResponseCode(), res.getResponseMessage());
+        histograms.computeIfAbsent(outcome, o -> new HistogramPercentileAggregator(50, precision))
+                .addValue(time, count);
+    }
+
+    /**
+     * @return the number of significant decimal digits kept by the histograms
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return the lowest elapsed time of the samples, 0 if there are none
+     */
+    public long getMinTime() {
+        return histograms.isEmpty() ? 0 : minTime;
+    }
+
+    /**
+     * @return the highest elapsed time of the samples, 0 if there are none
+     */
+    public long getMaxTime() {
+        return histograms.isEmpty() ? 0 : maxTime;
+    }
+
+    /**
+     * @param percentile
+     *            the requested percentile (scaled from 0 - 100)
+     * @return the highest elapsed time equivalent to the percentile of the
+     *         elapsed times of all the samples, {@link Double#NaN} if there
+     *         are none
+     */
+    public double getPercentile(double percentile) {
+        HistogramPercentileAggregator all = new HistogramPercentileAggregator(percentile, precision);
+        histograms.values().forEach(all::merge);
+        return all.getPercentile(percentile);
+    }
+
+    /**
+     * @return the number of failed samples by response code
+     */
+    public Map<String, Long> getErrorCountsByResponseCode() {
+        Map<String, Long> errorCounts = new LinkedHashMap<>();
+        histograms.forEach((outcome, histogram) -> {
+            if (!outcome.successful) {
+                errorCounts.merge(outcome.responseCode, histogram.getCount(), Long::sum);
+            }
+        });
+        return errorCounts;
+    }
+
+    /**
+     * Calls the consumer for each elapsed time bucket of the histograms
+     *
+     * @param consumer
+     *            called with the highest elapsed time equivalent to the
+     *            elapsed times of the bucket and their count
+     */
+    public void forEachTime(ValueCountConsumer consumer) {
+        for (HistogramPercentileAggregator histogram : histograms.values()) {
+            histogram.forEachValue(consumer);
+        }
+    }
+
+    /**
+     * Splits this aggregate into one {@link StatisticalSampleResult} per
+     * outcome and elapsed time bucket, whose elapsed time is the bucket
+     * elapsed time multiplied by its sample count. Bytes, latencies and
+     * connect times are shared between them according to their sample count.
+     * <p>
+     * Listeners that handle sample counts, like the report generator, can
+     * then compute percentiles of several aggregates from these results.
+     *
+     * @return the results, in no particular order
+     */
+    public List<SampleResult> toSampleResults() {
+        ResultsBuilder builder = new ResultsBuilder();
+        histograms.forEach((outcome, histogram) -> {
+            builder.outcome = outcome;
+            histogram.forEachValue(builder);
+        });
+        return builder.results;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(histograms.size());
+        for (Map.Entry<Outcome, HistogramPercentileAggregator> entry : histograms.entrySet()) {
+            Outcome outcome = entry.getKey();
+            out.writeBoolean(outcome.successful);
+            out.writeObject(outcome.responseCode);
+            out.writeObject(outcome.responseMessage);
+            List<long[]> buckets = new ArrayList<>();
+            entry.getValue().forEachValue((value, count) -> buckets.add(new long[] { value, count }));
+            out.writeInt(buckets.size());
+            for (long[] bucket : buckets) {
+                out.writeLong(bucket[0]);
+                out.writeLong(bucket[1]);
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        histograms = new LinkedHashMap<>();
+        int outcomeCount = in.readInt();
+        for (int i = 0; i < outcomeCount; i++) {
+            Outcome outcome = new Outcome(in.readBoolean(), (String) in.readObject(), (String) in.readObject());
+            HistogramPercentileAggregator histogram = new HistogramPercentileAggregator(50, precision);
+            int bucketCount = in.readInt();
+            for (int j = 0; j < bucketCount; j++) {
+                long value = in.readLong();
+                histogram.addValue(value, in.readLong());
+            }
+            histograms.put(outcome, histogram);
+        }
+    }
+
+    /**
+     * Builds the results of {@link #toSampleResults()}
+     */
+    private final class ResultsBuilder implements ValueCountConsumer {
+        private final List<SampleResult> results = new ArrayList<>();
+        private Outcome outcome;
+        private long countBefore;
+
+        @Override
+        public void accept(long value, long count) {
+            long countAfter = countBefore + count;
+            StatisticalSampleResult result = new StatisticalSampleResult(HistogramSampleResult.this,
+                    getStartTime(), getEndTime(), value * count, (int) count, outcome.successful);
+            result.setResponseCode(outcome.responseCode);
+            result.setResponseMessage(outcome.responseMessage);
+            result.setBytes(share(getBytesAsLong(), countAfter) - share(getBytesAsLong(), countBefore));
+            result.setSentBytes(share(getSentBytes(), countAfter) - share(getSentBytes(), countBefore));
+            result.setLatency(share(getLatency(), countAfter) - share(getLatency(), countBefore));
+            result.setConnectTime(share(getConnectTime(), countAfter) - share(getConnectTime(), countBefore));
+            result.setGroupThreads(getGroupThreads());
+            result.setAllThreads(getAllThreads());
+            results.add(result);
+            countBefore = countAfter;
+        }
+
+        /**
+         * @return the part of the total for the first samples
+         */
+        private long share(long total, long sampleCount) {
+            return total * sampleCount / getSampleCount();
+        }
+    }
+
+    private static final class Outcome {
+        private final boolean successful;
+        private final String responseCode;
+        private final String responseMessage;
+
+        private Outcome(boolean successful, String responseCode, String responseMessage) {
+            this.successful = successful;
+            this.responseCode = responseCode;
+            this.responseMessage = responseMessage;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Outcome)) {
+                return false;
+            }
+            Outcome other = (Outcome) obj;
+            return successful == other.successful
+                    && Objects.equals(responseCode, other.responseCode)
+                    && Objects.equals(responseMessage, other.responseMessage);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(Boolean.valueOf(successful), responseCode, responseMessage);
+        }
+    }
+}
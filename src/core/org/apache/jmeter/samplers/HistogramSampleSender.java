@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jmeter.report.processor.HistogramPercentileAggregator;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Aggregates the samples of each interval in {@link HistogramSampleResult}s,
+ * keyed like {@link StatisticalSampleSender}, and sends them at the end of the
+ * interval.
+ * <p>
+ * Intervals are aligned on the wall clock, so that the aggregates of the
+ * remote engines cover the same periods, and their histograms can be merged by
+ * the client to compute the percentiles of the whole test.
+ *
+ * @since 4.1
+ */
+public class HistogramSampleSender extends AbstractSampleSender implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = LoggerFactory.getLogger(HistogramSampleSender.class);
+
+    private static final long DEFAULT_INTERVAL = 10000L;
+
+    private static final int DEFAULT_PRECISION = 3;
+
+    // Static fields are set by the server when the class is constructed
+
+    private static final long SERVER_CONFIGURED_INTERVAL = JMeterUtils.getPropDefault(
+            "histogram.sender.interval", DEFAULT_INTERVAL); // $NON-NLS-1$
+
+    private static final int SERVER_CONFIGURED_PRECISION = JMeterUtils.getPropDefault(
+            "histogram.sender.precision", DEFAULT_PRECISION); // $NON-NLS-1$
+
+    private static final boolean SERVER_CONFIGURED_KEY_ON_THREADNAME = JMeterUtils.getPropDefault(
+            "key_on_threadname", false); // $NON-NLS-1$
+
+    // Instance fields are constructed by the client and transferred to the server copy by RMI
+
+    private final long clientConfiguredInterval = JMeterUtils.getPropDefault(
+            "histogram.sender.interval", DEFAULT_INTERVAL); // $NON-NLS-1$
+
+    private final int clientConfiguredPrecision = JMeterUtils.getPropDefault(
+            "histogram.sender.precision", DEFAULT_PRECISION); // $NON-NLS-1$
+
+    private final boolean clientConfiguredKeyOnThreadName = JMeterUtils.getPropDefault(
+            "key_on_threadname", false); // $NON-NLS-1$
+
+    private final RemoteSampleListener listener;
+
+    private final List<SampleEvent> sampleStore = new ArrayList<>();
+
+    private final Map<String, HistogramSampleResult> sampleTable = new HashMap<>();
+
+    // Settings; readResolve sets these from the server/client values as appropriate
+    private transient long interval;
+
+    private transient int precision;
+
+    private transient boolean keyOnThreadName;
+
+    // End of the current interval, maintained by server code
+    private transient long intervalEnd; // @GuardedBy("sampleStore")
+
+    /**
+     * Constructor, only called by client code.
+     *
+     * @param listener that the List of sample events will be sent to.
+     */
+    HistogramSampleSender(RemoteSampleListener listener) {
+        this.listener = listener;
+        if (isClientConfigured()) {
+            log.info("Using HistogramSampleSender (client settings) for this run."
+                    + " Interval: {}, precision: {}. Key uses ThreadName: {}",
+                    clientConfiguredInterval, clientConfiguredPrecision, clientConfiguredKeyOnThreadName);
+        } else {
+            log.info("Using HistogramSampleSender (server settings) for this run.");
+        }
+    }
+
+    /**
+     * Sends the aggregates of the last interval to the listener, and informs
+     * it that the test ended.
+     *
+     * @param host the hostname that the test has ended on.
+     */
+    @Override
+    public void testEnded(String host) {
+        log.info("Test Ended on {}", host);
+        try {
+            synchronized (sampleStore) {
+                sendBatch();
+            }
+            listener.testEnded(host);
+        } catch (RemoteException err) {
+            log.warn("testEnded(hostname)", err);
+        }
+    }
+
+    /**
+     * Adds the sample to the aggregate of its key for the current interval.
+     * The aggregates of the previous interval are sent first when it has
+     * ended.
+     *
+     * @param e a Sample Event
+     */
+    @Override
+    public void sampleOccurred(SampleEvent e) {
+        synchronized (sampleStore) {
+            long now = System.currentTimeMillis();
+            if (now >= intervalEnd) {
+                try {
+                    sendBatch();
+                } catch (RemoteException err) {
+                    log.warn("sampleOccurred", err);
+                }
+                intervalEnd = (now / interval + 1) * interval;
+            }
+            String key = StatisticalSampleResult.getKey(e, keyOnThreadName);
+            HistogramSampleResult histogramResult = sampleTable.get(key);
+            if (histogramResult == null) {
+                histogramResult = new HistogramSampleResult(e.getResult(), precision);
+                sampleTable.put(key, histogramResult);
+                sampleStore.add(new SampleEvent(histogramResult, e.getThreadGroup()));
+            }
+            histogramResult.add(e.getResult());
+        }
+    }
+
+    private void sendBatch() throws RemoteException {
+        if (!sampleStore.isEmpty()) {
+            try {
+                listener.processBatch(sampleStore);
+            } finally {
+                sampleStore.clear();
+                sampleTable.clear();
+            }
+        }
+    }
+
+    /**
+     * Processed by the RMI server code; acts as testStarted().
+     * @return this
+     * @throws ObjectStreamException never
+     */
+    private Object readResolve() throws ObjectStreamException {
+        if (isClientConfigured()) {
+            interval = clientConfiguredInterval;
+            precision = clientConfiguredPrecision;
+            keyOnThreadName = clientConfiguredKeyOnThreadName;
+        } else {
+            interval = SERVER_CONFIGURED_INTERVAL;
+            precision = SERVER_CONFIGURED_PRECISION;
+            keyOnThreadName = SERVER_CONFIGURED_KEY_ON_THREADNAME;
+        }
+        if (interval <= 0) {
+            log.warn("Invalid histogram.sender.interval {}, using {}", interval, DEFAULT_INTERVAL);
+            interval = DEFAULT_INTERVAL;
+        }
+        if (precision < HistogramPercentileAggregator.MIN_PRECISION
+                || precision > HistogramPercentileAggregator.MAX_PRECISION) {
+            log.warn("Invalid histogram.sender.precision {}, using {}", precision, DEFAULT_PRECISION);
+            precision = DEFAULT_PRECISION;
+        }
+        log.info("Using HistogramSampleSender for this run. {} config: interval={}, precision={}."
+                + " Key uses ThreadName: {}",
+                isClientConfigured() ? "Client" : "Server", interval, precision, keyOnThreadName);
+        return this;
+    }
+}
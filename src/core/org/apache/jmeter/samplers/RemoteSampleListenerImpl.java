@@ -20,6 +20,7 @@ package org.apache.jmeter.samplers;
 
 import java.rmi.RemoteException;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.jmeter.rmi.RmiUtils;
 import org.apache.jmeter.testelement.TestStateListener;
@@ -36,6 +37,9 @@ public class RemoteSampleListenerImpl extends java.rmi.server.UnicastRemoteObjec
     private final TestStateListener testListener;
 
     private final SampleListener sampleListener;
+
+    /** run on the client when a test ends */
+    private final transient List<Runnable> testEndedHooks = new CopyOnWriteArrayList<>();
     
     private static final int DEFAULT_LOCAL_PORT = 
         JMeterUtils.getPropDefault("client.rmi.localport", 0); // $NON-NLS-1$
@@ -68,11 +72,22 @@ public class RemoteSampleListenerImpl extends java.rmi.server.UnicastRemoteObjec
         }
     }
 
+    /**
+     * Adds a task run when a test ends, after the listener is notified
+     *
+     * @param hook
+     *            the task to run
+     */
+    void addTestEndedHook(Runnable hook) {
+        testEndedHooks.add(hook);
+    }
+
     @Override
     public void testEnded() {
         if (testListener != null) {
             testListener.testEnded();
         }
+        testEndedHooks.forEach(Runnable::run);
     }
 
     @Override
@@ -80,6 +95,7 @@ public class RemoteSampleListenerImpl extends java.rmi.server.UnicastRemoteObjec
         if (testListener != null) {
             testListener.testEnded(host);
         }
+        testEndedHooks.forEach(Runnable::run);
     }
 
     /**
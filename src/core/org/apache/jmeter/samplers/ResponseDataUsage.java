@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+/**
+ * Implemented by the listeners, assertions and post processors that can tell
+ * how much of the response data they read.
+ * <p>
+ * When <code>sampleresult.discard_unused_response_data</code> is true, the
+ * samplers that support it only keep the part of the response data used by
+ * the elements applying to the sample. Elements not implementing this
+ * interface are considered to read all the response data. The previous
+ * result, <code>prev</code> in scripts, then holds the truncated data.
+ *
+ * @since 4.1
+ */
+public interface ResponseDataUsage {
+
+    /** The element does not read the response data */
+    long NONE = 0L;
+
+    /** The element reads all the response data */
+    long ALL = Long.MAX_VALUE;
+
+    /**
+     * @return the number of leading bytes of the response data read by this
+     *         element, {@link #NONE} or {@link #ALL}
+     */
+    long getResponseDataUsage();
+
+    /**
+     * @return true if this element reads the MD5 of the response data, which
+     *         the sampler may compute instead of keeping the data, see
+     *         {@link SampleResult#getResponseDataMD5Hex()}
+     */
+    default boolean usesResponseDataMD5() {
+        return false;
+    }
+}
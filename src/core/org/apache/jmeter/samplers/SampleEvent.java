@@ -135,6 +135,29 @@ public class SampleEvent implements Serializable {
         this.isTransactionSampleEvent = isTransactionSampleEvent;
     }
 
+    /**
+     * Creates an event decoded from the samples sent by a remote engine
+     *
+     * @param result
+     *            The SampleResult to be associated with this event
+     * @param threadGroup
+     *            The name of the thread, the {@link SampleResult} was recorded
+     * @param hostname
+     *            The name of the host, for which the {@link SampleResult} was
+     *            recorded
+     * @param values
+     *            The values of the sample variables on the remote engine,
+     *            values beyond the number of variables configured locally are
+     *            ignored
+     * @param isTransactionSampleEvent
+     *            whether the event is the one of a transaction
+     */
+    SampleEvent(SampleResult result, String threadGroup, String hostname, String[] values,
+            boolean isTransactionSampleEvent) {
+        this(result, threadGroup, hostname, isTransactionSampleEvent);
+        System.arraycopy(values, 0, this.values, 0, Math.min(values.length, this.values.length));
+    }
+
     /**
      * @param result
      *            The SampleResult to be associated with this event
@@ -151,6 +174,17 @@ public class SampleEvent implements Serializable {
         saveVars(jmvars);
     }
 
+    /**
+     * @param otherResult
+     *            result of the new event
+     * @return a copy of this event, with the same variable values, for
+     *         another {@link SampleResult}
+     * @since 4.1
+     */
+    public SampleEvent withResult(SampleResult otherResult) {
+        return new SampleEvent(otherResult, threadGroup, hostname, values, isTransactionSampleEvent);
+    }
+
     private void saveVars(JMeterVariables vars){
         for(int i = 0; i < variableNames.length; i++){
             values[i] = vars.get(variableNames[i]);
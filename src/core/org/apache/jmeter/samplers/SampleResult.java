@@ -208,11 +208,12 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
     private boolean success;
 
     /**
-     * Files that this sample has been saved in.
+     * Files that this sample has been saved in, created when the sample is
+     * first saved.
      * In Non GUI mode and when best config is used, size never exceeds 1,
      * but as a compromise set it to 3
      */
-    private final Set<String> files = new HashSet<>(3);
+    private Set<String> files;
 
     // TODO do contentType and/or dataEncoding belong in HTTPSampleResult instead?
     private String dataEncoding;// (is this really the character set?) e.g.
@@ -229,6 +230,18 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
     /** time to end connecting */
     private long connectTime = 0;
 
+    /** time at which the sample should have started, 0 if unknown */
+    private long intendedStartTime = 0;
+
+    /** time spent waiting for a connection from a shared pool */
+    private long connectionWaitTime = 0;
+
+    /** time spent in TLS handshakes */
+    private long tlsHandshakeTime = 0;
+
+    /** true if the TLS handshake resumed a previous session */
+    private boolean tlsSessionResumed = false;
+
     /** Way to signal what to do on Test */
     private TestLogicalAction testLogicalAction = TestLogicalAction.CONTINUE;
     
@@ -273,6 +286,12 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      */
     private transient volatile String responseDataAsString;
 
+    /**
+     * MD5 of the response data, when computed by a sampler that did not keep
+     * the data
+     */
+    private transient String responseDataMD5Hex;
+
     public SampleResult() {
         this(USE_NANO_TIME, NANOTHREAD_SLEEP);
     }
@@ -306,12 +325,16 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         dataEncoding = res.dataEncoding;//OK
         dataType = res.dataType;//OK
         endTime = res.endTime;//OK
-        // files is created automatically, and applies per instance
+        // files applies per instance
         groupThreads = res.groupThreads;//OK
         idleTime = res.idleTime;
         label = res.label;//OK
         latency = res.latency;
         connectTime = res.connectTime;
+        intendedStartTime = res.intendedStartTime;
+        connectionWaitTime = res.connectionWaitTime;
+        tlsHandshakeTime = res.tlsHandshakeTime;
+        tlsSessionResumed = res.tlsSessionResumed;
         location = res.location;//OK
         parent = res.parent; 
         pauseTime = res.pauseTime;
@@ -319,6 +342,7 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         responseCode = res.responseCode;//OK
         responseData = res.responseData;//OK
         responseDataAsString = null;
+        responseDataMD5Hex = res.responseDataMD5Hex;
         responseHeaders = res.responseHeaders;//OK
         responseMessage = res.responseMessage;//OK
 
@@ -495,6 +519,9 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      * @return <code>true</code> if the result was previously marked
      */
     public synchronized boolean markFile(String filename) {
+        if (files == null) {
+            files = new HashSet<>(3);
+        }
         return !files.add(filename);
     }
 
@@ -760,6 +787,27 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         }
     }
 
+    /**
+     * Gets the MD5 of the response data computed by the sampler, when the
+     * response data was not kept for the elements applying to the sample
+     *
+     * @return the MD5 in hexadecimal, or null if it was not computed
+     * @see ResponseDataUsage#usesResponseDataMD5()
+     * @since 4.1
+     */
+    public String getResponseDataMD5Hex() {
+        return responseDataMD5Hex;
+    }
+
+    /**
+     * @param md5Hex
+     *            the MD5 in hexadecimal of the response data that was not kept
+     * @since 4.1
+     */
+    public void setResponseDataMD5Hex(String md5Hex) {
+        this.responseDataMD5Hex = md5Hex;
+    }
+
     public void setSamplerData(String s) {
         samplerData = s;
     }
@@ -1302,6 +1350,85 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         this.connectTime = time;
     }
 
+    /**
+     * @return time (ms since epoch) at which the sample was meant to start, 0 if unknown
+     */
+    public long getIntendedStartTime() {
+        return intendedStartTime;
+    }
+
+    /**
+     * Set the time at which the sample was meant to start according to the
+     * load schedule (e.g. computed by a throughput timer)
+     *
+     * @param intendedStartTime time in ms since epoch, 0 if unknown
+     */
+    public void setIntendedStartTime(long intendedStartTime) {
+        this.intendedStartTime = intendedStartTime;
+    }
+
+    /**
+     * @return time in milliseconds spent waiting for a connection from a
+     *         shared connection pool, included in the elapsed time
+     */
+    public long getConnectionWaitTime() {
+        return connectionWaitTime;
+    }
+
+    /**
+     * @param connectionWaitTime time in milliseconds spent waiting for a
+     *                           connection from a shared connection pool
+     */
+    public void setConnectionWaitTime(long connectionWaitTime) {
+        this.connectionWaitTime = connectionWaitTime;
+    }
+
+    /**
+     * @return time in milliseconds spent in TLS handshakes, included in the
+     *         connect time, 0 if the sample did not open a TLS connection
+     */
+    public long getTlsHandshakeTime() {
+        return tlsHandshakeTime;
+    }
+
+    /**
+     * @param tlsHandshakeTime time in milliseconds spent in TLS handshakes
+     */
+    public void setTlsHandshakeTime(long tlsHandshakeTime) {
+        this.tlsHandshakeTime = tlsHandshakeTime;
+    }
+
+    /**
+     * @return true if the TLS handshake of the sample resumed a previous
+     *         session instead of negotiating a new one
+     */
+    public boolean isTlsSessionResumed() {
+        return tlsSessionResumed;
+    }
+
+    /**
+     * @param tlsSessionResumed true if the TLS handshake resumed a previous
+     *                          session
+     */
+    public void setTlsSessionResumed(boolean tlsSessionResumed) {
+        this.tlsSessionResumed = tlsSessionResumed;
+    }
+
+    /**
+     * Get the elapsed time corrected for coordinated omission.
+     * When the sample started later than scheduled, for instance because the thread
+     * was still waiting for a previous slow response, the delay is added to the elapsed time.
+     *
+     * @return corrected elapsed time in milliseconds, same as {@link #getTime()}
+     * if the intended start time is unknown or the sample started on time
+     */
+    public long getCorrectedTime() {
+        if (intendedStartTime <= 0 || startTime <= intendedStartTime) {
+            return elapsedTime;
+        }
+        return elapsedTime + startTime - intendedStartTime;
+    }
+
     /**
      * This is only intended for use by SampleResultConverter!
      *
@@ -1503,6 +1630,32 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         }
     }
 
+    /**
+     * Copy the result, so that it can be read by other threads while the
+     * sampling thread goes on updating it, for instance when adding it to a
+     * transaction. The response data and the subresults are shared, only the
+     * lists holding the subresults and assertion results, and the set of
+     * files marked by {@link #markFile(String)}, are copied.
+     *
+     * @return a copy of this result
+     * @since 4.1
+     */
+    public SampleResult snapshot() {
+        SampleResult copy = (SampleResult) clone();
+        if (subResults != null) {
+            copy.subResults = new ArrayList<>(subResults);
+        }
+        if (assertionResults != null) {
+            copy.assertionResults = new ArrayList<>(assertionResults);
+        }
+        synchronized (this) { // guards files as markFile does
+            if (files != null) {
+                copy.files = new HashSet<>(files);
+            }
+        }
+        return copy;
+    }
+
     @Override
     public List<String> getSearchableTokens() throws Exception {
         List<String> datasToSearch = new ArrayList<>(4);
@@ -85,6 +85,9 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
     /** Indicates that the results file should be in CSV format. * */
     private static final String CSV = "csv"; // $NON_NLS-1$
 
+    /** Indicates that the results file should be in binary format. * */
+    private static final String BINARY = "binary"; // $NON_NLS-1$
+
     /** A properties file indicator for true. * */
     private static final String TRUE = "true"; // $NON_NLS-1$
 
@@ -221,6 +224,12 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
     private static final String SAVE_SAMPLE_COUNT    = "jmeter.save.saveservice.sample_count"; // $NON_NLS-1$
 
     private static final String SAVE_IDLE_TIME       = "jmeter.save.saveservice.idle_time"; // $NON_NLS-1$
+
+    private static final String SAVE_CORRECTED_TIME  = "jmeter.save.saveservice.corrected_time"; // $NON_NLS-1$
+
+    private static final String SAVE_CONNECTION_WAIT_TIME = "jmeter.save.saveservice.connection_wait_time"; // $NON_NLS-1$
+
+    private static final String SAVE_TLS_HANDSHAKE = "jmeter.save.saveservice.tls_handshake"; // $NON_NLS-1$
     
     // Defaults from properties:
     private static final boolean TIME;
@@ -231,6 +240,7 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
     private static final boolean MESSAGE;
     private static final boolean THREAD_NAME;
     private static final boolean IS_XML;
+    private static final boolean IS_BINARY;
     private static final boolean RESPONSE_DATA;
     private static final boolean DATATYPE;
     private static final boolean ENCODING;
@@ -282,6 +292,12 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
 
     private static final boolean IDLE_TIME;
 
+    private static final boolean CORRECTED_TIME;
+
+    private static final boolean CONNECTION_WAIT_TIME;
+
+    private static final boolean TLS_HANDSHAKE;
+
     public static final String DEFAULT_DELIMITER = ","; // $NON_NLS-1$
 
     // Read in the properties having to do with saving from a properties file.
@@ -370,11 +386,16 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
 
         if (XML.equals(howToSave)) {
             IS_XML = true;
+            IS_BINARY = false;
+        } else if (BINARY.equals(howToSave)) {
+            IS_XML = false;
+            IS_BINARY = true;
         } else {
             if (!CSV.equals(howToSave)) {
                 log.warn("{} has unexepected value: '{}' - assuming 'csv' format", OUTPUT_FORMAT_PROP, howToSave);
             }
             IS_XML = false;
+            IS_BINARY = false;
         }
 
         THREAD_COUNTS=TRUE.equalsIgnoreCase(props.getProperty(SAVE_THREAD_COUNTS, TRUE));
@@ -382,6 +403,12 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
         SAMPLE_COUNT=TRUE.equalsIgnoreCase(props.getProperty(SAVE_SAMPLE_COUNT, FALSE));
 
         IDLE_TIME=TRUE.equalsIgnoreCase(props.getProperty(SAVE_IDLE_TIME, TRUE));
+
+        CORRECTED_TIME=TRUE.equalsIgnoreCase(props.getProperty(SAVE_CORRECTED_TIME, FALSE));
+
+        CONNECTION_WAIT_TIME=TRUE.equalsIgnoreCase(props.getProperty(SAVE_CONNECTION_WAIT_TIME, FALSE));
+
+        TLS_HANDSHAKE=TRUE.equalsIgnoreCase(props.getProperty(SAVE_TLS_HANDSHAKE, FALSE));
     }
 
     private static final SampleSaveConfiguration STATIC_SAVE_CONFIGURATION = new SampleSaveConfiguration();
@@ -427,6 +454,10 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
         "ResponseData", // XML
         "Subresults", // XML
         "Assertions", // XML
+        "CorrectedTime", // elapsed corrected for coordinated omission
+        "ConnectionWaitTime", // wait for a connection from a shared pool
+        "TlsHandshake", // TLS handshake time and session resumption
+        "AsBinary", // CSV fields in binary columnar format
     }));
     // N.B. Remember to update the equals and hashCode methods when adding new variables.
 
@@ -447,6 +478,7 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
     private boolean responseData = RESPONSE_DATA;
     private boolean samplerData = SAMPLER_DATA;
     private boolean xml = IS_XML;
+    private boolean binary = IS_BINARY;
     private boolean fieldNames = FIELD_NAMES;
     private boolean responseHeaders = RESPONSE_HEADERS;
     private boolean requestHeaders = REQUEST_HEADERS;
@@ -467,6 +499,12 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
 
     private boolean idleTime = IDLE_TIME;
 
+    private boolean correctedTime = CORRECTED_TIME;
+
+    private boolean connectionWaitTime = CONNECTION_WAIT_TIME;
+
+    private boolean tlsHandshake = TLS_HANDSHAKE;
+
     // Does not appear to be used (yet)
     private int assertionsResultsToSave = ASSERTIONS_RESULT_TO_SAVE;
 
@@ -502,6 +540,9 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
         bytes = value;
         code = value;
         connectTime = value;
+        correctedTime = value;
+        connectionWaitTime = value;
+        tlsHandshake = value;
         dataType = value;
         encoding = value;
         fieldNames = value;
@@ -656,6 +697,10 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
             s.hostname == hostname &&
             s.sampleCount == sampleCount &&
             s.idleTime == idleTime &&
+            s.correctedTime == correctedTime &&
+            s.connectionWaitTime == connectionWaitTime &&
+            s.tlsHandshake == tlsHandshake &&
+            s.binary == binary &&
             s.threadCounts == threadCounts;
 
         boolean stringValues = false;
@@ -706,6 +751,10 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
         hash = 31 * hash + (dateFormat != null  ? dateFormat.hashCode() : 0);
         hash = 31 * hash + (sampleCount ? 1 : 0);
         hash = 31 * hash + (idleTime ? 1 : 0);
+        hash = 31 * hash + (correctedTime ? 1 : 0);
+        hash = 31 * hash + (connectionWaitTime ? 1 : 0);
+        hash = 31 * hash + (tlsHandshake ? 1 : 0);
+        hash = 31 * hash + (binary ? 1 : 0);
 
         return hash;
     }
@@ -801,6 +850,15 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
         return responseData;
     }
 
+    /**
+     * @return true if the response data of failed samples is saved, see
+     *         <code>jmeter.save.saveservice.response_data.on_error</code>
+     * @since 4.1
+     */
+    public boolean isResponseDataSavedOnError() {
+        return responseDataOnError;
+    }
+
     public void setResponseData(boolean responseData) {
         this.responseData = responseData;
     }
@@ -867,6 +925,19 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
         this.xml = xml;
     }
 
+    /**
+     * @return true if the CSV fields are saved in the binary format of
+     *         {@link org.apache.jmeter.save.BinaryResultWriter}, ignored when
+     *         saving as XML
+     */
+    public boolean saveAsBinary() {
+        return binary;
+    }
+
+    public void setAsBinary(boolean binary) {
+        this.binary = binary;
+    }
+
     public boolean saveFieldNames() {
         return fieldNames;
     }
@@ -1016,4 +1087,28 @@ public class SampleSaveConfiguration implements Cloneable, Serializable {
     public void setIdleTime(boolean save) {
         idleTime = save;
     }
+
+    public boolean saveCorrectedTime() {
+        return correctedTime;
+    }
+
+    public void setCorrectedTime(boolean save) {
+        correctedTime = save;
+    }
+
+    public boolean saveConnectionWaitTime() {
+        return connectionWaitTime;
+    }
+
+    public void setConnectionWaitTime(boolean save) {
+        connectionWaitTime = save;
+    }
+
+    public boolean saveTlsHandshake() {
+        return tlsHandshake;
+    }
+
+    public void setTlsHandshake(boolean save) {
+        tlsHandshake = save;
+    }
 }
@@ -68,6 +68,34 @@ public class StatisticalSampleResult extends SampleResult implements
         elapsed = 0;
     }
 
+    /**
+     * Creates the aggregate of samples sharing the key items and the outcome
+     * of another result
+     *
+     * @param res
+     *            the result holding the key items
+     * @param startTime
+     *            the start time of the first sample
+     * @param endTime
+     *            the end time of the last sample
+     * @param elapsed
+     *            the sum of the elapsed times of the samples
+     * @param sampleCount
+     *            the number of samples
+     * @param successful
+     *            whether the samples were successful
+     */
+    StatisticalSampleResult(SampleResult res, long startTime, long endTime,
+            long elapsed, int sampleCount, boolean successful) {
+        this(res);
+        setStartTime(startTime);
+        setEndTime(endTime);
+        setSampleCount(sampleCount);
+        setSuccessful(successful);
+        this.errorCount = successful ? 0 : sampleCount;
+        this.elapsed = elapsed;
+    }
+
     public void add(SampleResult res) {
         // Add Sample Counter
         setSampleCount(getSampleCount() + res.getSampleCount());
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.save;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the rows of a file written by {@link BinaryResultWriter}.
+ * <p>
+ * Values are returned as the strings that would have been written in a CSV
+ * file. Files made of several appended segments are read as one, provided
+ * they all have the same columns. A truncated last block, as left by an
+ * interrupted test, ends the rows.
+ * <p>
+ * The class is not thread-safe.
+ *
+ * @since 4.1
+ */
+public class BinaryResultReader implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(BinaryResultReader.class);
+
+    private final DataInputStream in;
+
+    private final String[] columnNames;
+
+    private final List<List<String>> dictionaries = new ArrayList<>();
+
+    private final Inflater inflater = new Inflater();
+
+    private String[][] block = new String[0][];
+
+    private int blockRows;
+
+    private int nextRow;
+
+    private boolean eof;
+
+    /**
+     * Reads the header of the file
+     *
+     * @param input
+     *            stream to read from, closed with this reader
+     * @throws IOException
+     *             when the header cannot be read or is not valid
+     */
+    public BinaryResultReader(InputStream input) throws IOException {
+        this.in = new DataInputStream(input instanceof BufferedInputStream ? input : new BufferedInputStream(input));
+        if (in.readInt() != BinaryResultWriter.HEADER_MAGIC) {
+            throw new IOException("Not a binary result file");
+        }
+        this.columnNames = readHeader();
+    }
+
+    /**
+     * @param file
+     *            file to be checked
+     * @return true if the file starts like a file written by
+     *         {@link BinaryResultWriter}
+     */
+    public static boolean isBinaryResultFile(File file) {
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            return input.readInt() == BinaryResultWriter.HEADER_MAGIC;
+        } catch (IOException e) { // NOSONAR Empty or unreadable file
+            return false;
+        }
+    }
+
+    /**
+     * @return the names of the columns
+     */
+    public String[] getColumnNames() {
+        return columnNames.clone();
+    }
+
+    /**
+     * Reads the next row
+     *
+     * @return the values of the row, in the order of the columns, or null if
+     *         there are no more rows
+     * @throws IOException
+     *             when the file cannot be read or is not valid
+     */
+    public String[] readRow() throws IOException {
+        while (nextRow == blockRows) {
+            if (eof || !readBlock()) {
+                eof = true;
+                return null;
+            }
+        }
+        String[] row = new String[columnNames.length];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = block[i][nextRow];
+        }
+        nextRow++;
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+
+    private String[] readHeader() throws IOException {
+        int version = (int) readVarLong(in);
+        if (version != BinaryResultWriter.VERSION) {
+            throw new IOException("Unsupported binary result file version " + version);
+        }
+        String[] names = new String[(int) readVarLong(in)];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = readString(in);
+        }
+        dictionaries.clear();
+        for (int i = 0; i < names.length; i++) {
+            dictionaries.add(new ArrayList<>());
+        }
+        return names;
+    }
+
+    /**
+     * @return false if there are no more blocks
+     */
+    private boolean readBlock() throws IOException {
+        int magic;
+        try {
+            magic = in.readInt();
+        } catch (EOFException e) { // NOSONAR Normal end of file
+            return false;
+        }
+        if (magic == BinaryResultWriter.HEADER_MAGIC) {
+            String[] names = readHeader();
+            if (!Arrays.equals(names, columnNames)) {
+                throw new IOException("Appended columns " + Arrays.toString(names)
+                        + " differ from " + Arrays.toString(columnNames));
+            }
+            return true;
+        }
+        if (magic != BinaryResultWriter.BLOCK_MAGIC) {
+            throw new IOException("Invalid block in binary result file");
+        }
+        byte[] raw;
+        int rows;
+        try {
+            rows = (int) readVarLong(in);
+            raw = new byte[(int) readVarLong(in)];
+            byte[] compressed = new byte[(int) readVarLong(in)];
+            in.readFully(compressed);
+            inflater.reset();
+            inflater.setInput(compressed);
+            if (inflater.inflate(raw) != raw.length) {
+                throw new IOException("Invalid compressed block in binary result file");
+            }
+        } catch (EOFException e) { // NOSONAR Logged
+            log.warn("Binary result file ends with a truncated block, ignoring it");
+            return false;
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed block in binary result file", e);
+        }
+        decodeBlock(new ByteArrayInputStream(raw), rows);
+        return true;
+    }
+
+    private void decodeBlock(ByteArrayInputStream input, int rows) throws IOException {
+        if (block.length != columnNames.length || block[0].length < rows) {
+            block = new String[columnNames.length][rows];
+        }
+        for (int c = 0; c < columnNames.length; c++) {
+            String[] values = block[c];
+            int encoding = input.read();
+            switch (encoding) {
+                case BinaryResultWriter.ENCODING_LONG:
+                    long value = 0;
+                    for (int i = 0; i < rows; i++) {
+                        long zigzag = readVarLong(input);
+                        value += (zigzag >>> 1) ^ -(zigzag & 1);
+                        values[i] = Long.toString(value);
+                    }
+                    break;
+                case BinaryResultWriter.ENCODING_DICTIONARY:
+                    List<String> dictionary = dictionaries.get(c);
+                    long newEntries = readVarLong(input);
+                    for (long i = 0; i < newEntries; i++) {
+                        dictionary.add(readString(input));
+                    }
+                    for (int i = 0; i < rows; i++) {
+                        long index = readVarLong(input);
+                        if (index >= dictionary.size()) {
+                            throw new IOException("Invalid dictionary index " + index + " in binary result file");
+                        }
+                        values[i] = dictionary.get((int) index);
+                    }
+                    break;
+                case BinaryResultWriter.ENCODING_PLAIN:
+                    for (int i = 0; i < rows; i++) {
+                        values[i] = readString(input);
+                    }
+                    break;
+                default:
+                    throw new IOException("Invalid column encoding " + encoding + " in binary result file");
+            }
+        }
+        blockRows = rows;
+        nextRow = 0;
+    }
+
+    static long readVarLong(InputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid variable length number in binary result file");
+    }
+
+    static String readString(InputStream input) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(input)];
+        int offset = 0;
+        while (offset < bytes.length) {
+            int read = input.read(bytes, offset, bytes.length - offset);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            offset += read;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
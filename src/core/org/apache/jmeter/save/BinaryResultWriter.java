@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.save;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+
+/**
+ * Writes the CSV fields of results in a compact binary, column oriented
+ * format.
+ * <p>
+ * The file starts with a header holding the column names, as written in the
+ * CSV header line. Rows are then buffered and written by blocks of
+ * {@link #BLOCK_ROWS} rows, each block being compressed with
+ * {@link Deflater}. Inside a block, each column is encoded as:
+ * <ul>
+ * <li>zig-zag variable length deltas when all its values are integers
+ * (time stamps, elapsed times, bytes...)</li>
+ * <li>indexes in a dictionary of the column when its values repeat (labels,
+ * thread names, response codes...), new entries being written in the block
+ * where they first appear</li>
+ * <li>plain UTF-8 strings once the dictionary of the column holds
+ * {@link #MAX_DICTIONARY_SIZE} entries</li>
+ * </ul>
+ * Values are the strings that would be written in the CSV file, so a file can
+ * be read back by {@link BinaryResultReader} as if it was a CSV file.
+ * Appending to an existing file starts a new header, so the dictionaries of
+ * each writer are independent.
+ * <p>
+ * The class is thread-safe.
+ *
+ * @since 4.1
+ */
+public class BinaryResultWriter implements Closeable, Flushable {
+
+    /** Starts a header: "JMBR" */
+    static final int HEADER_MAGIC = 0x4A4D4252;
+
+    /** Starts a block: "JMBB" */
+    static final int BLOCK_MAGIC = 0x4A4D4242;
+
+    static final int VERSION = 1;
+
+    static final int ENCODING_LONG = 0;
+
+    static final int ENCODING_DICTIONARY = 1;
+
+    static final int ENCODING_PLAIN = 2;
+
+    /** Maximum number of rows in a block */
+    static final int BLOCK_ROWS = 8192;
+
+    /** Maximum number of entries in the dictionary of a column */
+    static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    private final DataOutputStream out;
+
+    private final String[] columnNames;
+
+    private final Column[] columns;
+
+    private final FieldCollector fieldCollector = new FieldCollector();
+
+    private final ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream(64 * 1024);
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    private byte[] compressed = new byte[64 * 1024];
+
+    private int rowCount;
+
+    /**
+     * Writes the header of the file
+     *
+     * @param output
+     *            stream to write to, closed with this writer
+     * @param columnNames
+     *            names of the columns, as in the CSV header line
+     * @throws IOException
+     *             when the header cannot be written
+     */
+    public BinaryResultWriter(OutputStream output, String[] columnNames) throws IOException {
+        this.out = new DataOutputStream(output);
+        this.columnNames = columnNames.clone();
+        this.columns = new Column[columnNames.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column();
+        }
+        out.writeInt(HEADER_MAGIC);
+        writeVarLong(out, VERSION);
+        writeVarLong(out, columnNames.length);
+        for (String name : columnNames) {
+            writeString(out, name);
+        }
+    }
+
+    /**
+     * @return the names of the columns
+     */
+    public String[] getColumnNames() {
+        return columnNames.clone();
+    }
+
+    /**
+     * Writes the fields of a result that are saved by its configuration
+     *
+     * @param event
+     *            the sample event to be written
+     * @throws IOException
+     *             when a block cannot be written
+     * @throws IllegalArgumentException
+     *             when the number of fields does not match the columns
+     */
+    public void write(SampleEvent event) throws IOException {
+        write(event, event.getResult().getSaveConfig());
+    }
+
+    /**
+     * Writes the fields of a result that are saved by a configuration
+     *
+     * @param event
+     *            the sample event to be written
+     * @param saveConfig
+     *            the configuration of the fields to be written, used instead
+     *            of the configuration of the result
+     * @throws IOException
+     *             when a block cannot be written
+     * @throws IllegalArgumentException
+     *             when the number of fields does not match the columns
+     */
+    public synchronized void write(SampleEvent event, SampleSaveConfiguration saveConfig) throws IOException {
+        fieldCollector.column = 0;
+        CSVSaveService.appendResultFields(event, saveConfig, fieldCollector);
+        endRow(fieldCollector.column);
+    }
+
+    /**
+     * Writes a row of values
+     *
+     * @param values
+     *            values of the row, in the order of the columns
+     * @throws IOException
+     *             when a block cannot be written
+     * @throws IllegalArgumentException
+     *             when the number of values does not match the columns
+     */
+    public synchronized void writeRow(String... values) throws IOException {
+        if (values.length == columns.length) {
+            for (int i = 0; i < values.length; i++) {
+                columns[i].set(rowCount, values[i]);
+            }
+        }
+        endRow(values.length);
+    }
+
+    private void endRow(int valueCount) throws IOException {
+        if (valueCount != columns.length) {
+            throw new IllegalArgumentException(
+                    "Expected " + columns.length + " values, got " + valueCount);
+        }
+        rowCount++;
+        if (rowCount == BLOCK_ROWS) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes the buffered rows as a block, even if it is not full
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (rowCount == 0) {
+            return;
+        }
+        blockBuffer.reset();
+        for (Column column : columns) {
+            column.encode(blockBuffer, rowCount);
+        }
+        byte[] raw = blockBuffer.toByteArray();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        out.writeInt(BLOCK_MAGIC);
+        writeVarLong(out, rowCount);
+        writeVarLong(out, raw.length);
+        writeVarLong(out, length);
+        out.write(compressed, 0, length);
+        rowCount = 0;
+    }
+
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @return the value if s is the canonical representation of a long small
+     *         enough to be delta encoded, null otherwise
+     */
+    private static Long parseCanonicalLong(String s) {
+        int length = s.length();
+        int start = length > 0 && s.charAt(0) == '-' ? 1 : 0;
+        // Leaves room for deltas, and rejects "", "-", "-0" and leading zeros
+        if (length == start || length - start > 18
+                || (s.charAt(start) == '0' && (length - start > 1 || start == 1))) {
+            return null;
+        }
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return Long.valueOf(start == 1 ? -value : value);
+    }
+
+    /**
+     * Appends the fields of a result to the current row
+     */
+    private final class FieldCollector implements CSVSaveService.FieldAppender {
+        private int column;
+
+        @Override
+        public void append(String s) {
+            if (column < columns.length) {
+                columns[column].set(rowCount, s);
+            }
+            column++;
+        }
+
+        @Override
+        public void append(long l) {
+            if (column < columns.length) {
+                columns[column].set(rowCount, l);
+            }
+            column++;
+        }
+
+        @Override
+        public void append(boolean b) {
+            append(Boolean.toString(b));
+        }
+    }
+
+    /**
+     * Values of a column in the current block
+     */
+    private static final class Column {
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private int writtenEntries;
+        private String[] newEntries = new String[16];
+        private long[] numbers = new long[BLOCK_ROWS];
+        private String[] texts = new String[BLOCK_ROWS];
+        private boolean numeric = true;
+
+        private void set(int row, long value) {
+            if (numeric) {
+                numbers[row] = value;
+            } else {
+                texts[row] = Long.toString(value);
+            }
+        }
+
+        private void set(int row, String value) {
+            String text = String.valueOf(value);
+            if (numeric) {
+                Long number = parseCanonicalLong(text);
+                if (number != null) {
+                    numbers[row] = number.longValue();
+                    return;
+                }
+                for (int i = 0; i < row; i++) {
+                    texts[i] = Long.toString(numbers[i]);
+                }
+                numeric = false;
+            }
+            texts[row] = text;
+        }
+
+        private void encode(ByteArrayOutputStream buffer, int rows) throws IOException {
+            if (numeric) {
+                buffer.write(ENCODING_LONG);
+                long previous = 0;
+                for (int i = 0; i < rows; i++) {
+                    long delta = numbers[i] - previous;
+                    writeVarLong(buffer, (delta << 1) ^ (delta >> 63));
+                    previous = numbers[i];
+                }
+            } else if (fitsInDictionary(rows)) {
+                buffer.write(ENCODING_DICTIONARY);
+                int[] indexes = new int[rows];
+                int newEntryCount = 0;
+                for (int i = 0; i < rows; i++) {
+                    Integer index = dictionary.get(texts[i]);
+                    if (index == null) {
+                        index = Integer.valueOf(dictionary.size());
+                        dictionary.put(texts[i], index);
+                        if (newEntryCount == newEntries.length) {
+                            newEntries = Arrays.copyOf(newEntries, newEntryCount * 2);
+                        }
+                        newEntries[newEntryCount++] = texts[i];
+                    }
+                    indexes[i] = index.intValue();
+                }
+                writeVarLong(buffer, newEntryCount);
+                for (int i = 0; i < newEntryCount; i++) {
+                    writeString(buffer, newEntries[i]);
+                    newEntries[i] = null;
+                }
+                writtenEntries += newEntryCount;
+                for (int index : indexes) {
+                    writeVarLong(buffer, index);
+                }
+            } else {
+                buffer.write(ENCODING_PLAIN);
+                for (int i = 0; i < rows; i++) {
+                    writeString(buffer, texts[i]);
+                }
+            }
+            Arrays.fill(texts, 0, rows, null);
+            numeric = true;
+        }
+
+        /**
+         * @return true if the dictionary can hold all the values of the block
+         */
+        private boolean fitsInDictionary(int rows) {
+            if (writtenEntries + rows <= MAX_DICTIONARY_SIZE) {
+                return true;
+            }
+            int missing = 0;
+            for (int i = 0; i < rows; i++) {
+                if (!dictionary.containsKey(texts[i])) {
+                    missing++;
+                }
+            }
+            // Duplicates are counted several times, which is conservative
+            return writtenEntries + missing <= MAX_DICTIONARY_SIZE;
+        }
+    }
+}
@@ -95,6 +95,10 @@ public final class CSVSaveService {
     public static final String CSV_ENCODING = "Encoding"; // $NON-NLS-1$
     public static final String CSV_HOSTNAME = "Hostname"; // $NON-NLS-1$
     public static final String CSV_IDLETIME = "IdleTime"; // $NON-NLS-1$
+    public static final String CSV_CORRECTED_ELAPSED = "correctedElapsed"; // $NON-NLS-1$
+    public static final String CSV_CONNECTION_WAIT_TIME = "ConnectionWait"; // $NON-NLS-1$
+    public static final String CSV_TLS_HANDSHAKE_TIME = "TlsHandshake"; // $NON-NLS-1$
+    public static final String CSV_TLS_SESSION_RESUMED = "TlsSessionResumed"; // $NON-NLS-1$
 
     // Used to enclose variable name labels, to distinguish from any of the
     // above labels
@@ -179,6 +183,46 @@ public final class CSVSaveService {
         }
     }
 
+    /**
+     * Read Samples from a file written in binary format by {@link BinaryResultWriter}
+     * 
+     * @param filename
+     *            the filename
+     * @param visualizer
+     *            where to send the results
+     * @param resultCollector
+     *            the parent collector
+     * @throws IOException
+     *             when the file is not a valid binary result file
+     * @since 4.1
+     */
+    public static void processBinarySamples(String filename, Visualizer visualizer,
+            ResultCollector resultCollector) throws IOException {
+        final boolean errorsOnly = resultCollector.isErrorLogging();
+        final boolean successOnly = resultCollector.isSuccessOnlyLogging();
+        try (BinaryResultReader reader = new BinaryResultReader(new FileInputStream(filename))) {
+            String delim = _saveConfig.getDelimiter();
+            SampleSaveConfiguration saveConfig = CSVSaveService
+                    .getSampleSaveConfiguration(String.join(delim, reader.getColumnNames()), filename);
+            if (saveConfig == null) {
+                throw new IOException(filename + ": unable to read the column names");
+            }
+            long rowNumber = 0;
+            String[] parts;
+            while ((parts = reader.readRow()) != null) {
+                rowNumber++;
+                SampleEvent event = CSVSaveService.makeResultFromDelimitedString(parts, saveConfig, rowNumber);
+                if (event != null) {
+                    final SampleResult result = event.getResult();
+                    if (ResultCollector.isSampleWanted(result.isSuccessful(),
+                            errorsOnly, successOnly)) {
+                        visualizer.add(result);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Make a SampleResult given a set of tokens
      * 
@@ -362,6 +406,27 @@ public final class CSVSaveService {
                 text = parts[i++];
                 result.setConnectTime(Long.parseLong(text));
             }
+            if (saveConfig.saveCorrectedTime()) {
+                field = CSV_CORRECTED_ELAPSED;
+                text = parts[i++];
+                long omitted = Long.parseLong(text) - result.getTime();
+                if (omitted > 0) {
+                    result.setIntendedStartTime(result.getStartTime() - omitted);
+                }
+            }
+            if (saveConfig.saveConnectionWaitTime()) {
+                field = CSV_CONNECTION_WAIT_TIME;
+                text = parts[i++];
+                result.setConnectionWaitTime(Long.parseLong(text));
+            }
+            if (saveConfig.saveTlsHandshake()) {
+                field = CSV_TLS_HANDSHAKE_TIME;
+                text = parts[i++];
+                result.setTlsHandshakeTime(Long.parseLong(text));
+                field = CSV_TLS_SESSION_RESUMED;
+                text = parts[i++];
+                result.setTlsSessionResumed(Boolean.parseBoolean(text));
+            }
 
             if (i + saveConfig.getVarCount() < parts.length) {
                 log.warn("Line: {}. Found {} fields, expected {}. Extra fields have been ignored.", lineNumber,
@@ -398,55 +463,54 @@ public final class CSVSaveService {
      */
     public static String printableFieldNamesToString(
             SampleSaveConfiguration saveConfig) {
-        StringBuilder text = new StringBuilder();
-        String delim = saveConfig.getDelimiter();
-
-        appendFields(saveConfig.saveTimestamp(), text, delim, TIME_STAMP);
-        appendFields(saveConfig.saveTime(), text, delim, CSV_ELAPSED);
-        appendFields(saveConfig.saveLabel(), text, delim, LABEL);
-        appendFields(saveConfig.saveCode(), text, delim, RESPONSE_CODE);
-        appendFields(saveConfig.saveMessage(), text, delim, RESPONSE_MESSAGE);
-        appendFields(saveConfig.saveThreadName(), text, delim, THREAD_NAME);
-        appendFields(saveConfig.saveDataType(), text, delim, DATA_TYPE);
-        appendFields(saveConfig.saveSuccess(), text, delim, SUCCESSFUL);
-        appendFields(saveConfig.saveAssertionResultsFailureMessage(), text, delim, FAILURE_MESSAGE);
-        appendFields(saveConfig.saveBytes(), text, delim, CSV_BYTES);
-        appendFields(saveConfig.saveSentBytes(), text, delim, CSV_SENT_BYTES);
-        appendFields(saveConfig.saveThreadCounts(), text, delim, CSV_THREAD_COUNT1, CSV_THREAD_COUNT2);
-        appendFields(saveConfig.saveUrl(), text, delim, CSV_URL);
-        appendFields(saveConfig.saveFileName(), text, delim, CSV_FILENAME);
-        appendFields(saveConfig.saveLatency(), text, delim, CSV_LATENCY);
-        appendFields(saveConfig.saveEncoding(), text, delim, CSV_ENCODING);
-        appendFields(saveConfig.saveSampleCount(), text, delim, CSV_SAMPLE_COUNT, CSV_ERROR_COUNT);
-        appendFields(saveConfig.saveHostname(), text, delim, CSV_HOSTNAME);
-        appendFields(saveConfig.saveIdleTime(), text, delim, CSV_IDLETIME);
-        appendFields(saveConfig.saveConnectTime(), text, delim, CSV_CONNECT_TIME);
-
-        for (int i = 0; i < SampleEvent.getVarCount(); i++) {
-            text.append(VARIABLE_NAME_QUOTE_CHAR);
-            text.append(SampleEvent.getVarName(i));
-            text.append(VARIABLE_NAME_QUOTE_CHAR);
-            text.append(delim);
-        }
+        return String.join(saveConfig.getDelimiter(), printableFieldNames(saveConfig));
+    }
 
-        String resultString;
-        int size = text.length();
-        int delSize = delim.length();
+    /**
+     * Generates the field names for the output file
+     * 
+     * @param saveConfig
+     *            the configuration of what is to be saved
+     * @return the field names in the order of the saved values
+     * @since 4.1
+     */
+    public static String[] printableFieldNames(SampleSaveConfiguration saveConfig) {
+        List<String> fields = new ArrayList<>();
+
+        appendFields(saveConfig.saveTimestamp(), fields, TIME_STAMP);
+        appendFields(saveConfig.saveTime(), fields, CSV_ELAPSED);
+        appendFields(saveConfig.saveLabel(), fields, LABEL);
+        appendFields(saveConfig.saveCode(), fields, RESPONSE_CODE);
+        appendFields(saveConfig.saveMessage(), fields, RESPONSE_MESSAGE);
+        appendFields(saveConfig.saveThreadName(), fields, THREAD_NAME);
+        appendFields(saveConfig.saveDataType(), fields, DATA_TYPE);
+        appendFields(saveConfig.saveSuccess(), fields, SUCCESSFUL);
+        appendFields(saveConfig.saveAssertionResultsFailureMessage(), fields, FAILURE_MESSAGE);
+        appendFields(saveConfig.saveBytes(), fields, CSV_BYTES);
+        appendFields(saveConfig.saveSentBytes(), fields, CSV_SENT_BYTES);
+        appendFields(saveConfig.saveThreadCounts(), fields, CSV_THREAD_COUNT1, CSV_THREAD_COUNT2);
+        appendFields(saveConfig.saveUrl(), fields, CSV_URL);
+        appendFields(saveConfig.saveFileName(), fields, CSV_FILENAME);
+        appendFields(saveConfig.saveLatency(), fields, CSV_LATENCY);
+        appendFields(saveConfig.saveEncoding(), fields, CSV_ENCODING);
+        appendFields(saveConfig.saveSampleCount(), fields, CSV_SAMPLE_COUNT, CSV_ERROR_COUNT);
+        appendFields(saveConfig.saveHostname(), fields, CSV_HOSTNAME);
+        appendFields(saveConfig.saveIdleTime(), fields, CSV_IDLETIME);
+        appendFields(saveConfig.saveConnectTime(), fields, CSV_CONNECT_TIME);
+        appendFields(saveConfig.saveCorrectedTime(), fields, CSV_CORRECTED_ELAPSED);
+        appendFields(saveConfig.saveConnectionWaitTime(), fields, CSV_CONNECTION_WAIT_TIME);
+        appendFields(saveConfig.saveTlsHandshake(), fields, CSV_TLS_HANDSHAKE_TIME, CSV_TLS_SESSION_RESUMED);
 
-        // Strip off the trailing delimiter
-        if (size >= delSize) {
-            resultString = text.substring(0, size - delSize);
-        } else {
-            resultString = text.toString();
+        for (int i = 0; i < SampleEvent.getVarCount(); i++) {
+            fields.add(VARIABLE_NAME_QUOTE_CHAR + SampleEvent.getVarName(i) + VARIABLE_NAME_QUOTE_CHAR);
         }
-        return resultString;
+        return fields.toArray(new String[fields.size()]);
     }
 
-    private static void appendFields(final boolean condition, StringBuilder textBuffer, String delim, String... fieldNames) {
+    private static void appendFields(final boolean condition, List<String> fields, String... fieldNames) {
         if (condition) {
             for (String name: fieldNames) {
-                textBuffer.append(name);
-                textBuffer.append(delim);
+                fields.add(name);
             }
         }
     }
@@ -486,6 +550,12 @@ public final class CSVSaveService {
         headerLabelMethods.put(CSV_HOSTNAME, new Functor("setHostname"));
         headerLabelMethods.put(CSV_IDLETIME, new Functor("setIdleTime"));
         headerLabelMethods.put(CSV_CONNECT_TIME, new Functor("setConnectTime"));
+        headerLabelMethods.put(CSV_CORRECTED_ELAPSED, new Functor("setCorrectedTime"));
+        headerLabelMethods.put(CSV_CONNECTION_WAIT_TIME, new Functor("setConnectionWaitTime"));
+        // Both these are needed in the list even though they set the same
+        // variable
+        headerLabelMethods.put(CSV_TLS_HANDSHAKE_TIME, new Functor("setTlsHandshake"));
+        headerLabelMethods.put(CSV_TLS_SESSION_RESUMED, new Functor("setTlsHandshake"));
     }
 
     /**
@@ -721,12 +791,76 @@ public final class CSVSaveService {
         return resultToDelimitedString(event, event.getResult().getSaveConfig()
                 .getDelimiter());
     }
+
+    /**
+     * Convert a result into a string, where the fields saved by the given
+     * configuration are separated by its delimiter.
+     * <p>
+     * Unlike {@link #resultToDelimitedString(SampleEvent)}, the save
+     * configuration of the result is not used, so the result may be converted
+     * in another thread while listeners change it.
+     *
+     * @param event
+     *            the sample event to be converted
+     * @param saveConfig
+     *            the configuration of the fields to be saved
+     * @return the separated value representation of the result
+     * @since 4.1
+     */
+    public static String resultToDelimitedString(SampleEvent event, SampleSaveConfiguration saveConfig) {
+        StringQuoter text = new StringQuoter(saveConfig.getDelimiter().charAt(0));
+        appendResultFields(event, saveConfig, text);
+        return text.toString();
+    }
     
+    /**
+     * Convert a result into its saved fields, without any quoting.
+     *
+     * @param event
+     *            the sample event to be converted
+     * @param saveConfig
+     *            the configuration of the fields to be saved
+     * @return the field values, in the order of
+     *         {@link #printableFieldNames(SampleSaveConfiguration)}
+     * @since 4.1
+     */
+    public static String[] resultToFields(SampleEvent event, SampleSaveConfiguration saveConfig) {
+        List<String> fields = new ArrayList<>();
+        appendResultFields(event, saveConfig, new FieldAppender() {
+            @Override
+            public void append(String s) {
+                fields.add(s);
+            }
+
+            @Override
+            public void append(long l) {
+                fields.add(Long.toString(l));
+            }
+
+            @Override
+            public void append(boolean b) {
+                fields.add(Boolean.toString(b));
+            }
+        });
+        return fields.toArray(new String[fields.size()]);
+    }
+
+    /*
+     * Receives the saved fields of a result, in the order of printableFieldNames()
+     */
+    interface FieldAppender {
+        void append(String s);
+
+        void append(long l);
+
+        void append(boolean b);
+    }
+
     /*
      * Class to handle generating the delimited string. - adds the delimiter
      * if not the first call - quotes any strings that require it
      */
-    static final class StringQuoter {
+    static final class StringQuoter implements FieldAppender {
         private final StringBuilder sb;
         private final char[] specials;
         private boolean addDelim;
@@ -748,6 +882,7 @@ public final class CSVSaveService {
 
         // These methods handle parameters that could contain delimiters or
         // quotes:
+        @Override
         public void append(String s) {
             addDelim();
             sb.append(quoteDelimiters(s, specials));
@@ -764,11 +899,13 @@ public final class CSVSaveService {
             sb.append(i);
         }
 
+        @Override
         public void append(long l) {
             addDelim();
             sb.append(l);
         }
 
+        @Override
         public void append(boolean b) {
             addDelim();
             sb.append(b);
@@ -793,9 +930,23 @@ public final class CSVSaveService {
     public static String resultToDelimitedString(SampleEvent event,
             final String delimiter) {
         StringQuoter text = new StringQuoter(delimiter.charAt(0));
+        appendResultFields(event, event.getResult().getSaveConfig(), text);
+        return text.toString();
+    }
 
+    /**
+     * Appends the fields of a result that are saved by a configuration, in
+     * the order of {@link #printableFieldNames(SampleSaveConfiguration)}
+     *
+     * @param event
+     *            the sample event to be converted
+     * @param saveConfig
+     *            the configuration of the fields to be appended
+     * @param text
+     *            receives the fields
+     */
+    static void appendResultFields(SampleEvent event, SampleSaveConfiguration saveConfig, FieldAppender text) {
         SampleResult sample = event.getResult();
-        SampleSaveConfiguration saveConfig = sample.getSaveConfig();
 
         if (saveConfig.saveTimestamp()) {
             if (saveConfig.printMilliseconds()) {
@@ -858,7 +1009,7 @@ public final class CSVSaveService {
             text.append(sample.getAllThreads());
         }
         if (saveConfig.saveUrl()) {
-            text.append(sample.getURL());
+            text.append(String.valueOf(sample.getURL()));
         }
 
         if (saveConfig.saveFileName()) {
@@ -891,11 +1042,22 @@ public final class CSVSaveService {
             text.append(sample.getConnectTime());
         }
 
+        if (saveConfig.saveCorrectedTime()) {
+            text.append(sample.getCorrectedTime());
+        }
+
+        if (saveConfig.saveConnectionWaitTime()) {
+            text.append(sample.getConnectionWaitTime());
+        }
+
+        if (saveConfig.saveTlsHandshake()) {
+            text.append(sample.getTlsHandshakeTime());
+            text.append(sample.isTlsSessionResumed());
+        }
+
         for (int i = 0; i < SampleEvent.getVarCount(); i++) {
             text.append(event.getVarValue(i));
         }
-
-        return text.toString();
     }
 
     // =================================== CSV quote/unquote handling
@@ -977,19 +1139,20 @@ public final class CSVSaveService {
         CharArrayWriter baos = new CharArrayWriter(200);
         boolean push = false;
         while (-1 != (ch = infile.read())) {
-            push = false;
+            // A field ends on a delimiter or EOL that is not quoted
+            push = state != ParserState.QUOTED && isDelimOrEOL(delim, ch);
             switch (state) {
             case INITIAL:
-                readCharacterInitial(ch, state, delim, push, baos);
+                state = readCharacterInitial(ch, delim, baos);
                 break;
             case PLAIN:
-                readCharacterPlain(ch, state, delim, push, baos);
+                state = readCharacterPlain(ch, delim, baos);
                 break;
             case QUOTED:
-                readCharacterQuoted(ch, state, delim, push, baos);
+                state = readCharacterQuoted(ch, baos);
                 break;
             case EMBEDDEDQUOTE:
-                readCharacterEmbeddedQuote(ch, state, delim, push, baos);
+                state = readCharacterEmbeddedQuote(ch, delim, baos);
                 break;
             default:
                 throw new IllegalStateException("Unexpected state " + state);
@@ -1026,46 +1189,46 @@ public final class CSVSaveService {
         return list.toArray(new String[list.size()]);
     }
 
-    private static void readCharacterInitial(int ch, ParserState state, char delim, boolean push, CharArrayWriter baos) {
+    private static ParserState readCharacterInitial(int ch, char delim, CharArrayWriter baos) {
         if (ch == QUOTING_CHAR) {
-            state = ParserState.QUOTED;
+            return ParserState.QUOTED;
         } else if (isDelimOrEOL(delim, ch)) {
-            push = true;
+            return ParserState.INITIAL;
         } else {
             baos.write(ch);
-            state = ParserState.PLAIN;
+            return ParserState.PLAIN;
         }
     }
 
-    private static void readCharacterPlain(int ch, ParserState state, char delim, boolean push, CharArrayWriter baos) throws IOException {
+    private static ParserState readCharacterPlain(int ch, char delim, CharArrayWriter baos) throws IOException {
         if (ch == QUOTING_CHAR) {
             baos.write(ch);
             throw new IOException(
                     "Cannot have quote-char in plain field:["
                             + baos.toString() + "]");
         } else if (isDelimOrEOL(delim, ch)) {
-            push = true;
-            state = ParserState.INITIAL;
+            return ParserState.INITIAL;
         } else {
             baos.write(ch);
+            return ParserState.PLAIN;
         }
     }
 
-    private static void readCharacterQuoted(int ch, ParserState state, char delim, boolean push, CharArrayWriter baos) {
+    private static ParserState readCharacterQuoted(int ch, CharArrayWriter baos) {
         if (ch == QUOTING_CHAR) {
-            state = ParserState.EMBEDDEDQUOTE;
+            return ParserState.EMBEDDEDQUOTE;
         } else {
             baos.write(ch);
+            return ParserState.QUOTED;
         }
     }
 
-    private static void readCharacterEmbeddedQuote(int ch, ParserState state, char delim, boolean push, CharArrayWriter baos) throws IOException {
+    private static ParserState readCharacterEmbeddedQuote(int ch, char delim, CharArrayWriter baos) throws IOException {
         if (ch == QUOTING_CHAR) {
             baos.write(QUOTING_CHAR); // doubled quote => quote
-            state = ParserState.QUOTED;
+            return ParserState.QUOTED;
         } else if (isDelimOrEOL(delim, ch)) {
-            push = true;
-            state = ParserState.INITIAL;
+            return ParserState.INITIAL;
         } else {
             baos.write(QUOTING_CHAR);
             throw new IOException(
@@ -43,6 +43,7 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.jmeter.reporters.ResultCollectorHelper;
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.util.NameUpdater;
 import org.apache.jorphan.collections.HashTree;
@@ -74,6 +75,7 @@ public class SaveService {
     // Names of DataHolder entries for JTL processing
     public static final String SAMPLE_EVENT_OBJECT = "SampleEvent"; // $NON-NLS-1$
     public static final String RESULTCOLLECTOR_HELPER_OBJECT = "ResultCollectorHelper"; // $NON-NLS-1$
+    public static final String SAVE_CONFIG_OBJECT = "SaveConfig"; // $NON-NLS-1$
 
     // Names of DataHolder entries for JMX processing
     public static final String TEST_CLASS_NAME = "TestClassName"; // $NON-NLS-1$
@@ -156,7 +158,7 @@ public class SaveService {
     private static String fileVersion = ""; // computed from saveservice.properties file// $NON-NLS-1$
     // Must match the sha1 checksum of the file saveservice.properties (without newline character),
     // used to ensure saveservice.properties and SaveService are updated simultaneously
-    static final String FILEVERSION = "8e85129da2151ee8b4ecefa08b22aecb77d156cd"; // Expected value $NON-NLS-1$
+    static final String FILEVERSION = "ca0f8817083a9a801c1c43993c4f686686f59918"; // Expected value $NON-NLS-1$
 
     private static String fileEncoding = ""; // read from properties file// $NON-NLS-1$
 
@@ -335,9 +337,27 @@ public class SaveService {
      * @throws IOException when writing data to output fails
      */
     // Used by ResultCollector.sampleOccurred(SampleEvent event)
-    public synchronized static void saveSampleResult(SampleEvent evt, Writer writer) throws IOException {
+    public static void saveSampleResult(SampleEvent evt, Writer writer) throws IOException {
+        saveSampleResult(evt, null, writer);
+    }
+
+    /**
+     * Save a sampleResult to an XML output file using XStream, without using
+     * nor changing the save configuration of the result.
+     *
+     * @param evt sampleResult wrapped in a sampleEvent
+     * @param saveConfig configuration telling what to save, if null the one of the result is used
+     * @param writer output stream which must be created using {@link #getFileEncoding(String)}
+     * @throws IOException when writing data to output fails
+     * @since 4.1
+     */
+    public synchronized static void saveSampleResult(SampleEvent evt, SampleSaveConfiguration saveConfig,
+            Writer writer) throws IOException {
         DataHolder dh = JTLSAVER.newDataHolder();
         dh.put(SAMPLE_EVENT_OBJECT, evt);
+        if (saveConfig != null) {
+            dh.put(SAVE_CONFIG_OBJECT, saveConfig);
+        }
         // This is effectively the same as saver.toXML(Object, Writer) except we get to provide the DataHolder
         // Don't know why there is no method for this in the XStream class
         try {
@@ -89,6 +89,10 @@ public class SampleResultConverter extends AbstractCollectionConverter {
     private static final String ATT_SAMPLE_COUNT      = "sc"; //$NON-NLS-1$
     private static final String ATT_TIME              = "t";  //$NON-NLS-1$
     private static final String ATT_IDLETIME          = "it"; //$NON-NLS-1$
+    private static final String ATT_INTENDED_START    = "its"; //$NON-NLS-1$
+    private static final String ATT_CONNECTION_WAIT   = "cw"; //$NON-NLS-1$
+    private static final String ATT_TLS_HANDSHAKE     = "th"; //$NON-NLS-1$
+    private static final String ATT_TLS_RESUMED       = "tr"; //$NON-NLS-1$
     private static final String ATT_THREADNAME        = "tn"; //$NON-NLS-1$
     private static final String ATT_TIME_STAMP        = "ts"; //$NON-NLS-1$
 
@@ -112,7 +116,7 @@ public class SampleResultConverter extends AbstractCollectionConverter {
     @Override
     public void marshal(Object obj, HierarchicalStreamWriter writer, MarshallingContext context) {
         SampleResult res = (SampleResult) obj;
-        SampleSaveConfiguration save = res.getSaveConfig();
+        SampleSaveConfiguration save = getSaveConfig(context, res);
         setAttributes(writer, context, res, save);
         saveAssertions(writer, context, res, save);
         saveSubResults(writer, context, res, save);
@@ -122,6 +126,22 @@ public class SampleResultConverter extends AbstractCollectionConverter {
         saveSamplerData(writer, context, res, save);
     }
 
+    /**
+     * Get the configuration telling us what to save
+     *
+     * @param context
+     *            context for xstream, may hold the configuration of the
+     *            result collector
+     * @param res
+     *            sample to be saved
+     * @return the configuration of the context if any, else the one of the
+     *         sample
+     */
+    protected SampleSaveConfiguration getSaveConfig(MarshallingContext context, SampleResult res) {
+        SampleSaveConfiguration save = (SampleSaveConfiguration) context.get(SaveService.SAVE_CONFIG_OBJECT);
+        return save != null ? save : res.getSaveConfig();
+    }
+
     /**
      * Save the data of the sample result to a stream
      *
@@ -238,8 +258,11 @@ public class SampleResultConverter extends AbstractCollectionConverter {
             SampleSaveConfiguration save) {
         if (save.saveSubresults()) {
             SampleResult[] subResults = res.getSubResults();
+            boolean contextConfig = context.get(SaveService.SAVE_CONFIG_OBJECT) != null;
             for (SampleResult subResult : subResults) {
-                subResult.setSaveConfig(save);
+                if (!contextConfig) {
+                    subResult.setSaveConfig(save);
+                }
                 writeItem(subResult, context, writer);
             }
         }
@@ -293,6 +316,16 @@ public class SampleResultConverter extends AbstractCollectionConverter {
         if (save.saveConnectTime()) {
             writer.addAttribute(ATT_CONNECT_TIME, Long.toString(res.getConnectTime()));
         }
+        if (save.saveCorrectedTime() && res.getIntendedStartTime() > 0) {
+            writer.addAttribute(ATT_INTENDED_START, Long.toString(res.getIntendedStartTime()));
+        }
+        if (save.saveConnectionWaitTime()) {
+            writer.addAttribute(ATT_CONNECTION_WAIT, Long.toString(res.getConnectionWaitTime()));
+        }
+        if (save.saveTlsHandshake()) {
+            writer.addAttribute(ATT_TLS_HANDSHAKE, Long.toString(res.getTlsHandshakeTime()));
+            writer.addAttribute(ATT_TLS_RESUMED, Boolean.toString(res.isTlsSessionResumed()));
+        }
         if (save.saveTimestamp()) {
             writer.addAttribute(ATT_TIME_STAMP, Long.toString(res.getTimeStamp()));
         }
@@ -447,6 +480,10 @@ public class SampleResultConverter extends AbstractCollectionConverter {
         res.setIdleTime(Converter.getLong(reader.getAttribute(ATT_IDLETIME)));
         res.setLatency(Converter.getLong(reader.getAttribute(ATT_LATENCY)));
         res.setConnectTime(Converter.getLong(reader.getAttribute(ATT_CONNECT_TIME)));
+        res.setIntendedStartTime(Converter.getLong(reader.getAttribute(ATT_INTENDED_START)));
+        res.setConnectionWaitTime(Converter.getLong(reader.getAttribute(ATT_CONNECTION_WAIT)));
+        res.setTlsHandshakeTime(Converter.getLong(reader.getAttribute(ATT_TLS_HANDSHAKE)));
+        res.setTlsSessionResumed(Converter.getBoolean(reader.getAttribute(ATT_TLS_RESUMED)));
         res.setBytes(Converter.getLong(reader.getAttribute(ATT_BYTES)));
         res.setSentBytes(Converter.getLong(reader.getAttribute(ATT_SENT_BYTES)));
         res.setSampleCount(Converter.getInt(reader.getAttribute(ATT_SAMPLE_COUNT),1)); // default is 1
@@ -18,19 +18,29 @@
 
 package org.apache.jmeter.testelement;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import org.apache.jmeter.gui.Searchable;
+import org.apache.jmeter.testelement.property.AbstractProperty;
 import org.apache.jmeter.testelement.property.BooleanProperty;
 import org.apache.jmeter.testelement.property.CollectionProperty;
+import org.apache.jmeter.testelement.property.DoubleProperty;
+import org.apache.jmeter.testelement.property.FloatProperty;
 import org.apache.jmeter.testelement.property.IntegerProperty;
 import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jmeter.testelement.property.LongProperty;
@@ -53,14 +63,43 @@ public abstract class AbstractTestElement implements TestElement, Serializable,
 
     private static final Logger log = LoggerFactory.getLogger(AbstractTestElement.class);
 
-    private final Map<String, JMeterProperty> propMap =
+    /**
+     * Properties holding an immutable value, that clones of running elements
+     * can share until they modify them
+     */
+    private static final Set<Class<?>> SHAREABLE_PROPERTY_CLASSES = new HashSet<>(Arrays.asList(
+            StringProperty.class, BooleanProperty.class, IntegerProperty.class,
+            LongProperty.class, FloatProperty.class, DoubleProperty.class));
+
+    /**
+     * Properties of this element. May be an unmodifiable map of shared
+     * properties, replaced by a copy before being modified.
+     */
+    private volatile Map<String, JMeterProperty> propMap =
         Collections.synchronizedMap(new LinkedHashMap<String, JMeterProperty>());
 
+    /**
+     * Whether propMap is shared by clones of a running element
+     */
+    private transient boolean propMapShared = false;
+
     /**
      * Holds properties added when isRunningVersion is true
      */
     private transient Set<JMeterProperty> temporaryProperties;
 
+    /**
+     * Copies of the properties shared by the clones of this element, indexed
+     * by name. Guarded by propMap.
+     */
+    private transient Map<String, JMeterProperty> sharedProperties;
+
+    /**
+     * Map of the shared properties, when they are all shared. Guarded by
+     * propMap.
+     */
+    private transient Map<String, JMeterProperty> sharedPropMap;
+
     private transient boolean runningVersion = false;
 
     // Thread-specific variables saved here to save recalculation
@@ -73,22 +112,177 @@ public abstract class AbstractTestElement implements TestElement, Serializable,
         try {
             TestElement clonedElement = this.getClass().newInstance();
 
-            PropertyIterator iter = propertyIterator();
-            while (iter.hasNext()) {
-                clonedElement.setProperty(iter.next().clone());
+            List<JMeterProperty> properties = cloneProperties();
+            for (JMeterProperty property : properties) {
+                clonedElement.setProperty(property);
             }
             clonedElement.setRunningVersion(runningVersion);
+            if (clonedElement instanceof AbstractTestElement) {
+                Map<String, JMeterProperty> sharedMap = getSharedPropMap(properties);
+                if (sharedMap != null) {
+                    ((AbstractTestElement) clonedElement).sharePropMap(sharedMap);
+                }
+            }
             return clonedElement;
         } catch (InstantiationException | IllegalAccessException e) {
             throw new AssertionError(e); // clone should never return null
         }
     }
 
+    /**
+     * Copies the properties of this element for a clone. The properties of a
+     * running element that hold an immutable value are not copied for each
+     * clone: the clones share a single copy, until they modify it.
+     *
+     * @return the properties of the clone
+     */
+    private List<JMeterProperty> cloneProperties() {
+        synchronized (propMap) {
+            List<JMeterProperty> properties = new ArrayList<>(propMap.size());
+            for (JMeterProperty property : propMap.values()) {
+                if (isShared(property)) {
+                    properties.add(property);
+                } else if (runningVersion && SHAREABLE_PROPERTY_CLASSES.contains(property.getClass())) {
+                    properties.add(getSharedCopy(property));
+                } else {
+                    properties.add(property.clone());
+                }
+            }
+            return properties;
+        }
+    }
+
+    /**
+     * @param property
+     *            a property of this element, that can be shared
+     * @return the copy of the property shared by the clones of this element
+     */
+    private JMeterProperty getSharedCopy(JMeterProperty property) {
+        if (sharedProperties == null) {
+            sharedProperties = new HashMap<>();
+        }
+        JMeterProperty sharedCopy = sharedProperties.get(property.getName());
+        // The property may have changed since the copy was made
+        if (sharedCopy == null || sharedCopy.getClass() != property.getClass()
+                || !Objects.equals(sharedCopy.getObjectValue(), property.getObjectValue())) {
+            sharedCopy = property.clone();
+            sharedCopy.setRunningVersion(true);
+            ((AbstractProperty) sharedCopy).setShared();
+            sharedProperties.put(property.getName(), sharedCopy);
+        }
+        return sharedCopy;
+    }
+
+    /**
+     * @param properties
+     *            the properties of a clone
+     * @return an unmodifiable map of the properties if they are all shared,
+     *         null otherwise
+     */
+    private Map<String, JMeterProperty> getSharedPropMap(List<JMeterProperty> properties) {
+        for (JMeterProperty property : properties) {
+            if (!isShared(property)) {
+                return null;
+            }
+        }
+        synchronized (propMap) {
+            if (propMapShared) {
+                return propMap;
+            }
+            if (sharedPropMap == null || !hasSameProperties(sharedPropMap, properties)) {
+                Map<String, JMeterProperty> map = new LinkedHashMap<>();
+                for (JMeterProperty property : properties) {
+                    map.put(property.getName(), property);
+                }
+                sharedPropMap = Collections.unmodifiableMap(map);
+            }
+            return sharedPropMap;
+        }
+    }
+
+    /**
+     * Uses a map of shared properties instead of the properties of this
+     * element, if they are the same
+     *
+     * @param sharedMap
+     *            the unmodifiable map of shared properties
+     */
+    private void sharePropMap(Map<String, JMeterProperty> sharedMap) {
+        synchronized (propMap) {
+            if (!propMapShared && hasSameProperties(propMap, sharedMap.values())) {
+                propMap = sharedMap;
+                propMapShared = true;
+            }
+        }
+    }
+
+    /**
+     * @return true if map contains the same property instances as properties,
+     *         in the same order
+     */
+    private static boolean hasSameProperties(Map<String, JMeterProperty> map,
+            Collection<JMeterProperty> properties) {
+        if (map.size() != properties.size()) {
+            return false;
+        }
+        Iterator<JMeterProperty> iter = properties.iterator();
+        for (Map.Entry<String, JMeterProperty> entry : map.entrySet()) {
+            JMeterProperty property = iter.next();
+            if (entry.getValue() != property || !entry.getKey().equals(property.getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces a property map shared with other clones by a copy that can be
+     * modified. The clones sharing a map are used by a single thread, like
+     * all the clones of running elements.
+     */
+    private void ownPropMap() {
+        if (propMapShared) {
+            propMap = Collections.synchronizedMap(new LinkedHashMap<>(propMap));
+            propMapShared = false;
+        }
+    }
+
+    // Serialized elements do not share their properties
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ownPropMap();
+        out.defaultWriteObject();
+    }
+
+    private static boolean isShared(JMeterProperty property) {
+        return property instanceof AbstractProperty && ((AbstractProperty) property).isShared();
+    }
+
+    /**
+     * Gets a property that can be modified, a shared property is replaced by
+     * a copy of its own.
+     *
+     * @param key
+     *            the name of the property
+     * @return the property, or null if there is no such property
+     */
+    private JMeterProperty getModifiableProperty(String key) {
+        ownPropMap();
+        synchronized (propMap) {
+            JMeterProperty prop = propMap.get(key);
+            if (isShared(prop)) {
+                prop = prop.clone();
+                propMap.put(key, prop);
+            }
+            return prop;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void clear() {
+        ownPropMap();
         propMap.clear();
     }
 
@@ -107,6 +301,7 @@ public abstract class AbstractTestElement implements TestElement, Serializable,
      */
     @Override
     public void removeProperty(String key) {
+        ownPropMap();
         propMap.remove(key);
     }
 
@@ -305,9 +500,10 @@ public abstract class AbstractTestElement implements TestElement, Serializable,
         JMeterProperty prop = getProperty(property.getName());
 
         if (prop instanceof NullProperty || (prop instanceof StringProperty && prop.getStringValue().isEmpty())) {
+            ownPropMap();
             propMap.put(property.getName(), propertyToPut);
         } else {
-            prop.mergeIn(propertyToPut);
+            getModifiableProperty(property.getName()).mergeIn(propertyToPut);
         }
     }
 
@@ -351,9 +547,10 @@ public abstract class AbstractTestElement implements TestElement, Serializable,
             if (getProperty(property.getName()) instanceof NullProperty) {
                 addProperty(property);
             } else {
-                getProperty(property.getName()).setObjectValue(property.getObjectValue());
+                getModifiableProperty(property.getName()).setObjectValue(property.getObjectValue());
             }
         } else {
+            ownPropMap();
             propMap.put(property.getName(), property);
         }
     }
@@ -492,9 +689,25 @@ public abstract class AbstractTestElement implements TestElement, Serializable,
     @Override
     public void setRunningVersion(boolean runningVersion) {
         this.runningVersion = runningVersion;
-        PropertyIterator iter = propertyIterator();
-        while (iter.hasNext()) {
-            iter.next().setRunningVersion(runningVersion);
+        if (propMapShared) {
+            if (runningVersion) {
+                // Shared properties are already running versions
+                return;
+            }
+            ownPropMap();
+        }
+        synchronized (propMap) {
+            for (Map.Entry<String, JMeterProperty> entry : propMap.entrySet()) {
+                JMeterProperty prop = entry.getValue();
+                if (isShared(prop)) {
+                    if (prop.isRunningVersion() == runningVersion) {
+                        continue;
+                    }
+                    prop = prop.clone();
+                    entry.setValue(prop);
+                }
+                prop.setRunningVersion(runningVersion);
+            }
         }
     }
 
@@ -503,6 +716,13 @@ public abstract class AbstractTestElement implements TestElement, Serializable,
      */
     @Override
     public void recoverRunningVersion() {
+        if (propMapShared) {
+            if (temporaryProperties == null || temporaryProperties.isEmpty()) {
+                // Shared properties are not modified, so have nothing to recover
+                return;
+            }
+            ownPropMap();
+        }
         Iterator<Map.Entry<String, JMeterProperty>>  iter = propMap.entrySet().iterator();
         while (iter.hasNext()) {
             Map.Entry<String, JMeterProperty> entry = iter.next();
@@ -510,7 +730,8 @@ public abstract class AbstractTestElement implements TestElement, Serializable,
             if (isTemporary(prop)) {
                 iter.remove();
                 clearTemporary(prop);
-            } else {
+            } else if (!isShared(prop)) {
+                // Shared properties are not modified, so have nothing to recover
                 prop.recoverRunningVersion(this);
             }
         }
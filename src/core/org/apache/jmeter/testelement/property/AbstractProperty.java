@@ -35,6 +35,8 @@ public abstract class AbstractProperty implements JMeterProperty {
 
     private transient boolean runningVersion = false;
 
+    private transient boolean shared = false;
+
     public AbstractProperty(String name) {
         if (name == null) {
             throw new IllegalArgumentException("Name cannot be null");
@@ -56,6 +58,28 @@ public abstract class AbstractProperty implements JMeterProperty {
         return runningVersion;
     }
 
+    /**
+     * Tells whether this property is shared by several clones of a running
+     * test element. A shared property must not be modified, the test elements
+     * replace it by a clone before modifying it.
+     *
+     * @return true if the property is shared
+     * @since 4.1
+     */
+    public final boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Marks this property as shared by several clones of a running test
+     * element. Clones of this property are not shared.
+     *
+     * @since 4.1
+     */
+    public final void setShared() {
+        this.shared = true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public String getName() {
@@ -88,6 +112,7 @@ public abstract class AbstractProperty implements JMeterProperty {
             AbstractProperty prop = (AbstractProperty) super.clone();
             prop.name = name;
             prop.runningVersion = runningVersion;
+            prop.shared = false;
             return prop;
         } catch (CloneNotSupportedException e) {
             throw new AssertionError(e); // clone should never return null
@@ -81,13 +81,11 @@ public class FunctionProperty extends AbstractProperty {
      */
     @Override
     public String getStringValue() {
-        JMeterContext ctx = JMeterContextService.getContext();// Expensive, so
-                                                                // do
-        // once
-        if (!isRunningVersion() /*|| !ctx.isSamplingStarted()*/) {
+        if (!isRunningVersion()) {
             log.debug("Not running version, return raw function string");
             return function.getRawParameters();
         }
+        JMeterContext ctx = JMeterContextService.getContext();// Expensive, so do once
         if(!ctx.isSamplingStarted()) {
             return function.execute();
         }
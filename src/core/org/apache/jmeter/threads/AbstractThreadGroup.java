@@ -21,6 +21,7 @@ package org.apache.jmeter.threads;
 import java.io.Serializable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.jmeter.control.Controller;
@@ -73,6 +74,12 @@ public abstract class AbstractThreadGroup extends AbstractTestElement
 
     public static final String MAIN_CONTROLLER = "ThreadGroup.main_controller";
 
+    /**
+     * Execution mode of the threads of the group, see {@link ThreadFactoryProvider}.
+     * If empty, the value of {@value ThreadFactoryProvider#EXECUTION_MODE_PROPERTY} is used
+     */
+    public static final String EXECUTION_MODE = "ThreadGroup.execution_mode";
+
     private final AtomicInteger numberOfThreads = new AtomicInteger(0); // Number of active threads in this group
 
     /** {@inheritDoc} */
@@ -209,6 +216,35 @@ public abstract class AbstractThreadGroup extends AbstractTestElement
         return this.getPropertyAsInt(AbstractThreadGroup.NUM_THREADS);
     }
 
+    /**
+     * Set the execution mode of the threads of this group
+     *
+     * @param executionMode
+     *            <code>platform</code>, <code>virtual</code> or class name of a {@link ThreadFactory},
+     *            empty to use the default mode
+     */
+    public void setExecutionMode(String executionMode) {
+        setProperty(EXECUTION_MODE, executionMode, "");
+    }
+
+    /**
+     * Get the execution mode of the threads of this group
+     *
+     * @return the execution mode, empty if the default mode is used
+     */
+    public String getExecutionMode() {
+        return getPropertyAsString(EXECUTION_MODE);
+    }
+
+    /**
+     * Create the {@link ThreadFactory} used to run the {@link JMeterThread}s of this group
+     *
+     * @return {@link ThreadFactory} matching {@link #getExecutionMode()}
+     */
+    protected ThreadFactory createThreadFactory() {
+        return ThreadFactoryProvider.getThreadFactory(getExecutionMode());
+    }
+
     /**
      * Check if a sampler error should cause thread to start next loop.
      *
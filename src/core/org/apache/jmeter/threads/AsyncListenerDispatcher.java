@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.threads;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.testbeans.TestBeanHelper;
+import org.apache.jmeter.testelement.TestElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers sample events to listeners from a pool of worker threads.
+ * <p>
+ * Each listener has its own bounded queue, drained by one worker at a time,
+ * so a listener receives the events in the order they were dispatched, and
+ * a slow listener only delays its own events. When a queue is full, the
+ * sampling thread either waits for room or drops the event.
+ *
+ * @since 4.1
+ */
+final class AsyncListenerDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncListenerDispatcher.class);
+
+    /** maximum number of events delivered before letting other listeners run */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
+    private final int queueSize;
+
+    private final boolean dropWhenFull;
+
+    private final ExecutorService workers;
+
+    /** queues by listener, guarded by itself */
+    private final Map<SampleListener, ListenerQueue> queues = new IdentityHashMap<>();
+
+    /** incremented when the queues are cleared, to invalidate the thread caches */
+    private volatile int generation;
+
+    private final ThreadLocal<QueueCache> queueCache = ThreadLocal.withInitial(QueueCache::new);
+
+    /**
+     * @param threads
+     *            number of worker threads
+     * @param queueSize
+     *            maximum number of events waiting for each listener
+     * @param dropWhenFull
+     *            true to drop the events that cannot be queued, false to wait
+     *            for room in the queue
+     */
+    AsyncListenerDispatcher(int threads, int queueSize, boolean dropWhenFull) {
+        this.queueSize = queueSize;
+        this.dropWhenFull = dropWhenFull;
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "ListenerNotifier-" + threadNumber.incrementAndGet());
+            // Does not prevent exit if the test is not ended properly
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        // Threads are released if a dispatcher is left without being shut down
+        executor.allowCoreThreadTimeOut(true);
+        this.workers = executor;
+        log.info("Notifying thread safe listeners asynchronously, threads: {}, queue size: {}, queue full policy: {}",
+                threads, queueSize, dropWhenFull ? "drop" : "block");
+    }
+
+    /**
+     * Queues an event for a listener, waits for room in its queue or drops
+     * the event when the queue is full.
+     *
+     * @param listener
+     *            the listener to notify
+     * @param event
+     *            the event
+     */
+    void dispatch(SampleListener listener, SampleEvent event) {
+        ListenerQueue queue = getQueue(listener);
+        queue.dispatched.incrementAndGet();
+        Entry entry = new Entry(event, System.nanoTime());
+        if (dropWhenFull) {
+            if (!queue.queue.offer(entry)) {
+                queue.dropped.incrementAndGet();
+                queue.done();
+                return;
+            }
+        } else {
+            try {
+                queue.queue.put(entry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queue.dropped.incrementAndGet();
+                queue.done();
+                return;
+            }
+        }
+        queue.schedule();
+    }
+
+    /**
+     * Waits for the queued events to be delivered, logs the listeners
+     * statistics and forgets the listeners
+     */
+    void waitForListeners() {
+        List<ListenerQueue> toWait;
+        synchronized (queues) {
+            toWait = new ArrayList<>(queues.values());
+            queues.clear();
+            generation++;
+        }
+        for (ListenerQueue queue : toWait) {
+            try {
+                queue.awaitDone();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for listener {}", queue.name);
+                return;
+            }
+            log.info("Listener {} notified asynchronously of {} events, dropped: {}, max lag: {} ms",
+                    queue.name, queue.delivered.get(), queue.dropped.get(),
+                    TimeUnit.NANOSECONDS.toMillis(queue.maxLag));
+        }
+    }
+
+    /**
+     * Stops the worker threads; events dispatched afterwards, by threads
+     * still running, are delivered by the dispatching thread
+     */
+    void shutdown() {
+        workers.shutdown();
+    }
+
+    private ListenerQueue getQueue(SampleListener listener) {
+        QueueCache cache = queueCache.get();
+        int currentGeneration = generation;
+        if (cache.generation != currentGeneration) {
+            cache.queues.clear();
+            cache.generation = currentGeneration;
+        }
+        ListenerQueue queue = cache.queues.get(listener);
+        if (queue == null) {
+            synchronized (queues) {
+                queue = queues.computeIfAbsent(listener, ListenerQueue::new);
+            }
+            cache.queues.put(listener, queue);
+        }
+        return queue;
+    }
+
+    /**
+     * Queues of the listeners already used by a sampling thread
+     */
+    private static final class QueueCache {
+        private final Map<SampleListener, ListenerQueue> queues = new IdentityHashMap<>();
+        private int generation;
+    }
+
+    private static final class Entry {
+        private final SampleEvent event;
+        private final long dispatchTime;
+
+        private Entry(SampleEvent event, long dispatchTime) {
+            this.event = event;
+            this.dispatchTime = dispatchTime;
+        }
+    }
+
+    private final class ListenerQueue {
+        private final SampleListener listener;
+        private final String name;
+        private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(queueSize);
+        /** true while a drain task is submitted or running */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicLong dispatched = new AtomicLong();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        /** only written by the draining worker */
+        private volatile long maxLag;
+
+        private ListenerQueue(SampleListener listener) {
+            this.listener = listener;
+            String elementName = listener instanceof TestElement ? ((TestElement) listener).getName() : null;
+            this.name = StringUtils.isEmpty(elementName) ? listener.getClass().getSimpleName() : elementName;
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    workers.execute(this::drain);
+                } catch (RejectedExecutionException e) { // NOSONAR Dispatcher shut down
+                    drain();
+                }
+            }
+        }
+
+        private void drain() {
+            for (int i = 0; i < MAX_BATCH_SIZE; i++) {
+                Entry entry = queue.poll();
+                if (entry == null) {
+                    break;
+                }
+                long lag = System.nanoTime() - entry.dispatchTime;
+                if (lag > maxLag) {
+                    maxLag = lag;
+                }
+                try {
+                    TestBeanHelper.prepare((TestElement) listener);
+                    listener.sampleOccurred(entry.event);
+                } catch (RuntimeException e) {
+                    log.error("Detected problem in Listener.", e);
+                }
+                delivered.incrementAndGet();
+            }
+            done();
+            scheduled.set(false);
+            // Events queued after the last poll, or left by the batch limit
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private synchronized void done() {
+            notifyAll();
+        }
+
+        private synchronized void awaitDone() throws InterruptedException {
+            while (delivered.get() + dropped.get() < dispatched.get()) {
+                wait(100);
+            }
+        }
+    }
+}
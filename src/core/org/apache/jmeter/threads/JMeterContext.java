@@ -23,6 +23,7 @@ import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.jmeter.engine.StandardJMeterEngine;
+import org.apache.jmeter.samplers.ResponseDataUsage;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.samplers.Sampler;
 import org.apache.jmeter.util.JMeterUtils;
@@ -54,6 +55,11 @@ public class JMeterContext {
     private TestLogicalAction testLogicalAction = TestLogicalAction.CONTINUE;
     private ConcurrentHashMap<String, Object> samplerContext = new ConcurrentHashMap<>(5);
     private boolean recording;
+    private long intendedStartTime;
+
+    private long responseDataUsage;
+
+    private boolean responseDataMD5Used;
 
     JMeterContext() {
         clear0();
@@ -75,6 +81,9 @@ public class JMeterContext {
         threadNum = 0;
         thread = null;
         recording = false;
+        intendedStartTime = 0;
+        responseDataUsage = ResponseDataUsage.ALL;
+        responseDataMD5Used = false;
         samplerContext.clear();
     }
 
@@ -295,4 +304,54 @@ public class JMeterContext {
     public boolean isRecording() {
         return recording;
     }
+
+    /**
+     * @return time (ms since epoch) at which the next sample was meant to start, 0 if unknown
+     */
+    public long getIntendedStartTime() {
+        return intendedStartTime;
+    }
+
+    /**
+     * Called by timers and thread groups which follow a schedule, so that the next
+     * {@link SampleResult} can be corrected for coordinated omission
+     * @param intendedStartTime time (ms since epoch) at which the next sample should have started, 0 to reset
+     */
+    public void setIntendedStartTime(long intendedStartTime) {
+        this.intendedStartTime = intendedStartTime;
+    }
+
+    /**
+     * @return the number of leading bytes of the response data used by the
+     *         elements applying to the current sample, see
+     *         {@link ResponseDataUsage}
+     * @since 4.1
+     */
+    public long getResponseDataUsage() {
+        return responseDataUsage;
+    }
+
+    /**
+     * @return true if the elements applying to the current sample use the
+     *         MD5 of the response data
+     * @since 4.1
+     */
+    public boolean isResponseDataMD5Used() {
+        return responseDataMD5Used;
+    }
+
+    /**
+     * Internally called by JMeter, never call it directly
+     *
+     * @param usage
+     *            the number of leading bytes of the response data used by the
+     *            elements applying to the current sample
+     * @param md5Used
+     *            true if these elements use the MD5 of the response data
+     * @since 4.1
+     */
+    public void setResponseDataUsage(long usage, boolean md5Used) {
+        this.responseDataUsage = usage;
+        this.responseDataMD5Used = md5Used;
+    }
 }
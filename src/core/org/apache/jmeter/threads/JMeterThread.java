@@ -37,6 +37,7 @@ import org.apache.jmeter.gui.GuiPackage;
 import org.apache.jmeter.processor.PostProcessor;
 import org.apache.jmeter.processor.PreProcessor;
 import org.apache.jmeter.samplers.Interruptible;
+import org.apache.jmeter.samplers.ResponseDataUsage;
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.samplers.SampleListener;
 import org.apache.jmeter.samplers.SampleMonitor;
@@ -88,6 +89,10 @@ public class JMeterThread implements Runnable, Interruptible {
 
     private static final boolean APPLY_TIMER_FACTOR = Float.compare(TIMER_FACTOR,ONE_AS_FLOAT) != 0;
 
+    /** Let samplers discard the response data not used by the elements applying to the sample */
+    private static final boolean DISCARD_UNUSED_RESPONSE_DATA =
+            JMeterUtils.getPropDefault("sampleresult.discard_unused_response_data", false); // $NON-NLS-1$
+
     private final Controller threadGroupLoopController;
 
     private final HashTree testTree;
@@ -543,8 +548,20 @@ public class JMeterThread implements Runnable, Interruptible {
         SampleResult result = null;
         if (running) {
             Sampler sampler = pack.getSampler();
-            result = doSampling(threadContext, sampler);
+            if (DISCARD_UNUSED_RESPONSE_DATA) {
+                setResponseDataUsage(threadContext, pack, transactionPack);
+            }
+            try {
+                result = doSampling(threadContext, sampler);
+            } finally {
+                if (DISCARD_UNUSED_RESPONSE_DATA) {
+                    threadContext.setResponseDataUsage(ResponseDataUsage.ALL, false);
+                }
+            }
         }
+        // The intended start time only applies to the sample following the schedule point
+        long intendedStartTime = threadContext.getIntendedStartTime();
+        threadContext.setIntendedStartTime(0);
         // If we got any results, then perform processing on the result
         if (result != null && !result.isIgnore()) {
             int nbActiveThreadsInThreadGroup = threadGroup.getNumberOfThreads();
@@ -552,6 +569,9 @@ public class JMeterThread implements Runnable, Interruptible {
             result.setGroupThreads(nbActiveThreadsInThreadGroup);
             result.setAllThreads(nbTotalActiveThreads);
             result.setThreadName(threadName);
+            if (intendedStartTime > 0) {
+                result.setIntendedStartTime(intendedStartTime);
+            }
             SampleResult[] subResults = result.getSubResults();
             if (subResults != null) {
                 for (SampleResult subResult : subResults) {
@@ -590,6 +610,22 @@ public class JMeterThread implements Runnable, Interruptible {
         }
     }
 
+    /**
+     * Tells the sampler how much of the response data is used, including by
+     * the elements of the transaction which will receive the result as
+     * sub-result
+     */
+    private static void setResponseDataUsage(JMeterContext threadContext,
+            SamplePackage pack, SamplePackage transactionPack) {
+        long usage = pack.getResponseDataUsage();
+        boolean md5Used = pack.isResponseDataMD5Used();
+        if (transactionPack != null) {
+            usage = Math.max(usage, transactionPack.getResponseDataUsage());
+            md5Used |= transactionPack.isResponseDataMD5Used();
+        }
+        threadContext.setResponseDataUsage(usage, md5Used);
+    }
+
     /**
      * Call sample on Sampler handling:
      * <ul>
@@ -1100,6 +1136,16 @@ public class JMeterThread implements Runnable, Interruptible {
         onErrorStartNextLoop = b;
     }
 
+    /**
+     * Sets the plan of the thread group tree this thread tree is a clone of,
+     * so that the compiler does not compute it for each thread.
+     *
+     * @param plan the plan
+     */
+    void setCompilerPlan(TestCompilerPlan plan) {
+        compiler.setPlan(plan);
+    }
+
     public void setThreadGroup(AbstractThreadGroup group) {
         this.threadGroup = group;
     }
@@ -15,24 +15,73 @@
  * limitations under the License.
  *
  */
-
 package org.apache.jmeter.threads;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.jmeter.util.JMeterUtils;
 
 /**
  * Class which defines JMeter variables.
  * These are similar to properties, but they are local to a single thread.
+ * <p>
+ * Variable names known when the test plan is compiled can be interned with
+ * {@link #getSlot(String)}. The values of these variables can then be read
+ * and written by slot without hashing the name. The slot of a name is
+ * resolved once per thread, to the holder of the value also found by name.
+ * <p>
+ * The table of interned names is shared by all the threads and is never
+ * cleared, so its size is limited by the property
+ * {@code variables.max_interned_names}. Once it is full, other names are
+ * only available by name.
  */
 public class JMeterVariables {
-    private final Map<String, Object> variables = new HashMap<>();
+    /** Maximum number of interned names */
+    private static final int MAX_SLOTS =
+            JMeterUtils.getPropDefault("variables.max_interned_names", 1000); // $NON-NLS-1$
+
+    /** Slots of the interned names, shared by all the threads, only read when compiling */
+    private static final Map<String, Integer> SLOTS = new ConcurrentHashMap<>();
+
+    /** Interned names indexed by slot, replaced while holding the SLOTS lock */
+    private static volatile String[] slotNames = new String[0];
+
+    /** Value of a variable removed while its holder is referenced by a slot */
+    private static final Object ABSENT = new Object();
+
+    private static final Variable[] NO_VARIABLES = new Variable[0];
+
+    /**
+     * Holder of the value of a variable, shared by its name and its slot
+     */
+    private static final class Variable {
+        private Object value;
+
+        /** true once referenced by a slot, the holder is then never removed */
+        private boolean slotted;
+
+        private Variable(Object value) {
+            this.value = value;
+        }
+    }
+
+    private final Map<String, Variable> variables = new HashMap<>();
+
+    /** holders of the interned variables indexed by slot, null until resolved */
+    private Variable[] slotVariables = NO_VARIABLES;
+
+    /** number of holders whose value is {@link #ABSENT} */
+    private int absentCount;
 
     private int iteration = 0;
 
@@ -55,7 +104,7 @@ public class JMeterVariables {
         for (String property : PRE_LOAD) {
             String value = JMeterUtils.getProperty(property);
             if (value != null) {
-                variables.put(property, value);
+                putValue(property, value);
             }
         }
     }
@@ -81,6 +130,91 @@ public class JMeterVariables {
         iteration++;
     }
 
+    /**
+     * Interns a variable name, so that its value can be accessed by slot.
+     * The same name always gets the same slot, in all the threads.
+     * <p>
+     * Names should only be interned when the test plan is compiled, interned
+     * names are never released. Once {@code variables.max_interned_names}
+     * names are interned, other names get no slot and callers must use the
+     * name-based methods.
+     *
+     * @param name the variable name, must not be {@code null}
+     * @return the slot of the variable, or -1 if the table of interned names is full
+     * @since 4.1
+     */
+    public static int getSlot(String name) {
+        return getSlot(name, MAX_SLOTS);
+    }
+
+    // package protected for unit tests
+    static int getSlot(String name, int maxSlots) {
+        Integer slot = SLOTS.get(name);
+        if (slot != null) {
+            return slot.intValue();
+        }
+        synchronized (SLOTS) {
+            slot = SLOTS.get(name);
+            if (slot == null) {
+                String[] names = slotNames;
+                if (names.length >= maxSlots) {
+                    return -1;
+                }
+                slot = Integer.valueOf(names.length);
+                names = Arrays.copyOf(names, names.length + 1);
+                names[slot.intValue()] = name;
+                slotNames = names;
+                SLOTS.put(name, slot);
+            }
+            return slot.intValue();
+        }
+    }
+
+    /**
+     * @param slot the slot returned by {@link #getSlot(String)}
+     * @return the holder of the variable, created if the variable does not exist
+     */
+    private Variable getSlotVariable(int slot) {
+        if (slot >= slotVariables.length) {
+            slotVariables = Arrays.copyOf(slotVariables, Math.max(slot + 1, slotVariables.length * 2));
+        }
+        Variable variable = slotVariables[slot];
+        if (variable == null) {
+            String name = slotNames[slot];
+            variable = variables.get(name);
+            if (variable == null) {
+                variable = new Variable(ABSENT);
+                variables.put(name, variable);
+                absentCount++;
+            }
+            variable.slotted = true;
+            slotVariables[slot] = variable;
+        }
+        return variable;
+    }
+
+    /**
+     * @return the previous value of the variable, null if it did not exist
+     */
+    private Object setValue(Variable variable, Object value) {
+        Object previous = variable.value;
+        variable.value = value;
+        if (previous == ABSENT) {
+            if (value != ABSENT) {
+                absentCount--;
+            }
+            return null;
+        }
+        if (value == ABSENT) {
+            absentCount++;
+        }
+        return previous;
+    }
+
+    private static Object valueOf(Variable variable) {
+        return variable == null || variable.value == ABSENT ? null : variable.value;
+    }
+
     /**
      * Remove a variable.
      * 
@@ -89,7 +223,16 @@ public class JMeterVariables {
      * @return the variable value, or {@code null} if there was no such variable
      */
     public Object remove(String key) {
-        return variables.remove(key);
+        Variable variable = variables.remove(key);
+        if (variable == null) {
+            return null;
+        }
+        if (variable.slotted) {
+            // Still referenced by its slot
+            variables.put(key, variable);
+            return setValue(variable, ABSENT);
+        }
+        return variable.value;
     }
 
     /**
@@ -99,7 +242,7 @@ public class JMeterVariables {
      * @param value the variable value
      */
     public void put(String key, String value) {
-        variables.put(key, value);
+        putValue(key, value);
     }
 
     /**
@@ -109,7 +252,27 @@ public class JMeterVariables {
      * @param value the variable value
      */
     public void putObject(String key, Object value) {
-        variables.put(key, value);
+        putValue(key, value);
+    }
+
+    private void putValue(String key, Object value) {
+        Variable variable = variables.get(key);
+        if (variable == null) {
+            variables.put(key, new Variable(value));
+        } else {
+            setValue(variable, value);
+        }
+    }
+
+    /**
+     * Creates or updates a variable by slot.
+     *
+     * @param slot the slot returned by {@link #getSlot(String)}
+     * @param value the variable value, {@code null} removes the variable
+     * @since 4.1
+     */
+    public void putObject(int slot, Object value) {
+        setValue(getSlotVariable(slot), value == null ? ABSENT : value);
     }
 
     /**
@@ -117,15 +280,22 @@ public class JMeterVariables {
      * @param vars map with the entries to be updated
      */
     public void putAll(Map<String, ?> vars) {
-        variables.putAll(vars);
+        for (Map.Entry<String, ?> entry : vars.entrySet()) {
+            putValue(entry.getKey(), entry.getValue());
+        }
     }
 
     /**
      * Updates the variables with all entries found in the variables in {@code vars}
-     * @param vars {@link JMeterVariables} with the entries to be updated
+     * @param vars {@link JMeterVariables} with the entries to be updated, not modified
      */
     public void putAll(JMeterVariables vars) {
-        putAll(vars.variables);
+        for (Map.Entry<String, Variable> entry : vars.variables.entrySet()) {
+            Object value = entry.getValue().value;
+            if (value != ABSENT) {
+                putValue(entry.getKey(), value);
+            }
+        }
     }
 
     /**
@@ -135,7 +305,21 @@ public class JMeterVariables {
      * @return the value of the variable or a toString called on it if it's non String, or {@code null} if it does not exist
      */
     public String get(String key) {
-        Object o = variables.get(key);
+        return asString(getObject(key));
+    }
+
+    /**
+     * Gets the value of a variable by slot, converted to a String.
+     *
+     * @param slot the slot returned by {@link #getSlot(String)}
+     * @return the value of the variable or a toString called on it if it's non String, or {@code null} if it does not exist
+     * @since 4.1
+     */
+    public String get(int slot) {
+        return asString(getObject(slot));
+    }
+
+    private static String asString(Object o) {
         if(o instanceof String) {
             return (String) o;
         } else if (o != null) {
@@ -152,7 +336,63 @@ public class JMeterVariables {
      * @return the value of the variable, or {@code null} if it does not exist
      */
     public Object getObject(String key) {
-        return variables.get(key);
+        return valueOf(variables.get(key));
+    }
+
+    /**
+     * Gets the value of a variable by slot (not converted to String).
+     *
+     * @param slot the slot returned by {@link #getSlot(String)}
+     * @return the value of the variable, or {@code null} if it does not exist
+     * @since 4.1
+     */
+    public Object getObject(int slot) {
+        return valueOf(getSlotVariable(slot));
+    }
+
+    /**
+     * Read-only view of the variables, skipping the removed ones still
+     * referenced by a slot
+     */
+    private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            final Iterator<Entry<String, Variable>> iterator = variables.entrySet().iterator();
+            return new Iterator<Entry<String, Object>>() {
+                private Entry<String, Variable> next = advance();
+
+                private Entry<String, Variable> advance() {
+                    while (iterator.hasNext()) {
+                        Entry<String, Variable> entry = iterator.next();
+                        if (entry.getValue().value != ABSENT) {
+                            return entry;
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Entry<String, Object> next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Entry<String, Object> entry =
+                            new AbstractMap.SimpleImmutableEntry<>(next.getKey(), next.getValue().value);
+                    next = advance();
+                    return entry;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return variables.size() - absentCount;
+        }
     }
 
     /**
@@ -161,7 +401,7 @@ public class JMeterVariables {
      * @return the iterator
      */
     public Iterator<Entry<String, Object>> getIterator(){
-        return Collections.unmodifiableMap(variables).entrySet().iterator() ;
+        return entrySet().iterator();
     }
 
     // Used by DebugSampler
@@ -169,6 +409,6 @@ public class JMeterVariables {
      * @return an unmodifiable view of the entries contained in {@link JMeterVariables}
      */
     public Set<Entry<String, Object>> entrySet(){
-        return Collections.unmodifiableMap(variables).entrySet();
+        return Collections.unmodifiableSet(new EntrySet());
     }
 }
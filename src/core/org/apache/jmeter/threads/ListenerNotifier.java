@@ -32,17 +32,22 @@ package org.apache.jmeter.threads;
 import java.io.Serializable;
 import java.util.List;
 
+import org.apache.jmeter.samplers.AsyncSampleListener;
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testbeans.TestBeanHelper;
 import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.util.JMeterUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Processes sample events. <br>
  * The current implementation processes events in the calling thread
- * using {@link #notifyListeners(SampleEvent, List)} <br>
+ * using {@link #notifyListeners(SampleEvent, List)}, except for the
+ * {@link AsyncSampleListener} listeners when <code>listener.async_dispatch</code>
+ * is true: their events are queued and delivered by worker threads. <br>
  * Thread safe class 
  */
 public class ListenerNotifier implements Serializable {
@@ -52,9 +57,57 @@ public class ListenerNotifier implements Serializable {
     private static final long serialVersionUID = -4861457279068497917L;
     private static final Logger log = LoggerFactory.getLogger(ListenerNotifier.class);
 
+    /**
+     * Read on first use, as the properties are not loaded when this class
+     * is
+     */
+    private static final class AsyncDispatchConfig {
+        private static final boolean ENABLED =
+                JMeterUtils.getPropDefault("listener.async_dispatch", false); // $NON-NLS-1$
+
+        private static final int THREADS = Math.max(1,
+                JMeterUtils.getPropDefault("listener.async_dispatch.threads", 2)); // $NON-NLS-1$
+
+        private static final int QUEUE_SIZE = Math.max(1,
+                JMeterUtils.getPropDefault("listener.async_dispatch.queue_size", 10000)); // $NON-NLS-1$
+
+        private static final boolean DROP_WHEN_FULL = isDropWhenFull();
+
+        private static boolean isDropWhenFull() {
+            String policy = JMeterUtils.getPropDefault(
+                    "listener.async_dispatch.queue_full_policy", "block").trim(); // $NON-NLS-1$ $NON-NLS-2$
+            boolean drop = "drop".equalsIgnoreCase(policy); // $NON-NLS-1$
+            if (!drop && !"block".equalsIgnoreCase(policy)) { // $NON-NLS-1$
+                log.warn("Unknown listener.async_dispatch.queue_full_policy '{}', using block", policy);
+            }
+            return drop;
+        }
+    }
+
+    /** Dispatcher of the running test, created on first use, updated under the class lock */
+    private static volatile AsyncListenerDispatcher asyncDispatcher;
+
+    private static AsyncListenerDispatcher getAsyncDispatcher() {
+        AsyncListenerDispatcher dispatcher = asyncDispatcher;
+        if (dispatcher == null) {
+            synchronized (ListenerNotifier.class) {
+                dispatcher = asyncDispatcher;
+                if (dispatcher == null) {
+                    dispatcher = new AsyncListenerDispatcher(AsyncDispatchConfig.THREADS,
+                            AsyncDispatchConfig.QUEUE_SIZE, AsyncDispatchConfig.DROP_WHEN_FULL);
+                    asyncDispatcher = dispatcher;
+                }
+            }
+        }
+        return dispatcher;
+    }
 
     /**
      * Notify a list of listeners that a sample has occurred.
+     * <p>
+     * The {@link AsyncSampleListener} listeners notified asynchronously get
+     * an event holding a snapshot of the result, as the sampling thread may
+     * still update it, for instance when adding it to a transaction.
      *
      * @param res
      *            the sample event that has occurred. Must be non-null.
@@ -64,7 +117,18 @@ public class ListenerNotifier implements Serializable {
      *            elements.
      */
     public void notifyListeners(SampleEvent res, List<SampleListener> listeners) {
+        AsyncListenerDispatcher dispatcher = null;
+        SampleEvent snapshot = null;
         for (SampleListener sampleListener : listeners) {
+            if (sampleListener instanceof AsyncSampleListener && AsyncDispatchConfig.ENABLED) {
+                if (dispatcher == null) {
+                    dispatcher = getAsyncDispatcher();
+                    SampleResult result = res.getResult();
+                    snapshot = result != null ? res.withResult(result.snapshot()) : res;
+                }
+                dispatcher.dispatch(sampleListener, snapshot);
+                continue;
+            }
             try {
                 TestBeanHelper.prepare((TestElement) sampleListener);
                 sampleListener.sampleOccurred(res);
@@ -75,4 +139,22 @@ public class ListenerNotifier implements Serializable {
         }
     }
 
+    /**
+     * Waits for the listeners notified asynchronously to receive all their
+     * events, then stops the threads notifying them. Does nothing when no
+     * event was dispatched asynchronously.
+     *
+     * @since 4.1
+     */
+    public static void waitForAsyncListeners() {
+        AsyncListenerDispatcher dispatcher;
+        synchronized (ListenerNotifier.class) {
+            dispatcher = asyncDispatcher;
+            asyncDispatcher = null;
+        }
+        if (dispatcher != null) {
+            dispatcher.waitForListeners();
+            dispatcher.shutdown();
+        }
+    }
 }
@@ -18,6 +18,7 @@
 
 package org.apache.jmeter.threads;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.jmeter.assertions.Assertion;
@@ -25,6 +26,7 @@ import org.apache.jmeter.config.ConfigTestElement;
 import org.apache.jmeter.control.Controller;
 import org.apache.jmeter.processor.PostProcessor;
 import org.apache.jmeter.processor.PreProcessor;
+import org.apache.jmeter.samplers.ResponseDataUsage;
 import org.apache.jmeter.samplers.SampleListener;
 import org.apache.jmeter.samplers.Sampler;
 import org.apache.jmeter.testelement.TestElement;
@@ -61,6 +63,11 @@ public class SamplePackage {
 
     private Sampler sampler;
 
+    /** computed on first use, negative until then */
+    private long responseDataUsage = -1;
+
+    private boolean responseDataMD5Used;
+
     public SamplePackage(
             List<ConfigTestElement> configs,
             List<SampleListener> listeners,
@@ -140,6 +147,7 @@ public class SamplePackage {
      */
     public void addSampleListener(SampleListener listener) {
         sampleListeners.add(listener);
+        responseDataUsage = -1;
     }
 
     /**
@@ -156,6 +164,7 @@ public class SamplePackage {
      */
     public void addPostProcessor(PostProcessor ex) {
         postProcessors.add(ex);
+        responseDataUsage = -1;
     }
 
     /**
@@ -180,6 +189,7 @@ public class SamplePackage {
      */
     public void addAssertion(Assertion asser) {
         assertions.add(asser);
+        responseDataUsage = -1;
     }
 
     /**
@@ -227,4 +237,50 @@ public class SamplePackage {
         return configs;
     }
 
+    /**
+     * Returns how much of the response data is used by the listeners,
+     * assertions and post processors of the sampler. Elements that do not
+     * implement {@link ResponseDataUsage} are considered to use all the data.
+     *
+     * @return the number of leading bytes of the response data used,
+     *         {@link ResponseDataUsage#NONE} or {@link ResponseDataUsage#ALL}
+     * @since 4.1
+     */
+    public long getResponseDataUsage() {
+        if (responseDataUsage < 0) {
+            computeResponseDataUsage();
+        }
+        return responseDataUsage;
+    }
+
+    /**
+     * @return true if the listeners, assertions or post processors of the
+     *         sampler use the MD5 of the response data
+     * @see ResponseDataUsage#usesResponseDataMD5()
+     * @since 4.1
+     */
+    public boolean isResponseDataMD5Used() {
+        if (responseDataUsage < 0) {
+            computeResponseDataUsage();
+        }
+        return responseDataMD5Used;
+    }
+
+    private void computeResponseDataUsage() {
+        long usage = ResponseDataUsage.NONE;
+        boolean md5Used = false;
+        for (List<?> elements : Arrays.asList(sampleListeners, assertions, postProcessors)) {
+            for (Object element : elements) {
+                if (element instanceof ResponseDataUsage) {
+                    ResponseDataUsage elementUsage = (ResponseDataUsage) element;
+                    usage = Math.max(usage, elementUsage.getResponseDataUsage());
+                    md5Used |= elementUsage.usesResponseDataMD5();
+                } else {
+                    usage = ResponseDataUsage.ALL;
+                }
+            }
+        }
+        responseDataMD5Used = md5Used;
+        responseDataUsage = usage;
+    }
 }
@@ -18,15 +18,15 @@
 
 package org.apache.jmeter.threads;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.jmeter.assertions.Assertion;
 import org.apache.jmeter.config.ConfigTestElement;
 import org.apache.jmeter.control.Controller;
 import org.apache.jmeter.control.TransactionController;
@@ -34,13 +34,9 @@ import org.apache.jmeter.control.TransactionSampler;
 import org.apache.jmeter.engine.event.LoopIterationListener;
 import org.apache.jmeter.engine.util.ConfigMergabilityIndicator;
 import org.apache.jmeter.engine.util.NoConfigMerge;
-import org.apache.jmeter.processor.PostProcessor;
-import org.apache.jmeter.processor.PreProcessor;
-import org.apache.jmeter.samplers.SampleListener;
 import org.apache.jmeter.samplers.Sampler;
 import org.apache.jmeter.testbeans.TestBeanHelper;
 import org.apache.jmeter.testelement.TestElement;
-import org.apache.jmeter.timers.Timer;
 import org.apache.jorphan.collections.HashTree;
 import org.apache.jorphan.collections.HashTreeTraverser;
 import org.slf4j.Logger;
@@ -63,10 +59,16 @@ public class TestCompiler implements HashTreeTraverser {
      * If the ObjectPair (child, parent) is present, then the child has been added.
      * Otherwise, the child is added to the parent and the pair is added to the Set.
      */
-    private static final Set<ObjectPair> PAIRING = new HashSet<>();
+    private static final Set<ObjectPair> PAIRING = ConcurrentHashMap.newKeySet();
 
     private final LinkedList<TestElement> stack = new LinkedList<>();
 
+    /** traversal indexes of the elements of {@link #stack} */
+    private final LinkedList<Integer> indexStack = new LinkedList<>();
+
+    /** nodes of the tree in traversal order */
+    private final List<Object> nodes = new ArrayList<>();
+
     private final Map<Sampler, SamplePackage> samplerConfigMap = new HashMap<>();
 
     private final Map<TransactionController, SamplePackage> transactionControllerConfigMap =
@@ -74,19 +76,29 @@ public class TestCompiler implements HashTreeTraverser {
 
     private final HashTree testTree;
 
+    /** where the package elements are, compiled from testTree if not provided */
+    private TestCompilerPlan plan;
+
     public TestCompiler(HashTree testTree) {
         this.testTree = testTree;
     }
 
+    /**
+     * Sets the plan to use instead of computing it from the test tree.
+     *
+     * @param plan the plan computed from a tree this tree is a clone of, the
+     *            test tree is still compiled when it does not match
+     */
+    void setPlan(TestCompilerPlan plan) {
+        this.plan = plan;
+    }
+
     /**
      * Clears the pairing Set Called by StandardJmeterEngine at the start of a
      * test run.
      */
     public static void initialize() {
-        // synch is probably not needed as only called before run starts
-        synchronized (PAIRING) {
-            PAIRING.clear();
-        }
+        PAIRING.clear();
     }
 
     /**
@@ -124,7 +136,19 @@ public class TestCompiler implements HashTreeTraverser {
     /** {@inheritDoc} */
     @Override
     public void addNode(Object node, HashTree subTree) {
+        if (stack.isEmpty() && plan != null && nodes.size() == plan.size()) {
+            // The tree is traversed again
+            nodes.clear();
+        }
+        int index = nodes.size();
+        int parent = indexStack.isEmpty() ? -1 : indexStack.getLast().intValue();
+        if (plan != null && !plan.matches(index, node, parent)) {
+            log.debug("Tree does not match the compiled plan, compiling it");
+            plan = null;
+        }
+        nodes.add(node);
         stack.addLast((TestElement) node);
+        indexStack.addLast(Integer.valueOf(index));
     }
 
     /** {@inheritDoc} */
@@ -135,13 +159,12 @@ public class TestCompiler implements HashTreeTraverser {
         }
         TestElement child = stack.getLast();
         trackIterationListeners(stack);
-        if (child instanceof Sampler) {
-            saveSamplerConfigs((Sampler) child);
-        }
-        else if(child instanceof TransactionController) {
-            saveTransactionControllerConfigs((TransactionController) child);
-        }
         stack.removeLast();
+        int subTreeStart = indexStack.removeLast().intValue();
+        if (plan != null && !plan.matchesEnd(subTreeStart, nodes.size())) {
+            log.debug("Tree does not match the compiled plan, compiling it");
+            plan = null;
+        }
         if (!stack.isEmpty()) {
             TestElement parent = stack.getLast();
             boolean duplicate = false;
@@ -152,13 +175,11 @@ public class TestCompiler implements HashTreeTraverser {
                     duplicate = !te.addTestElementOnce(child);
                 } else { // this is only possible for 3rd party controllers by default
                     ObjectPair pair = new ObjectPair(child, parent);
-                    synchronized (PAIRING) {// Called from multiple threads
-                        if (!PAIRING.contains(pair)) {
-                            parent.addTestElement(child);
-                            PAIRING.add(pair);
-                        } else {
-                            duplicate = true;
-                        }
+                    // PAIRING is a concurrent Set, called from multiple threads
+                    if (PAIRING.add(pair)) {
+                        parent.addTestElement(child);
+                    } else {
+                        duplicate = true;
                     }
                 }
             }
@@ -167,6 +188,9 @@ public class TestCompiler implements HashTreeTraverser {
                     log.warn("Unexpected duplicate for {} and {}", parent.getClass(), child.getClass());
                 }
             }
+        } else {
+            // All the elements of the packages of this top level node are known
+            savePackages(subTreeStart);
         }
     }
 
@@ -193,86 +217,32 @@ public class TestCompiler implements HashTreeTraverser {
     public void processPath() {
     }
 
-    private void saveSamplerConfigs(Sampler sam) {
-        List<ConfigTestElement> configs = new LinkedList<>();
-        List<Controller> controllers = new LinkedList<>();
-        List<SampleListener> listeners = new LinkedList<>();
-        List<Timer> timers = new LinkedList<>();
-        List<Assertion> assertions = new LinkedList<>();
-        LinkedList<PostProcessor> posts = new LinkedList<>();
-        LinkedList<PreProcessor> pres = new LinkedList<>();
-        for (int i = stack.size(); i > 0; i--) {
-            addDirectParentControllers(controllers, stack.get(i - 1));
-            List<PreProcessor>  tempPre = new LinkedList<>();
-            List<PostProcessor> tempPost = new LinkedList<>();
-            List<Assertion> tempAssertions = new LinkedList<>();
-            for (Object item : testTree.list(stack.subList(0, i))) {
-                if (item instanceof ConfigTestElement) {
-                    configs.add((ConfigTestElement) item);
-                }
-                if (item instanceof SampleListener) {
-                    listeners.add((SampleListener) item);
-                }
-                if (item instanceof Timer) {
-                    timers.add((Timer) item);
-                }
-                if (item instanceof Assertion) {
-                    tempAssertions.add((Assertion) item);
-                }
-                if (item instanceof PostProcessor) {
-                    tempPost.add((PostProcessor) item);
-                }
-                if (item instanceof PreProcessor) {
-                    tempPre.add((PreProcessor) item);
-                }
-            }
-            assertions.addAll(0, tempAssertions);
-            pres.addAll(0, tempPre);
-            posts.addAll(0, tempPost);
-        }
-
-        SamplePackage pack = new SamplePackage(configs, listeners, timers, assertions,
-                posts, pres, controllers);
-        pack.setSampler(sam);
-        pack.setRunningVersion(true);
-        samplerConfigMap.put(sam, pack);
-    }
-
-    private void saveTransactionControllerConfigs(TransactionController tc) {
-        List<ConfigTestElement> configs = new LinkedList<>();
-        List<Controller> controllers = new LinkedList<>();
-        List<SampleListener> listeners = new LinkedList<>();
-        List<Timer> timers = new LinkedList<>();
-        List<Assertion> assertions = new LinkedList<>();
-        LinkedList<PostProcessor> posts = new LinkedList<>();
-        LinkedList<PreProcessor> pres = new LinkedList<>();
-        for (int i = stack.size(); i > 0; i--) {
-            addDirectParentControllers(controllers, stack.get(i - 1));
-            for (Object item : testTree.list(stack.subList(0, i))) {
-                if (item instanceof SampleListener) {
-                    listeners.add((SampleListener) item);
-                }
-                if (item instanceof Assertion) {
-                    assertions.add((Assertion) item);
-                }
-            }
-        }
-
-        SamplePackage pack = new SamplePackage(configs, listeners, timers, assertions,
-                posts, pres, controllers);
-        pack.setSampler(new TransactionSampler(tc, tc.getName()));
-        pack.setRunningVersion(true);
-        transactionControllerConfigMap.put(tc, pack);
-    }
-
     /**
-     * @param controllers
-     * @param maybeController
+     * Creates the packages of the samplers and transaction controllers of a
+     * top level node and its sub tree
+     *
+     * @param subTreeStart the traversal index of the top level node
      */
-    private void addDirectParentControllers(List<Controller> controllers, TestElement maybeController) {
-        if (maybeController instanceof Controller) {
-            log.debug("adding controller: {} to sampler config", maybeController);
-            controllers.add((Controller) maybeController);
+    private void savePackages(int subTreeStart) {
+        if (plan == null) {
+            plan = TestCompilerPlan.compile(testTree);
+        }
+        for (int index = subTreeStart; index < nodes.size(); index++) {
+            if (!plan.hasPackage(index)) {
+                continue;
+            }
+            Object node = nodes.get(index);
+            SamplePackage pack = plan.createSamplePackage(index, nodes);
+            if (node instanceof Sampler) {
+                pack.setSampler((Sampler) node);
+                pack.setRunningVersion(true);
+                samplerConfigMap.put((Sampler) node, pack);
+            } else {
+                TransactionController tc = (TransactionController) node;
+                pack.setSampler(new TransactionSampler(tc, tc.getName()));
+                pack.setRunningVersion(true);
+                transactionControllerConfigMap.put(tc, pack);
+            }
         }
     }
 
@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.threads;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.jmeter.assertions.Assertion;
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.control.Controller;
+import org.apache.jmeter.control.TransactionController;
+import org.apache.jmeter.processor.PostProcessor;
+import org.apache.jmeter.processor.PreProcessor;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.timers.Timer;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.HashTreeTraverser;
+
+/**
+ * Immutable description of the {@link SamplePackage}s of a test tree, used by
+ * {@link TestCompiler}.
+ * <p>
+ * The nodes of the tree are identified by their index in traversal order, so
+ * that a plan computed once for a thread group tree can be applied to all the
+ * clones of this tree made for its threads.
+ *
+ * @since 4.1
+ */
+final class TestCompilerPlan {
+
+    private static final int[] NONE = new int[0];
+
+    /** classes of the nodes, indexed by traversal order */
+    private final Class<?>[] nodeClasses;
+
+    /** indexes of the parents of the nodes, -1 for the top level nodes */
+    private final int[] parents;
+
+    /** indexes following the last nodes of the sub trees of the nodes */
+    private final int[] ends;
+
+    /** packages of the samplers and transaction controllers, null for other nodes */
+    private final PackagePlan[] packages;
+
+    private TestCompilerPlan(Class<?>[] nodeClasses, int[] parents, int[] ends,
+            PackagePlan[] packages) {
+        this.nodeClasses = nodeClasses;
+        this.parents = parents;
+        this.ends = ends;
+        this.packages = packages;
+    }
+
+    /**
+     * Computes the plan of a test tree.
+     *
+     * @param testTree the tree, the same as the cloned trees of the threads
+     * @return the plan
+     */
+    static TestCompilerPlan compile(HashTree testTree) {
+        Builder builder = new Builder();
+        testTree.traverse(builder);
+        return builder.build();
+    }
+
+    /**
+     * @return the number of nodes of the tree
+     */
+    int size() {
+        return nodeClasses.length;
+    }
+
+    /**
+     * Checks that a node of a tree has the same position and class as the
+     * node of the tree this plan was computed from.
+     *
+     * @param index the traversal index of the node
+     * @param node the node
+     * @param parent the traversal index of its parent, -1 for top level nodes
+     * @return true if the node matches
+     */
+    boolean matches(int index, Object node, int parent) {
+        return index < nodeClasses.length
+                && nodeClasses[index] == node.getClass()
+                && parents[index] == parent;
+    }
+
+    /**
+     * @param index the traversal index of a node matching this plan
+     * @param end the index following the last node of its sub tree
+     * @return true if the sub tree of the node has the planned size
+     */
+    boolean matchesEnd(int index, int end) {
+        return ends[index] == end;
+    }
+
+    /**
+     * @param index the traversal index of a sampler or transaction controller
+     * @return true if a package is planned for the node
+     */
+    boolean hasPackage(int index) {
+        return index < packages.length && packages[index] != null;
+    }
+
+    /**
+     * Creates the package of a sampler or transaction controller from the
+     * nodes of a tree matching this plan.
+     *
+     * @param index the traversal index of the sampler or transaction controller
+     * @param nodes the nodes of the tree, in traversal order
+     * @return the package, without sampler
+     */
+    SamplePackage createSamplePackage(int index, List<Object> nodes) {
+        PackagePlan plan = packages[index];
+        return new SamplePackage(
+                TestCompilerPlan.<ConfigTestElement>select(plan.configs, nodes),
+                TestCompilerPlan.<SampleListener>select(plan.listeners, nodes),
+                TestCompilerPlan.<Timer>select(plan.timers, nodes),
+                TestCompilerPlan.<Assertion>select(plan.assertions, nodes),
+                TestCompilerPlan.<PostProcessor>select(plan.posts, nodes),
+                TestCompilerPlan.<PreProcessor>select(plan.pres, nodes),
+                TestCompilerPlan.<Controller>select(plan.controllers, nodes));
+    }
+
+    @SuppressWarnings("unchecked") // The plan only contains indexes of nodes of the right type
+    private static <T> List<T> select(int[] indexes, List<Object> nodes) {
+        List<T> result = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            result.add((T) nodes.get(index));
+        }
+        return result;
+    }
+
+    private static int[] toArray(List<Integer> indexes) {
+        if (indexes.isEmpty()) {
+            return NONE;
+        }
+        int[] result = new int[indexes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = indexes.get(i).intValue();
+        }
+        return result;
+    }
+
+    /**
+     * Indexes of the elements of a {@link SamplePackage}
+     */
+    private static final class PackagePlan {
+        private final int[] configs;
+        private final int[] listeners;
+        private final int[] timers;
+        private final int[] assertions;
+        private final int[] posts;
+        private final int[] pres;
+        private final int[] controllers;
+
+        private PackagePlan(List<Integer> configs, List<Integer> listeners, List<Integer> timers,
+                List<Integer> assertions, List<Integer> posts, List<Integer> pres,
+                List<Integer> controllers) {
+            this.configs = toArray(configs);
+            this.listeners = toArray(listeners);
+            this.timers = toArray(timers);
+            this.assertions = toArray(assertions);
+            this.posts = toArray(posts);
+            this.pres = toArray(pres);
+            this.controllers = toArray(controllers);
+        }
+    }
+
+    /**
+     * Collects the nodes of the tree and the elements of the packages in
+     * the order the former {@link TestCompiler} implementation did
+     */
+    private static final class Builder implements HashTreeTraverser {
+        private final List<Object> nodes = new ArrayList<>();
+        private final List<Integer> parents = new ArrayList<>();
+        private final List<Integer> ends = new ArrayList<>();
+        private final List<List<Integer>> children = new ArrayList<>();
+        private final LinkedList<Integer> stack = new LinkedList<>();
+        /** paths of the samplers and transaction controllers, null for other nodes */
+        private final List<List<Integer>> paths = new ArrayList<>();
+
+        @Override
+        public void addNode(Object node, HashTree subTree) {
+            Integer index = Integer.valueOf(nodes.size());
+            nodes.add(node);
+            children.add(new ArrayList<>());
+            paths.add(null);
+            ends.add(null);
+            if (stack.isEmpty()) {
+                parents.add(Integer.valueOf(-1));
+            } else {
+                parents.add(stack.getLast());
+                children.get(stack.getLast().intValue()).add(index);
+            }
+            stack.addLast(index);
+        }
+
+        @Override
+        public void subtractNode() {
+            int index = stack.getLast().intValue();
+            Object node = nodes.get(index);
+            ends.set(index, Integer.valueOf(nodes.size()));
+            if (node instanceof Sampler || node instanceof TransactionController) {
+                // The packages also contain the next siblings of the ancestors,
+                // they are planned once the whole tree is known
+                paths.set(index, new ArrayList<>(stack));
+            }
+            stack.removeLast();
+        }
+
+        @Override
+        public void processPath() {
+        }
+
+        private PackagePlan planSampler(List<Integer> stack) {
+            List<Integer> configs = new ArrayList<>();
+            List<Integer> controllers = new ArrayList<>();
+            List<Integer> listeners = new ArrayList<>();
+            List<Integer> timers = new ArrayList<>();
+            List<Integer> assertions = new ArrayList<>();
+            List<Integer> posts = new ArrayList<>();
+            List<Integer> pres = new ArrayList<>();
+            for (int i = stack.size(); i > 0; i--) {
+                Integer parent = stack.get(i - 1);
+                addController(controllers, parent);
+                List<Integer> tempPre = new ArrayList<>();
+                List<Integer> tempPost = new ArrayList<>();
+                List<Integer> tempAssertions = new ArrayList<>();
+                for (Integer child : children.get(parent.intValue())) {
+                    Object item = nodes.get(child.intValue());
+                    if (item instanceof ConfigTestElement) {
+                        configs.add(child);
+                    }
+                    if (item instanceof SampleListener) {
+                        listeners.add(child);
+                    }
+                    if (item instanceof Timer) {
+                        timers.add(child);
+                    }
+                    if (item instanceof Assertion) {
+                        tempAssertions.add(child);
+                    }
+                    if (item instanceof PostProcessor) {
+                        tempPost.add(child);
+                    }
+                    if (item instanceof PreProcessor) {
+                        tempPre.add(child);
+                    }
+                }
+                assertions.addAll(0, tempAssertions);
+                pres.addAll(0, tempPre);
+                posts.addAll(0, tempPost);
+            }
+            return new PackagePlan(configs, listeners, timers, assertions, posts, pres, controllers);
+        }
+
+        private PackagePlan planTransactionController(List<Integer> stack) {
+            List<Integer> controllers = new ArrayList<>();
+            List<Integer> listeners = new ArrayList<>();
+            List<Integer> assertions = new ArrayList<>();
+            for (int i = stack.size(); i > 0; i--) {
+                Integer parent = stack.get(i - 1);
+                addController(controllers, parent);
+                for (Integer child : children.get(parent.intValue())) {
+                    Object item = nodes.get(child.intValue());
+                    if (item instanceof SampleListener) {
+                        listeners.add(child);
+                    }
+                    if (item instanceof Assertion) {
+                        assertions.add(child);
+                    }
+                }
+            }
+            List<Integer> none = new ArrayList<>(0);
+            return new PackagePlan(none, listeners, none, assertions, none, none, controllers);
+        }
+
+        private void addController(List<Integer> controllers, Integer index) {
+            if (nodes.get(index.intValue()) instanceof Controller) {
+                controllers.add(index);
+            }
+        }
+
+        private TestCompilerPlan build() {
+            Class<?>[] nodeClasses = new Class<?>[nodes.size()];
+            PackagePlan[] packages = new PackagePlan[nodes.size()];
+            for (int i = 0; i < nodeClasses.length; i++) {
+                Object node = nodes.get(i);
+                nodeClasses[i] = node.getClass();
+                List<Integer> path = paths.get(i);
+                if (path == null) {
+                    continue;
+                }
+                if (node instanceof Sampler) {
+                    packages[i] = planSampler(path);
+                } else {
+                    packages[i] = planTransactionController(path);
+                }
+            }
+            return new TestCompilerPlan(nodeClasses, toArray(parents), toArray(ends), packages);
+        }
+    }
+}
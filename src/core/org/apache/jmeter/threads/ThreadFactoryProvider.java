@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.threads;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides the {@link ThreadFactory} used by thread groups to run their {@link JMeterThread}s.
+ * <p>
+ * Supported execution modes are:
+ * <ul>
+ *  <li><code>platform</code> (default): one non daemon platform thread per {@link JMeterThread}</li>
+ *  <li><code>virtual</code>: one virtual thread per {@link JMeterThread}, only available when running on a JVM
+ *  that supports them, otherwise JMeter falls back to platform threads</li>
+ *  <li>the fully qualified name of a {@link ThreadFactory} implementation having a public no-arg constructor</li>
+ * </ul>
+ * @since 4.1
+ */
+public final class ThreadFactoryProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(ThreadFactoryProvider.class);
+
+    /** Name of the JMeter property holding the default execution mode */
+    public static final String EXECUTION_MODE_PROPERTY = "jmeterthread.execution_mode"; // $NON-NLS-1$
+
+    public static final String MODE_PLATFORM = "platform"; // $NON-NLS-1$
+
+    public static final String MODE_VIRTUAL = "virtual"; // $NON-NLS-1$
+
+    private static final ThreadFactory PLATFORM_THREAD_FACTORY = runnable -> {
+        Thread thread = new Thread(runnable);
+        // ThreadStarter is daemon, but we don't want sampler threads to be so too
+        thread.setDaemon(false);
+        return thread;
+    };
+
+    private ThreadFactoryProvider() {
+        super();
+    }
+
+    /**
+     * @return the execution mode configured through {@value #EXECUTION_MODE_PROPERTY}
+     */
+    public static String getDefaultExecutionMode() {
+        return JMeterUtils.getPropDefault(EXECUTION_MODE_PROPERTY, MODE_PLATFORM);
+    }
+
+    /**
+     * Get the {@link ThreadFactory} for the execution mode
+     * @param mode execution mode, if blank the value of {@value #EXECUTION_MODE_PROPERTY} is used
+     * @return {@link ThreadFactory}
+     * @throws IllegalArgumentException if mode is neither a known mode nor a usable {@link ThreadFactory} class name
+     */
+    public static ThreadFactory getThreadFactory(String mode) {
+        String type = StringUtils.isBlank(mode) ? getDefaultExecutionMode() : mode.trim();
+        if (type.equalsIgnoreCase(MODE_PLATFORM)) {
+            return PLATFORM_THREAD_FACTORY;
+        } else if (type.equalsIgnoreCase(MODE_VIRTUAL)) {
+            ThreadFactory virtualThreadFactory = createVirtualThreadFactory();
+            if (virtualThreadFactory == null) {
+                log.warn("Virtual threads are not available on Java {}, falling back to platform threads",
+                        System.getProperty("java.version")); // $NON-NLS-1$
+                return PLATFORM_THREAD_FACTORY;
+            }
+            return virtualThreadFactory;
+        }
+        // should be a user provided class name
+        try {
+            Class<?> clazz = Class.forName(type);
+            return (ThreadFactory) clazz.getConstructor().newInstance();
+        } catch (Exception e) {
+            log.error("Unable to create a thread factory from class:'{}', search for {} "
+                    + "in jmeter.properties for correct configuration options", type, EXECUTION_MODE_PROPERTY);
+            throw new IllegalArgumentException("Unable to create a thread factory from mode or class:'"
+                    + type + "', message:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return a {@link ThreadFactory} creating virtual threads or null if the JVM does not support them
+     */
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            // Use reflection as JMeter must still run on Java 8
+            Method ofVirtual = Thread.class.getMethod("ofVirtual"); // $NON-NLS-1$
+            Object builder = ofVirtual.invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory"); // $NON-NLS-1$
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (NoSuchMethodException | ClassNotFoundException e) { // NOSONAR Expected on JVM without virtual threads
+            return null;
+        } catch (Exception e) {
+            log.warn("Unable to create virtual thread factory", e);
+            return null;
+        }
+    }
+
+    /**
+     * Create a new, not yet started, {@link Thread} running jmeterThread
+     * @param threadFactory {@link ThreadFactory} to use
+     * @param jmeterThread {@link JMeterThread} to run
+     * @return {@link Thread} named after jmeterThread
+     */
+    static Thread newThread(ThreadFactory threadFactory, JMeterThread jmeterThread) {
+        Thread thread = threadFactory.newThread(jmeterThread);
+        thread.setName(jmeterThread.getThreadName());
+        return thread;
+    }
+}
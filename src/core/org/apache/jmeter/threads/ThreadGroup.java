@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.jmeter.engine.StandardJMeterEngine;
@@ -74,6 +75,9 @@ public class ThreadGroup extends AbstractThreadGroup {
 
     private transient Thread threadStarter;
 
+    /** Creates the JVM threads running the JMeterThreads */
+    private transient ThreadFactory threadFactory;
+
     // List of active threads
     private final ConcurrentHashMap<JMeterThread, Thread> allThreads = new ConcurrentHashMap<>();
     
@@ -94,6 +98,9 @@ public class ThreadGroup extends AbstractThreadGroup {
     /** This property will be cloned */
     private ListedHashTree threadGroupTree;
 
+    /** Compiled once from threadGroupTree, shared by the threads */
+    private transient volatile TestCompilerPlan compilerPlan;
+
     /**
      * No-arg constructor.
      */
@@ -214,7 +221,9 @@ public class ThreadGroup extends AbstractThreadGroup {
         this.groupNumber = groupNum;
         this.notifier = notifier;
         this.threadGroupTree = threadGroupTree;
-        int numThreads = getNumThreads();
+        this.compilerPlan = TestCompilerPlan.compile(threadGroupTree);
+        this.threadFactory = createThreadFactory();
+        int numThreads = getNumThreadsToStart();
         int rampUpPeriodInSeconds = getRampUp();
         float perThreadDelayInMillis = (float) (rampUpPeriodInSeconds * 1000) / (float) getNumThreads();
 
@@ -236,6 +245,15 @@ public class ThreadGroup extends AbstractThreadGroup {
         log.info("Started thread group number {}", groupNumber);
     }
 
+    /**
+     * @return number of threads started with the group, the number of
+     *         threads of the group unless overridden
+     * @since 4.1
+     */
+    protected int getNumThreadsToStart() {
+        return getNumThreads();
+    }
+
     /**
      * Start a new {@link JMeterThread} and registers it
      * @param notifier {@link ListenerNotifier}
@@ -252,7 +270,7 @@ public class ThreadGroup extends AbstractThreadGroup {
         JMeterThread jmThread = makeThread(notifier, threadGroupTree, engine, threadNum, context);
         scheduleThread(jmThread, now); // set start and end time
         jmThread.setInitialDelay(delay);
-        Thread newThread = new Thread(jmThread, jmThread.getThreadName());
+        Thread newThread = ThreadFactoryProvider.newThread(threadFactory, jmThread);
         registerStartedThread(jmThread, newThread);
         newThread.start();
         return jmThread;
@@ -294,6 +312,7 @@ public class ThreadGroup extends AbstractThreadGroup {
         boolean onErrorStartNextLoop = getOnErrorStartNextLoop();
         String groupName = getName();
         final JMeterThread jmeterThread = new JMeterThread(cloneTree(threadGroupTree), this, notifier);
+        jmeterThread.setCompilerPlan(compilerPlan);
         jmeterThread.setThreadNum(threadNumber);
         jmeterThread.setThreadGroup(this);
         jmeterThread.setInitialContext(context);
@@ -323,6 +342,20 @@ public class ThreadGroup extends AbstractThreadGroup {
         return newJmThread;
     }
 
+    /**
+     * Start a new thread in the group, without changing its number of threads
+     * @param threadNum number of the new thread in the group
+     * @param engine {@link StandardJMeterEngine}
+     * @return {@link JMeterThread} newly created
+     * @since 4.1
+     */
+    protected JMeterThread startAdditionalThread(int threadNum, StandardJMeterEngine engine) {
+        JMeterThread newJmThread = startNewThread(notifier, threadGroupTree, engine, threadNum,
+                JMeterContextService.getContext(), System.currentTimeMillis(), 0);
+        JMeterContextService.addTotalThreads(1);
+        return newJmThread;
+    }
+
     /**
      * Stop thread called threadName:
      * <ol>
@@ -582,7 +615,7 @@ public class ThreadGroup extends AbstractThreadGroup {
                         endtime = endtime *1000 + System.currentTimeMillis();
                     }
                 }
-                final int numThreads = getNumThreads();
+                final int numThreads = getNumThreadsToStart();
                 final int perThreadDelayInMillis = Math.round((float) (getRampUp() * 1000) / (float) numThreads);
                 for (int threadNumber = 0; running && threadNumber < numThreads; threadNumber++) {
                     if (threadNumber > 0) {
@@ -597,8 +630,7 @@ public class ThreadGroup extends AbstractThreadGroup {
                         jmThread.setScheduled(true);
                         jmThread.setEndTime(endtime);
                     }
-                    Thread newThread = new Thread(jmThread, jmThread.getThreadName());
-                    newThread.setDaemon(false); // ThreadStarter is daemon, but we don't want sampler threads to be so too
+                    Thread newThread = ThreadFactoryProvider.newThread(threadFactory, jmThread);
                     registerStartedThread(jmThread, newThread);
                     newThread.start();
                 }
@@ -78,6 +78,11 @@ class UnmodifiableJMeterVariables extends JMeterVariables {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void putObject(int slot, Object value) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public void putAll(Map<String, ?> vars) {
         throw new UnsupportedOperationException();
@@ -93,6 +98,11 @@ class UnmodifiableJMeterVariables extends JMeterVariables {
         return variables.get(key);
     }
 
+    @Override
+    public String get(int slot) {
+        return variables.get(slot);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -120,6 +130,11 @@ class UnmodifiableJMeterVariables extends JMeterVariables {
         return variables.getObject(key);
     }
 
+    @Override
+    public Object getObject(int slot) {
+        return variables.getObject(slot);
+    }
+
     @Override
     public Iterator<Entry<String, Object>> getIterator() {
         return variables.getIterator();
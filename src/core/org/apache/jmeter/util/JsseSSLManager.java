@@ -26,11 +26,14 @@ import java.security.PrivateKey;
 import java.security.Provider;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
+import java.util.Enumeration;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509ExtendedKeyManager;
@@ -59,9 +62,21 @@ public class JsseSSLManager extends SSLManager {
     private static final String DEFAULT_SSL_PROTOCOL =
         JMeterUtils.getPropDefault("https.default.protocol","TLS"); // $NON-NLS-1$ // $NON-NLS-2$
 
+    /** Each thread has its own SSL sessions, reset on each iteration unless the context is cached */
+    private static final String SESSION_CACHE_PER_USER = "per_user"; // $NON-NLS-1$
+
+    /** All the threads share the SSL sessions */
+    private static final String SESSION_CACHE_SHARED = "shared"; // $NON-NLS-1$
+
+    /** SSL sessions are never resumed, each connection does a full handshake */
+    private static final String SESSION_CACHE_DISABLED = "disabled"; // $NON-NLS-1$
+
+    private static final String SESSION_CACHE_POLICY = getSessionCachePolicy();
+
     // Allow reversion to original shared session context
-    private static final boolean SHARED_SESSION_CONTEXT =
-        JMeterUtils.getPropDefault("https.sessioncontext.shared",false); // $NON-NLS-1$
+    private static final boolean SHARED_SESSION_CONTEXT = SESSION_CACHE_SHARED.equals(SESSION_CACHE_POLICY);
+
+    private static final boolean SESSION_CACHE_ENABLED = !SESSION_CACHE_DISABLED.equals(SESSION_CACHE_POLICY);
 
     /**
      * Characters per second, used to slow down sockets
@@ -71,7 +86,7 @@ public class JsseSSLManager extends SSLManager {
     static {
         if (log.isInfoEnabled()) {
             log.info("Using default SSL protocol: {}", DEFAULT_SSL_PROTOCOL);
-            log.info("SSL session context: {}", SHARED_SESSION_CONTEXT ? "shared" : "per-thread");
+            log.info("SSL session cache policy: {}", SESSION_CACHE_POLICY);
 
             if (CPS > 0) {
                 log.info("Setting up HTTPS SlowProtocol, cps={}", CPS);
@@ -79,6 +94,20 @@ public class JsseSSLManager extends SSLManager {
         }
     }
 
+    private static String getSessionCachePolicy() {
+        // https.sessioncontext.shared is kept as the default for backward compatibility
+        String defaultPolicy = JMeterUtils.getPropDefault("https.sessioncontext.shared", false) // $NON-NLS-1$
+                ? SESSION_CACHE_SHARED : SESSION_CACHE_PER_USER;
+        String policy = JMeterUtils.getPropDefault("https.session_cache.policy", defaultPolicy).trim(); // $NON-NLS-1$
+        if (!SESSION_CACHE_PER_USER.equals(policy)
+                && !SESSION_CACHE_SHARED.equals(policy)
+                && !SESSION_CACHE_DISABLED.equals(policy)) {
+            log.warn("Invalid value '{}' for https.session_cache.policy, using '{}'", policy, defaultPolicy);
+            return defaultPolicy;
+        }
+        return policy;
+    }
+
     /**
      * Cache the SecureRandom instance because it takes a long time to create
      */
@@ -155,6 +184,8 @@ public class JsseSSLManager extends SSLManager {
     /**
      * Returns the SSLContext we are using. This is either a context per thread,
      * or, for backwards compatibility, a single shared context.
+     * With the <code>disabled</code> session cache policy, the sessions of the
+     * context are invalidated so that the next handshake is a full one.
      *
      * @return The Context value
      * @throws GeneralSecurityException
@@ -179,9 +210,26 @@ public class JsseSSLManager extends SSLManager {
         if (log.isDebugEnabled()){
             log.debug("Using threadLocal SSL context for: {}", Thread.currentThread().getName());
         }
+        if (!SESSION_CACHE_ENABLED) {
+            invalidateSessions(sslContext);
+        }
         return sslContext;
     }
 
+    /*
+     * Invalidates the client sessions of the context, which cannot be resumed anymore.
+     * Done before the handshakes because TLSv1.3 session tickets are received after them.
+     */
+    private static void invalidateSessions(SSLContext sslContext) {
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        for (Enumeration<byte[]> ids = sessionContext.getIds(); ids.hasMoreElements();) {
+            SSLSession session = sessionContext.getSession(ids.nextElement());
+            if (session != null) {
+                session.invalidate();
+            }
+        }
+    }
+
     /**
      * Resets the SSLContext if using per-thread contexts.
      *
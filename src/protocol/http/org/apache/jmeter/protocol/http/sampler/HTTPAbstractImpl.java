@@ -37,6 +37,7 @@ import org.apache.jmeter.protocol.http.control.CacheManager;
 import org.apache.jmeter.protocol.http.control.CookieManager;
 import org.apache.jmeter.protocol.http.control.HeaderManager;
 import org.apache.jmeter.protocol.http.sampler.HTTPSamplerBase.SourceType;
+import org.apache.jmeter.protocol.http.sampler.ResourcesDownloader.DownloadStarter;
 import org.apache.jmeter.protocol.http.util.HTTPConstants;
 import org.apache.jmeter.protocol.http.util.HTTPConstantsInterface;
 import org.apache.jmeter.protocol.http.util.HTTPFileArg;
@@ -108,6 +109,16 @@ public abstract class HTTPAbstractImpl implements Interruptible, HTTPConstantsIn
     protected void notifyFirstSampleAfterLoopRestart() {
     }
 
+    /**
+     * See {@link HTTPSamplerBase#getResourceDownloadStarter(int)}
+     *
+     * @param depth Depth of the resources in the frame structure
+     * @return null, subclasses downloading the resources without blocking the thread override it
+     */
+    protected DownloadStarter getResourceDownloadStarter(int depth) {
+        return null;
+    }
+
     // Provide access to HTTPSamplerBase methods
     
     /**
@@ -0,0 +1,933 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultClientConnectionReuseStrategy;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.conn.ManagedNHttpClientConnection;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
+import org.apache.http.nio.protocol.HttpAsyncRequestExecutor;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.nio.reactor.ConnectingIOReactor;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SharedInputBuffer;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.jmeter.protocol.http.sampler.ResourcesDownloader.DownloadStarter;
+import org.apache.jmeter.protocol.http.sampler.ResourcesDownloader.PendingDownload;
+import org.apache.jmeter.protocol.http.util.HTTPConstants;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jmeter.util.JsseSSLManager;
+import org.apache.jmeter.util.SSLManager;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HTTP Sampler using Apache HttpAsyncClient 4.x.
+ * <p>
+ * Requests are built and results are processed like with {@link HTTPHC4Impl},
+ * but the requests of all the threads are executed by a single client, whose
+ * I/O reactor threads drive the connections; the sampler thread only waits for
+ * the response, whose content is streamed to it while it reads it.
+ * <p>
+ * Embedded resources downloaded concurrently are downloaded by the sampler
+ * thread itself: their requests are executed without waiting for the responses,
+ * which are buffered by the I/O threads, and each one is processed by the
+ * sampler thread once fully received.
+ * <p>
+ * Connections are pooled by user, a user being the thread, or the thread
+ * iteration when <code>httpclient.reset_state_on_thread_group_iteration</code>
+ * is true, so that they are not shared between users. HTTPS connections use
+ * the SSL context of the thread, like with {@link HTTPHC4Impl}.
+ *
+ * @since 4.1
+ */
+public class HTTPHC4AsyncImpl extends HTTPHC4Impl {
+
+    private static final Logger log = LoggerFactory.getLogger(HTTPHC4AsyncImpl.class);
+
+    /** Number of I/O threads of the shared client, defaults to the number of processors */
+    private static final int IO_THREADS = JMeterUtils.getPropDefault("httpclient4.async.io_threads", // $NON-NLS-1$
+            Runtime.getRuntime().availableProcessors());
+
+    /** Maximum number of connections of the shared client, for all the users and hosts */
+    private static final int MAX_CONNECTIONS = JMeterUtils.getPropDefault("httpclient4.async.max_connections", // $NON-NLS-1$
+            10000);
+
+    private static final int RESPONSE_BUFFER_SIZE = 32 * 1024;
+
+    private static final String PROTOCOL_LIST =
+            JMeterUtils.getPropDefault("https.socket.protocols", ""); // $NON-NLS-1$ $NON-NLS-2$
+
+    private static final String CIPHER_LIST =
+            JMeterUtils.getPropDefault("https.socket.ciphers", ""); // $NON-NLS-1$ $NON-NLS-2$
+
+    private static final String[] SUPPORTED_PROTOCOL_LIST =
+            PROTOCOL_LIST.isEmpty() ? null : PROTOCOL_LIST.split(" "); // $NON-NLS-1$
+
+    private static final String[] SUPPORTED_CIPHER_LIST =
+            CIPHER_LIST.isEmpty() ? null : CIPHER_LIST.split(" "); // $NON-NLS-1$
+
+    /** Context attribute of PoolingNHttpClientConnectionManager holding the session strategies of a request */
+    private static final String CONTEXT_ATTRIBUTE_SESSION_STRATEGIES = "http.iosession-factory-registry"; // $NON-NLS-1$
+
+    /** Connection attribute holding the {@link System#nanoTime()} when it was ready for its first request */
+    private static final String CONNECTION_ATTRIBUTE_CONNECT_END = "__jmeter.C_E__"; // $NON-NLS-1$
+
+    /** Connection attribute set once it has been used by a request */
+    private static final String CONNECTION_ATTRIBUTE_USED = "__jmeter.C_U__"; // $NON-NLS-1$
+
+    /**
+     * Resolver of the thread requesting a connection; the shared connection
+     * manager resolves host names in this thread, when the connection is
+     * requested
+     */
+    private static final ThreadLocal<DnsResolver> CURRENT_DNS_RESOLVER = new ThreadLocal<>();
+
+    /**
+     * Called when the response of the request executed by the current thread
+     * has been received, if the thread must not wait for it
+     */
+    private static final ThreadLocal<Runnable> DEFERRED_COMPLETION_LISTENER = new ThreadLocal<>();
+
+    /**
+     * SSL session strategies of the thread, built from its SSL context
+     */
+    private static final ThreadLocal<Pair<SSLContext, Registry<SchemeIOSessionStrategy>>> SESSION_STRATEGIES =
+            new ThreadLocal<>();
+
+    static {
+        log.info("HTTP async client I/O threads = {}, max connections = {}", IO_THREADS, MAX_CONNECTIONS);
+        if (CPS_HTTP > 0 || JsseSSLManager.CPS > 0) {
+            log.warn("Slow connections (httpclient.socket.http.cps/httpclient.socket.https.cps) "
+                    + "are not emulated by the HttpAsyncClient4 implementation");
+        }
+        if (RETRY_COUNT > 0) {
+            log.warn("Retries (httpclient4.retrycount) are not done by the HttpAsyncClient4 implementation");
+        }
+    }
+
+    private static class ClientHolder { // IODH idiom
+        private static final BasicThreadFactory THREAD_FACTORY = new BasicThreadFactory.Builder()
+                .namingPattern("HttpAsyncClient-%d") // $NON-NLS-1$
+                .daemon(true)
+                .build();
+
+        private static final PoolingNHttpClientConnectionManager CONNECTION_MANAGER = createConnectionManager();
+
+        private static final CloseableHttpAsyncClient CLIENT = createAsyncClient();
+
+        private static PoolingNHttpClientConnectionManager createConnectionManager() {
+            DefaultConnectingIOReactor ioReactor;
+            try {
+                ioReactor = new DefaultConnectingIOReactor(
+                        IOReactorConfig.custom().setIoThreadCount(IO_THREADS).build(), THREAD_FACTORY);
+            } catch (IOReactorException e) {
+                throw new IllegalStateException("Could not create the I/O reactor of the HTTP async client", e);
+            }
+            // The strategies of the request replace these, the manager only checks the scheme is supported
+            Registry<SchemeIOSessionStrategy> registry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                    .register("http", NoopIOSessionStrategy.INSTANCE) // $NON-NLS-1$
+                    .register("https", SSLIOSessionStrategy.getDefaultStrategy()) // $NON-NLS-1$
+                    .build();
+            PoolingNHttpClientConnectionManager connectionManager = new OwnerTrackingConnectionManager(
+                    ioReactor, registry);
+            connectionManager.setMaxTotal(MAX_CONNECTIONS);
+            connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+            return connectionManager;
+        }
+
+        private static CloseableHttpAsyncClient createAsyncClient() {
+            HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+                    .setConnectionManager(CONNECTION_MANAGER)
+                    .setEventHandler(new MeasuringRequestExecutor())
+                    .setThreadFactory(THREAD_FACTORY)
+                    .setSchemePortResolver(new DefaultSchemePortResolver())
+                    .setDefaultAuthSchemeRegistry(createAuthSchemeRegistry())
+                    .setRedirectStrategy(new LaxRedirectStrategy())
+                    .setConnectionReuseStrategy(DefaultClientConnectionReuseStrategy.INSTANCE)
+                    .disableCookieManagement(); // Cookies are handled by the CookieManager
+            if (IDLE_TIMEOUT > 0) {
+                builder.setKeepAliveStrategy(IDLE_STRATEGY);
+            }
+            if (BASIC_AUTH_PREEMPTIVE) {
+                builder.addInterceptorFirst(PREEMPTIVE_AUTH_INTERCEPTOR);
+            }
+            CloseableHttpAsyncClient client = builder.build();
+            client.start();
+            log.info("Started HTTP async client");
+            return client;
+        }
+    }
+
+    /** Embedded resources downloads in progress, cancelled if the sampler is interrupted */
+    private final Set<PipelinedDownload> pipelinedDownloads = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean downloadsInterrupted;
+
+    protected HTTPHC4AsyncImpl(HTTPSamplerBase testElement) {
+        super(testElement);
+    }
+
+    /**
+     * Download the embedded resources with the sampler thread
+     */
+    @Override
+    protected DownloadStarter getResourceDownloadStarter(int depth) {
+        downloadsInterrupted = false;
+        return (url, onReady) -> new PipelinedDownload(url, depth, onReady);
+    }
+
+    @Override
+    public boolean interrupt() {
+        downloadsInterrupted = true;
+        boolean interrupted = super.interrupt();
+        for (PipelinedDownload download : pipelinedDownloads) {
+            download.cancel();
+            interrupted = true;
+        }
+        return interrupted;
+    }
+
+    /**
+     * Get the response whose content has been buffered, if the request was
+     * executed without waiting for it
+     */
+    @Override
+    protected CloseableHttpResponse awaitResponse(CloseableHttpResponse httpResponse, HttpContext localContext)
+            throws IOException {
+        if (!(httpResponse instanceof PendingHttpResponse)) {
+            return httpResponse;
+        }
+        Future<HttpResponse> exchange = ((PendingHttpResponse) httpResponse).exchange;
+        return createResponse(awaitResult(exchange, exchange), HttpClientContext.adapt(localContext), exchange, () -> true);
+    }
+
+    /**
+     * Download of an embedded resource, started by the sampler thread without
+     * waiting for its response
+     */
+    private final class PipelinedDownload implements PendingDownload {
+        private final SampleExchange exchange;
+
+        PipelinedDownload(URL url, int depth, Runnable onReady) {
+            DEFERRED_COMPLETION_LISTENER.set(onReady);
+            try {
+                exchange = startSample(url, HTTPConstants.GET, false, depth);
+            } finally {
+                DEFERRED_COMPLETION_LISTENER.remove();
+            }
+            if (exchange.isCompleted()) { // the request has not been executed
+                onReady.run();
+            } else {
+                pipelinedDownloads.add(this);
+                if (downloadsInterrupted) {
+                    cancel();
+                }
+            }
+        }
+
+        @Override
+        public HTTPSampleResult complete() {
+            pipelinedDownloads.remove(this);
+            return completeSample(exchange);
+        }
+
+        @Override
+        public void cancel() {
+            JOrphanUtils.closeQuietly(exchange.getHttpResponse());
+        }
+    }
+
+    /**
+     * Create a client of the current thread executing its requests with the
+     * shared async client. It holds no connection, so is returned without
+     * connection manager.
+     */
+    @Override
+    protected Pair<CloseableHttpClient, PoolingHttpClientConnectionManager> createHttpClient(HttpClientKey key) {
+        DnsResolver resolver = this.testElement.getDNSResolver();
+        if (resolver == null) {
+            resolver = SystemDefaultDnsResolver.INSTANCE;
+        }
+        return Pair.of(new AsyncClientAdapter(key, resolver), null);
+    }
+
+    /**
+     * @return the SSL session strategies built from the SSL context of the current thread
+     * @throws IOException if the SSL context cannot be created
+     */
+    private static Registry<SchemeIOSessionStrategy> getSessionStrategies() throws IOException {
+        SSLContext sslContext;
+        try {
+            sslContext = ((JsseSSLManager) SSLManager.getInstance()).getContext();
+        } catch (GeneralSecurityException ex) {
+            throw new IOException("Rethrown as IOE", ex);
+        }
+        Pair<SSLContext, Registry<SchemeIOSessionStrategy>> strategies = SESSION_STRATEGIES.get();
+        if (strategies == null || strategies.getLeft() != sslContext) { // context is reset on thread iterations
+            strategies = Pair.of(sslContext, RegistryBuilder.<SchemeIOSessionStrategy>create()
+                    .register("http", NoopIOSessionStrategy.INSTANCE) // $NON-NLS-1$
+                    .register("https", new SSLIOSessionStrategy(sslContext, // $NON-NLS-1$
+                            SUPPORTED_PROTOCOL_LIST, SUPPORTED_CIPHER_LIST, NoopHostnameVerifier.INSTANCE))
+                    .build());
+            SESSION_STRATEGIES.set(strategies);
+        }
+        return strategies.getRight();
+    }
+
+    /**
+     * Pooling manager giving the connections released to the pool to their
+     * owner, so that they are closed when their owner is closed
+     */
+    private static final class OwnerTrackingConnectionManager extends PoolingNHttpClientConnectionManager {
+
+        OwnerTrackingConnectionManager(ConnectingIOReactor ioReactor, Registry<SchemeIOSessionStrategy> registry) {
+            super(ioReactor, null, registry, null,
+                    host -> {
+                        DnsResolver resolver = CURRENT_DNS_RESOLVER.get();
+                        return (resolver != null ? resolver : SystemDefaultDnsResolver.INSTANCE).resolve(host);
+                    },
+                    TIME_TO_LIVE, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void releaseConnection(NHttpClientConnection managedConn, Object state, long keepalive,
+                TimeUnit timeUnit) {
+            if (state instanceof ConnectionOwner && managedConn instanceof ManagedNHttpClientConnection
+                    && managedConn.isOpen()) {
+                // Closed before being released if the owner is closed, so that the pool discards it
+                ((ConnectionOwner) state).connectionReleased(((ManagedNHttpClientConnection) managedConn).getIOSession());
+            }
+            super.releaseConnection(managedConn, state, keepalive, timeUnit);
+        }
+    }
+
+    /**
+     * Identifies the connections of a user in the pool of the shared client,
+     * and closes them when the user no longer needs them
+     */
+    // package protected for unit tests
+    static final class ConnectionOwner {
+        private final String name;
+
+        /** sessions of the connections released to the pool */
+        private final Set<IOSession> sessions = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private boolean closed;
+
+        ConnectionOwner(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Called when a connection of this owner is released to the pool,
+         * where it stays idle until this owner leases it again
+         *
+         * @param session
+         *            the session of the connection, closed if this owner is
+         *            closed
+         */
+        synchronized void connectionReleased(IOSession session) {
+            if (closed) {
+                session.close();
+                return;
+            }
+            sessions.removeIf(IOSession::isClosed);
+            sessions.add(session);
+        }
+
+        /**
+         * Closes the connections of this owner, which are all idle in the
+         * pool, and the ones released later
+         */
+        void close() {
+            List<IOSession> idleSessions;
+            synchronized (this) {
+                closed = true;
+                idleSessions = new ArrayList<>(sessions);
+                sessions.clear();
+            }
+            idleSessions.forEach(IOSession::close);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * {@link CloseableHttpClient} of a thread for an {@link HttpClientKey},
+     * which executes the requests with the shared async client and waits for
+     * their responses.
+     */
+    private static final class AsyncClientAdapter extends CloseableHttpClient {
+
+        // Starts the shared client when the first adapter is created, before the sample starts
+        private final CloseableHttpAsyncClient client = ClientHolder.CLIENT;
+
+        private final HttpHost proxy;
+
+        private final CredentialsProvider credentialsProvider;
+
+        private final DnsResolver resolver;
+
+        private volatile ConnectionOwner owner;
+
+        AsyncClientAdapter(HttpClientKey key, DnsResolver resolver) {
+            if (key.hasProxy) {
+                this.proxy = new HttpHost(key.proxyHost, key.proxyPort);
+                this.credentialsProvider = createProxyCredentialsProvider(key);
+            } else {
+                this.proxy = null;
+                this.credentialsProvider = new BasicCredentialsProvider();
+            }
+            this.resolver = resolver;
+            this.owner = new ConnectionOwner(Thread.currentThread().getName());
+        }
+
+        @Override
+        protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+                throws IOException {
+            HttpClientContext clientContext = HttpClientContext.adapt(context);
+            // Replaces the user token of HTTPHC4Impl, the connections being pooled for all the threads
+            clientContext.setUserToken(owner);
+            if (clientContext.getCredentialsProvider() == null) {
+                clientContext.setCredentialsProvider(credentialsProvider);
+            }
+            if (request instanceof HttpRequestBase) {
+                HttpRequestBase requestBase = (HttpRequestBase) request;
+                RequestConfig config = requestBase.getConfig() != null ? requestBase.getConfig() : RequestConfig.DEFAULT;
+                if (proxy != null) {
+                    config = RequestConfig.copy(config).setProxy(proxy).build();
+                    requestBase.setConfig(config);
+                }
+                if (HTTPConstants.PROTOCOL_HTTPS.equalsIgnoreCase(target.getSchemeName())
+                        || config.isRedirectsEnabled()) {
+                    clientContext.setAttribute(CONTEXT_ATTRIBUTE_SESSION_STRATEGIES, getSessionStrategies());
+                }
+            }
+            bufferRequestEntity(request);
+
+            Runnable completionListener = DEFERRED_COMPLETION_LISTENER.get();
+            if (completionListener != null) {
+                Future<HttpResponse> exchange = execute(target, request, new BufferingResponseConsumer(clientContext),
+                        clientContext, new CompletionCallback(completionListener));
+                return new PendingHttpResponse(exchange);
+            }
+            StreamingResponseConsumer consumer = new StreamingResponseConsumer(clientContext);
+            Future<HttpResponse> exchange = execute(target, request, consumer, clientContext, null);
+            return createResponse(awaitResult(consumer.getResponseHead(), exchange), clientContext,
+                    exchange, consumer::isContentRead);
+        }
+
+        private Future<HttpResponse> execute(HttpHost target, HttpRequest request,
+                HttpAsyncResponseConsumer<HttpResponse> consumer, HttpClientContext clientContext,
+                FutureCallback<HttpResponse> callback) {
+            Future<HttpResponse> exchange;
+            CURRENT_DNS_RESOLVER.set(resolver);
+            try {
+                exchange = client.execute(HttpAsyncMethods.create(target, request),
+                        consumer, clientContext, callback);
+            } finally {
+                CURRENT_DNS_RESOLVER.remove();
+            }
+            if (request instanceof HttpRequestBase) {
+                // Allows interrupting the sampler
+                ((HttpRequestBase) request).setCancellable(() -> exchange.cancel(true));
+            }
+            return exchange;
+        }
+
+        /**
+         * Replace the entity of the request by its content, so that it can be
+         * sent by the I/O threads whatever its type
+         * @param request {@link HttpRequest}
+         * @throws IOException if the entity cannot be read
+         */
+        private static void bufferRequestEntity(HttpRequest request) throws IOException {
+            if (!(request instanceof HttpEntityEnclosingRequest)) {
+                return;
+            }
+            HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
+            HttpEntity entity = entityRequest.getEntity();
+            if (entity == null || entity instanceof NByteArrayEntity) {
+                return;
+            }
+            long length = entity.getContentLength();
+            ByteArrayOutputStream content = new ByteArrayOutputStream(
+                    length > 0 && length < Integer.MAX_VALUE ? (int) length : 1024);
+            entity.writeTo(content);
+            NByteArrayEntity bufferedEntity = new NByteArrayEntity(content.toByteArray());
+            bufferedEntity.setContentType(entity.getContentType());
+            bufferedEntity.setContentEncoding(entity.getContentEncoding());
+            bufferedEntity.setChunked(entity.isChunked());
+            entityRequest.setEntity(bufferedEntity);
+        }
+
+        /**
+         * The connections used until now will not be reused by the thread,
+         * they are closed
+         */
+        @Override
+        public void close() {
+            ConnectionOwner previousOwner = owner;
+            owner = new ConnectionOwner(previousOwner.toString());
+            previousOwner.close();
+            ClientHolder.CONNECTION_MANAGER.closeExpiredConnections();
+        }
+
+        @Override
+        @Deprecated
+        @SuppressWarnings("deprecation")
+        public org.apache.http.params.HttpParams getParams() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @Deprecated
+        @SuppressWarnings("deprecation")
+        public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Wait for the response of an exchange
+     * @param result gives the response
+     * @param exchange the exchange, cancelled if the thread is interrupted
+     * @return the response
+     * @throws IOException if the exchange failed or was cancelled
+     */
+    private static HttpResponse awaitResult(Future<HttpResponse> result, Future<HttpResponse> exchange)
+            throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            exchange.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RequestAbortedException("Request aborted", e);
+        } catch (CancellationException e) {
+            throw new RequestAbortedException("Request aborted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof HttpException) {
+                throw new ClientProtocolException(cause.getMessage(), cause);
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static CloseableHttpResponse createResponse(HttpResponse response, HttpClientContext clientContext,
+            Future<HttpResponse> exchange, BooleanSupplier contentRead) throws ClientProtocolException, IOException {
+        try {
+            RESPONSE_CONTENT_ENCODING.process(response, clientContext);
+        } catch (HttpException e) {
+            exchange.cancel(true);
+            throw new ClientProtocolException(e.getMessage(), e);
+        }
+        return new AsyncHttpResponse(response, contentRead, exchange);
+    }
+
+    /**
+     * Response of an exchange; closing it before its content is read aborts
+     * the exchange, and discards its connection
+     */
+    private static final class AsyncHttpResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        private final BooleanSupplier contentRead;
+
+        private final Future<HttpResponse> exchange;
+
+        AsyncHttpResponse(HttpResponse response, BooleanSupplier contentRead, Future<HttpResponse> exchange) {
+            super(response.getStatusLine());
+            setHeaders(response.getAllHeaders());
+            setEntity(response.getEntity());
+            setLocale(response.getLocale());
+            this.contentRead = contentRead;
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void close() {
+            if (!contentRead.getAsBoolean()) {
+                exchange.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Returned by the client for a request executed without waiting for the
+     * response, see {@link HTTPHC4AsyncImpl#awaitResponse(CloseableHttpResponse, HttpContext)};
+     * closing it aborts the exchange
+     */
+    private static final class PendingHttpResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        private final Future<HttpResponse> exchange;
+
+        PendingHttpResponse(Future<HttpResponse> exchange) {
+            super(HttpVersion.HTTP_1_1, 0, null);
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void close() {
+            exchange.cancel(true);
+        }
+    }
+
+    /**
+     * Notifies the end of an exchange executed without waiting for the response
+     */
+    private static final class CompletionCallback implements FutureCallback<HttpResponse> {
+
+        private final Runnable listener;
+
+        CompletionCallback(Runnable listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void completed(HttpResponse result) {
+            listener.run();
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            listener.run();
+        }
+
+        @Override
+        public void cancelled() {
+            listener.run();
+        }
+    }
+
+    /**
+     * Record the connect time of the sample and the bytes sent, when the head
+     * of its response is received
+     * @param context {@link HttpContext} of the request
+     */
+    private static void responseHeadReceived(HttpContext context) {
+        NHttpClientConnection conn = (NHttpClientConnection) context.getAttribute(HttpCoreContext.HTTP_CONNECTION);
+        if (conn != null) {
+            Long connectEnd = (Long) conn.getContext().removeAttribute(CONNECTION_ATTRIBUTE_CONNECT_END);
+            SampleResult res = (SampleResult) context.getAttribute(CONTEXT_ATTRIBUTE_SAMPLER_RESULT);
+            if (connectEnd != null && res != null) { // first request of a new connection
+                long sinceConnectEnd = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectEnd.longValue());
+                res.setConnectTime(Math.max(0L, res.currentTimeInMillis() - res.getStartTime()
+                        - res.getIdleTime() - sinceConnectEnd));
+            }
+            context.setAttribute(CONTEXT_ATTRIBUTE_SENT_BYTES, Long.valueOf(conn.getMetrics().getSentBytesCount()));
+            context.setAttribute(CONTEXT_ATTRIBUTE_RECEIVED_BYTES,
+                    Long.valueOf(conn.getMetrics().getReceivedBytesCount()));
+        } else {
+            context.setAttribute(CONTEXT_ATTRIBUTE_SENT_BYTES, Long.valueOf(0L));
+            context.setAttribute(CONTEXT_ATTRIBUTE_RECEIVED_BYTES, Long.valueOf(0L));
+        }
+    }
+
+    /**
+     * Record the bytes received by the sample, when its response is completed
+     * @param context {@link HttpContext} of the request
+     */
+    private static void responseCompleted(HttpContext context) {
+        NHttpClientConnection conn = (NHttpClientConnection) context.getAttribute(HttpCoreContext.HTTP_CONNECTION);
+        if (conn != null) {
+            context.setAttribute(CONTEXT_ATTRIBUTE_RECEIVED_BYTES,
+                    Long.valueOf(conn.getMetrics().getReceivedBytesCount()));
+        }
+    }
+
+    /**
+     * Consumer buffering the response, whose times are recorded as the sampler
+     * thread may be busy when it is received
+     */
+    private static final class BufferingResponseConsumer extends BasicAsyncResponseConsumer {
+
+        private final HttpContext context;
+
+        BufferingResponseConsumer(HttpContext context) {
+            this.context = context;
+        }
+
+        @Override
+        protected void onResponseReceived(HttpResponse response) throws IOException {
+            responseHeadReceived(context);
+            SampleResult res = (SampleResult) context.getAttribute(CONTEXT_ATTRIBUTE_SAMPLER_RESULT);
+            if (res != null) {
+                context.setAttribute(CONTEXT_ATTRIBUTE_LATENCY_END, Long.valueOf(res.currentTimeInMillis()));
+            }
+            super.onResponseReceived(response);
+        }
+
+        @Override
+        protected HttpResponse buildResult(HttpContext httpContext) {
+            responseCompleted(context);
+            SampleResult res = (SampleResult) context.getAttribute(CONTEXT_ATTRIBUTE_SAMPLER_RESULT);
+            if (res != null) {
+                context.setAttribute(CONTEXT_ATTRIBUTE_RESPONSE_END, Long.valueOf(res.currentTimeInMillis()));
+            }
+            return super.buildResult(httpContext);
+        }
+    }
+
+    /**
+     * Records the connect time of new connections, and measures the bytes sent
+     * and received by each request.
+     */
+    private static final class MeasuringRequestExecutor extends HttpAsyncRequestExecutor {
+
+        /**
+         * Called when the connection can send a request, which, for new HTTPS
+         * connections, happens when the handshake is completed
+         */
+        @Override
+        public void requestReady(NHttpClientConnection conn) throws IOException, HttpException {
+            long requestCount = conn.getMetrics().getRequestCount();
+            super.requestReady(conn);
+            if (conn.getMetrics().getRequestCount() != requestCount) { // a request has been submitted
+                HttpContext connectionContext = conn.getContext();
+                if (connectionContext.getAttribute(CONNECTION_ATTRIBUTE_USED) == null) {
+                    connectionContext.setAttribute(CONNECTION_ATTRIBUTE_USED, Boolean.TRUE);
+                    connectionContext.setAttribute(CONNECTION_ATTRIBUTE_CONNECT_END, Long.valueOf(System.nanoTime()));
+                }
+                conn.getMetrics().reset();
+            }
+        }
+    }
+
+    /**
+     * Consumer making the response available as soon as its head is received,
+     * its content being read by the sampler thread while it is received.
+     */
+    private static final class StreamingResponseConsumer implements HttpAsyncResponseConsumer<HttpResponse> {
+
+        private final HttpContext context;
+
+        private final BasicFuture<HttpResponse> responseHead = new BasicFuture<>(null);
+
+        private final SharedInputBuffer buffer =
+                new SharedInputBuffer(RESPONSE_BUFFER_SIZE, HeapByteBufferAllocator.INSTANCE);
+
+        private volatile boolean completed;
+
+        private volatile boolean contentRead;
+
+        private volatile Exception exception;
+
+        StreamingResponseConsumer(HttpContext context) {
+            this.context = context;
+        }
+
+        Future<HttpResponse> getResponseHead() {
+            return responseHead;
+        }
+
+        /**
+         * @return true if there is no content or its end has been read
+         */
+        boolean isContentRead() {
+            return contentRead;
+        }
+
+        @Override
+        public void responseReceived(HttpResponse response) {
+            responseHeadReceived(context);
+            HttpEntity entity = response.getEntity();
+            if (entity != null && canHaveContent(response)) {
+                BasicHttpEntity streamedEntity = new BasicHttpEntity();
+                streamedEntity.setContentType(entity.getContentType());
+                streamedEntity.setContentEncoding(entity.getContentEncoding());
+                streamedEntity.setContentLength(entity.getContentLength());
+                streamedEntity.setChunked(entity.isChunked());
+                streamedEntity.setContent(new ContentStream());
+                response.setEntity(streamedEntity);
+            } else {
+                response.setEntity(null);
+                contentRead = true;
+            }
+            responseHead.completed(response);
+        }
+
+        private boolean canHaveContent(HttpResponse response) {
+            HttpRequest request = (HttpRequest) context.getAttribute(HttpCoreContext.HTTP_REQUEST);
+            if (request != null && HTTPConstants.HEAD.equalsIgnoreCase(request.getRequestLine().getMethod())) {
+                return false;
+            }
+            int status = response.getStatusLine().getStatusCode();
+            return status >= HttpStatus.SC_OK
+                    && status != HttpStatus.SC_NO_CONTENT
+                    && status != HttpStatus.SC_NOT_MODIFIED
+                    && status != HttpStatus.SC_RESET_CONTENT;
+        }
+
+        @Override
+        public void consumeContent(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+            buffer.consumeContent(decoder, ioctrl);
+        }
+
+        @Override
+        public void responseCompleted(HttpContext httpContext) {
+            // Set before the sampler thread can read the end of the content
+            HTTPHC4AsyncImpl.responseCompleted(context);
+            completed = true;
+            buffer.close();
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            exception = ex;
+            responseHead.failed(ex);
+            buffer.shutdown();
+        }
+
+        @Override
+        public boolean cancel() {
+            responseHead.cancel();
+            buffer.shutdown();
+            return true;
+        }
+
+        @Override
+        public Exception getException() {
+            return exception;
+        }
+
+        @Override
+        public HttpResponse getResult() {
+            return null; // The response is given to the sampler thread when its head is received
+        }
+
+        @Override
+        public boolean isDone() {
+            return completed || exception != null;
+        }
+
+        @Override
+        public void close() {
+            if (!completed) {
+                buffer.shutdown();
+            }
+        }
+
+        /**
+         * Stream reading the content from the buffer filled by the I/O threads
+         */
+        private final class ContentStream extends InputStream {
+            @Override
+            public int read() throws IOException {
+                return checkEnd(buffer.read());
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return checkEnd(buffer.read(b, off, len));
+            }
+
+            @Override
+            public int available() {
+                return buffer.available();
+            }
+
+            private int checkEnd(int read) throws IOException {
+                if (read == -1) {
+                    Exception ex = exception;
+                    if (ex != null) {
+                        throw ex instanceof IOException ? (IOException) ex : new IOException(ex);
+                    }
+                    contentRead = true;
+                }
+                return read;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.http.sampler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.jmeter.protocol.http.sampler.hc.LazyLayeredConnectionSocketFactory;
+import org.apache.jmeter.protocol.http.sampler.hc.http2.Http2ConnectionManager;
+
+/**
+ * HTTP Sampler using Apache HttpClient 4.x with HTTP/2.
+ * <p>
+ * Requests are executed like with {@link HTTPHC4Impl}, but each user sends
+ * the requests to an origin on one HTTP/2 connection, negotiated through ALPN
+ * for https and with prior knowledge (h2c) for http. When embedded resources
+ * are downloaded in parallel, the download threads share the client of the
+ * user, so the resources are requested as concurrent streams of that connection.
+ * <p>
+ * Servers not supporting HTTP/2 and proxies are used with HTTP/1.1.
+ *
+ * @since 4.1
+ */
+public class HTTPHC4Http2Impl extends HTTPHC4Impl {
+
+    protected HTTPHC4Http2Impl(HTTPSamplerBase testElement) {
+        super(testElement);
+    }
+
+    @Override
+    protected PoolingHttpClientConnectionManager createConnectionManager(DnsResolver resolver) {
+        return new Http2ConnectionManager(
+                new JMeterDefaultHttpClientConnectionOperator(
+                        createSocketFactoryRegistry(new LazyLayeredConnectionSocketFactory(true)), null, resolver),
+                TIME_TO_LIVE, TimeUnit.MILLISECONDS);
+    }
+}
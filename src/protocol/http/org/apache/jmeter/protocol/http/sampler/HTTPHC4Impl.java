@@ -30,6 +30,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.net.UnknownHostException;
 import java.nio.charset.Charset;
 import java.security.GeneralSecurityException;
 import java.security.PrivilegedActionException;
@@ -37,6 +38,7 @@ import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
@@ -90,6 +92,7 @@ import org.apache.http.config.RegistryBuilder;
 import org.apache.http.config.SocketConfig;
 import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.conn.ManagedHttpClientConnection;
 import org.apache.http.conn.SchemePortResolver;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
@@ -141,10 +144,13 @@ import org.apache.jmeter.protocol.http.control.AuthManager.Mechanism;
 import org.apache.jmeter.protocol.http.control.Authorization;
 import org.apache.jmeter.protocol.http.control.CacheManager;
 import org.apache.jmeter.protocol.http.control.CookieManager;
+import org.apache.jmeter.protocol.http.control.DNSCacheManager;
 import org.apache.jmeter.protocol.http.control.DynamicKerberosSchemeFactory;
 import org.apache.jmeter.protocol.http.control.HeaderManager;
+import org.apache.jmeter.protocol.http.control.StaticHost;
 import org.apache.jmeter.protocol.http.sampler.hc.LaxDeflateInputStream;
 import org.apache.jmeter.protocol.http.sampler.hc.LazyLayeredConnectionSocketFactory;
+import org.apache.jmeter.protocol.http.sampler.hc.SharedHttpClientConnectionManager;
 import org.apache.jmeter.protocol.http.util.EncoderCache;
 import org.apache.jmeter.protocol.http.util.HTTPArgument;
 import org.apache.jmeter.protocol.http.util.HTTPConstants;
@@ -155,6 +161,7 @@ import org.apache.jmeter.services.FileServer;
 import org.apache.jmeter.testelement.property.CollectionProperty;
 import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jmeter.testelement.property.PropertyIterator;
+import org.apache.jmeter.threads.AbstractThreadGroup;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
 import org.apache.jmeter.util.JMeterUtils;
@@ -181,9 +188,18 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
 
     private static final String CONTEXT_ATTRIBUTE_CLIENT_KEY = "__jmeter.C_K__";
 
-    private static final String CONTEXT_ATTRIBUTE_SENT_BYTES = "__jmeter.S_B__";
+    static final String CONTEXT_ATTRIBUTE_SENT_BYTES = "__jmeter.S_B__";
     
-    private static final String CONTEXT_ATTRIBUTE_RECEIVED_BYTES = "__jmeter.R_B__";
+    static final String CONTEXT_ATTRIBUTE_RECEIVED_BYTES = "__jmeter.R_B__";
+
+    /** Time when the head of the response was received, if not by the sampler thread */
+    static final String CONTEXT_ATTRIBUTE_LATENCY_END = "__jmeter.L_E__";
+
+    /** Time when the response was received, if not by the sampler thread */
+    static final String CONTEXT_ATTRIBUTE_RESPONSE_END = "__jmeter.R_E__";
+
+    /** {@link DnsResolver} of the client, used by the shared connection pools */
+    private static final String CONTEXT_ATTRIBUTE_DNS_RESOLVER = "__jmeter.D_R__";
 
     private static final int MAX_BODY_RETAIN_SIZE = JMeterUtils.getPropDefault("httpclient4.max_body_retain_size", 32 * 1024);
 
@@ -313,7 +329,7 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
         }
     }
 
-    private static final class JMeterDefaultHttpClientConnectionOperator extends DefaultHttpClientConnectionOperator {
+    static final class JMeterDefaultHttpClientConnectionOperator extends DefaultHttpClientConnectionOperator {
 
         public JMeterDefaultHttpClientConnectionOperator(Lookup<ConnectionSocketFactory> socketFactoryRegistry, SchemePortResolver schemePortResolver,
                 DnsResolver dnsResolver) {
@@ -329,9 +345,14 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
         @Override
         public void connect(ManagedHttpClientConnection conn, HttpHost host, InetSocketAddress localAddress,
                 int connectTimeout, SocketConfig socketConfig, HttpContext context) throws IOException {
+            DnsResolver clientResolver = (DnsResolver) context.getAttribute(CONTEXT_ATTRIBUTE_DNS_RESOLVER);
+            if (clientResolver != null) {
+                ConnectingClientDnsResolver.CLIENT_RESOLVER.set(clientResolver);
+            }
             try {
                 super.connect(conn, host, localAddress, connectTimeout, socketConfig, context);
             } finally {
+                ConnectingClientDnsResolver.CLIENT_RESOLVER.remove();
                 SampleResult sample = 
                         (SampleResult)context.getAttribute(HTTPHC4Impl.CONTEXT_ATTRIBUTE_SAMPLER_RESULT);
                 if (sample != null) {
@@ -341,26 +362,68 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
         }    
     }
     
+    /**
+     * {@link DnsResolver} of the shared connection pools, resolving the host
+     * names with the resolver of the client opening the connection, for
+     * instance the DNS Cache Manager of its thread
+     */
+    private static final class ConnectingClientDnsResolver implements DnsResolver {
+        private static final ConnectingClientDnsResolver INSTANCE = new ConnectingClientDnsResolver();
+
+        /** Resolver of the client connecting in the current thread */
+        private static final ThreadLocal<DnsResolver> CLIENT_RESOLVER = new ThreadLocal<>();
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            DnsResolver resolver = CLIENT_RESOLVER.get();
+            if (resolver == null) {
+                resolver = SystemDefaultDnsResolver.INSTANCE;
+            }
+            return resolver.resolve(host);
+        }
+    }
+
     /** retry count to be used (default 0); 0 = disable retries */
-    private static final int RETRY_COUNT = JMeterUtils.getPropDefault("httpclient4.retrycount", 0);
+    static final int RETRY_COUNT = JMeterUtils.getPropDefault("httpclient4.retrycount", 0);
     
     /** true if it's OK to retry requests that have been sent */
     private static final boolean REQUEST_SENT_RETRY_ENABLED = 
             JMeterUtils.getPropDefault("httpclient4.request_sent_retry_enabled", false);
 
     /** Idle timeout to be applied to connections if no Keep-Alive header is sent by the server (default 0 = disable) */
-    private static final int IDLE_TIMEOUT = JMeterUtils.getPropDefault("httpclient4.idletimeout", 0);
+    static final int IDLE_TIMEOUT = JMeterUtils.getPropDefault("httpclient4.idletimeout", 0);
     
     private static final int VALIDITY_AFTER_INACTIVITY_TIMEOUT = JMeterUtils.getPropDefault("httpclient4.validate_after_inactivity", 1700);
     
-    private static final int TIME_TO_LIVE = JMeterUtils.getPropDefault("httpclient4.time_to_live", 2000);
+    static final int TIME_TO_LIVE = JMeterUtils.getPropDefault("httpclient4.time_to_live", 2000);
 
     /** Preemptive Basic Auth */
-    private static final boolean BASIC_AUTH_PREEMPTIVE = JMeterUtils.getPropDefault("httpclient4.auth.preemptive", true);
+    static final boolean BASIC_AUTH_PREEMPTIVE = JMeterUtils.getPropDefault("httpclient4.auth.preemptive", true);
+
+    private static final String CONNECTION_POOL_SCOPE_NONE = "none"; // $NON-NLS-1$
+
+    private static final String CONNECTION_POOL_SCOPE_THREAD_GROUP = "thread_group"; // $NON-NLS-1$
+
+    private static final String CONNECTION_POOL_SCOPE_TEST = "test"; // $NON-NLS-1$
+
+    /** Threads sharing a connection pool: none (one pool per thread), thread_group or test */
+    private static final String CONNECTION_POOL_SCOPE = getConnectionPoolScope();
+
+    /** Max connections of a shared connection pool */
+    private static final int CONNECTION_POOL_MAX_TOTAL =
+            JMeterUtils.getPropDefault("httpclient4.connection_pool.max_total", 1000);
+
+    /** Max connections per route of a shared connection pool */
+    private static final int CONNECTION_POOL_MAX_PER_ROUTE =
+            JMeterUtils.getPropDefault("httpclient4.connection_pool.max_per_route", 100);
+
+    /** Connections of a shared connection pool are only reused by the thread which opened them */
+    private static final boolean CONNECTION_POOL_PER_THREAD_CONNECTIONS =
+            JMeterUtils.getPropDefault("httpclient4.connection_pool.per_thread_connections", false);
     
     private static final Pattern PORT_PATTERN = Pattern.compile("\\d+"); // only used in .matches(), no need for anchors
 
-    private static final ConnectionKeepAliveStrategy IDLE_STRATEGY = new DefaultConnectionKeepAliveStrategy(){
+    static final ConnectionKeepAliveStrategy IDLE_STRATEGY = new DefaultConnectionKeepAliveStrategy(){
         @Override
         public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
             long duration = super.getKeepAliveDuration(response, context);
@@ -376,7 +439,7 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
     private static final String DIGEST_PARAMETERS = DigestParameters.VARIABLE_NAME;
 
     
-    private static final HttpRequestInterceptor PREEMPTIVE_AUTH_INTERCEPTOR = new PreemptiveAuthRequestInterceptor();
+    static final HttpRequestInterceptor PREEMPTIVE_AUTH_INTERCEPTOR = new PreemptiveAuthRequestInterceptor();
 
     // see  https://stackoverflow.com/questions/26166469/measure-bandwidth-usage-with-apache-httpcomponents-httpclient
     private static final HttpRequestExecutor REQUEST_EXECUTOR = new HttpRequestExecutor() {
@@ -424,7 +487,7 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
      * that HC core {@link ResponseContentEncoding} removes after uncompressing
      * See Bug 59401
      */
-    private static final HttpResponseInterceptor RESPONSE_CONTENT_ENCODING = new ResponseContentEncoding(createLookupRegistry()) {
+    static final HttpResponseInterceptor RESPONSE_CONTENT_ENCODING = new ResponseContentEncoding(createLookupRegistry()) {
         @Override
         public void process(HttpResponse response, HttpContext context)
                 throws HttpException, IOException {
@@ -536,53 +599,146 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
     @Override
     protected HTTPSampleResult sample(URL url, String method,
             boolean areFollowingRedirect, int frameDepth) {
+        return completeSample(startSample(url, method, areFollowingRedirect, frameDepth));
+    }
+
+    /**
+     * State of a sample between {@link HTTPHC4Impl#startSample(URL, String, boolean, int)}
+     * and {@link HTTPHC4Impl#completeSample(SampleExchange)}
+     */
+    protected static final class SampleExchange {
+        private final URL url;
+        private final String method;
+        private final boolean areFollowingRedirect;
+        private final int frameDepth;
+        private final JMeterVariables jMeterVariables;
+        private final HttpContext localContext = new BasicHttpContext();
+        private HttpRequestBase httpRequest;
+        private CloseableHttpResponse httpResponse;
+        private HTTPSampleResult res;
+        private boolean completed;
+
+        private SampleExchange(URL url, String method, boolean areFollowingRedirect, int frameDepth,
+                JMeterVariables jMeterVariables, HTTPSampleResult res) {
+            this.url = url;
+            this.method = method;
+            this.areFollowingRedirect = areFollowingRedirect;
+            this.frameDepth = frameDepth;
+            this.jMeterVariables = jMeterVariables;
+            this.res = res;
+        }
+
+        private SampleExchange complete(HTTPSampleResult result) {
+            res = result;
+            completed = true;
+            return this;
+        }
+
+        /**
+         * @return true if the sample ended without response to process, on
+         *         error or when the resource is in the cache
+         */
+        protected boolean isCompleted() {
+            return completed;
+        }
+
+        /**
+         * @return the response returned by the client, null if the request
+         *         has not been executed
+         */
+        protected CloseableHttpResponse getHttpResponse() {
+            return httpResponse;
+        }
+    }
+
+    /**
+     * Start the sample, returning once the request has been executed by the
+     * client
+     *
+     * @param url                  URL to sample
+     * @param method               HTTP method
+     * @param areFollowingRedirect whether we are getting a redirect target
+     * @param frameDepth           depth of the sample in the frame structure
+     * @return the {@link SampleExchange} to pass to
+     *         {@link HTTPHC4Impl#completeSample(SampleExchange)}
+     */
+    protected SampleExchange startSample(URL url, String method,
+            boolean areFollowingRedirect, int frameDepth) {
 
         if (log.isDebugEnabled()) {
             log.debug("Start : sample {} method {} followingRedirect {} depth {}", 
                     url, method, areFollowingRedirect, frameDepth);            
         }
-        JMeterVariables jMeterVariables = JMeterContextService.getContext().getVariables();
-
-        HTTPSampleResult res = createSampleResult(url, method);
+        SampleExchange exchange = new SampleExchange(url, method, areFollowingRedirect, frameDepth,
+                JMeterContextService.getContext().getVariables(), createSampleResult(url, method));
+        HTTPSampleResult res = exchange.res;
 
         CloseableHttpClient httpClient = null;
-        HttpRequestBase httpRequest = null;
-        HttpContext localContext = new BasicHttpContext();
+        HttpContext localContext = exchange.localContext;
         HttpClientContext clientContext = HttpClientContext.adapt(localContext);
         clientContext.setAttribute(CONTEXT_ATTRIBUTE_AUTH_MANAGER, getAuthManager());
         try {
-            httpClient = setupClient(jMeterVariables, url, clientContext);
+            httpClient = setupClient(exchange.jMeterVariables, url, clientContext);
             URI uri = url.toURI();
-            httpRequest = createHttpRequest(uri, method, areFollowingRedirect);
-            setupRequest(url, httpRequest, res); // can throw IOException
+            exchange.httpRequest = createHttpRequest(uri, method, areFollowingRedirect);
+            setupRequest(url, exchange.httpRequest, res); // can throw IOException
         } catch (Exception e) {
             res.sampleStart();
             res.sampleEnd();
             errorResult(e, res);
-            return res;
+            return exchange.complete(res);
         }
 
-        setupClientContextBeforeSample(jMeterVariables, localContext);
+        setupClientContextBeforeSample(exchange.jMeterVariables, localContext);
         
         res.sampleStart();
 
         final CacheManager cacheManager = getCacheManager();
-        if (cacheManager != null && HTTPConstants.GET.equalsIgnoreCase(method) && cacheManager.inCache(url, httpRequest.getAllHeaders())) {
-            return updateSampleResultForResourceInCache(res);
+        if (cacheManager != null && HTTPConstants.GET.equalsIgnoreCase(method) && cacheManager.inCache(url, exchange.httpRequest.getAllHeaders())) {
+            return exchange.complete(updateSampleResultForResourceInCache(res));
         }
-        CloseableHttpResponse httpResponse = null;
         try {
-            currentRequest = httpRequest;
-            handleMethod(method, res, httpRequest, localContext);
+            currentRequest = exchange.httpRequest;
+            handleMethod(method, res, exchange.httpRequest, localContext);
             // store the SampleResult in LocalContext to compute connect time
             localContext.setAttribute(CONTEXT_ATTRIBUTE_SAMPLER_RESULT, res);
             // perform the sample
-            httpResponse = 
-                    executeRequest(httpClient, httpRequest, localContext, url);
+            try {
+                exchange.httpResponse = 
+                        executeRequest(httpClient, exchange.httpRequest, localContext, url);
+            } finally {
+                res.setConnectionWaitTime(SharedHttpClientConnectionManager.getAndResetLeaseWaitTime());
+                setTlsHandshakeResults(res, localContext);
+            }
+        } catch (IOException | RuntimeException e) {
+            sampleFailed(e, res, localContext);
+            endSample(exchange);
+            return exchange.complete(res);
+        }
+        return exchange;
+    }
+
+    /**
+     * Wait for the response of the request executed by
+     * {@link HTTPHC4Impl#startSample(URL, String, boolean, int)} and process it
+     *
+     * @param exchange {@link SampleExchange} returned by startSample
+     * @return the result of the sample
+     */
+    protected HTTPSampleResult completeSample(SampleExchange exchange) {
+        HTTPSampleResult res = exchange.res;
+        if (exchange.completed) {
+            return res;
+        }
+        final HttpContext localContext = exchange.localContext;
+        final HttpRequestBase httpRequest = exchange.httpRequest;
+        try {
+            exchange.httpResponse = awaitResponse(exchange.httpResponse, localContext);
+            CloseableHttpResponse httpResponse = exchange.httpResponse;
 
             // Needs to be done after execute to pick up all the headers
             final HttpRequest request = (HttpRequest) localContext.getAttribute(HttpCoreContext.HTTP_REQUEST);
-            extractClientContextAfterSample(jMeterVariables, localContext);
+            extractClientContextAfterSample(exchange.jMeterVariables, localContext);
             // We've finished with the request, so we can add the LocalAddress to it for display
             if (localAddress != null) {
                 request.addHeader(HEADER_LOCAL_ADDRESS, localAddress.toString());
@@ -600,7 +756,15 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
                 res.setResponseData(readResponse(res, entity.getContent(), entity.getContentLength()));
             }
             
-            res.sampleEnd(); // Done with the sampling proper.
+            Long responseEnd = (Long) localContext.getAttribute(CONTEXT_ATTRIBUTE_RESPONSE_END);
+            if (responseEnd == null) {
+                res.sampleEnd(); // Done with the sampling proper.
+            } else {
+                // The response was received while the thread was busy with other samples
+                Long latencyEnd = (Long) localContext.getAttribute(CONTEXT_ATTRIBUTE_LATENCY_END);
+                res.setLatency(latencyEnd.longValue() - res.getStartTime() - res.getIdleTime());
+                res.setEndTime(responseEnd.longValue());
+            }
             currentRequest = null;
 
             // Now collect the results into the HTTPSampleResult:
@@ -651,43 +815,65 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
             saveConnectionCookies(httpResponse, res.getURL(), getCookieManager());
 
             // Save cache information
+            final CacheManager cacheManager = getCacheManager();
             if (cacheManager != null){
                 cacheManager.saveDetails(httpResponse, res);
             }
 
             // Follow redirects and download page resources if appropriate:
-            res = resultProcessing(areFollowingRedirect, frameDepth, res);
+            res = resultProcessing(exchange.areFollowingRedirect, exchange.frameDepth, res);
             if(!isSuccessCode(statusCode)) {
                 EntityUtils.consumeQuietly(httpResponse.getEntity());
             }
 
-        } catch (IOException e) {
+        } catch (IOException | RuntimeException e) {
+            return sampleFailed(e, res, localContext);
+        } finally {
+            endSample(exchange);
+        }
+        return res;
+    }
+
+    /**
+     * Wait for the response of a request whose execution by the client
+     * returned before it was received
+     *
+     * @param httpResponse response returned by the client
+     * @param localContext {@link HttpContext} of the request
+     * @return the response, the one returned by the client by default
+     * @throws IOException if the request failed
+     */
+    protected CloseableHttpResponse awaitResponse(CloseableHttpResponse httpResponse, HttpContext localContext)
+            throws IOException {
+        return httpResponse;
+    }
+
+    private HTTPSampleResult sampleFailed(Exception e, HTTPSampleResult res, HttpContext localContext) {
+        if (e instanceof IOException) {
             log.debug("IOException", e);
-            if (res.getEndTime() == 0) {
-                res.sampleEnd();
-            }
-           // pick up headers if failed to execute the request
+        } else {
+            log.debug("RuntimeException", e);
+        }
+        if (res.getEndTime() == 0) {
+            res.sampleEnd();
+        }
+        if (e instanceof IOException) {
+            // pick up headers if failed to execute the request
             if (res.getRequestHeaders() != null) {
                 log.debug("Overwriting request old headers: {}", res.getRequestHeaders());
             }
             res.setRequestHeaders(getAllHeadersExceptCookie((HttpRequest) localContext.getAttribute(HttpCoreContext.HTTP_REQUEST)));
-            errorResult(e, res);
-            return res;
-        } catch (RuntimeException e) {
-            log.debug("RuntimeException", e);
-            if (res.getEndTime() == 0) {
-                res.sampleEnd();
-            }
-            errorResult(e, res);
-            return res;
-        } finally {
-            JOrphanUtils.closeQuietly(httpResponse);
-            currentRequest = null;
-            JMeterContextService.getContext().getSamplerContext().remove(CONTEXT_ATTRIBUTE_HTTPCLIENT_TOKEN);
         }
+        errorResult(e, res);
         return res;
     }
 
+    private void endSample(SampleExchange exchange) {
+        JOrphanUtils.closeQuietly(exchange.httpResponse);
+        currentRequest = null;
+        JMeterContextService.getContext().getSamplerContext().remove(CONTEXT_ATTRIBUTE_HTTPCLIENT_TOKEN);
+    }
+
     /**
      * @param uri {@link URI}
      * @param method HTTP Method
@@ -748,7 +934,10 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
 
     /**
      * Configure the UserToken so that the SSL context is reused
-     * See <a href="https://bz.apache.org/bugzilla/show_bug.cgi?id=57804">Bug 57804</a>
+     * See <a href="https://bz.apache.org/bugzilla/show_bug.cgi?id=57804">Bug 57804</a>.
+     * When the threads reuse the connections of a shared pool, the first
+     * UserToken is left to HttpClient, which uses the principal of the client
+     * certificate, so that the threads with the same certificate share them.
      * @param jMeterVariables {@link JMeterVariables}
      * @param localContext {@link HttpContext}
      */
@@ -761,7 +950,7 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
         if(userToken != null) {
             log.debug("Found user token:{} as JMeter variable:{}, storing it in HttpContext", userToken, JMETER_VARIABLE_USER_TOKEN);
             localContext.setAttribute(HttpClientContext.USER_TOKEN, userToken);
-        } else {
+        } else if (!isConnectionReuseShared()) {
             // It would be better to create a ClientSessionManager that would compute this value
             // for now it can be Thread.currentThread().getName() but must be changed when we would change 
             // the Thread per User model
@@ -846,14 +1035,14 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
      * Holder class for all fields that define an HttpClient instance;
      * used as the key to the ThreadLocal map of HttpClient instances.
      */
-    private static final class HttpClientKey {
+    static final class HttpClientKey {
 
         private final String target; // protocol://[user:pass@]host:[port]
-        private final boolean hasProxy;
-        private final String proxyHost;
-        private final int proxyPort;
-        private final String proxyUser;
-        private final String proxyPass;
+        final boolean hasProxy;
+        final String proxyHost;
+        final int proxyPort;
+        final String proxyUser;
+        final String proxyPass;
         
         private final int hashCode; // Always create hash because we will always need it
 
@@ -983,87 +1172,12 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
         resetStateIfNeeded(jMeterVariables, clientContext, mapHttpClientPerHttpClientKey);
 
         if (httpClient == null) { // One-time init for this client
-            DnsResolver resolver = this.testElement.getDNSResolver();
-            if (resolver == null) {
-                resolver = SystemDefaultDnsResolver.INSTANCE;
-            }
-            Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory> create().
-                    register("https", new LazyLayeredConnectionSocketFactory()).
-                    register("http", SLOW_CONNECTION_SOCKET_FACTORY).
-                    build();
-            
-            // Modern browsers use more connections per host than the current httpclient default (2)
-            // when using parallel download the httpclient and connection manager are shared by the downloads threads
-            // to be realistic JMeter must set an higher value to DefaultMaxPerRoute
-            PoolingHttpClientConnectionManager pHCCM = 
-                    new PoolingHttpClientConnectionManager(
-                            new JMeterDefaultHttpClientConnectionOperator(registry, null, resolver), 
-                            null, TIME_TO_LIVE, TimeUnit.MILLISECONDS);
-            pHCCM.setValidateAfterInactivity(VALIDITY_AFTER_INACTIVITY_TIMEOUT);
-
-            if(concurrentDwn) {
-                try {
-                    int maxConcurrentDownloads = Integer.parseInt(this.testElement.getConcurrentPool());
-                    pHCCM.setDefaultMaxPerRoute(Math.max(maxConcurrentDownloads, pHCCM.getDefaultMaxPerRoute()));
-                } catch (NumberFormatException nfe) {
-                   // no need to log -> will be done by the sampler
-                }
-            }
-            
-            CookieSpecProvider cookieSpecProvider = new IgnoreSpecProvider();
-            Lookup<CookieSpecProvider> cookieSpecRegistry = RegistryBuilder.<CookieSpecProvider>create()
-                    .register(CookieSpecs.IGNORE_COOKIES, cookieSpecProvider)
-                    .build();
-            
-            HttpClientBuilder builder = HttpClients.custom().setConnectionManager(pHCCM).
-                    setSchemePortResolver(new DefaultSchemePortResolver()).
-                    setDnsResolver(resolver).
-                    setRequestExecutor(REQUEST_EXECUTOR).
-                    setSSLSocketFactory(new LazyLayeredConnectionSocketFactory()).
-                    setDefaultCookieSpecRegistry(cookieSpecRegistry).
-                    setDefaultSocketConfig(SocketConfig.DEFAULT).
-                    setRedirectStrategy(new LaxRedirectStrategy()).
-                    setConnectionTimeToLive(TIME_TO_LIVE, TimeUnit.MILLISECONDS).
-                    setRetryHandler(new StandardHttpRequestRetryHandler(RETRY_COUNT, REQUEST_SENT_RETRY_ENABLED)).
-                    setConnectionReuseStrategy(DefaultClientConnectionReuseStrategy.INSTANCE);
-            
-            Lookup<AuthSchemeProvider> authSchemeRegistry =
-                    RegistryBuilder.<AuthSchemeProvider>create()
-                        .register(AuthSchemes.BASIC, new BasicSchemeFactory())
-                        .register(AuthSchemes.DIGEST, new DigestSchemeFactory())
-                        .register(AuthSchemes.NTLM, new NTLMSchemeFactory())
-                        .register(AuthSchemes.SPNEGO, new SPNegoSchemeFactory())
-                        .register(AuthSchemes.KERBEROS, new DynamicKerberosSchemeFactory(
-                                AuthManager.STRIP_PORT, AuthManager.USE_CANONICAL_HOST_NAME))
-                        .build();
-            builder.setDefaultAuthSchemeRegistry(authSchemeRegistry);
-            
-            if (IDLE_TIMEOUT > 0) {
-                builder.setKeepAliveStrategy(IDLE_STRATEGY);
-            }
-
-            // Set up proxy details
-            if(useProxy) {
-                HttpHost proxy = new HttpHost(proxyHost, proxyPort);
-                builder.setProxy(proxy);
-                
-                CredentialsProvider credsProvider = new BasicCredentialsProvider();
-                if (proxyUser.length() > 0) {
-                    credsProvider.setCredentials(
-                        new AuthScope(proxyHost, proxyPort),
-                        new NTCredentials(proxyUser, proxyPass, LOCALHOST, PROXY_DOMAIN));
-                }
-                builder.setDefaultCredentialsProvider(credsProvider);
-            }
-            builder.disableContentCompression().addInterceptorLast(RESPONSE_CONTENT_ENCODING);
-            if(BASIC_AUTH_PREEMPTIVE) {
-                builder.addInterceptorFirst(PREEMPTIVE_AUTH_INTERCEPTOR);
-            }
-            httpClient = builder.build();
+            Pair<CloseableHttpClient, PoolingHttpClientConnectionManager> newPair = createHttpClient(key);
+            httpClient = newPair.getLeft();
             if (log.isDebugEnabled()) {
                 log.debug("Created new HttpClient: @"+System.identityHashCode(httpClient) + " " + key.toString());
             }
-            mapHttpClientPerHttpClientKey.put(key, Pair.of(httpClient, pHCCM)); // save the agent for next time round
+            mapHttpClientPerHttpClientKey.put(key, newPair); // save the agent for next time round
         } else {
             if (log.isDebugEnabled()) {
                 log.debug("Reusing the HttpClient: @"+System.identityHashCode(httpClient) + " " + key.toString());
@@ -1076,6 +1190,240 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
         return httpClient;
     }
 
+    /**
+     * Create the HttpClient to be used by the current thread for the key, and
+     * the connection manager holding its connections
+     * @param key {@link HttpClientKey} defining the HttpClient
+     * @return {@link Pair} of the {@link CloseableHttpClient} and its
+     *         {@link PoolingHttpClientConnectionManager}, which may be null if
+     *         the client does not hold the connections itself
+     */
+    protected Pair<CloseableHttpClient, PoolingHttpClientConnectionManager> createHttpClient(HttpClientKey key) {
+        DnsResolver resolver = this.testElement.getDNSResolver();
+        if (resolver == null) {
+            resolver = SystemDefaultDnsResolver.INSTANCE;
+        }
+        // Modern browsers use more connections per host than the current httpclient default (2)
+        // when using parallel download the httpclient and connection manager are shared by the downloads threads
+        // to be realistic JMeter must set an higher value to DefaultMaxPerRoute
+        int maxConcurrentDownloads = 0;
+        if(this.testElement.isConcurrentDwn()) {
+            try {
+                maxConcurrentDownloads = Integer.parseInt(this.testElement.getConcurrentPool());
+            } catch (NumberFormatException nfe) {
+               // no need to log -> will be done by the sampler
+            }
+        }
+        PoolingHttpClientConnectionManager pHCCM = null;
+        HttpClientConnectionManager connectionManager;
+        Object sharedPoolScope = getSharedPoolScope();
+        if (sharedPoolScope != null) {
+            // The client does not hold the connections, closing it releases the shared pool
+            Object connectionKey = CONNECTION_POOL_PER_THREAD_CONNECTIONS ? new Object() : getDnsResolverKey(resolver);
+            connectionManager = new SharedHttpClientConnectionManager(sharedPoolScope, connectionKey,
+                    this::createSharedConnectionManager, maxConcurrentDownloads);
+        } else {
+            pHCCM = createConnectionManager(resolver);
+            pHCCM.setValidateAfterInactivity(VALIDITY_AFTER_INACTIVITY_TIMEOUT);
+            pHCCM.setDefaultMaxPerRoute(Math.max(maxConcurrentDownloads, pHCCM.getDefaultMaxPerRoute()));
+            connectionManager = pHCCM;
+        }
+        
+        CookieSpecProvider cookieSpecProvider = new IgnoreSpecProvider();
+        Lookup<CookieSpecProvider> cookieSpecRegistry = RegistryBuilder.<CookieSpecProvider>create()
+                .register(CookieSpecs.IGNORE_COOKIES, cookieSpecProvider)
+                .build();
+        
+        HttpClientBuilder builder = HttpClients.custom().setConnectionManager(connectionManager).
+                setSchemePortResolver(new DefaultSchemePortResolver()).
+                setDnsResolver(resolver).
+                setRequestExecutor(REQUEST_EXECUTOR).
+                setSSLSocketFactory(new LazyLayeredConnectionSocketFactory()).
+                setDefaultCookieSpecRegistry(cookieSpecRegistry).
+                setDefaultSocketConfig(SocketConfig.DEFAULT).
+                setRedirectStrategy(new LaxRedirectStrategy()).
+                setConnectionTimeToLive(TIME_TO_LIVE, TimeUnit.MILLISECONDS).
+                setRetryHandler(new StandardHttpRequestRetryHandler(RETRY_COUNT, REQUEST_SENT_RETRY_ENABLED)).
+                setConnectionReuseStrategy(DefaultClientConnectionReuseStrategy.INSTANCE);
+        
+        builder.setDefaultAuthSchemeRegistry(createAuthSchemeRegistry());
+        
+        if (IDLE_TIMEOUT > 0) {
+            builder.setKeepAliveStrategy(IDLE_STRATEGY);
+        }
+
+        // Set up proxy details
+        if(key.hasProxy) {
+            builder.setProxy(new HttpHost(key.proxyHost, key.proxyPort));
+            builder.setDefaultCredentialsProvider(createProxyCredentialsProvider(key));
+        }
+        if (sharedPoolScope != null) {
+            // Connections of the shared pool are opened with the resolver of the client
+            final DnsResolver clientResolver = resolver;
+            builder.addInterceptorFirst((HttpRequestInterceptor) (request, context) ->
+                    context.setAttribute(CONTEXT_ATTRIBUTE_DNS_RESOLVER, clientResolver));
+        }
+        builder.disableContentCompression().addInterceptorLast(RESPONSE_CONTENT_ENCODING);
+        if(BASIC_AUTH_PREEMPTIVE) {
+            builder.addInterceptorFirst(PREEMPTIVE_AUTH_INTERCEPTOR);
+        }
+        return Pair.of(builder.build(), pHCCM);
+    }
+
+    /**
+     * Create the connection manager of a new HttpClient
+     * @param resolver {@link DnsResolver} resolving the host names
+     * @return {@link PoolingHttpClientConnectionManager} connecting the sockets
+     *         with the JMeter socket factories
+     */
+    protected PoolingHttpClientConnectionManager createConnectionManager(DnsResolver resolver) {
+        return new PoolingHttpClientConnectionManager(
+                new JMeterDefaultHttpClientConnectionOperator(
+                        createSocketFactoryRegistry(new LazyLayeredConnectionSocketFactory()), null, resolver),
+                null, TIME_TO_LIVE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Store in the result the TLS handshakes done by the request, if any
+     * @param res {@link SampleResult} of the request
+     * @param localContext {@link HttpContext} of the request
+     */
+    private static void setTlsHandshakeResults(SampleResult res, HttpContext localContext) {
+        Long tlsHandshakeNanos =
+                (Long) localContext.getAttribute(LazyLayeredConnectionSocketFactory.CONTEXT_ATTRIBUTE_TLS_HANDSHAKE_NANOS);
+        if (tlsHandshakeNanos != null) {
+            res.setTlsHandshakeTime(TimeUnit.NANOSECONDS.toMillis(tlsHandshakeNanos.longValue()));
+            res.setTlsSessionResumed(Boolean.TRUE.equals(
+                    localContext.getAttribute(LazyLayeredConnectionSocketFactory.CONTEXT_ATTRIBUTE_TLS_SESSION_RESUMED)));
+        }
+    }
+
+    /**
+     * Create the connection pool shared by the threads of a scope, when
+     * <code>httpclient4.connection_pool.scope</code> is not <code>none</code>.
+     * Host names are resolved with the {@link DnsResolver} of the client
+     * opening the connection.
+     * @return {@link PoolingHttpClientConnectionManager} bounded by
+     *         <code>httpclient4.connection_pool.max_total</code> and
+     *         <code>httpclient4.connection_pool.max_per_route</code>
+     */
+    private PoolingHttpClientConnectionManager createSharedConnectionManager() {
+        PoolingHttpClientConnectionManager pool = createConnectionManager(ConnectingClientDnsResolver.INSTANCE);
+        pool.setValidateAfterInactivity(VALIDITY_AFTER_INACTIVITY_TIMEOUT);
+        pool.setMaxTotal(CONNECTION_POOL_MAX_TOTAL);
+        pool.setDefaultMaxPerRoute(CONNECTION_POOL_MAX_PER_ROUTE);
+        return pool;
+    }
+
+    /**
+     * @return key of the connection pool shared by the current thread, null if
+     *         the thread uses its own connections
+     */
+    private static Object getSharedPoolScope() {
+        if (CONNECTION_POOL_SCOPE_THREAD_GROUP.equals(CONNECTION_POOL_SCOPE)) {
+            AbstractThreadGroup threadGroup = JMeterContextService.getContext().getThreadGroup();
+            if (threadGroup != null) {
+                return threadGroup;
+            }
+            return CONNECTION_POOL_SCOPE_TEST;
+        }
+        if (CONNECTION_POOL_SCOPE_TEST.equals(CONNECTION_POOL_SCOPE)) {
+            return CONNECTION_POOL_SCOPE_TEST;
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the threads reuse the connections of each other in a
+     *         shared connection pool
+     */
+    private static boolean isConnectionReuseShared() {
+        return !CONNECTION_POOL_PER_THREAD_CONNECTIONS && getSharedPoolScope() != null;
+    }
+
+    /**
+     * Key of the DNS resolution of the connections opened with a resolver:
+     * the connections of a shared pool are reused by the threads whose
+     * resolvers have equal keys
+     * @param resolver {@link DnsResolver} of the client
+     * @return {@link SystemDefaultDnsResolver#INSTANCE} when the host names are
+     *         resolved by the system, the servers and static hosts of a
+     *         {@link DNSCacheManager}, else the resolver itself
+     */
+    // package protected for unit tests
+    static Object getDnsResolverKey(DnsResolver resolver) {
+        if (!(resolver instanceof DNSCacheManager)) {
+            return resolver;
+        }
+        DNSCacheManager dnsCacheManager = (DNSCacheManager) resolver;
+        List<String> key = new ArrayList<>();
+        if (dnsCacheManager.isCustomResolver()) {
+            key.add("servers:"); // $NON-NLS-1$
+            PropertyIterator servers = dnsCacheManager.getServers().iterator();
+            while (servers.hasNext()) {
+                key.add(servers.next().getStringValue());
+            }
+        }
+        PropertyIterator hosts = dnsCacheManager.getHosts().iterator();
+        while (hosts.hasNext()) {
+            StaticHost host = (StaticHost) hosts.next().getObjectValue();
+            key.add(host.getName().toLowerCase(Locale.ENGLISH) + "=" + host.getAddress()); // $NON-NLS-1$
+        }
+        return key.isEmpty() ? SystemDefaultDnsResolver.INSTANCE : key;
+    }
+
+    private static String getConnectionPoolScope() {
+        String scope = JMeterUtils.getPropDefault("httpclient4.connection_pool.scope", CONNECTION_POOL_SCOPE_NONE)
+                .trim();
+        if (!CONNECTION_POOL_SCOPE_NONE.equals(scope)
+                && !CONNECTION_POOL_SCOPE_THREAD_GROUP.equals(scope)
+                && !CONNECTION_POOL_SCOPE_TEST.equals(scope)) {
+            log.warn("Invalid value '{}' for httpclient4.connection_pool.scope, using '{}'",
+                    scope, CONNECTION_POOL_SCOPE_NONE);
+            return CONNECTION_POOL_SCOPE_NONE;
+        }
+        return scope;
+    }
+
+    /**
+     * @param httpsSocketFactory {@link ConnectionSocketFactory} of the https sockets
+     * @return {@link Registry} of the socket factories of each scheme
+     */
+    static Registry<ConnectionSocketFactory> createSocketFactoryRegistry(ConnectionSocketFactory httpsSocketFactory) {
+        return RegistryBuilder.<ConnectionSocketFactory> create().
+                register("https", httpsSocketFactory).
+                register("http", SLOW_CONNECTION_SOCKET_FACTORY).
+                build();
+    }
+
+    /**
+     * @param key {@link HttpClientKey} of a client using a proxy
+     * @return {@link CredentialsProvider} holding the credentials of the proxy user if any
+     */
+    static CredentialsProvider createProxyCredentialsProvider(HttpClientKey key) {
+        CredentialsProvider credsProvider = new BasicCredentialsProvider();
+        if (key.proxyUser.length() > 0) {
+            credsProvider.setCredentials(
+                new AuthScope(key.proxyHost, key.proxyPort),
+                new NTCredentials(key.proxyUser, key.proxyPass, LOCALHOST, PROXY_DOMAIN));
+        }
+        return credsProvider;
+    }
+
+    /**
+     * @return {@link Lookup} of the authentication schemes supported by JMeter
+     */
+    static Lookup<AuthSchemeProvider> createAuthSchemeRegistry() {
+        return RegistryBuilder.<AuthSchemeProvider>create()
+                .register(AuthSchemes.BASIC, new BasicSchemeFactory())
+                .register(AuthSchemes.DIGEST, new DigestSchemeFactory())
+                .register(AuthSchemes.NTLM, new NTLMSchemeFactory())
+                .register(AuthSchemes.SPNEGO, new SPNegoSchemeFactory())
+                .register(AuthSchemes.KERBEROS, new DynamicKerberosSchemeFactory(
+                        AuthManager.STRIP_PORT, AuthManager.USE_CANONICAL_HOST_NAME))
+                .build();
+    }
+
     /**
      * Reset SSL State. <br/>
      * In order to do that we need to:
@@ -1107,8 +1455,13 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
         for (Pair<CloseableHttpClient, PoolingHttpClientConnectionManager> pair :
                 mapHttpClientPerHttpClientKey.values()) {
             PoolingHttpClientConnectionManager poolingHttpClientConnectionManager = pair.getRight();
-            poolingHttpClientConnectionManager.closeExpiredConnections();
-            poolingHttpClientConnectionManager.closeIdleConnections(1L, TimeUnit.MICROSECONDS);
+            if (poolingHttpClientConnectionManager != null) {
+                poolingHttpClientConnectionManager.closeExpiredConnections();
+                poolingHttpClientConnectionManager.closeIdleConnections(1L, TimeUnit.MICROSECONDS);
+            } else {
+                // The client does not hold its connections, closing it stops their reuse
+                JOrphanUtils.closeQuietly(pair.getLeft());
+            }
         }
     }
 
@@ -28,13 +28,14 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.jmeter.protocol.http.util.HTTPConstants;
+import org.apache.jmeter.samplers.BinarySampleFields;
 import org.apache.jmeter.samplers.SampleResult;
 
 /**
  * This is a specialisation of the SampleResult class for the HTTP protocol.
  *
  */
-public class HTTPSampleResult extends SampleResult {
+public class HTTPSampleResult extends SampleResult implements BinarySampleFields {
 
     private static final long serialVersionUID = 241L;
 
@@ -212,6 +213,27 @@ public class HTTPSampleResult extends SampleResult {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The sampler data is the one set on this result, not the one returned by
+     * {@link #getSamplerData()} that includes the HTTP fields.
+     */
+    @Override
+    public String[] getBinaryFields() {
+        return new String[] { method, cookies, queryString, redirectLocation, super.getSamplerData() };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setBinaryFields(String[] fields) {
+        setHTTPMethod(fields[0]);
+        setCookies(fields[1]);
+        setQueryString(fields[2]);
+        setRedirectLocation(fields[3]);
+        setSamplerData(fields[4]);
+    }
+
     /**
      * Overrides the method from SampleResult - so the encoding can be extracted from
      * the Meta content-type if necessary.
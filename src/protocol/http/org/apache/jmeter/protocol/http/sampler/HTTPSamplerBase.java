@@ -57,6 +57,7 @@ import org.apache.jmeter.protocol.http.parser.BaseParser;
 import org.apache.jmeter.protocol.http.parser.LinkExtractorParseException;
 import org.apache.jmeter.protocol.http.parser.LinkExtractorParser;
 import org.apache.jmeter.protocol.http.sampler.ResourcesDownloader.AsynSamplerResultHolder;
+import org.apache.jmeter.protocol.http.sampler.ResourcesDownloader.DownloadStarter;
 import org.apache.jmeter.protocol.http.util.ConversionUtils;
 import org.apache.jmeter.protocol.http.util.DirectAccessByteArrayOutputStream;
 import org.apache.jmeter.protocol.http.util.EncoderCache;
@@ -68,6 +69,7 @@ import org.apache.jmeter.protocol.http.util.HTTPFileArgs;
 import org.apache.jmeter.report.utils.MetricUtils;
 import org.apache.jmeter.samplers.AbstractSampler;
 import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.ResponseDataUsage;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.TestIterationListener;
@@ -198,6 +200,19 @@ public abstract class HTTPSamplerBase extends AbstractSampler
     private static final int MAX_BUFFER_SIZE = 
             JMeterUtils.getPropDefault("httpsampler.max_buffer_size", 65 * 1024); // $NON-NLS-1$
 
+    /**
+     * Maximum size of the buffer kept by each sampling thread to read the
+     * responses of unknown length, 0 to allocate new buffers for each response
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE =
+            JMeterUtils.getPropDefault("httpsampler.max_retained_buffer_size", 0); // $NON-NLS-1$
+
+    private static final int READ_BUFFER_SIZE = 8192; // 8kB is the (max) size to have the latency ('the first packet')
+
+    /** Buffers of the sampling thread, used when MAX_RETAINED_BUFFER_SIZE is positive */
+    private static final ThreadLocal<ResponseBuffers> RESPONSE_BUFFERS =
+            ThreadLocal.withInitial(ResponseBuffers::new);
+
     private static final boolean IGNORE_FAILED_EMBEDDED_RESOURCES =
             JMeterUtils.getPropDefault("httpsampler.ignore_failed_embedded_resources", false); // $NON-NLS-1$ // default value: false
 
@@ -1264,6 +1279,20 @@ public abstract class HTTPSamplerBase extends AbstractSampler
     protected abstract HTTPSampleResult sample(URL u,
             String method, boolean areFollowingRedirect, int depth);
 
+    /**
+     * Get the starter of the concurrent downloads of embedded resources, when
+     * the implementation can download them without blocking the current thread.
+     *
+     * @param depth
+     *            Depth of the resources in the frame structure
+     * @return the {@link DownloadStarter} used by the current thread to download
+     *         the resources, or null to download them with the threads of the
+     *         {@link ResourcesDownloader}
+     */
+    protected DownloadStarter getResourceDownloadStarter(int depth) {
+        return null;
+    }
+
     /**
      * Download the resources of an HTML page.
      *
@@ -1317,6 +1346,7 @@ public abstract class HTTPSamplerBase extends AbstractSampler
 
             // For concurrent get resources
             final List<Callable<AsynSamplerResultHolder>> list = new ArrayList<>();
+            final List<URL> pipelinedUrls = new ArrayList<>();
 
             int maxConcurrentDownloads = CONCURRENT_POOL_SIZE; // init with default value
             boolean isConcurrentDwn = isConcurrentDwn();
@@ -1335,6 +1365,7 @@ public abstract class HTTPSamplerBase extends AbstractSampler
                     isConcurrentDwn = false;
                 }
             }
+            final DownloadStarter downloadStarter = isConcurrentDwn ? getResourceDownloadStarter(frameDepth + 1) : null;
 
             while (urls.hasNext()) {
                 Object binURL = urls.next(); // See catch clause below
@@ -1362,7 +1393,10 @@ public abstract class HTTPSamplerBase extends AbstractSampler
                             continue;
                         }
 
-                        if (isConcurrentDwn) {
+                        if (downloadStarter != null) {
+                            // the current thread downloads the resources without waiting for each one
+                            pipelinedUrls.add(url);
+                        } else if (isConcurrentDwn) {
                             // if concurrent download emb. resources, add to a list for async gets later
                             list.add(new ASyncSample(url, HTTPConstants.GET, false, frameDepth + 1, getCookieManager(), this));
                         } else {
@@ -1410,6 +1444,20 @@ public abstract class HTTPSamplerBase extends AbstractSampler
                     log.warn("Execution issue when fetching embedded resources", ee); // $NON-NLS-1$
                 }
             }
+
+            if (!pipelinedUrls.isEmpty()) {
+                try {
+                    List<HTTPSampleResult> binResults = ResourcesDownloader.getInstance()
+                            .downloadAndAwaitCompletion(maxConcurrentDownloads, pipelinedUrls, downloadStarter);
+                    for (HTTPSampleResult binRes : binResults) {
+                        res.addSubResult(binRes);
+                        setParentSampleSuccess(res, res.isSuccessful() && (binRes == null || binRes.isSuccessful()));
+                    }
+                } catch (InterruptedException ie) {
+                    log.warn("Interrupted fetching embedded resources", ie); // $NON-NLS-1$
+                    Thread.currentThread().interrupt();
+                }
+            }
         }
         return res;
     }
@@ -1832,11 +1880,25 @@ public abstract class HTTPSamplerBase extends AbstractSampler
     public byte[] readResponse(SampleResult sampleResult, InputStream in, long length) throws IOException {
         
         OutputStream w = null;
+        ResponseBuffers buffers = null;
+        if (MAX_RETAINED_BUFFER_SIZE > 0) {
+            buffers = RESPONSE_BUFFERS.get();
+            if (buffers.inUse) {
+                // Not expected, unless a stream reads another response
+                buffers = null;
+            } else {
+                buffers.inUse = true;
+            }
+        }
         try { // NOSONAR No try with resource as performance is critical here
-            byte[] readBuffer = new byte[8192]; // 8kB is the (max) size to have the latency ('the first packet')
+            byte[] readBuffer = buffers != null ? buffers.readBuffer : new byte[READ_BUFFER_SIZE];
             int bufferSize = 32;// Enough for MD5
 
+            JMeterContext context = JMeterContextService.getContext();
+            long maxBytesToStore = getMaxBytesToStore(context);
             MessageDigest md = null;
+            // MD5 of the data not kept, for the elements applying to the sample
+            MessageDigest dataMD5 = null;
             boolean knownResponseLength = length > 0;// may also happen if long value > int.max
             if (useMD5()) {
                 try {
@@ -1850,20 +1912,33 @@ public abstract class HTTPSamplerBase extends AbstractSampler
                 } else {
                     bufferSize = (int) Math.min(MAX_BUFFER_SIZE, length);
                 }
+                bufferSize = (int) Math.min(bufferSize, maxBytesToStore);
+                if (maxBytesToStore != ResponseDataUsage.ALL && context.isResponseDataMD5Used()) {
+                    try {
+                        dataMD5 = MessageDigest.getInstance("MD5"); //$NON-NLS-1$
+                    } catch (NoSuchAlgorithmException e) {
+                        log.error("Should not happen - could not find MD5 digest", e);
+                    }
+                }
             }
             
             
             int bytesReadInBuffer = 0;
             long totalBytes = 0;
             boolean first = true;
-            boolean storeInBOS = true;
+            boolean storeInBOS = maxBytesToStore > 0;
             while ((bytesReadInBuffer = in.read(readBuffer)) > -1) {
                 if (first) {
                     sampleResult.latencyEnd();
                     first = false;
-                    if(md == null) {
+                    if(md == null && storeInBOS) {
                         if(!knownResponseLength) {
-                            w = new org.apache.commons.io.output.ByteArrayOutputStream(bufferSize);
+                            if (buffers != null) {
+                                // Copied by toByteArray, so it can be reused by the next response
+                                w = buffers.responseBuffer;
+                            } else {
+                                w = new org.apache.commons.io.output.ByteArrayOutputStream(bufferSize);
+                            }
                         }
                         else {
                             w = new DirectAccessByteArrayOutputStream(bufferSize);
@@ -1873,16 +1948,17 @@ public abstract class HTTPSamplerBase extends AbstractSampler
                 
                 if (md == null) {
                     if(storeInBOS) {
-                        if(MAX_BYTES_TO_STORE_PER_REQUEST <= 0 ||
-                                (totalBytes+bytesReadInBuffer<=MAX_BYTES_TO_STORE_PER_REQUEST) ||
-                                JMeterContextService.getContext().isRecording()) {
+                        if(totalBytes+bytesReadInBuffer<=maxBytesToStore) {
                             w.write(readBuffer, 0, bytesReadInBuffer);
                         } else {
-                            log.debug("Big response, truncating it to {} bytes", MAX_BYTES_TO_STORE_PER_REQUEST);
-                            w.write(readBuffer, 0, (int)(MAX_BYTES_TO_STORE_PER_REQUEST-totalBytes));
+                            log.debug("Big or unused response, truncating it to {} bytes", maxBytesToStore);
+                            w.write(readBuffer, 0, (int)(maxBytesToStore-totalBytes));
                             storeInBOS = false;
                         }
                     }
+                    if (dataMD5 != null) {
+                        dataMD5.update(readBuffer, 0, bytesReadInBuffer);
+                    }
                 } else {
                     md.update(readBuffer, 0, bytesReadInBuffer);
                 }
@@ -1895,7 +1971,14 @@ public abstract class HTTPSamplerBase extends AbstractSampler
             }
             
             if (md == null) {
-                return toByteArray(w);
+                if (dataMD5 != null) {
+                    sampleResult.setResponseDataMD5Hex(JOrphanUtils.baToHexString(dataMD5.digest()));
+                }
+                if (totalBytes > maxBytesToStore) {
+                    // The body size defaults to the length of the kept response data
+                    sampleResult.setBodySize(totalBytes);
+                }
+                return w == null ? new byte[0] : toByteArray(w);
             } else {
                 byte[] md5Result = md.digest();
                 sampleResult.setBytes(totalBytes);
@@ -1905,7 +1988,26 @@ public abstract class HTTPSamplerBase extends AbstractSampler
         } finally {
             IOUtils.closeQuietly(in);
             IOUtils.closeQuietly(w);
+            if (buffers != null) {
+                buffers.release();
+            }
+        }
+    }
+
+    /**
+     * @param context the context of the sampling thread
+     * @return the maximum number of bytes of the response to keep in the sample result
+     */
+    private long getMaxBytesToStore(JMeterContext context) {
+        if (context.isRecording()) {
+            return ResponseDataUsage.ALL;
+        }
+        // The embedded resources are parsed from the response
+        long maxBytesToStore = isImageParser() ? ResponseDataUsage.ALL : context.getResponseDataUsage();
+        if (MAX_BYTES_TO_STORE_PER_REQUEST > 0) {
+            maxBytesToStore = Math.min(maxBytesToStore, MAX_BYTES_TO_STORE_PER_REQUEST);
         }
+        return maxBytesToStore;
     }
 
     /**
@@ -1921,6 +2023,10 @@ public abstract class HTTPSamplerBase extends AbstractSampler
         if(w instanceof org.apache.commons.io.output.ByteArrayOutputStream) {
             return ((org.apache.commons.io.output.ByteArrayOutputStream) w).toByteArray();
         }
+
+        if(w instanceof ByteArrayOutputStream) {
+            return ((ByteArrayOutputStream) w).toByteArray();
+        }
         
         log.warn("Unknown stream type " + w.getClass());
         
@@ -2040,6 +2146,24 @@ public abstract class HTTPSamplerBase extends AbstractSampler
         setProperty(CONCURRENT_POOL, poolSize, CONCURRENT_POOL_DEFAULT);
     }
 
+    /**
+     * Buffers reused by the responses read by a sampling thread
+     */
+    private static final class ResponseBuffers {
+        private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+        private ByteArrayOutputStream responseBuffer = new ByteArrayOutputStream(4 * 1024);
+        private boolean inUse;
+
+        private void release() {
+            if (responseBuffer.size() > MAX_RETAINED_BUFFER_SIZE) {
+                // Do not keep the memory of an unusually big response
+                responseBuffer = new ByteArrayOutputStream(4 * 1024);
+            } else {
+                responseBuffer.reset();
+            }
+            inUse = false;
+        }
+    }
 
     /**
      * Callable class to sample asynchronously resources embedded
@@ -42,6 +42,10 @@ public final class HTTPSamplerFactory {
     public static final String IMPL_HTTP_CLIENT3_1 = "HttpClient3.1"; // $NON-NLS-1$
     
     public static final String IMPL_JAVA = "Java"; // $NON-NLS-1$
+
+    public static final String IMPL_HTTP_ASYNC_CLIENT4 = "HttpAsyncClient4"; // $NON-NLS-1$
+
+    public static final String IMPL_HTTP2 = "HTTP2"; // $NON-NLS-1$
     //- JMX
 
     public static final String DEFAULT_CLASSNAME =
@@ -64,6 +68,7 @@ public final class HTTPSamplerFactory {
      * Create a new instance of the required sampler type
      *
      * @param alias HTTP_SAMPLER or HTTP_SAMPLER_APACHE or IMPL_HTTP_CLIENT3_1 or IMPL_HTTP_CLIENT4
+     *  or IMPL_HTTP_ASYNC_CLIENT4 or IMPL_HTTP2
      * @return the appropriate sampler
      * @throws UnsupportedOperationException if alias is not recognised
      */
@@ -77,11 +82,17 @@ public final class HTTPSamplerFactory {
         if (alias.equals(IMPL_HTTP_CLIENT4) || alias.equals(HTTP_SAMPLER_APACHE) || alias.equals(IMPL_HTTP_CLIENT3_1)) {
             return new HTTPSamplerProxy(IMPL_HTTP_CLIENT4);
         }
+        if (alias.equals(IMPL_HTTP_ASYNC_CLIENT4)) {
+            return new HTTPSamplerProxy(IMPL_HTTP_ASYNC_CLIENT4);
+        }
+        if (alias.equals(IMPL_HTTP2)) {
+            return new HTTPSamplerProxy(IMPL_HTTP2);
+        }
         throw new IllegalArgumentException("Unknown sampler type: '" + alias+"'");
     }
 
     public static String[] getImplementations(){
-        return new String[]{IMPL_HTTP_CLIENT4,IMPL_JAVA};
+        return new String[]{IMPL_HTTP_CLIENT4,IMPL_JAVA,IMPL_HTTP_ASYNC_CLIENT4,IMPL_HTTP2};
     }
 
     public static HTTPAbstractImpl getImplementation(String impl, HTTPSamplerBase base){
@@ -95,6 +106,10 @@ public final class HTTPSamplerFactory {
             return new HTTPJavaImpl(base);
         } else if (IMPL_HTTP_CLIENT4.equals(impl) || IMPL_HTTP_CLIENT3_1.equals(impl)) {
             return new HTTPHC4Impl(base);
+        } else if (IMPL_HTTP_ASYNC_CLIENT4.equals(impl)) {
+            return new HTTPHC4AsyncImpl(base);
+        } else if (IMPL_HTTP2.equals(impl)) {
+            return new HTTPHC4Http2Impl(base);
         } else {
             throw new IllegalArgumentException("Unknown implementation type: '"+impl+"'");
         }
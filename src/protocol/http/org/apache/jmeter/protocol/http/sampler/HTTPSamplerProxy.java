@@ -21,6 +21,7 @@ package org.apache.jmeter.protocol.http.sampler;
 import java.net.URL;
 
 import org.apache.jmeter.engine.event.LoopIterationEvent;
+import org.apache.jmeter.protocol.http.sampler.ResourcesDownloader.DownloadStarter;
 import org.apache.jmeter.samplers.Interruptible;
 
 /**
@@ -67,6 +68,13 @@ public final class HTTPSamplerProxy extends HTTPSamplerBase implements Interrupt
         return impl.sample(u, method, areFollowingRedirect, depth);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected DownloadStarter getResourceDownloadStarter(int depth) {
+        // impl is set, the resources being downloaded while it samples their page
+        return impl != null ? impl.getResourceDownloadStarter(depth) : null;
+    }
+
     // N.B. It's not possible to forward threadStarted() to the implementation class.
     // This is because Config items are not processed until later, and HTTPDefaults may define the implementation
 
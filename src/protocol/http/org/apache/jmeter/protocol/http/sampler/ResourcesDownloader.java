@@ -18,15 +18,24 @@
 
 package org.apache.jmeter.protocol.http.sampler;
 
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.jmeter.testelement.property.CollectionProperty;
 import org.apache.jmeter.util.JMeterUtils;
@@ -56,12 +65,11 @@ import org.slf4j.LoggerFactory;
  * the Future list only contains task that have been scheduled in the threadpool.<br>
  * The status of those futures are either done or cancelled<br>
  * <br>
- *  
- *  Future enhancements :
- *  <ul>
- *  <li>this implementation should be replaced with a NIO async download
- *   in order to reduce the number of threads needed</li>
- *  </ul>
+ * When the implementation of the sampler does not block its thread while
+ * waiting for responses, the resources are downloaded by the thread of the
+ * sampler instead, see
+ * {@link #downloadAndAwaitCompletion(int, List, DownloadStarter)}: no thread is
+ * needed and the sampler is not cloned.
  * @since 3.0
  */
 public class ResourcesDownloader {
@@ -71,6 +79,9 @@ public class ResourcesDownloader {
     /** this is the maximum time that excess idle threads will wait for new tasks before terminating */
     private static final long THREAD_KEEP_ALIVE_TIME = JMeterUtils.getPropDefault("httpsampler.parallel_download_thread_keepalive_inseconds", 60L);
     
+    /** maximum number of parallel downloads from the same host, when downloaded by the thread of the sampler */
+    private static final int MAX_DOWNLOADS_PER_HOST = JMeterUtils.getPropDefault("httpsampler.parallel_download_max_per_host", 6);
+
     private static final int MIN_POOL_SIZE = 1;
     private static final int MAX_POOL_SIZE = Integer.MAX_VALUE;
     
@@ -204,6 +215,119 @@ public class ResourcesDownloader {
     }
     
     
+    /**
+     * Download started by a {@link DownloadStarter}, which does not block the
+     * thread while the response is received
+     * @since 4.1
+     */
+    public interface PendingDownload {
+        /**
+         * Process the response, once the download is ready
+         * @return the result of the download
+         */
+        HTTPSampleResult complete();
+
+        /**
+         * Abort the download, which still becomes ready
+         */
+        void cancel();
+    }
+
+    /**
+     * Starts downloads without blocking the thread
+     * @since 4.1
+     */
+    @FunctionalInterface
+    public interface DownloadStarter {
+        /**
+         * @param url resource to download
+         * @param onReady called by any thread, once, when the download can be
+         *            completed without waiting for the response
+         * @return the started download
+         */
+        PendingDownload start(URL url, Runnable onReady);
+    }
+
+    /**
+     * Download the resources from the current thread, which only waits for the
+     * next response to be ready, starting at most
+     * <code>maxConcurrentDownloads</code> downloads at the same time, and at
+     * most <code>httpsampler.parallel_download_max_per_host</code> from the
+     * same host. The downloads are started in the order of the list, skipping
+     * those whose host is busy.
+     * <p>
+     * The downloads in progress are cancelled if the thread is interrupted.
+     *
+     * @param maxConcurrentDownloads max concurrent downloads
+     * @param urls resources to download
+     * @param starter starts the downloads
+     * @return results of the downloads, in the order of the resources
+     * @throws InterruptedException when interrupted while waiting
+     * @since 4.1
+     */
+    public List<HTTPSampleResult> downloadAndAwaitCompletion(int maxConcurrentDownloads, List<URL> urls,
+            DownloadStarter starter) throws InterruptedException {
+        List<Download> waiting = new LinkedList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            waiting.add(new Download(i, urls.get(i)));
+        }
+        HTTPSampleResult[] results = new HTTPSampleResult[urls.size()];
+        BlockingQueue<Download> ready = new LinkedBlockingQueue<>();
+        Map<String, Integer> downloadsPerHost = new HashMap<>();
+        List<Download> started = new ArrayList<>();
+        int remaining = urls.size();
+        try {
+            while (remaining > 0) {
+                for (Iterator<Download> it = waiting.iterator();
+                        it.hasNext() && started.size() < maxConcurrentDownloads;) {
+                    Download download = it.next();
+                    int hostDownloads = downloadsPerHost.getOrDefault(download.host, 0);
+                    if (hostDownloads < MAX_DOWNLOADS_PER_HOST) {
+                        it.remove();
+                        download.pending = starter.start(download.url, () -> {
+                            if (download.ready.compareAndSet(false, true)) {
+                                ready.add(download);
+                            }
+                        });
+                        downloadsPerHost.put(download.host, hostDownloads + 1);
+                        started.add(download);
+                    }
+                }
+                Download download = ready.take();
+                started.remove(download);
+                downloadsPerHost.merge(download.host, -1, Integer::sum);
+                results[download.index] = download.pending.complete();
+                remaining--;
+            }
+        } finally {
+            if (remaining > 0) {
+                LOG.debug("Interrupted while waiting for resource downloads : cancelling started downloads");
+                for (Download download : started) {
+                    download.pending.cancel();
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Download of {@link #downloadAndAwaitCompletion(int, List, DownloadStarter)}
+     */
+    private static final class Download {
+        private final int index;
+        private final URL url;
+        private final String host;
+        private final AtomicBoolean ready = new AtomicBoolean();
+        private PendingDownload pending;
+
+        private Download(int index, URL url) {
+            this.index = index;
+            this.url = url;
+            int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+            this.host = url.getProtocol() + "://" + url.getHost() + ":" + port; // $NON-NLS-1$ $NON-NLS-2$
+        }
+    }
+
     /**
      * Holder of AsynSampler result
      */
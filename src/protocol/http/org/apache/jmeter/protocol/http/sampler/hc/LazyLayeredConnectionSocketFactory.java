@@ -22,12 +22,17 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
 import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLInitializationException;
 import org.apache.http.protocol.HttpContext;
+import org.apache.jmeter.protocol.http.sampler.hc.http2.AlpnSSLConnectionSocketFactory;
 import org.apache.jmeter.util.HttpSSLProtocolSocketFactory;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.util.JsseSSLManager;
@@ -35,11 +40,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * LazyLayeredConnectionSocketFactory that lazily initializes HTTPS Socket Factory
+ * LazyLayeredConnectionSocketFactory that lazily initializes HTTPS Socket Factory.
+ * <p>
+ * The duration of the TLS handshakes and whether they resumed a previous
+ * session are stored in the {@link HttpContext} of the request.
  * @since 4.1
  */
 public final class LazyLayeredConnectionSocketFactory implements LayeredConnectionSocketFactory{
     private static final Logger LOG = LoggerFactory.getLogger(LazyLayeredConnectionSocketFactory.class);
+
+    /** Context attribute holding the nanoseconds spent in the TLS handshakes of the request */
+    public static final String CONTEXT_ATTRIBUTE_TLS_HANDSHAKE_NANOS = "__jmeter.TLS_HN__"; //$NON-NLS-1$
+
+    /** Context attribute holding true if the last TLS handshake of the request resumed a session */
+    public static final String CONTEXT_ATTRIBUTE_TLS_SESSION_RESUMED = "__jmeter.TLS_SR__"; //$NON-NLS-1$
+
     private static final String PROTOCOL_LIST =
             JMeterUtils.getPropDefault("https.socket.protocols", ""); // $NON-NLS-1$ $NON-NLS-2$
 
@@ -72,32 +87,101 @@ public final class LazyLayeredConnectionSocketFactory implements LayeredConnecti
             return ADAPTEE;
         }
     }
-    
+
+    private static class Http2AdapteeHolder { // IODH idiom
+        private static final LayeredConnectionSocketFactory ADAPTEE = checkAndInit();
+
+        private static LayeredConnectionSocketFactory checkAndInit() throws SSLInitializationException {
+            LOG.info("Setting up HTTPS TrustAll Socket Factory offering HTTP/2");
+            return new AlpnSSLConnectionSocketFactory(
+                    new HttpSSLProtocolSocketFactory(JsseSSLManager.CPS),
+                    SUPPORTED_PROTOCOL_LIST,
+                    SUPPORTED_CIPHER_LIST,
+                    NoopHostnameVerifier.INSTANCE);
+        }
+    }
+
+    private final boolean http2;
+
     /**
      * 
      */
     public LazyLayeredConnectionSocketFactory() {
+        this(false);
+    }
+
+    /**
+     * @param http2 true to offer HTTP/2 to the servers through ALPN
+     */
+    public LazyLayeredConnectionSocketFactory(boolean http2) {
         super();
+        this.http2 = http2;
+    }
+
+    private LayeredConnectionSocketFactory getAdaptee() {
+        return http2 ? Http2AdapteeHolder.ADAPTEE : AdapteeHolder.getINSTANCE();
     }
 
     @Override
     public Socket createSocket(HttpContext paramHttpContext) throws IOException {
-        return AdapteeHolder.getINSTANCE().createSocket(paramHttpContext);
+        return getAdaptee().createSocket(paramHttpContext);
     }
 
     @Override
     public Socket connectSocket(int paramInt, Socket paramSocket, HttpHost paramHttpHost,
             InetSocketAddress paramInetSocketAddress1, InetSocketAddress paramInetSocketAddress2,
             HttpContext paramHttpContext) throws IOException {
-        return AdapteeHolder.getINSTANCE().connectSocket(paramInt, paramSocket, paramHttpHost,
-                paramInetSocketAddress1, paramInetSocketAddress2,
+        Socket socket = paramSocket != null ? paramSocket : createSocket(paramHttpContext);
+        if (socket instanceof SSLSocket) {
+            // Handshake done while connecting, it cannot be measured apart
+            return getAdaptee().connectSocket(paramInt, socket, paramHttpHost,
+                    paramInetSocketAddress1, paramInetSocketAddress2,
+                    paramHttpContext);
+        }
+        // Connect then layer the socket as the adaptee does, to measure the handshake
+        if (paramInt > 0 && socket.getSoTimeout() == 0) {
+            socket.setSoTimeout(paramInt);
+        }
+        PlainConnectionSocketFactory.getSocketFactory().connectSocket(paramInt, socket, paramHttpHost,
+                paramInetSocketAddress1, paramInetSocketAddress2, paramHttpContext);
+        return createLayeredSocket(socket, paramHttpHost.getHostName(), paramInetSocketAddress1.getPort(),
                 paramHttpContext);
     }
 
     @Override
     public Socket createLayeredSocket(Socket paramSocket, String paramString, int paramInt,
             HttpContext paramHttpContext) throws IOException {
-        return AdapteeHolder.getINSTANCE().createLayeredSocket(paramSocket, paramString, paramInt,
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        Socket layeredSocket = getAdaptee().createLayeredSocket(paramSocket, paramString, paramInt,
             paramHttpContext);
+        long handshakeNanos = System.nanoTime() - start;
+        if (layeredSocket instanceof SSLSocket) {
+            SSLSession session = ((SSLSocket) layeredSocket).getSession();
+            recordHandshake(paramHttpContext, handshakeNanos, isResumed(session, startMillis));
+        }
+        return layeredSocket;
+    }
+
+    /**
+     * A full handshake creates the session while it runs. A resumed session,
+     * including a TLSv1.3 one which is a new session object, keeps the
+     * creation time of the session it resumes.
+     * @param session {@link SSLSession} negotiated by the handshake
+     * @param handshakeStartMillis time when the handshake started
+     * @return true if the session was created before the handshake started
+     */
+    static boolean isResumed(SSLSession session, long handshakeStartMillis) {
+        return session.getCreationTime() < handshakeStartMillis;
+    }
+
+    private static void recordHandshake(HttpContext context, long handshakeNanos, boolean resumed) {
+        if (context == null) {
+            return;
+        }
+        Long previousNanos = (Long) context.getAttribute(CONTEXT_ATTRIBUTE_TLS_HANDSHAKE_NANOS);
+        context.setAttribute(CONTEXT_ATTRIBUTE_TLS_HANDSHAKE_NANOS,
+                Long.valueOf(previousNanos == null ? handshakeNanos : previousNanos.longValue() + handshakeNanos));
+        context.setAttribute(CONTEXT_ATTRIBUTE_TLS_SESSION_RESUMED, Boolean.valueOf(resumed));
     }
 }
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link HttpClientConnectionManager} giving a client access to a
+ * {@link PoolingHttpClientConnectionManager} shared by all the clients of the
+ * same scope, for instance the threads of a thread group.
+ * <p>
+ * The shared pool is created by the first client using it, and shut down when
+ * the last client using it is shut down. A client shut down before the end of
+ * the test gets access to the pool again on its next request.
+ * <p>
+ * A connection is leased again by any client of the scope having an equal
+ * connection key, for instance the configuration of its DNS resolution, and
+ * the same state, for instance the principal of its client certificate. A
+ * client given a key of its own only reuses the connections it opened. When
+ * the pool is full, idle connections of other keys are closed to open new
+ * ones.
+ * <p>
+ * The time spent by each thread waiting for a connection of the pool is
+ * accumulated until read by {@link #getAndResetLeaseWaitTime()}.
+ * @since 4.1
+ */
+public final class SharedHttpClientConnectionManager implements HttpClientConnectionManager {
+    private static final Logger log = LoggerFactory.getLogger(SharedHttpClientConnectionManager.class);
+
+    /** Pools by scope, guarded by itself */
+    private static final Map<Object, SharedPool> POOLS = new HashMap<>();
+
+    /** Nanoseconds spent by the current thread waiting for a connection */
+    private static final ThreadLocal<long[]> LEASE_WAIT_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final Object scope;
+
+    private final Object connectionKey;
+
+    private final Supplier<PoolingHttpClientConnectionManager> poolFactory;
+
+    private final int minMaxPerRoute;
+
+    /** Pool used by this client, null when not acquired, guarded by this */
+    private PoolingHttpClientConnectionManager pool;
+
+    private static final class SharedPool {
+        private final PoolingHttpClientConnectionManager pool;
+        private int users;
+
+        private SharedPool(PoolingHttpClientConnectionManager pool) {
+            this.pool = pool;
+        }
+    }
+
+    /**
+     * State of the connections in the pool, restricting their reuse to the
+     * clients having an equal connection key
+     */
+    private static final class PoolState {
+        private final Object connectionKey;
+        private final Object state;
+
+        private PoolState(Object connectionKey, Object state) {
+            this.connectionKey = connectionKey;
+            this.state = state;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof PoolState)) {
+                return false;
+            }
+            PoolState other = (PoolState) obj;
+            return connectionKey.equals(other.connectionKey) && Objects.equals(state, other.state);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * connectionKey.hashCode() + Objects.hashCode(state);
+        }
+
+        @Override
+        public String toString() {
+            return "PoolState[" + connectionKey + ", " + state + "]";
+        }
+    }
+
+    /**
+     * @param scope         key of the pool, clients having equal scopes share
+     *                      the same pool
+     * @param connectionKey key of the connections opened by the client,
+     *                      clients having equal keys reuse the connections of
+     *                      each other
+     * @param poolFactory   creates the pool when the first client of the scope
+     *                      needs it
+     */
+    public SharedHttpClientConnectionManager(Object scope, Object connectionKey,
+            Supplier<PoolingHttpClientConnectionManager> poolFactory) {
+        this(scope, connectionKey, poolFactory, 0);
+    }
+
+    /**
+     * @param scope          key of the pool, clients having equal scopes share
+     *                       the same pool
+     * @param connectionKey  key of the connections opened by the client,
+     *                       clients having equal keys reuse the connections of
+     *                       each other
+     * @param poolFactory    creates the pool when the first client of the
+     *                       scope needs it
+     * @param minMaxPerRoute max connections per route the client needs, the
+     *                       default max per route of the pool is raised to
+     *                       this value if it is lower, for instance for the
+     *                       parallel download of embedded resources
+     */
+    public SharedHttpClientConnectionManager(Object scope, Object connectionKey,
+            Supplier<PoolingHttpClientConnectionManager> poolFactory, int minMaxPerRoute) {
+        if (scope == null) {
+            throw new IllegalArgumentException("scope must not be null");
+        }
+        if (connectionKey == null) {
+            throw new IllegalArgumentException("connectionKey must not be null");
+        }
+        this.scope = scope;
+        this.connectionKey = connectionKey;
+        this.poolFactory = poolFactory;
+        this.minMaxPerRoute = minMaxPerRoute;
+    }
+
+    /**
+     * @return the time in milliseconds the current thread waited for a
+     *         connection of a shared pool since the previous call
+     */
+    public static long getAndResetLeaseWaitTime() {
+        long[] waitNanos = LEASE_WAIT_NANOS.get();
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos[0]);
+        waitNanos[0] = 0;
+        return waitMillis;
+    }
+
+    /**
+     * @return the pool shared with the other clients of the scope, acquiring
+     *         it if needed
+     */
+    synchronized PoolingHttpClientConnectionManager getPool() {
+        if (pool == null) {
+            pool = acquire(scope, poolFactory, minMaxPerRoute);
+        }
+        return pool;
+    }
+
+    private static PoolingHttpClientConnectionManager acquire(Object scope,
+            Supplier<PoolingHttpClientConnectionManager> poolFactory, int minMaxPerRoute) {
+        synchronized (POOLS) {
+            SharedPool sharedPool = POOLS.get(scope);
+            if (sharedPool == null) {
+                sharedPool = new SharedPool(poolFactory.get());
+                POOLS.put(scope, sharedPool);
+                log.debug("Created shared connection pool for {}", scope);
+            }
+            if (sharedPool.pool.getDefaultMaxPerRoute() < minMaxPerRoute) {
+                log.info("Raising max connections per route of shared connection pool for {} to {}",
+                        scope, minMaxPerRoute);
+                sharedPool.pool.setDefaultMaxPerRoute(minMaxPerRoute);
+            }
+            sharedPool.users++;
+            return sharedPool.pool;
+        }
+    }
+
+    private static void release(Object scope, PoolingHttpClientConnectionManager pool) {
+        synchronized (POOLS) {
+            SharedPool sharedPool = POOLS.get(scope);
+            if (sharedPool == null || sharedPool.pool != pool || --sharedPool.users > 0) {
+                return;
+            }
+            POOLS.remove(scope);
+        }
+        log.debug("Shutting down shared connection pool for {}", scope);
+        pool.shutdown();
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        final ConnectionRequest request = getPool().requestConnection(route, new PoolState(connectionKey, state));
+        return new ConnectionRequest() {
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit tunit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    return request.get(timeout, tunit);
+                } finally {
+                    LEASE_WAIT_NANOS.get()[0] += System.nanoTime() - start;
+                }
+            }
+        };
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration,
+            TimeUnit timeUnit) {
+        getPool().releaseConnection(conn, new PoolState(connectionKey, newState), validDuration, timeUnit);
+    }
+
+    @Override
+    public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context)
+            throws IOException {
+        getPool().connect(conn, route, connectTimeout, context);
+    }
+
+    @Override
+    public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        getPool().upgrade(conn, route, context);
+    }
+
+    @Override
+    public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context)
+            throws IOException {
+        getPool().routeComplete(conn, route, context);
+    }
+
+    @Override
+    public void closeIdleConnections(long idletime, TimeUnit tunit) {
+        getPool().closeIdleConnections(idletime, tunit);
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+        getPool().closeExpiredConnections();
+    }
+
+    /**
+     * Releases the shared pool, which is shut down if no other client uses it
+     */
+    @Override
+    public void shutdown() {
+        PoolingHttpClientConnectionManager released;
+        synchronized (this) {
+            released = pool;
+            pool = null;
+        }
+        if (released != null) {
+            release(scope, released);
+        }
+    }
+}
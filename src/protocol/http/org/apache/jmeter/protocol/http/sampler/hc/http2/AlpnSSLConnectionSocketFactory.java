@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc.http2;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.Socket;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link SSLConnectionSocketFactory} offering HTTP/2 and HTTP/1.1 to the servers
+ * through ALPN (RFC 7301).
+ * <p>
+ * The ALPN API is called by reflection as it is only available since Java 9
+ * (and 8u252): on older JVMs no protocol is offered and HTTP/1.1 is used.
+ * @since 4.1
+ */
+public final class AlpnSSLConnectionSocketFactory extends SSLConnectionSocketFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(AlpnSSLConnectionSocketFactory.class);
+
+    /** ALPN identifier of HTTP/2 over TLS */
+    public static final String H2 = "h2"; // $NON-NLS-1$
+
+    private static final String[] APPLICATION_PROTOCOLS = {H2, "http/1.1"}; // $NON-NLS-1$
+
+    private static final Method SET_APPLICATION_PROTOCOLS =
+            getMethod(SSLParameters.class, "setApplicationProtocols", String[].class); // $NON-NLS-1$
+
+    private static final Method GET_APPLICATION_PROTOCOL =
+            getMethod(SSLSocket.class, "getApplicationProtocol"); // $NON-NLS-1$
+
+    /**
+     * @param socketFactory factory creating the SSL sockets
+     * @param supportedProtocols enabled TLS protocols, null for the defaults
+     * @param supportedCipherSuites enabled cipher suites, null for the defaults
+     * @param hostnameVerifier verifier of the server host names
+     */
+    public AlpnSSLConnectionSocketFactory(SSLSocketFactory socketFactory, String[] supportedProtocols,
+            String[] supportedCipherSuites, HostnameVerifier hostnameVerifier) {
+        super(socketFactory, supportedProtocols, supportedCipherSuites, hostnameVerifier);
+        if (SET_APPLICATION_PROTOCOLS == null) {
+            log.warn("ALPN is not supported by this JVM, HTTP/2 will only be used for http URLs");
+        }
+    }
+
+    private static Method getMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            return clazz.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) { // NOSONAR Not supported by this JVM
+            return null;
+        }
+    }
+
+    @Override
+    protected void prepareSocket(SSLSocket socket) throws IOException {
+        if (SET_APPLICATION_PROTOCOLS == null) {
+            return;
+        }
+        SSLParameters parameters = socket.getSSLParameters();
+        try {
+            SET_APPLICATION_PROTOCOLS.invoke(parameters, (Object) APPLICATION_PROTOCOLS.clone());
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            log.warn("Could not offer HTTP/2 through ALPN", e);
+            return;
+        }
+        socket.setSSLParameters(parameters);
+    }
+
+    /**
+     * @param socket connected socket
+     * @return the application protocol negotiated through ALPN on the socket,
+     *         null if the socket does not use TLS or no protocol was negotiated
+     */
+    public static String getApplicationProtocol(Socket socket) {
+        if (!(socket instanceof SSLSocket) || GET_APPLICATION_PROTOCOL == null) {
+            return null;
+        }
+        try {
+            String protocol = (String) GET_APPLICATION_PROTOCOL.invoke(socket);
+            return protocol == null || protocol.isEmpty() ? null : protocol;
+        } catch (IllegalAccessException | InvocationTargetException | UnsupportedOperationException e) {
+            log.debug("Could not get the protocol negotiated through ALPN", e);
+            return null;
+        }
+    }
+}
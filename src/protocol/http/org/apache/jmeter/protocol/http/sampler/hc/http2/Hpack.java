@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+import org.apache.http.Header;
+
+/**
+ * Parts of HPACK (RFC 7541) shared by {@link HpackEncoder} and {@link HpackDecoder}:
+ * the static and dynamic tables, the Huffman code and the primitive types.
+ * @since 4.1
+ */
+final class Hpack {
+
+    /** Default size of the dynamic tables, also the maximum size used by the encoder */
+    static final int DEFAULT_TABLE_SIZE = 4096;
+
+    /** Overhead added to the length of the name and value of each entry */
+    private static final int ENTRY_OVERHEAD = 32;
+
+    private static final String[][] STATIC_TABLE = {
+            {":authority", ""},
+            {":method", "GET"},
+            {":method", "POST"},
+            {":path", "/"},
+            {":path", "/index.html"},
+            {":scheme", "http"},
+            {":scheme", "https"},
+            {":status", "200"},
+            {":status", "204"},
+            {":status", "206"},
+            {":status", "304"},
+            {":status", "400"},
+            {":status", "404"},
+            {":status", "500"},
+            {"accept-charset", ""},
+            {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""},
+            {"accept-ranges", ""},
+            {"accept", ""},
+            {"access-control-allow-origin", ""},
+            {"age", ""},
+            {"allow", ""},
+            {"authorization", ""},
+            {"cache-control", ""},
+            {"content-disposition", ""},
+            {"content-encoding", ""},
+            {"content-language", ""},
+            {"content-length", ""},
+            {"content-location", ""},
+            {"content-range", ""},
+            {"content-type", ""},
+            {"cookie", ""},
+            {"date", ""},
+            {"etag", ""},
+            {"expect", ""},
+            {"expires", ""},
+            {"from", ""},
+            {"host", ""},
+            {"if-match", ""},
+            {"if-modified-since", ""},
+            {"if-none-match", ""},
+            {"if-range", ""},
+            {"if-unmodified-since", ""},
+            {"last-modified", ""},
+            {"link", ""},
+            {"location", ""},
+            {"max-forwards", ""},
+            {"proxy-authenticate", ""},
+            {"proxy-authorization", ""},
+            {"range", ""},
+            {"referer", ""},
+            {"refresh", ""},
+            {"retry-after", ""},
+            {"server", ""},
+            {"set-cookie", ""},
+            {"strict-transport-security", ""},
+            {"transfer-encoding", ""},
+            {"user-agent", ""},
+            {"vary", ""},
+            {"via", ""},
+            {"www-authenticate", ""}
+    };
+
+    static final int STATIC_TABLE_LENGTH = STATIC_TABLE.length;
+
+    /** Huffman codes of the octets and EOS (256), see Appendix B of RFC 7541 */
+    private static final int[] HUFFMAN_CODES = {
+            0x1ff8, 0x7fffd8, 0xfffffe2, 0xfffffe3, 0xfffffe4, 0xfffffe5, 0xfffffe6, 0xfffffe7,
+            0xfffffe8, 0xffffea, 0x3ffffffc, 0xfffffe9, 0xfffffea, 0x3ffffffd, 0xfffffeb, 0xfffffec,
+            0xfffffed, 0xfffffee, 0xfffffef, 0xffffff0, 0xffffff1, 0xffffff2, 0x3ffffffe, 0xffffff3,
+            0xffffff4, 0xffffff5, 0xffffff6, 0xffffff7, 0xffffff8, 0xffffff9, 0xffffffa, 0xffffffb,
+            0x14, 0x3f8, 0x3f9, 0xffa, 0x1ff9, 0x15, 0xf8, 0x7fa,
+            0x3fa, 0x3fb, 0xf9, 0x7fb, 0xfa, 0x16, 0x17, 0x18,
+            0x0, 0x1, 0x2, 0x19, 0x1a, 0x1b, 0x1c, 0x1d,
+            0x1e, 0x1f, 0x5c, 0xfb, 0x7ffc, 0x20, 0xffb, 0x3fc,
+            0x1ffa, 0x21, 0x5d, 0x5e, 0x5f, 0x60, 0x61, 0x62,
+            0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69, 0x6a,
+            0x6b, 0x6c, 0x6d, 0x6e, 0x6f, 0x70, 0x71, 0x72,
+            0xfc, 0x73, 0xfd, 0x1ffb, 0x7fff0, 0x1ffc, 0x3ffc, 0x22,
+            0x7ffd, 0x3, 0x23, 0x4, 0x24, 0x5, 0x25, 0x26,
+            0x27, 0x6, 0x74, 0x75, 0x28, 0x29, 0x2a, 0x7,
+            0x2b, 0x76, 0x2c, 0x8, 0x9, 0x2d, 0x77, 0x78,
+            0x79, 0x7a, 0x7b, 0x7ffe, 0x7fc, 0x3ffd, 0x1ffd, 0xffffffc,
+            0xfffe6, 0x3fffd2, 0xfffe7, 0xfffe8, 0x3fffd3, 0x3fffd4, 0x3fffd5, 0x7fffd9,
+            0x3fffd6, 0x7fffda, 0x7fffdb, 0x7fffdc, 0x7fffdd, 0x7fffde, 0xffffeb, 0x7fffdf,
+            0xffffec, 0xffffed, 0x3fffd7, 0x7fffe0, 0xffffee, 0x7fffe1, 0x7fffe2, 0x7fffe3,
+            0x7fffe4, 0x1fffdc, 0x3fffd8, 0x7fffe5, 0x3fffd9, 0x7fffe6, 0x7fffe7, 0xffffef,
+            0x3fffda, 0x1fffdd, 0xfffe9, 0x3fffdb, 0x3fffdc, 0x7fffe8, 0x7fffe9, 0x1fffde,
+            0x7fffea, 0x3fffdd, 0x3fffde, 0xfffff0, 0x1fffdf, 0x3fffdf, 0x7fffeb, 0x7fffec,
+            0x1fffe0, 0x1fffe1, 0x3fffe0, 0x1fffe2, 0x7fffed, 0x3fffe1, 0x7fffee, 0x7fffef,
+            0xfffea, 0x3fffe2, 0x3fffe3, 0x3fffe4, 0x7ffff0, 0x3fffe5, 0x3fffe6, 0x7ffff1,
+            0x3ffffe0, 0x3ffffe1, 0xfffeb, 0x7fff1, 0x3fffe7, 0x7ffff2, 0x3fffe8, 0x1ffffec,
+            0x3ffffe2, 0x3ffffe3, 0x3ffffe4, 0x7ffffde, 0x7ffffdf, 0x3ffffe5, 0xfffff1, 0x1ffffed,
+            0x7fff2, 0x1fffe3, 0x3ffffe6, 0x7ffffe0, 0x7ffffe1, 0x3ffffe7, 0x7ffffe2, 0xfffff2,
+            0x1fffe4, 0x1fffe5, 0x3ffffe8, 0x3ffffe9, 0xffffffd, 0x7ffffe3, 0x7ffffe4, 0x7ffffe5,
+            0xfffec, 0xfffff3, 0xfffed, 0x1fffe6, 0x3fffe9, 0x1fffe7, 0x1fffe8, 0x7ffff3,
+            0x3fffea, 0x3fffeb, 0x1ffffee, 0x1ffffef, 0xfffff4, 0xfffff5, 0x3ffffea, 0x7ffff4,
+            0x3ffffeb, 0x7ffffe6, 0x3ffffec, 0x3ffffed, 0x7ffffe7, 0x7ffffe8, 0x7ffffe9, 0x7ffffea,
+            0x7ffffeb, 0xffffffe, 0x7ffffec, 0x7ffffed, 0x7ffffee, 0x7ffffef, 0x7fffff0, 0x3ffffee,
+            0x3fffffff
+    };
+
+    private static final byte[] HUFFMAN_LENGTHS = {
+            13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28,
+            28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+            6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6,
+            5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+            13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7,
+            7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+            15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5,
+            6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+            20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23,
+            24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+            22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23,
+            21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+            26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25,
+            19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+            20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23,
+            26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26,
+            30
+    };
+
+    private static final int EOS = 256;
+
+    /** Huffman decoding tree: children of node n at 2n and 2n+1, leaves hold -(symbol + 1) */
+    private static final int[] HUFFMAN_TREE = buildHuffmanTree();
+
+    private Hpack() {
+        // Not instantiable
+    }
+
+    /**
+     * @param index 1-based index in the static table
+     * @return name of the entry
+     */
+    static String staticName(int index) {
+        return STATIC_TABLE[index - 1][0];
+    }
+
+    /**
+     * @param index 1-based index in the static table
+     * @return value of the entry
+     */
+    static String staticValue(int index) {
+        return STATIC_TABLE[index - 1][1];
+    }
+
+    /**
+     * @param name lower case header name
+     * @param value header value
+     * @return index of the entry matching name and value if positive,
+     *         minus the index of the first entry matching name if negative,
+     *         0 if none matches
+     */
+    static int findStatic(String name, String value) {
+        int nameIndex = 0;
+        for (int i = 0; i < STATIC_TABLE.length; i++) {
+            if (STATIC_TABLE[i][0].equals(name)) {
+                if (STATIC_TABLE[i][1].equals(value)) {
+                    return i + 1;
+                }
+                if (nameIndex == 0) {
+                    nameIndex = -(i + 1);
+                }
+            }
+        }
+        return nameIndex;
+    }
+
+    /**
+     * Dynamic table, the most recent entry having the lowest index
+     */
+    static final class DynamicTable {
+        private final ArrayDeque<Header> entries = new ArrayDeque<>();
+        private int size;
+        private int maxSize = DEFAULT_TABLE_SIZE;
+
+        int length() {
+            return entries.size();
+        }
+
+        int maxSize() {
+            return maxSize;
+        }
+
+        void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            evict(0);
+        }
+
+        /**
+         * @param index 1-based index in the dynamic table
+         * @return entry
+         */
+        Header get(int index) {
+            Iterator<Header> iterator = entries.iterator();
+            for (int i = 1; i < index; i++) {
+                iterator.next();
+            }
+            return iterator.next();
+        }
+
+        /**
+         * @param name lower case header name
+         * @param value header value
+         * @return same as {@link Hpack#findStatic(String, String)}, with 1-based indexes in this table
+         */
+        int find(String name, String value) {
+            int nameIndex = 0;
+            int i = 1;
+            for (Header entry : entries) {
+                if (entry.getName().equals(name)) {
+                    if (entry.getValue().equals(value)) {
+                        return i;
+                    }
+                    if (nameIndex == 0) {
+                        nameIndex = -i;
+                    }
+                }
+                i++;
+            }
+            return nameIndex;
+        }
+
+        void add(Header header) {
+            int entrySize = entrySize(header);
+            evict(entrySize);
+            if (entrySize <= maxSize) {
+                entries.addFirst(header);
+                size += entrySize;
+            }
+        }
+
+        private void evict(int needed) {
+            while (!entries.isEmpty() && size + needed > maxSize) {
+                size -= entrySize(entries.removeLast());
+            }
+        }
+
+        private static int entrySize(Header header) {
+            return header.getName().length() + header.getValue().length() + ENTRY_OVERHEAD;
+        }
+    }
+
+    /**
+     * Write an integer with an N-bit prefix
+     * @param out stream to write to
+     * @param first bits of the first octet above the prefix
+     * @param prefixBits number of bits of the prefix
+     * @param value integer to write
+     */
+    static void writeInt(ByteArrayOutputStream out, int first, int prefixBits, int value) {
+        int max = (1 << prefixBits) - 1;
+        if (value < max) {
+            out.write(first | value);
+            return;
+        }
+        out.write(first | max);
+        int remaining = value - max;
+        while (remaining >= 0x80) {
+            out.write((remaining & 0x7f) | 0x80);
+            remaining >>>= 7;
+        }
+        out.write(remaining);
+    }
+
+    /**
+     * Read an integer with an N-bit prefix, the first octet being the current one
+     * @param in buffer positioned on the first octet
+     * @param prefixBits number of bits of the prefix
+     * @return integer read
+     * @throws Http2Exception if the integer is truncated or too large
+     */
+    static int readInt(ByteBuffer in, int prefixBits) throws Http2Exception {
+        int max = (1 << prefixBits) - 1;
+        int value = in.get() & max;
+        if (value < max) {
+            return value;
+        }
+        int shift = 0;
+        int b;
+        do {
+            if (!in.hasRemaining()) {
+                throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Truncated integer");
+            }
+            b = in.get() & 0xff;
+            if (shift > 21) {
+                throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Integer overflow");
+            }
+            value += (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Write a string literal, Huffman encoded if shorter
+     * @param out stream to write to
+     * @param value string made of ISO-8859-1 characters
+     */
+    static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+        long bits = 0;
+        for (byte b : bytes) {
+            bits += HUFFMAN_LENGTHS[b & 0xff];
+        }
+        int huffmanLength = (int) ((bits + 7) / 8);
+        if (huffmanLength < bytes.length) {
+            writeInt(out, 0x80, 7, huffmanLength);
+            long current = 0;
+            int pending = 0;
+            for (byte b : bytes) {
+                int symbol = b & 0xff;
+                current = (current << HUFFMAN_LENGTHS[symbol]) | HUFFMAN_CODES[symbol];
+                pending += HUFFMAN_LENGTHS[symbol];
+                while (pending >= 8) {
+                    pending -= 8;
+                    out.write((int) (current >>> pending));
+                }
+                current &= (1L << pending) - 1;
+            }
+            if (pending > 0) { // pad with the most significant bits of EOS
+                out.write((int) ((current << (8 - pending)) | (0xff >>> pending)));
+            }
+        } else {
+            writeInt(out, 0, 7, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Read a string literal
+     * @param in buffer positioned on the first octet of the literal
+     * @return string made of ISO-8859-1 characters
+     * @throws Http2Exception if the literal is malformed
+     */
+    static String readString(ByteBuffer in) throws Http2Exception {
+        if (!in.hasRemaining()) {
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Truncated string");
+        }
+        boolean huffman = (in.get(in.position()) & 0x80) != 0;
+        int length = readInt(in, 7);
+        if (length > in.remaining()) {
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Truncated string");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        if (!huffman) {
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+        StringBuilder sb = new StringBuilder(length * 2);
+        int node = 1;
+        int depth = 0;
+        for (byte b : bytes) {
+            for (int bit = 7; bit >= 0; bit--) {
+                node = HUFFMAN_TREE[2 * node + ((b >>> bit) & 1)];
+                depth++;
+                if (node < 0) {
+                    int symbol = -node - 1;
+                    if (symbol == EOS) {
+                        throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "EOS in Huffman string");
+                    }
+                    sb.append((char) symbol);
+                    node = 1;
+                    depth = 0;
+                } else if (node == 0) {
+                    throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Invalid Huffman code");
+                }
+            }
+        }
+        if (depth > 7) {
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Invalid Huffman padding");
+        }
+        return sb.toString();
+    }
+
+    private static int[] buildHuffmanTree() {
+        // A complete code of 257 symbols has 256 internal nodes, numbered from 1
+        int[] tree = new int[2 * 257];
+        int nextNode = 2;
+        for (int symbol = 0; symbol <= EOS; symbol++) {
+            int node = 1;
+            for (int bit = HUFFMAN_LENGTHS[symbol] - 1; bit >= 0; bit--) {
+                int slot = 2 * node + ((HUFFMAN_CODES[symbol] >>> bit) & 1);
+                if (bit == 0) {
+                    tree[slot] = -(symbol + 1);
+                } else {
+                    if (tree[slot] == 0) {
+                        tree[slot] = nextNode++;
+                    }
+                    node = tree[slot];
+                }
+            }
+        }
+        return tree;
+    }
+}
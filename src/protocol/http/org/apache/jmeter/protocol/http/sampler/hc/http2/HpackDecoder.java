@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc.http2;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+
+/**
+ * HPACK decoder of the header blocks received on a connection.
+ * <p>
+ * Not thread safe, header blocks must be decoded in the order they are received,
+ * including the ones of streams that are no more used.
+ * @since 4.1
+ */
+final class HpackDecoder {
+
+    private final Hpack.DynamicTable table = new Hpack.DynamicTable();
+
+    /**
+     * @param block header block
+     * @return decoded headers, in the order of the block
+     * @throws Http2Exception if the block is malformed, which is a connection error
+     */
+    List<Header> decode(byte[] block) throws Http2Exception {
+        ByteBuffer in = ByteBuffer.wrap(block);
+        List<Header> headers = new ArrayList<>();
+        while (in.hasRemaining()) {
+            int first = in.get(in.position()) & 0xff;
+            if ((first & 0x80) != 0) { // indexed
+                headers.add(get(Hpack.readInt(in, 7)));
+            } else if ((first & 0x40) != 0) { // literal with incremental indexing
+                Header header = readLiteral(in, 6);
+                table.add(header);
+                headers.add(header);
+            } else if ((first & 0x20) != 0) { // dynamic table size update
+                int size = Hpack.readInt(in, 5);
+                if (size > Hpack.DEFAULT_TABLE_SIZE) {
+                    throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Table size too large: " + size);
+                }
+                table.setMaxSize(size);
+            } else { // literal without indexing or never indexed
+                headers.add(readLiteral(in, 4));
+            }
+        }
+        return headers;
+    }
+
+    private Header readLiteral(ByteBuffer in, int prefixBits) throws Http2Exception {
+        int index = Hpack.readInt(in, prefixBits);
+        String name = index == 0 ? Hpack.readString(in) : get(index).getName();
+        return new BasicHeader(name, Hpack.readString(in));
+    }
+
+    private Header get(int index) throws Http2Exception {
+        if (index > 0 && index <= Hpack.STATIC_TABLE_LENGTH) {
+            return new BasicHeader(Hpack.staticName(index), Hpack.staticValue(index));
+        }
+        int dynamicIndex = index - Hpack.STATIC_TABLE_LENGTH;
+        if (index <= 0 || dynamicIndex > table.length()) {
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Invalid index: " + index);
+        }
+        return table.get(dynamicIndex);
+    }
+}
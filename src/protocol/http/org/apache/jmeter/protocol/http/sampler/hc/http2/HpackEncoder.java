@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+
+/**
+ * HPACK encoder of the header blocks sent on a connection.
+ * <p>
+ * Headers are added to the dynamic table, except the ones whose value
+ * changes with each request and the credentials, which are never indexed.
+ * Not thread safe, header blocks must be encoded in the order they are sent.
+ * @since 4.1
+ */
+final class HpackEncoder {
+
+    private final Hpack.DynamicTable table = new Hpack.DynamicTable();
+
+    /** Smallest table size set since the last header block, -1 if unchanged */
+    private int smallestPendingSize = -1;
+
+    /**
+     * Apply the SETTINGS_HEADER_TABLE_SIZE of the peer, the encoder never
+     * using more than the default size
+     * @param peerMaxSize size of the table of the peer decoder
+     */
+    void setMaxTableSize(int peerMaxSize) {
+        int size = Math.min(peerMaxSize, Hpack.DEFAULT_TABLE_SIZE);
+        if (size != table.maxSize()) {
+            smallestPendingSize = smallestPendingSize < 0 ? size : Math.min(smallestPendingSize, size);
+            table.setMaxSize(size);
+        }
+    }
+
+    /**
+     * @param headers headers to encode, pseudo-headers first
+     * @return header block
+     */
+    byte[] encode(List<Header> headers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        if (smallestPendingSize >= 0) {
+            if (smallestPendingSize < table.maxSize()) {
+                Hpack.writeInt(out, 0x20, 5, smallestPendingSize);
+            }
+            Hpack.writeInt(out, 0x20, 5, table.maxSize());
+            smallestPendingSize = -1;
+        }
+        for (Header header : headers) {
+            String name = header.getName().toLowerCase(Locale.ROOT);
+            String value = header.getValue() == null ? "" : header.getValue();
+            int staticIndex = Hpack.findStatic(name, value);
+            if (staticIndex > 0) {
+                Hpack.writeInt(out, 0x80, 7, staticIndex);
+                continue;
+            }
+            int dynamicIndex = table.find(name, value);
+            if (dynamicIndex > 0) {
+                Hpack.writeInt(out, 0x80, 7, Hpack.STATIC_TABLE_LENGTH + dynamicIndex);
+                continue;
+            }
+            int nameIndex = 0;
+            if (staticIndex < 0) {
+                nameIndex = -staticIndex;
+            } else if (dynamicIndex < 0) {
+                nameIndex = Hpack.STATIC_TABLE_LENGTH - dynamicIndex;
+            }
+            if (isSensitive(name)) { // literal never indexed
+                Hpack.writeInt(out, 0x10, 4, nameIndex);
+            } else if (isVolatile(name)) { // literal without indexing
+                Hpack.writeInt(out, 0x00, 4, nameIndex);
+            } else { // literal with incremental indexing
+                Hpack.writeInt(out, 0x40, 6, nameIndex);
+                table.add(new BasicHeader(name, value));
+            }
+            if (nameIndex == 0) {
+                Hpack.writeString(out, name);
+            }
+            Hpack.writeString(out, value);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isSensitive(String name) {
+        return "authorization".equals(name) || "proxy-authorization".equals(name); // $NON-NLS-1$ $NON-NLS-2$
+    }
+
+    private static boolean isVolatile(String name) {
+        return ":path".equals(name) || "content-length".equals(name); // $NON-NLS-1$ $NON-NLS-2$
+    }
+}
@@ -0,0 +1,718 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc.http2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.Header;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client side of an HTTP/2 connection (RFC 7540) over a connected socket.
+ * <p>
+ * Streams are opened by the threads sending requests, which then wait for
+ * their response. A reader thread, started once the server settings are
+ * received, reads the frames and dispatches them to the streams.
+ * Server push is disabled.
+ * @since 4.1
+ */
+public final class Http2Connection implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(Http2Connection.class);
+
+    private static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII); // $NON-NLS-1$
+
+    static final int FRAME_HEADER_LENGTH = 9;
+
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int RST_STREAM = 0x3;
+    private static final int SETTINGS = 0x4;
+    private static final int PUSH_PROMISE = 0x5;
+    private static final int PING = 0x6;
+    private static final int GOAWAY = 0x7;
+    private static final int WINDOW_UPDATE = 0x8;
+    private static final int CONTINUATION = 0x9;
+
+    private static final int FLAG_END_STREAM = 0x1;
+    private static final int FLAG_ACK = 0x1;
+    private static final int FLAG_END_HEADERS = 0x4;
+    private static final int FLAG_PADDED = 0x8;
+    private static final int FLAG_PRIORITY = 0x20;
+
+    private static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    private static final int SETTINGS_ENABLE_PUSH = 0x2;
+    private static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    private static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    private static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+
+    private static final int DEFAULT_WINDOW_SIZE = 65535;
+
+    private static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+
+    /** Receive window of each stream, replenished as the response content is read */
+    static final int STREAM_WINDOW_SIZE = 1024 * 1024;
+
+    /** Receive window of the connection, replenished as the frames are received */
+    private static final int CONNECTION_WINDOW_SIZE = 16 * 1024 * 1024;
+
+    /** Last stream identifier usable by a client */
+    private static final int MAX_STREAM_ID = Integer.MAX_VALUE;
+
+    private final Socket socket;
+
+    private final InputStream in;
+
+    private final OutputStream out;
+
+    private final String name;
+
+    /** Guards the output stream, the encoder and the stream identifiers */
+    private final Object writeLock = new Object();
+
+    private final HpackEncoder encoder = new HpackEncoder();
+
+    private final HpackDecoder decoder = new HpackDecoder();
+
+    private volatile int nextStreamId = 1;
+
+    // Guarded by this
+    private final Map<Integer, Http2Stream> streams = new HashMap<>();
+    private int activeStreams;
+    private int peerMaxConcurrentStreams = Integer.MAX_VALUE;
+    private int peerInitialWindowSize = DEFAULT_WINDOW_SIZE;
+    private int peerMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    private long sendWindow = DEFAULT_WINDOW_SIZE;
+    private boolean goAway;
+    private IOException failure;
+
+    // Used by the reader thread only
+    private int receivedSinceWindowUpdate;
+    private final ByteArrayOutputStream headerBlock = new ByteArrayOutputStream();
+    private int headerBlockStreamId;
+    private int headerBlockFrameBytes;
+    private boolean headerBlockEndStream;
+    private int headerBlockPromisedStreamId;
+
+    private Http2Connection(Socket socket, String name) throws IOException {
+        this.socket = socket;
+        this.name = name;
+        this.in = new BufferedInputStream(socket.getInputStream(), DEFAULT_MAX_FRAME_SIZE + FRAME_HEADER_LENGTH);
+        this.out = new BufferedOutputStream(socket.getOutputStream(), DEFAULT_MAX_FRAME_SIZE + FRAME_HEADER_LENGTH);
+    }
+
+    /**
+     * Start an HTTP/2 connection on a connected socket, which is closed if it fails
+     * @param socket connected socket, on which TLS is negotiated if required
+     * @param name name of the connection, used to name its reader thread
+     * @param timeout timeout in milliseconds to receive the settings of the server, 0 for none
+     * @return the connection, ready to open streams
+     * @throws Http2Exception if the server does not answer with HTTP/2 settings
+     * @throws IOException if an I/O error occurs
+     */
+    public static Http2Connection open(Socket socket, String name, int timeout) throws IOException {
+        Http2Connection connection = new Http2Connection(socket, name);
+        try {
+            connection.start(timeout);
+        } catch (IOException | RuntimeException e) {
+            JOrphanUtils.closeQuietly(socket);
+            throw e;
+        }
+        return connection;
+    }
+
+    private void start(int timeout) throws IOException {
+        synchronized (writeLock) {
+            out.write(PREFACE);
+            byte[] settings = new byte[3 * 6];
+            putSetting(settings, 0, SETTINGS_ENABLE_PUSH, 0);
+            putSetting(settings, 6, SETTINGS_MAX_CONCURRENT_STREAMS, 0);
+            putSetting(settings, 12, SETTINGS_INITIAL_WINDOW_SIZE, STREAM_WINDOW_SIZE);
+            writeFrame(SETTINGS, 0, 0, settings, 0, settings.length);
+            writeFrame(WINDOW_UPDATE, 0, 0, int31(CONNECTION_WINDOW_SIZE - DEFAULT_WINDOW_SIZE), 0, 4);
+            out.flush();
+        }
+        socket.setSoTimeout(timeout);
+        byte[] header = new byte[FRAME_HEADER_LENGTH];
+        try {
+            readFully(header);
+        } catch (EOFException e) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Connection closed by server before HTTP/2 settings");
+        }
+        if (header[3] != SETTINGS || (header[4] & FLAG_ACK) != 0 || readInt31(header, 5) != 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Server did not start with HTTP/2 settings");
+        }
+        readFrame(header);
+        socket.setSoTimeout(0); // streams handle their own timeouts
+        Thread reader = new Thread(this::readFrames, name);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * @return the socket of the connection
+     */
+    public Socket getSocket() {
+        return socket;
+    }
+
+    /**
+     * @return true if new streams can be opened on this connection
+     */
+    public synchronized boolean isOpen() {
+        return failure == null && !goAway && nextStreamId < MAX_STREAM_ID;
+    }
+
+    /**
+     * @return true if no stream is active
+     */
+    public synchronized boolean isIdle() {
+        return activeStreams == 0;
+    }
+
+    /**
+     * Open a stream by sending its headers, waiting for the server to accept
+     * more concurrent streams if needed
+     * @param headers headers of the request, starting with the pseudo-headers
+     * @param endStream true if the request has no content
+     * @param timeout timeout in milliseconds waiting for the stream, 0 for none
+     * @return the stream
+     * @throws IOException if the connection failed or the timeout expired
+     */
+    public Http2Stream openStream(List<Header> headers, boolean endStream, int timeout) throws IOException {
+        synchronized (this) {
+            long deadline = deadline(timeout);
+            while (failure == null && !goAway && activeStreams >= peerMaxConcurrentStreams) {
+                await(deadline, "Timeout waiting for a stream on " + name);
+            }
+            checkOpen();
+            activeStreams++;
+        }
+        Http2Stream stream;
+        synchronized (writeLock) {
+            int maxFrameSize;
+            synchronized (this) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (nextStreamId >= MAX_STREAM_ID) {
+                    activeStreams--;
+                    notifyAll();
+                    throw new Http2Exception(Http2Exception.REFUSED_STREAM, "No more stream identifiers on " + name);
+                }
+                stream = new Http2Stream(this, nextStreamId, peerInitialWindowSize);
+                nextStreamId += 2;
+                streams.put(Integer.valueOf(stream.getId()), stream);
+                maxFrameSize = peerMaxFrameSize;
+            }
+            byte[] block = encoder.encode(headers);
+            try {
+                int offset = 0;
+                int type = HEADERS;
+                do {
+                    int length = Math.min(block.length - offset, maxFrameSize);
+                    boolean last = offset + length == block.length;
+                    int flags = (last ? FLAG_END_HEADERS : 0) | (type == HEADERS && endStream ? FLAG_END_STREAM : 0);
+                    writeFrame(type, flags, stream.getId(), block, offset, length);
+                    stream.addSentBytes(FRAME_HEADER_LENGTH + length);
+                    offset += length;
+                    type = CONTINUATION;
+                } while (offset < block.length);
+                out.flush();
+            } catch (IOException e) {
+                fail(e);
+                throw e;
+            }
+        }
+        if (endStream) {
+            stream.localClosed();
+        }
+        return stream;
+    }
+
+    /**
+     * Send request content, waiting for the flow control windows to allow it
+     * @param stream stream of the request
+     * @param b content
+     * @param offset offset of the content in b
+     * @param length length of the content
+     * @param endStream true if this is the end of the content
+     * @param timeout timeout in milliseconds waiting for the windows, 0 for none
+     * @throws IOException if the stream or the connection failed or the timeout expired
+     */
+    void sendData(Http2Stream stream, byte[] b, int offset, int length, boolean endStream, int timeout)
+            throws IOException {
+        int off = offset;
+        int remaining = length;
+        do {
+            int chunk;
+            synchronized (this) {
+                long deadline = deadline(timeout);
+                while (remaining > 0 && failure == null && !stream.isReset()
+                        && (sendWindow <= 0 || stream.sendWindow <= 0)) {
+                    await(deadline, "Timeout waiting for the flow control window of " + name);
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                stream.checkNotReset();
+                chunk = (int) Math.min(Math.min(remaining, peerMaxFrameSize), Math.min(sendWindow, stream.sendWindow));
+                sendWindow -= chunk;
+                stream.sendWindow -= chunk;
+            }
+            boolean last = endStream && chunk == remaining;
+            synchronized (writeLock) {
+                try {
+                    writeFrame(DATA, last ? FLAG_END_STREAM : 0, stream.getId(), b, off, chunk);
+                    out.flush();
+                } catch (IOException e) {
+                    fail(e);
+                    throw e;
+                }
+            }
+            stream.addSentBytes(FRAME_HEADER_LENGTH + chunk);
+            off += chunk;
+            remaining -= chunk;
+        } while (remaining > 0);
+        if (endStream) {
+            stream.localClosed();
+        }
+    }
+
+    /**
+     * Acknowledge content of a stream read by the client
+     * @param stream stream whose content was read
+     * @param increment number of bytes read
+     */
+    void sendWindowUpdate(Http2Stream stream, int increment) {
+        try {
+            synchronized (writeLock) {
+                writeFrame(WINDOW_UPDATE, 0, stream.getId(), int31(increment), 0, 4);
+                out.flush();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Reset a stream that is no more used
+     * @param stream stream to reset
+     * @param errorCode HTTP/2 error code
+     */
+    void resetStream(Http2Stream stream, int errorCode) {
+        streamClosed(stream);
+        synchronized (this) {
+            if (failure != null) {
+                return;
+            }
+        }
+        try {
+            synchronized (writeLock) {
+                writeFrame(RST_STREAM, 0, stream.getId(), int31(errorCode), 0, 4);
+                out.flush();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Called once a stream is closed on both sides or reset,
+     * closes the connection once drained if the server is going away
+     * @param stream closed stream
+     */
+    void streamClosed(Http2Stream stream) {
+        boolean drained;
+        synchronized (this) {
+            if (streams.remove(Integer.valueOf(stream.getId())) == null) {
+                return;
+            }
+            activeStreams--;
+            notifyAll();
+            drained = goAway && activeStreams == 0;
+        }
+        if (drained) {
+            close();
+        }
+    }
+
+    /**
+     * Close the connection, failing its active streams
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (failure != null) {
+                return;
+            }
+        }
+        try {
+            synchronized (writeLock) {
+                byte[] payload = new byte[8];
+                writeFrame(GOAWAY, 0, 0, payload, 0, payload.length);
+                out.flush();
+            }
+        } catch (IOException e) {
+            log.debug("Could not send GOAWAY on {}", name, e);
+        }
+        fail(new Http2Exception(Http2Exception.CANCEL, "Connection closed: " + name));
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private void fail(IOException e) {
+        List<Http2Stream> failedStreams;
+        synchronized (this) {
+            if (failure != null) {
+                return;
+            }
+            failure = e;
+            failedStreams = new ArrayList<>(streams.values());
+            streams.clear();
+            activeStreams = 0;
+            notifyAll();
+        }
+        JOrphanUtils.closeQuietly(socket);
+        for (Http2Stream stream : failedStreams) {
+            stream.failed(e);
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (goAway) {
+            throw new Http2Exception(Http2Exception.REFUSED_STREAM, "Connection going away: " + name);
+        }
+    }
+
+    private static long deadline(int timeout) {
+        return timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+    }
+
+    /**
+     * Wait on this until notified or the deadline
+     */
+    private void await(long deadline, String timeoutMessage) throws IOException {
+        long wait = 0;
+        if (deadline > 0) {
+            wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+                throw new SocketTimeoutException(timeoutMessage);
+            }
+        }
+        try {
+            wait(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Http2Exception(Http2Exception.CANCEL, "Interrupted waiting on " + name);
+        }
+    }
+
+    private void readFrames() {
+        byte[] header = new byte[FRAME_HEADER_LENGTH];
+        try {
+            while (true) {
+                readFully(header);
+                readFrame(header);
+            }
+        } catch (IOException e) {
+            boolean closed;
+            synchronized (this) {
+                closed = failure != null;
+            }
+            if (!closed) {
+                log.debug("Connection {} failed", name, e);
+            }
+            fail(e instanceof EOFException ? new EOFException("Connection closed by server: " + name) : e);
+        } catch (RuntimeException e) {
+            log.error("Unexpected error reading frames of {}", name, e);
+            fail(new Http2Exception(Http2Exception.INTERNAL_ERROR, e.toString()));
+        }
+    }
+
+    private void readFrame(byte[] header) throws IOException {
+        int length = ((header[0] & 0xff) << 16) | ((header[1] & 0xff) << 8) | (header[2] & 0xff);
+        int type = header[3] & 0xff;
+        int flags = header[4] & 0xff;
+        int streamId = readInt31(header, 5);
+        if (length > DEFAULT_MAX_FRAME_SIZE) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "Frame too large: " + length);
+        }
+        byte[] payload = new byte[length];
+        readFully(payload);
+        if (headerBlockStreamId != 0 && (type != CONTINUATION || streamId != headerBlockStreamId)) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Expected CONTINUATION on stream " + headerBlockStreamId);
+        }
+        switch (type) {
+            case DATA:
+                onData(flags, streamId, payload);
+                break;
+            case HEADERS:
+            case PUSH_PROMISE:
+            case CONTINUATION:
+                onHeaderBlockFragment(type, flags, streamId, payload);
+                break;
+            case RST_STREAM:
+                Http2Stream resetStream = getStream(streamId);
+                if (resetStream != null && length >= 4) {
+                    resetStream.reset(readInt31(payload, 0));
+                    streamClosed(resetStream);
+                }
+                break;
+            case SETTINGS:
+                if ((flags & FLAG_ACK) == 0) {
+                    onSettings(payload);
+                }
+                break;
+            case PING:
+                if ((flags & FLAG_ACK) == 0) {
+                    synchronized (writeLock) {
+                        writeFrame(PING, FLAG_ACK, 0, payload, 0, payload.length);
+                        out.flush();
+                    }
+                }
+                break;
+            case GOAWAY:
+                onGoAway(payload);
+                break;
+            case WINDOW_UPDATE:
+                onWindowUpdate(streamId, readInt31(payload, 0));
+                break;
+            default: // PRIORITY and unknown frames are ignored
+                break;
+        }
+    }
+
+    private void onData(int flags, int streamId, byte[] payload) throws IOException {
+        int offset = 0;
+        int padding = 0;
+        if ((flags & FLAG_PADDED) != 0) {
+            padding = payload[0] & 0xff;
+            offset = 1;
+        }
+        int length = payload.length - offset - padding;
+        if (length < 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid padding");
+        }
+        receivedSinceWindowUpdate += payload.length;
+        if (receivedSinceWindowUpdate >= CONNECTION_WINDOW_SIZE / 2) {
+            synchronized (writeLock) {
+                writeFrame(WINDOW_UPDATE, 0, 0, int31(receivedSinceWindowUpdate), 0, 4);
+                out.flush();
+            }
+            receivedSinceWindowUpdate = 0;
+        }
+        Http2Stream stream = getStream(streamId);
+        if (stream != null) { // else the stream was reset
+            stream.data(payload, offset, length, FRAME_HEADER_LENGTH + payload.length,
+                    payload.length - length, (flags & FLAG_END_STREAM) != 0);
+        }
+    }
+
+    private void onHeaderBlockFragment(int type, int flags, int streamId, byte[] payload) throws IOException {
+        int offset = 0;
+        int padding = 0;
+        if (type != CONTINUATION) {
+            if ((flags & FLAG_PADDED) != 0) {
+                padding = payload[0] & 0xff;
+                offset = 1;
+            }
+            if (type == HEADERS) {
+                if ((flags & FLAG_PRIORITY) != 0) {
+                    offset += 5;
+                }
+                headerBlockEndStream = (flags & FLAG_END_STREAM) != 0;
+                headerBlockPromisedStreamId = 0;
+            } else {
+                headerBlockPromisedStreamId = readInt31(payload, offset);
+                offset += 4;
+            }
+            headerBlockFrameBytes = 0;
+            headerBlock.reset();
+        }
+        int length = payload.length - offset - padding;
+        if (length < 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid padding");
+        }
+        headerBlock.write(payload, offset, length);
+        headerBlockFrameBytes += FRAME_HEADER_LENGTH + payload.length;
+        if ((flags & FLAG_END_HEADERS) == 0) {
+            headerBlockStreamId = streamId;
+            return;
+        }
+        headerBlockStreamId = 0;
+        // Always decoded to keep the state of the decoder
+        List<Header> headers = decoder.decode(headerBlock.toByteArray());
+        if (headerBlockPromisedStreamId != 0) { // push is disabled, refuse it
+            synchronized (writeLock) {
+                writeFrame(RST_STREAM, 0, headerBlockPromisedStreamId, int31(Http2Exception.REFUSED_STREAM), 0, 4);
+                out.flush();
+            }
+            return;
+        }
+        Http2Stream stream = getStream(streamId);
+        if (stream != null) {
+            stream.headers(headers, headerBlockFrameBytes, headerBlockEndStream);
+        }
+    }
+
+    private void onSettings(byte[] payload) throws IOException {
+        for (int i = 0; i + 6 <= payload.length; i += 6) {
+            int id = ((payload[i] & 0xff) << 8) | (payload[i + 1] & 0xff);
+            int value = readInt32(payload, i + 2);
+            switch (id) {
+                case SETTINGS_HEADER_TABLE_SIZE:
+                    synchronized (writeLock) {
+                        encoder.setMaxTableSize(value);
+                    }
+                    break;
+                case SETTINGS_MAX_CONCURRENT_STREAMS:
+                    synchronized (this) {
+                        peerMaxConcurrentStreams = value < 0 ? Integer.MAX_VALUE : value;
+                        notifyAll();
+                    }
+                    break;
+                case SETTINGS_INITIAL_WINDOW_SIZE:
+                    if (value < 0) {
+                        throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "Invalid window size: " + value);
+                    }
+                    synchronized (this) {
+                        int delta = value - peerInitialWindowSize;
+                        peerInitialWindowSize = value;
+                        for (Http2Stream stream : streams.values()) {
+                            stream.sendWindow += delta;
+                        }
+                        notifyAll();
+                    }
+                    break;
+                case SETTINGS_MAX_FRAME_SIZE:
+                    synchronized (this) {
+                        peerMaxFrameSize = value;
+                    }
+                    break;
+                default: // SETTINGS_MAX_HEADER_LIST_SIZE is advisory
+                    break;
+            }
+        }
+        synchronized (writeLock) {
+            writeFrame(SETTINGS, FLAG_ACK, 0, payload, 0, 0);
+            out.flush();
+        }
+    }
+
+    private void onGoAway(byte[] payload) {
+        int lastStreamId = readInt31(payload, 0);
+        List<Http2Stream> refusedStreams = new ArrayList<>();
+        synchronized (this) {
+            goAway = true;
+            for (Http2Stream stream : streams.values()) {
+                if (stream.getId() > lastStreamId) {
+                    refusedStreams.add(stream);
+                }
+            }
+            notifyAll();
+        }
+        for (Http2Stream stream : refusedStreams) {
+            stream.failed(new Http2Exception(Http2Exception.REFUSED_STREAM, "Stream refused by server going away: " + name));
+            streamClosed(stream);
+        }
+        if (isIdle()) {
+            close();
+        }
+    }
+
+    private synchronized void onWindowUpdate(int streamId, int increment) {
+        if (streamId == 0) {
+            sendWindow += increment;
+        } else {
+            Http2Stream stream = streams.get(Integer.valueOf(streamId));
+            if (stream != null) {
+                stream.sendWindow += increment;
+            }
+        }
+        notifyAll();
+    }
+
+    private synchronized Http2Stream getStream(int streamId) {
+        return streams.get(Integer.valueOf(streamId));
+    }
+
+    private void writeFrame(int type, int flags, int streamId, byte[] payload, int offset, int length)
+            throws IOException {
+        out.write(length >>> 16);
+        out.write(length >>> 8);
+        out.write(length);
+        out.write(type);
+        out.write(flags);
+        out.write(int31(streamId));
+        out.write(payload, offset, length);
+    }
+
+    private void readFully(byte[] b) throws IOException {
+        int read = 0;
+        while (read < b.length) {
+            int n = in.read(b, read, b.length - read);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            read += n;
+        }
+    }
+
+    private static void putSetting(byte[] b, int offset, int id, int value) {
+        b[offset] = (byte) (id >>> 8);
+        b[offset + 1] = (byte) id;
+        System.arraycopy(int31(value), 0, b, offset + 2, 4);
+    }
+
+    private static byte[] int31(int value) {
+        return new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    private static int readInt32(byte[] b, int offset) {
+        return ((b[offset] & 0xff) << 24) | ((b[offset + 1] & 0xff) << 16)
+                | ((b[offset + 2] & 0xff) << 8) | (b[offset + 3] & 0xff);
+    }
+
+    private static int readInt31(byte[] b, int offset) {
+        return readInt32(b, offset) & 0x7fffffff;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc.http2;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionOperator;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connection manager sending the requests of each route on one multiplexed
+ * HTTP/2 connection, so that concurrent requests of a user to the same origin
+ * become concurrent streams as with browsers.
+ * <ul>
+ * <li>https uses HTTP/2 if the server selects it through ALPN, which requires
+ * the https socket factory to be an {@link AlpnSSLConnectionSocketFactory}</li>
+ * <li>http uses HTTP/2 with prior knowledge (h2c)</li>
+ * </ul>
+ * Routes through a proxy and routes whose server does not support HTTP/2 use
+ * HTTP/1.1 connections pooled by the superclass.
+ * @since 4.1
+ */
+public class Http2ConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(Http2ConnectionManager.class);
+
+    private final HttpClientConnectionOperator operator;
+
+    private final Map<HttpRoute, Http2Connection> connections = new ConcurrentHashMap<>();
+
+    private final Map<HttpRoute, Object> connectLocks = new ConcurrentHashMap<>();
+
+    private final Set<HttpRoute> http11Routes = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean shutdown;
+
+    /**
+     * @param operator operator connecting the sockets
+     * @param timeToLive maximum lifetime of the HTTP/1.1 connections
+     * @param unit unit of timeToLive
+     */
+    public Http2ConnectionManager(HttpClientConnectionOperator operator, long timeToLive, TimeUnit unit) {
+        super(operator, null, timeToLive, unit);
+        this.operator = operator;
+    }
+
+    /**
+     * @param route route of the requests
+     * @return true if the requests of the route use HTTP/2
+     */
+    public boolean isHttp2(HttpRoute route) {
+        Http2Connection connection = connections.get(route);
+        return connection != null && connection.isOpen();
+    }
+
+    private boolean isHttp2Candidate(HttpRoute route) {
+        return route.getProxyHost() == null && !http11Routes.contains(route);
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        if (!isHttp2Candidate(route)) {
+            return super.requestConnection(route, state);
+        }
+        final Http2StreamConnection streamConnection = new Http2StreamConnection(route);
+        Http2Connection connection = connections.get(route);
+        if (connection != null && connection.isOpen()) {
+            streamConnection.bind(connection);
+        }
+        return new ConnectionRequest() {
+            @Override
+            public boolean cancel() {
+                return false;
+            }
+
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit tunit) {
+                if (shutdown) {
+                    throw new IllegalStateException("Connection pool shut down");
+                }
+                return streamConnection;
+            }
+        };
+    }
+
+    @Override
+    public void connect(HttpClientConnection managedConn, HttpRoute route, int connectTimeout, HttpContext context)
+            throws IOException {
+        if (!(managedConn instanceof Http2StreamConnection)) {
+            super.connect(managedConn, route, connectTimeout, context);
+            return;
+        }
+        Http2StreamConnection streamConnection = (Http2StreamConnection) managedConn;
+        // Concurrent requests of a new route wait for the first one to connect and share its connection
+        synchronized (connectLocks.computeIfAbsent(route, r -> new Object())) {
+            Http2Connection existing = connections.get(route);
+            if (existing != null && existing.isOpen()) {
+                streamConnection.bind(existing);
+                return;
+            }
+            if (!http11Routes.contains(route)) {
+                ManagedHttpClientConnection socketConnection = connectSocket(route, connectTimeout, context);
+                Socket socket = socketConnection.getSocket();
+                if (route.isSecure() && !AlpnSSLConnectionSocketFactory.H2.equals(
+                        AlpnSSLConnectionSocketFactory.getApplicationProtocol(socket))) {
+                    log.info("{} did not select HTTP/2 through ALPN, using HTTP/1.1", route.getTargetHost());
+                    http11Routes.add(route);
+                    streamConnection.bindFallback(socketConnection);
+                    return;
+                }
+                String name = "HTTP/2 " + route.getTargetHost() + " " + Thread.currentThread().getName(); // $NON-NLS-1$
+                try {
+                    Http2Connection connection = Http2Connection.open(socket, name, connectTimeout);
+                    connections.put(route, connection);
+                    streamConnection.bind(connection);
+                    return;
+                } catch (IOException e) {
+                    if (route.isSecure()) {
+                        throw e;
+                    }
+                    // HTTP/1.1 servers answer the HTTP/2 preface with an error or close the connection
+                    log.info("{} does not support HTTP/2 with prior knowledge, using HTTP/1.1: {}",
+                            route.getTargetHost(), e.toString());
+                    http11Routes.add(route);
+                }
+            }
+            streamConnection.bindFallback(connectSocket(route, connectTimeout, context));
+        }
+    }
+
+    private ManagedHttpClientConnection connectSocket(HttpRoute route, int connectTimeout, HttpContext context)
+            throws IOException {
+        HttpHost host = route.getTargetHost();
+        ConnectionConfig connectionConfig = getConnectionConfig(host);
+        if (connectionConfig == null) {
+            connectionConfig = getDefaultConnectionConfig();
+        }
+        SocketConfig socketConfig = getSocketConfig(host);
+        if (socketConfig == null) {
+            socketConfig = getDefaultSocketConfig();
+        }
+        ManagedHttpClientConnection conn = ManagedHttpClientConnectionFactory.INSTANCE.create(route,
+                connectionConfig != null ? connectionConfig : ConnectionConfig.DEFAULT);
+        operator.connect(conn, host, route.getLocalSocketAddress(), connectTimeout,
+                socketConfig != null ? socketConfig : SocketConfig.DEFAULT, context);
+        return conn;
+    }
+
+    @Override
+    public void upgrade(HttpClientConnection managedConn, HttpRoute route, HttpContext context) throws IOException {
+        if (!(managedConn instanceof Http2StreamConnection)) {
+            super.upgrade(managedConn, route, context);
+        }
+        // Only tunnelled routes are upgraded, they do not use HTTP/2
+    }
+
+    @Override
+    public void routeComplete(HttpClientConnection managedConn, HttpRoute route, HttpContext context)
+            throws IOException {
+        if (!(managedConn instanceof Http2StreamConnection)) {
+            super.routeComplete(managedConn, route, context);
+        }
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection managedConn, Object state, long keepalive, TimeUnit tunit) {
+        if (!(managedConn instanceof Http2StreamConnection)) {
+            super.releaseConnection(managedConn, state, keepalive, tunit);
+            return;
+        }
+        // Resets the stream if the response was not entirely read,
+        // and closes the HTTP/1.1 connection used to find out the server does not support HTTP/2
+        JOrphanUtils.closeQuietly(managedConn);
+    }
+
+    /**
+     * Close the idle HTTP/1.1 connections and the HTTP/2 connections without active streams
+     */
+    @Override
+    public void closeIdleConnections(long idleTimeout, TimeUnit tunit) {
+        super.closeIdleConnections(idleTimeout, tunit);
+        for (Map.Entry<HttpRoute, Http2Connection> entry : connections.entrySet()) {
+            Http2Connection connection = entry.getValue();
+            if (connection.isIdle() && connections.remove(entry.getKey(), connection)) {
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+        super.closeExpiredConnections();
+        for (Map.Entry<HttpRoute, Http2Connection> entry : connections.entrySet()) {
+            Http2Connection connection = entry.getValue();
+            if (!connection.isOpen() && connection.isIdle() && connections.remove(entry.getKey(), connection)) {
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        super.shutdown();
+        List<Http2Connection> closed = new ArrayList<>(connections.values());
+        connections.clear();
+        for (Http2Connection connection : closed) {
+            connection.close();
+        }
+    }
+}
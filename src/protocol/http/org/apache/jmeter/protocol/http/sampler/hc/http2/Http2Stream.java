@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc.http2;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.http.Header;
+
+/**
+ * Stream of an {@link Http2Connection} carrying one request and its response.
+ * <p>
+ * The response frames are buffered by the reader thread of the connection
+ * until the thread which sent the request reads them.
+ * @since 4.1
+ */
+public final class Http2Stream {
+
+    /**
+     * Headers received in one header block
+     */
+    public static final class HeaderBlock {
+        private final List<Header> headers;
+        private final int frameBytes;
+
+        HeaderBlock(List<Header> headers, int frameBytes) {
+            this.headers = Collections.unmodifiableList(headers);
+            this.frameBytes = frameBytes;
+        }
+
+        /**
+         * @return the headers, starting with the pseudo-headers
+         */
+        public List<Header> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * @return the value of the :status pseudo-header, null if missing
+         */
+        public String getStatus() {
+            for (Header header : headers) {
+                if (":status".equals(header.getName())) { // $NON-NLS-1$
+                    return header.getValue();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return the size of the frames which carried the headers
+         */
+        public int getFrameBytes() {
+            return frameBytes;
+        }
+    }
+
+    private final Http2Connection connection;
+
+    private final int id;
+
+    /** Send window, guarded by the connection */
+    long sendWindow;
+
+    /** Set once the stream is reset or its connection failed */
+    private volatile IOException failure;
+
+    // Guarded by this
+    private final ArrayDeque<HeaderBlock> headerBlocks = new ArrayDeque<>();
+    private final ArrayDeque<ByteBuffer> data = new ArrayDeque<>();
+    private boolean finalHeadersReceived;
+    private boolean remoteClosed;
+    private boolean localClosed;
+    private int readSinceWindowUpdate;
+    private long sentBytes;
+    private long receivedDataBytes;
+
+    Http2Stream(Http2Connection connection, int id, int sendWindow) {
+        this.connection = connection;
+        this.id = id;
+        this.sendWindow = sendWindow;
+    }
+
+    /**
+     * @return the stream identifier
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the connection of the stream
+     */
+    public Http2Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Wait for the next header block of the response, informational ones included
+     * @param timeout timeout in milliseconds, 0 for none
+     * @return the header block
+     * @throws IOException if the stream failed or the timeout expired
+     */
+    public synchronized HeaderBlock awaitHeaders(int timeout) throws IOException {
+        long deadline = deadline(timeout);
+        while (headerBlocks.isEmpty()) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (remoteClosed) {
+                throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Stream " + id + " closed without response headers");
+            }
+            await(deadline);
+        }
+        return headerBlocks.poll();
+    }
+
+    /**
+     * Wait for a header block of the response
+     * @param timeout timeout in milliseconds
+     * @return true if a header block is available, or if waiting for it would fail
+     * @throws IOException if interrupted
+     */
+    public synchronized boolean isHeadersAvailable(int timeout) throws IOException {
+        long deadline = deadline(timeout);
+        try {
+            while (headerBlocks.isEmpty() && failure == null && !remoteClosed) {
+                await(deadline);
+            }
+        } catch (SocketTimeoutException e) { // NOSONAR The answer is no
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Read content of the response
+     * @param b buffer
+     * @param off offset in the buffer
+     * @param len maximum number of bytes to read
+     * @param timeout timeout in milliseconds waiting for content, 0 for none
+     * @return number of bytes read, -1 at the end of the response
+     * @throws IOException if the stream failed or the timeout expired
+     */
+    public int read(byte[] b, int off, int len, int timeout) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int read = 0;
+        int windowUpdate = 0;
+        synchronized (this) {
+            long deadline = deadline(timeout);
+            while (data.isEmpty()) {
+                if (remoteClosed) {
+                    return -1;
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                await(deadline);
+            }
+            while (read < len && !data.isEmpty()) {
+                ByteBuffer buffer = data.peek();
+                int n = Math.min(len - read, buffer.remaining());
+                buffer.get(b, off + read, n);
+                read += n;
+                if (!buffer.hasRemaining()) {
+                    data.poll();
+                }
+            }
+            readSinceWindowUpdate += read;
+            if (readSinceWindowUpdate >= Http2Connection.STREAM_WINDOW_SIZE / 2 && !remoteClosed) {
+                windowUpdate = readSinceWindowUpdate;
+                readSinceWindowUpdate = 0;
+            }
+        }
+        if (windowUpdate > 0) {
+            connection.sendWindowUpdate(this, windowUpdate);
+        }
+        return read;
+    }
+
+    /**
+     * @return number of content bytes which can be read without waiting
+     */
+    public synchronized int available() {
+        int available = 0;
+        for (ByteBuffer buffer : data) {
+            available += buffer.remaining();
+        }
+        return available;
+    }
+
+    /**
+     * Send content of the request
+     * @param b content
+     * @param off offset of the content in b
+     * @param len length of the content
+     * @param endStream true if this is the end of the content
+     * @param timeout timeout in milliseconds waiting for the flow control windows, 0 for none
+     * @throws IOException if the stream failed or the timeout expired
+     */
+    public void write(byte[] b, int off, int len, boolean endStream, int timeout) throws IOException {
+        checkNotReset();
+        connection.sendData(this, b, off, len, endStream, timeout);
+    }
+
+    /**
+     * @return true if the request and the response were entirely exchanged, or the stream failed
+     */
+    public synchronized boolean isComplete() {
+        return failure != null || remoteClosed && localClosed;
+    }
+
+    /**
+     * Reset the stream if the request or the response was not entirely exchanged
+     */
+    public void cancel() {
+        synchronized (this) {
+            if (failure != null || remoteClosed && localClosed) {
+                return;
+            }
+            failure = new Http2Exception(Http2Exception.CANCEL, "Stream " + id + " cancelled");
+            data.clear();
+            notifyAll();
+        }
+        connection.resetStream(this, Http2Exception.CANCEL);
+    }
+
+    /**
+     * @return size of the frames sent on this stream
+     */
+    public synchronized long getSentBytes() {
+        return sentBytes;
+    }
+
+    /**
+     * @return size of the DATA and trailer frames received on this stream
+     */
+    public synchronized long getReceivedDataBytes() {
+        return receivedDataBytes;
+    }
+
+    boolean isReset() {
+        return failure != null;
+    }
+
+    void checkNotReset() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    synchronized void addSentBytes(int bytes) {
+        sentBytes += bytes;
+    }
+
+    void localClosed() {
+        boolean closed;
+        synchronized (this) {
+            localClosed = true;
+            closed = remoteClosed;
+        }
+        if (closed) {
+            connection.streamClosed(this);
+        }
+    }
+
+    void headers(List<Header> headers, int frameBytes, boolean endStream) {
+        boolean closed;
+        synchronized (this) {
+            if (finalHeadersReceived) { // trailers
+                receivedDataBytes += frameBytes;
+            } else {
+                HeaderBlock block = new HeaderBlock(headers, frameBytes);
+                String status = block.getStatus();
+                finalHeadersReceived = status == null || status.length() != 3 || status.charAt(0) != '1';
+                headerBlocks.add(block);
+            }
+            remoteClosed |= endStream;
+            closed = remoteClosed && localClosed;
+            notifyAll();
+        }
+        if (closed) {
+            connection.streamClosed(this);
+        }
+    }
+
+    void data(byte[] payload, int offset, int length, int frameBytes, int padding, boolean endStream) {
+        boolean closed;
+        synchronized (this) {
+            if (length > 0 && failure == null) {
+                data.add(ByteBuffer.wrap(payload, offset, length));
+            }
+            receivedDataBytes += frameBytes;
+            readSinceWindowUpdate += padding; // never read, but counted by flow control
+            remoteClosed |= endStream;
+            closed = remoteClosed && localClosed;
+            notifyAll();
+        }
+        if (closed) {
+            connection.streamClosed(this);
+        }
+    }
+
+    void reset(int errorCode) {
+        failed(new Http2Exception(errorCode, "Stream " + id + " reset by server with error code " + errorCode));
+    }
+
+    synchronized void failed(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+        notifyAll();
+    }
+
+    private static long deadline(int timeout) {
+        return timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+    }
+
+    private void await(long deadline) throws IOException {
+        long wait = 0;
+        if (deadline > 0) {
+            wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+        }
+        try {
+            wait(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting on stream " + id);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return connection + "#" + id;
+    }
+}
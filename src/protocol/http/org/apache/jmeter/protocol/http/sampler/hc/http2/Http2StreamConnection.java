@@ -0,0 +1,520 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc.http2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+import org.apache.http.Header;
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.ProtocolException;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+
+/**
+ * {@link ManagedHttpClientConnection} sending each request on a new stream of
+ * a shared {@link Http2Connection}, so that HttpClient can drive HTTP/2
+ * exchanges as it drives HTTP/1.1 ones.
+ * <p>
+ * If the server does not support HTTP/2, an HTTP/1.1 connection is set as
+ * fallback and all the calls are delegated to it.
+ * <p>
+ * As other connections it must only be used by one thread at a time;
+ * closing it only resets its current stream.
+ * @since 4.1
+ */
+final class Http2StreamConnection implements ManagedHttpClientConnection {
+
+    static final ProtocolVersion HTTP_2 = new ProtocolVersion("HTTP", 2, 0); // $NON-NLS-1$
+
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    private static final int BUFFER_SIZE = 16384;
+
+    private final String id;
+
+    private final HttpRoute route;
+
+    private final Metrics metrics = new Metrics();
+
+    private volatile Http2Connection connection;
+
+    private volatile ManagedHttpClientConnection fallback;
+
+    private volatile Http2Stream stream;
+
+    private volatile boolean open;
+
+    private int socketTimeout;
+
+    /** Bytes sent on the current stream which are already counted in the metrics */
+    private long streamSentBytes;
+
+    Http2StreamConnection(HttpRoute route) {
+        this.id = "http2-" + COUNTER.getAndIncrement(); // $NON-NLS-1$
+        this.route = route;
+    }
+
+    /**
+     * @return the route of this connection
+     */
+    HttpRoute getRoute() {
+        return route;
+    }
+
+    /**
+     * Send the next requests on new streams of a connection
+     * @param connection HTTP/2 connection to the target of the route
+     */
+    void bind(Http2Connection connection) {
+        this.connection = connection;
+        this.open = true;
+    }
+
+    /**
+     * Send the next requests on an HTTP/1.1 connection
+     * @param fallback connected HTTP/1.1 connection to the target of the route
+     */
+    void bindFallback(ManagedHttpClientConnection fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * @return the HTTP/1.1 connection the requests are sent on if any
+     */
+    ManagedHttpClientConnection getFallback() {
+        return fallback;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void bind(Socket socket) throws IOException {
+        throw new UnsupportedOperationException("HTTP/2 streams are bound to connections by Http2ConnectionManager");
+    }
+
+    @Override
+    public Socket getSocket() {
+        if (fallback != null) {
+            return fallback.getSocket();
+        }
+        Http2Connection current = connection;
+        return current != null ? current.getSocket() : null;
+    }
+
+    @Override
+    public SSLSession getSSLSession() {
+        if (fallback != null) {
+            return fallback.getSSLSession();
+        }
+        Socket socket = getSocket();
+        return socket instanceof SSLSocket ? ((SSLSocket) socket).getSession() : null;
+    }
+
+    @Override
+    public boolean isResponseAvailable(int timeout) throws IOException {
+        if (fallback != null) {
+            return fallback.isResponseAvailable(timeout);
+        }
+        return stream != null && stream.isHeadersAvailable(timeout);
+    }
+
+    @Override
+    public void sendRequestHeader(HttpRequest request) throws HttpException, IOException {
+        if (fallback != null) {
+            fallback.sendRequestHeader(request);
+            return;
+        }
+        if (!open) {
+            throw new IOException("Connection is closed: " + id);
+        }
+        cancelStream();
+        List<Header> headers = new ArrayList<>();
+        headers.add(new BasicHeader(":method", request.getRequestLine().getMethod())); // $NON-NLS-1$
+        headers.add(new BasicHeader(":scheme", route.getTargetHost().getSchemeName())); // $NON-NLS-1$
+        Header host = request.getFirstHeader(HttpHeaders.HOST);
+        headers.add(new BasicHeader(":authority", // $NON-NLS-1$
+                host != null ? host.getValue() : route.getTargetHost().toHostString()));
+        String path = request.getRequestLine().getUri();
+        headers.add(new BasicHeader(":path", path.isEmpty() ? "/" : path)); // $NON-NLS-1$
+        for (Header header : request.getAllHeaders()) {
+            String name = header.getName().toLowerCase(Locale.ROOT);
+            if (isConnectionSpecific(name, header.getValue())) {
+                continue;
+            }
+            headers.add(new BasicHeader(name, header.getValue()));
+        }
+        boolean hasEntity = request instanceof HttpEntityEnclosingRequest
+                && ((HttpEntityEnclosingRequest) request).getEntity() != null;
+        stream = connection.openStream(headers, !hasEntity, socketTimeout);
+        streamSentBytes = 0;
+        countSentBytes();
+        metrics.requestCount++;
+    }
+
+    /**
+     * @return true if the header must not be sent over HTTP/2 (RFC 7540, 8.1.2.2)
+     */
+    private static boolean isConnectionSpecific(String name, String value) {
+        switch (name) {
+            case "host": // $NON-NLS-1$ sent as :authority
+            case "connection": // $NON-NLS-1$
+            case "keep-alive": // $NON-NLS-1$
+            case "proxy-connection": // $NON-NLS-1$
+            case "transfer-encoding": // $NON-NLS-1$
+            case "upgrade": // $NON-NLS-1$
+                return true;
+            case "te": // $NON-NLS-1$
+                return !"trailers".equalsIgnoreCase(value); // $NON-NLS-1$
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void sendRequestEntity(HttpEntityEnclosingRequest request) throws HttpException, IOException {
+        if (fallback != null) {
+            fallback.sendRequestEntity(request);
+            return;
+        }
+        HttpEntity entity = request.getEntity();
+        if (entity == null) {
+            return;
+        }
+        try (OutputStream out = new StreamOutputStream(stream)) {
+            entity.writeTo(out);
+        }
+        countSentBytes();
+    }
+
+    @Override
+    public HttpResponse receiveResponseHeader() throws HttpException, IOException {
+        if (fallback != null) {
+            return fallback.receiveResponseHeader();
+        }
+        Http2Stream.HeaderBlock block = stream.awaitHeaders(socketTimeout);
+        metrics.receivedBytes += block.getFrameBytes();
+        String status = block.getStatus();
+        int statusCode;
+        try {
+            statusCode = Integer.parseInt(status);
+        } catch (NumberFormatException e) {
+            throw new ProtocolException("Invalid :status in response: " + status, e);
+        }
+        HttpResponse response = new BasicHttpResponse(HTTP_2, statusCode,
+                EnglishReasonPhraseCatalog.INSTANCE.getReason(statusCode, Locale.ENGLISH));
+        for (Header header : block.getHeaders()) {
+            if (!header.getName().startsWith(":")) {
+                response.addHeader(header);
+            }
+        }
+        if (statusCode >= 200) {
+            metrics.responseCount++;
+        }
+        return response;
+    }
+
+    @Override
+    public void receiveResponseEntity(HttpResponse response) throws HttpException, IOException {
+        if (fallback != null) {
+            fallback.receiveResponseEntity(response);
+            return;
+        }
+        BasicHttpEntity entity = new BasicHttpEntity();
+        long contentLength = -1;
+        Header contentLengthHeader = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+        if (contentLengthHeader != null) {
+            try {
+                contentLength = Long.parseLong(contentLengthHeader.getValue().trim());
+            } catch (NumberFormatException e) {
+                throw new ProtocolException("Invalid content-length in response: " + contentLengthHeader.getValue(), e);
+            }
+        }
+        entity.setContentLength(contentLength);
+        entity.setContentType(response.getFirstHeader(HttpHeaders.CONTENT_TYPE));
+        entity.setContentEncoding(response.getFirstHeader(HttpHeaders.CONTENT_ENCODING));
+        entity.setContent(new StreamInputStream(stream, this));
+        response.setEntity(entity);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (fallback != null) {
+            fallback.flush();
+        }
+        // Frames are flushed as they are written
+    }
+
+    @Override
+    public boolean isOpen() {
+        if (fallback != null) {
+            return fallback.isOpen();
+        }
+        Http2Connection current = connection;
+        return open && current != null && (stream != null || current.isOpen());
+    }
+
+    @Override
+    public boolean isStale() {
+        if (fallback != null) {
+            return fallback.isStale();
+        }
+        return !isOpen();
+    }
+
+    @Override
+    public void setSocketTimeout(int timeout) {
+        if (fallback != null) {
+            fallback.setSocketTimeout(timeout);
+        }
+        this.socketTimeout = timeout;
+    }
+
+    @Override
+    public int getSocketTimeout() {
+        if (fallback != null) {
+            return fallback.getSocketTimeout();
+        }
+        return socketTimeout;
+    }
+
+    /**
+     * Reset the current stream if it is not complete, the HTTP/2 connection stays open
+     */
+    @Override
+    public void close() throws IOException {
+        if (fallback != null) {
+            fallback.close();
+        }
+        open = false;
+        cancelStream();
+    }
+
+    @Override
+    public void shutdown() throws IOException {
+        if (fallback != null) {
+            fallback.shutdown();
+        }
+        open = false;
+        cancelStream();
+    }
+
+    @Override
+    public HttpConnectionMetrics getMetrics() {
+        if (fallback != null) {
+            return fallback.getMetrics();
+        }
+        countSentBytes();
+        return metrics;
+    }
+
+    @Override
+    public InetAddress getLocalAddress() {
+        Socket socket = getSocket();
+        return socket != null ? socket.getLocalAddress() : null;
+    }
+
+    @Override
+    public int getLocalPort() {
+        Socket socket = getSocket();
+        return socket != null ? socket.getLocalPort() : -1;
+    }
+
+    @Override
+    public InetAddress getRemoteAddress() {
+        Socket socket = getSocket();
+        return socket != null ? socket.getInetAddress() : null;
+    }
+
+    @Override
+    public int getRemotePort() {
+        Socket socket = getSocket();
+        return socket != null ? socket.getPort() : -1;
+    }
+
+    @Override
+    public String toString() {
+        Http2Stream current = stream;
+        return id + (current != null ? " " + current : "");
+    }
+
+    private void cancelStream() {
+        Http2Stream current = stream;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    private void countSentBytes() {
+        Http2Stream current = stream;
+        if (current != null) {
+            long sent = current.getSentBytes();
+            metrics.sentBytes += sent - streamSentBytes;
+            streamSentBytes = sent;
+        }
+    }
+
+    private static final class Metrics implements HttpConnectionMetrics {
+        private long requestCount;
+        private long responseCount;
+        private long sentBytes;
+        private long receivedBytes;
+
+        @Override
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        @Override
+        public long getResponseCount() {
+            return responseCount;
+        }
+
+        @Override
+        public long getSentBytesCount() {
+            return sentBytes;
+        }
+
+        @Override
+        public long getReceivedBytesCount() {
+            return receivedBytes;
+        }
+
+        @Override
+        public Object getMetric(String metricName) {
+            return null;
+        }
+
+        @Override
+        public void reset() {
+            requestCount = 0;
+            responseCount = 0;
+            sentBytes = 0;
+            receivedBytes = 0;
+        }
+    }
+
+    /**
+     * Request content sent in DATA frames, the last one ending the stream
+     */
+    private final class StreamOutputStream extends OutputStream {
+        private final Http2Stream target;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int count;
+
+        StreamOutputStream(Http2Stream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len >= buffer.length) {
+                flush();
+                target.write(b, off, len, false, socketTimeout);
+            } else {
+                if (len > buffer.length - count) {
+                    flush();
+                }
+                System.arraycopy(b, off, buffer, count, len);
+                count += len;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                target.write(buffer, 0, count, false, socketTimeout);
+                count = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            target.write(buffer, 0, count, true, socketTimeout);
+            count = 0;
+        }
+    }
+
+    /**
+     * Response content read from the DATA frames, closing it before its end resets the stream
+     */
+    private static final class StreamInputStream extends InputStream {
+        private final Http2Stream source;
+        private final Http2StreamConnection owner;
+
+        StreamInputStream(Http2Stream source, Http2StreamConnection owner) {
+            this.source = source;
+            this.owner = owner;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return source.read(b, off, len, owner.socketTimeout);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return source.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.cancel();
+        }
+    }
+}
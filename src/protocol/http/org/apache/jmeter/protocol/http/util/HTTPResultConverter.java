@@ -66,7 +66,7 @@ public class HTTPResultConverter extends SampleResultConverter {
     @Override
     public void marshal(Object obj, HierarchicalStreamWriter writer, MarshallingContext context) {
         HTTPSampleResult res = (HTTPSampleResult) obj;
-        SampleSaveConfiguration save = res.getSaveConfig();
+        SampleSaveConfiguration save = getSaveConfig(context, res);
         setAttributes(writer, context, res, save);
         saveAssertions(writer, context, res, save);
         saveSubResults(writer, context, res, save);
@@ -64,6 +64,18 @@ class MD5HexAssertionSpec extends JMeterSpec {
             "anything" | "F0e166Dc34D14d6c228ffac576c9a43c"
     }
 
+    def "MD5 computed by the sampler is used when the response data was not kept"() {
+        given:
+            sut.setAllowedMD5Hex("f0e166dc34d14d6c228ffac576c9a43c")
+            def response = new SampleResult()
+            response.setResponseDataMD5Hex("f0e166dc34d14d6c228ffac576c9a43c")
+        when:
+            def result = sut.getResult(response)
+        then:
+            !result.isFailure()
+            !result.isError()
+    }
+
     def "empty array has MD5 hash of D41D8CD98F00B204E9800998ECF8427E"() {
         given:
             def emptyByteArray = [] as byte[]
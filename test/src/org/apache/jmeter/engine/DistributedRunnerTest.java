@@ -18,6 +18,8 @@
 
 package org.apache.jmeter.engine;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
@@ -29,6 +31,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.collections.HashTree;
@@ -66,6 +70,34 @@ public class DistributedRunnerTest {
         obj.exit(hosts);
     }
 
+    @Test
+    public void testEnginesStartTogether() throws Exception {
+        createJmeterEnv();
+        JMeterUtils.setProperty(DistributedRunner.RETRIES_NUMBER, "1");
+        JMeterUtils.setProperty(DistributedRunner.CONTINUE_ON_FAIL, "false");
+        DistributedRunnerEmul obj = new DistributedRunnerEmul();
+        // Each engine waits for the others to be started
+        CountDownLatch running = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            obj.engines.add(new EmulatorEngine() {
+                @Override
+                public void runTest() throws JMeterEngineException {
+                    running.countDown();
+                    try {
+                        assertTrue(running.await(10, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new JMeterEngineException(e);
+                    }
+                }
+            });
+        }
+        List<String> hosts = Arrays.asList("test1", "test2", "test3");
+        obj.init(hosts, new HashTree());
+        assertEquals(3, obj.getEngines().size());
+        obj.start();
+        assertEquals(0, running.getCount());
+    }
+
     @Test
     public void testFailure1() throws Exception {
         createJmeterEnv();
@@ -123,7 +155,7 @@ public class DistributedRunnerTest {
         public List<EmulatorEngine> engines = new LinkedList<>();
 
         @Override
-        protected JMeterEngine createEngine(String address) {
+        protected synchronized JMeterEngine createEngine(String address) {
             if (engines.isEmpty()) {
                 throw new IllegalArgumentException("Throwing on Engine creation to simulate failure");
             }
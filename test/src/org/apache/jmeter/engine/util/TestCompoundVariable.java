@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package org.apache.jmeter.engine.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.jmeter.functions.AbstractFunction;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCompoundVariable extends JMeterTestCase {
+
+    private JMeterVariables vars;
+
+    @Before
+    public void setUp() {
+        vars = new JMeterVariables();
+        JMeterContextService.getContext().setVariables(vars);
+    }
+
+    @Test
+    public void testConstant() {
+        CompoundVariable cv = new CompoundVariable("a\\$b\\,c");
+        assertFalse(cv.hasFunction());
+        assertEquals("a$b,c", cv.execute());
+        assertEquals("a$b,c", cv.execute(null, null));
+        assertEquals("a$b,c", cv.getFunction().execute(null, null));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals("", new CompoundVariable("").execute());
+        CompoundVariable cv = new CompoundVariable("${V}");
+        cv.clear();
+        assertEquals("", cv.execute(null, null));
+    }
+
+    @Test
+    public void testVariables() {
+        CompoundVariable cv = new CompoundVariable("${V}");
+        assertTrue(cv.hasFunction());
+        assertEquals("${V}", cv.execute());
+        vars.put("V", "value");
+        assertEquals("value", cv.execute());
+
+        cv = new CompoundVariable("before ${V} between ${W}${V} after");
+        vars.put("W", "other");
+        assertEquals("before value between othervalue after", cv.execute());
+        vars.put("V", "changed");
+        assertEquals("before changed between otherchanged after", cv.execute());
+    }
+
+    @Test
+    public void testFunctions() {
+        vars.put("V", "value");
+        CompoundVariable cv = new CompoundVariable("a${__V(${V})}b${V}");
+        assertTrue(cv.hasFunction());
+        vars.put("value", "v");
+        assertEquals("avbvalue", cv.execute());
+    }
+
+    @Test
+    public void testFunctionReturningNull() {
+        AbstractFunction nullFunction = new AbstractFunction() {
+            @Override
+            public String execute(SampleResult previousResult, Sampler currentSampler) {
+                return null;
+            }
+
+            @Override
+            public void setParameters(Collection<CompoundVariable> parameters) {
+                // no parameters
+            }
+
+            @Override
+            public String getReferenceKey() {
+                return "__null"; // $NON-NLS-1$
+            }
+
+            @Override
+            public List<String> getArgumentDesc() {
+                return null;
+            }
+        };
+        assertEquals("null", CompoundVariable.evaluate(nullFunction, null, null));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Proxy;
+
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.jmeter.protocol.http.sampler.HTTPHC4AsyncImpl.ConnectionOwner;
+import org.junit.Test;
+
+public class TestHTTPHC4AsyncImpl {
+
+    /**
+     * Counts the calls to close of a session
+     */
+    private static class SessionStub {
+        private int closeCount;
+        private boolean closed;
+
+        private final IOSession session = (IOSession) Proxy.newProxyInstance(
+                IOSession.class.getClassLoader(), new Class<?>[] { IOSession.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            closeCount++;
+                            return null;
+                        case "isClosed":
+                            return Boolean.valueOf(closed);
+                        case "hashCode":
+                            return Integer.valueOf(System.identityHashCode(proxy));
+                        case "equals":
+                            return Boolean.valueOf(proxy == args[0]);
+                        case "toString":
+                            return "session";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Test
+    public void testOwnerClosesItsIdleConnections() {
+        ConnectionOwner owner = new ConnectionOwner("Thread Group 1-1");
+        SessionStub first = new SessionStub();
+        SessionStub second = new SessionStub();
+        owner.connectionReleased(first.session);
+        owner.connectionReleased(second.session);
+        // Released again after being leased by the same owner
+        owner.connectionReleased(first.session);
+        assertEquals(0, first.closeCount);
+
+        owner.close();
+        assertEquals(1, first.closeCount);
+        assertEquals(1, second.closeCount);
+    }
+
+    @Test
+    public void testClosedConnectionsAreForgotten() {
+        ConnectionOwner owner = new ConnectionOwner("Thread Group 1-1");
+        SessionStub closedByServer = new SessionStub();
+        owner.connectionReleased(closedByServer.session);
+        closedByServer.closed = true;
+        owner.connectionReleased(new SessionStub().session);
+
+        owner.close();
+        assertEquals(0, closedByServer.closeCount);
+    }
+
+    @Test
+    public void testConnectionReleasedAfterCloseIsClosed() {
+        ConnectionOwner owner = new ConnectionOwner("Thread Group 1-1");
+        owner.close();
+        SessionStub late = new SessionStub();
+        owner.connectionReleased(late.session);
+        assertEquals(1, late.closeCount);
+    }
+}
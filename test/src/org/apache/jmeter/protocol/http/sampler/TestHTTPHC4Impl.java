@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.http.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.protocol.http.control.DNSCacheManager;
+import org.junit.Test;
+
+public class TestHTTPHC4Impl extends JMeterTestCase {
+
+    private static DNSCacheManager createDnsCacheManager(String server, String host, String address) {
+        DNSCacheManager dnsCacheManager = new DNSCacheManager();
+        if (server != null) {
+            dnsCacheManager.setCustomResolver(true);
+            dnsCacheManager.addServer(server);
+        }
+        if (host != null) {
+            dnsCacheManager.addHost(host, address);
+        }
+        return dnsCacheManager;
+    }
+
+    @Test
+    public void testSystemResolutionSharesDnsResolverKey() {
+        assertSame(SystemDefaultDnsResolver.INSTANCE,
+                HTTPHC4Impl.getDnsResolverKey(SystemDefaultDnsResolver.INSTANCE));
+        assertSame(SystemDefaultDnsResolver.INSTANCE,
+                HTTPHC4Impl.getDnsResolverKey(createDnsCacheManager(null, null, null)));
+    }
+
+    @Test
+    public void testDnsResolverKeyOfDnsCacheManagers() {
+        // Clones of the same DNS Cache Manager in two threads
+        assertEquals(HTTPHC4Impl.getDnsResolverKey(createDnsCacheManager("10.0.0.1", "jmeter.local", "127.0.0.1")),
+                HTTPHC4Impl.getDnsResolverKey(createDnsCacheManager("10.0.0.1", "jmeter.local", "127.0.0.1")));
+        assertNotEquals(HTTPHC4Impl.getDnsResolverKey(createDnsCacheManager("10.0.0.1", null, null)),
+                HTTPHC4Impl.getDnsResolverKey(createDnsCacheManager("10.0.0.2", null, null)));
+        assertNotEquals(HTTPHC4Impl.getDnsResolverKey(createDnsCacheManager(null, "jmeter.local", "127.0.0.1")),
+                HTTPHC4Impl.getDnsResolverKey(createDnsCacheManager(null, "jmeter.local", "127.0.0.2")));
+    }
+}
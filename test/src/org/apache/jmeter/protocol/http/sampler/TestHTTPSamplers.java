@@ -18,13 +18,23 @@
 
 package org.apache.jmeter.protocol.http.sampler;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import org.apache.jmeter.config.Argument;
 import org.apache.jmeter.config.Arguments;
 import org.apache.jmeter.protocol.http.util.HTTPConstants;
 import org.apache.jmeter.protocol.http.util.HTTPFileArg;
+import org.apache.jmeter.samplers.ResponseDataUsage;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
 import org.junit.Test;
 
 public class TestHTTPSamplers {
@@ -397,4 +407,50 @@ public class TestHTTPSamplers {
         assertEquals("Hello \\\\\\\\ World \\\\\\\\ ! \\\\\\\\", output_null);
     }
 
+    private static byte[] readResponse(byte[] data, long usage, boolean md5Used, SampleResult res)
+            throws IOException {
+        JMeterContext context = JMeterContextService.getContext();
+        context.setResponseDataUsage(usage, md5Used);
+        try {
+            return new HTTPNullSampler().readResponse(res, new ByteArrayInputStream(data), data.length);
+        } finally {
+            context.setResponseDataUsage(ResponseDataUsage.ALL, false);
+        }
+    }
+
+    @Test
+    public void testReadResponseKeepsUsedData() throws IOException {
+        byte[] data = "0123456789".getBytes(StandardCharsets.US_ASCII);
+        SampleResult res = new SampleResult();
+        assertArrayEquals(data, readResponse(data, ResponseDataUsage.ALL, false, res));
+        assertArrayEquals("0123".getBytes(StandardCharsets.US_ASCII),
+                readResponse(data, 4, false, res));
+        assertEquals(0, readResponse(data, ResponseDataUsage.NONE, false, res).length);
+        // The bytes not kept are still counted
+        assertEquals(data.length, res.getBodySizeAsLong());
+        assertNull(res.getResponseDataMD5Hex());
+    }
+
+    @Test
+    public void testReadResponseComputesMD5OfDiscardedData() throws IOException {
+        byte[] data = "anything".getBytes(StandardCharsets.US_ASCII);
+        SampleResult res = new SampleResult();
+        assertEquals(0, readResponse(data, ResponseDataUsage.NONE, true, res).length);
+        assertEquals("f0e166dc34d14d6c228ffac576c9a43c", res.getResponseDataMD5Hex());
+    }
+
+    @Test
+    public void testReadResponseKeepsDataParsedForEmbeddedResources() throws IOException {
+        byte[] data = "<html></html>".getBytes(StandardCharsets.US_ASCII);
+        SampleResult res = new SampleResult();
+        JMeterContext context = JMeterContextService.getContext();
+        context.setResponseDataUsage(ResponseDataUsage.NONE, false);
+        try {
+            HTTPSamplerBase sampler = new HTTPNullSampler();
+            sampler.setImageParser(true);
+            assertArrayEquals(data, sampler.readResponse(res, new ByteArrayInputStream(data), 0));
+        } finally {
+            context.setResponseDataUsage(ResponseDataUsage.ALL, false);
+        }
+    }
 }
@@ -59,6 +59,8 @@ import junit.framework.TestSuite;
 public class TestHTTPSamplersAgainstHttpMirrorServer extends JMeterTestCaseJUnit {
     private static final int HTTP_SAMPLER = 0;
     private static final int HTTP_SAMPLER3 = 2;
+    private static final int HTTP_SAMPLER_ASYNC = 3;
+    private static final int HTTP_SAMPLER_HTTP2 = 4; // falls back to HTTP/1.1 with the mirror server
     
     /** The encodings used for http headers and control information */
     private static final String ISO_8859_1 = "ISO-8859-1"; // $NON-NLS-1$
@@ -92,9 +94,11 @@ public class TestHTTPSamplersAgainstHttpMirrorServer extends JMeterTestCaseJUnit
         for(int i=0; i<11; i++) {
             testSuite.addTest(new TestHTTPSamplersAgainstHttpMirrorServer("itemised_testGetRequest_Parameters", i));
             testSuite.addTest(new TestHTTPSamplersAgainstHttpMirrorServer("itemised_testGetRequest_Parameters3", i));
+            testSuite.addTest(new TestHTTPSamplersAgainstHttpMirrorServer("itemised_testGetRequest_ParametersAsync", i));
 
             testSuite.addTest(new TestHTTPSamplersAgainstHttpMirrorServer("itemised_testPostRequest_UrlEncoded", i));
             testSuite.addTest(new TestHTTPSamplersAgainstHttpMirrorServer("itemised_testPostRequest_UrlEncoded3", i));
+            testSuite.addTest(new TestHTTPSamplersAgainstHttpMirrorServer("itemised_testPostRequest_UrlEncodedAsync", i));
         }
 
         TestSetup setup = new TestSetup(testSuite){
@@ -137,6 +141,10 @@ public class TestHTTPSamplersAgainstHttpMirrorServer extends JMeterTestCaseJUnit
         testPostRequest_UrlEncoded(HTTP_SAMPLER3, US_ASCII, item);
     }
 
+    public void itemised_testPostRequest_UrlEncodedAsync() throws Exception {
+        testPostRequest_UrlEncoded(HTTP_SAMPLER_ASYNC, US_ASCII, item);
+    }
+
     public void testPostRequest_FormMultipart_0() throws Exception {
         testPostRequest_FormMultipart(HTTP_SAMPLER, ISO_8859_1);
     }
@@ -146,6 +154,10 @@ public class TestHTTPSamplersAgainstHttpMirrorServer extends JMeterTestCaseJUnit
         testPostRequest_FormMultipart(HTTP_SAMPLER3, US_ASCII);
     }
 
+    public void testPostRequest_FormMultipartAsync() throws Exception {
+        testPostRequest_FormMultipart(HTTP_SAMPLER_ASYNC, US_ASCII);
+    }
+
     public void testPostRequest_FileUpload() throws Exception {
         testPostRequest_FileUpload(HTTP_SAMPLER, ISO_8859_1);
     }
@@ -155,6 +167,10 @@ public class TestHTTPSamplersAgainstHttpMirrorServer extends JMeterTestCaseJUnit
         testPostRequest_FileUpload(HTTP_SAMPLER3, US_ASCII);
     }
 
+    public void testPostRequest_FileUploadAsync() throws Exception {
+        testPostRequest_FileUpload(HTTP_SAMPLER_ASYNC, US_ASCII);
+    }
+
     public void testPostRequest_BodyFromParameterValues() throws Exception {
         testPostRequest_BodyFromParameterValues(HTTP_SAMPLER, ISO_8859_1);
     }
@@ -163,6 +179,14 @@ public class TestHTTPSamplersAgainstHttpMirrorServer extends JMeterTestCaseJUnit
         testPostRequest_BodyFromParameterValues(HTTP_SAMPLER3, US_ASCII);
     }
 
+    public void testPostRequest_BodyFromParameterValuesAsync() throws Exception {
+        testPostRequest_BodyFromParameterValues(HTTP_SAMPLER_ASYNC, US_ASCII);
+    }
+
+    public void testPostRequest_BodyFromParameterValuesHttp2() throws Exception {
+        testPostRequest_BodyFromParameterValues(HTTP_SAMPLER_HTTP2, US_ASCII);
+    }
+
     public void testGetRequest() throws Exception {
         testGetRequest(HTTP_SAMPLER);
     }
@@ -170,6 +194,14 @@ public class TestHTTPSamplersAgainstHttpMirrorServer extends JMeterTestCaseJUnit
     public void testGetRequest3() throws Exception {
         testGetRequest(HTTP_SAMPLER3);
     }
+
+    public void testGetRequestAsync() throws Exception {
+        testGetRequest(HTTP_SAMPLER_ASYNC);
+    }
+
+    public void testGetRequestHttp2() throws Exception {
+        testGetRequest(HTTP_SAMPLER_HTTP2);
+    }
     
     public void itemised_testGetRequest_Parameters() throws Exception {
         testGetRequest_Parameters(HTTP_SAMPLER, item);
@@ -179,10 +211,18 @@ public class TestHTTPSamplersAgainstHttpMirrorServer extends JMeterTestCaseJUnit
         testGetRequest_Parameters(HTTP_SAMPLER3, item);
     }
 
+    public void itemised_testGetRequest_ParametersAsync() throws Exception {
+        testGetRequest_Parameters(HTTP_SAMPLER_ASYNC, item);
+    }
+
     public void testPutRequest_BodyFromParameterValues3() throws Exception {
         testPutRequest_BodyFromParameterValues(HTTP_SAMPLER3, US_ASCII);
     }
 
+    public void testPutRequest_BodyFromParameterValuesAsync() throws Exception {
+        testPutRequest_BodyFromParameterValues(HTTP_SAMPLER_ASYNC, US_ASCII);
+    }
+
     private void testPutRequest_BodyFromParameterValues(int samplerType, String samplerDefaultEncoding) throws Exception {
 
         final String titleField = "titleKey"; // ensure only values are used
@@ -1521,6 +1561,10 @@ public class TestHTTPSamplersAgainstHttpMirrorServer extends JMeterTestCaseJUnit
                 return new HTTPSampler();
             case HTTP_SAMPLER3:
                 return new HTTPSampler3();
+            case HTTP_SAMPLER_ASYNC:
+                return new HTTPSamplerProxy(HTTPSamplerFactory.IMPL_HTTP_ASYNC_CLIENT4);
+            case HTTP_SAMPLER_HTTP2:
+                return new HTTPSamplerProxy(HTTPSamplerFactory.IMPL_HTTP2);
             default:
                 break;
         }
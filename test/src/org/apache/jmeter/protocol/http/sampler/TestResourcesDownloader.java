@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jmeter.protocol.http.sampler.ResourcesDownloader.PendingDownload;
+import org.junit.Test;
+
+public class TestResourcesDownloader {
+
+    private static List<URL> createUrls() throws MalformedURLException {
+        List<URL> urls = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            urls.add(new URL("http://a.example.com/" + i));
+        }
+        for (int i = 0; i < 3; i++) {
+            urls.add(new URL("http://b.example.com:8080/" + i));
+        }
+        return urls;
+    }
+
+    @Test
+    public void testDownloadsAreLimitedPerHost() throws Exception {
+        List<URL> urls = createUrls();
+        Map<String, Integer> activePerHost = new HashMap<>();
+        Map<String, Integer> maxPerHost = new HashMap<>();
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        List<HTTPSampleResult> results = ResourcesDownloader.getInstance().downloadAndAwaitCompletion(8, urls,
+                (url, onReady) -> {
+                    int hostDownloads = activePerHost.merge(url.getHost(), 1, Integer::sum);
+                    maxPerHost.merge(url.getHost(), hostDownloads, Math::max);
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    onReady.run();
+                    return new PendingDownload() {
+                        @Override
+                        public HTTPSampleResult complete() {
+                            activePerHost.merge(url.getHost(), -1, Integer::sum);
+                            active.decrementAndGet();
+                            HTTPSampleResult result = new HTTPSampleResult();
+                            result.setURL(url);
+                            return result;
+                        }
+
+                        @Override
+                        public void cancel() {
+                            fail("Unexpected cancel of " + url);
+                        }
+                    };
+                });
+
+        assertEquals(urls.size(), results.size());
+        for (int i = 0; i < urls.size(); i++) {
+            assertEquals(urls.get(i), results.get(i).getURL());
+        }
+        assertEquals(Integer.valueOf(6), maxPerHost.get("a.example.com"));
+        assertEquals(Integer.valueOf(3), maxPerHost.get("b.example.com"));
+        assertEquals(8, maxActive.get());
+        assertEquals(0, active.get());
+    }
+
+    @Test
+    public void testInterruptCancelsStartedDownloads() throws Exception {
+        List<URL> urls = createUrls();
+        List<URL> started = new ArrayList<>();
+        List<URL> cancelled = new ArrayList<>();
+        Thread.currentThread().interrupt();
+        try {
+            ResourcesDownloader.getInstance().downloadAndAwaitCompletion(4, urls,
+                    (url, onReady) -> {
+                        started.add(url);
+                        return new PendingDownload() {
+                            @Override
+                            public HTTPSampleResult complete() {
+                                throw new IllegalStateException("Not ready: " + url);
+                            }
+
+                            @Override
+                            public void cancel() {
+                                cancelled.add(url);
+                            }
+                        };
+                    });
+            fail("Expected InterruptedException");
+        } catch (InterruptedException e) {
+            // expected
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(urls.subList(0, 4), started);
+        assertEquals(started, cancelled);
+    }
+}
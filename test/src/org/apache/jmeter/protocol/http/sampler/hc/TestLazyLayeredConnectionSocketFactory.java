@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+
+import javax.net.ssl.SSLSession;
+
+import org.junit.Test;
+
+public class TestLazyLayeredConnectionSocketFactory {
+
+    private static SSLSession createSession(long creationTime) {
+        return (SSLSession) Proxy.newProxyInstance(SSLSession.class.getClassLoader(),
+                new Class<?>[] { SSLSession.class }, (proxy, method, args) -> {
+                    if ("getCreationTime".equals(method.getName())) {
+                        return Long.valueOf(creationTime);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Test
+    public void testSessionCreatedByTheHandshakeIsNotResumed() {
+        assertFalse(LazyLayeredConnectionSocketFactory.isResumed(createSession(1000), 1000));
+        assertFalse(LazyLayeredConnectionSocketFactory.isResumed(createSession(1010), 1000));
+    }
+
+    @Test
+    public void testSessionCreatedBeforeTheHandshakeIsResumed() {
+        assertTrue(LazyLayeredConnectionSocketFactory.isResumed(createSession(999), 1000));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.Test;
+
+public class TestSharedHttpClientConnectionManager {
+
+    private static final HttpRoute ROUTE = new HttpRoute(new HttpHost("localhost", 8080));
+
+    private static final Object KEY = "key";
+
+    private static PoolingHttpClientConnectionManager createPool() {
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+        pool.setMaxTotal(1);
+        pool.setDefaultMaxPerRoute(1);
+        return pool;
+    }
+
+    @Test
+    public void testSharedUntilLastShutdown() {
+        Object scope = new Object();
+        SharedHttpClientConnectionManager first = new SharedHttpClientConnectionManager(scope, KEY,
+                TestSharedHttpClientConnectionManager::createPool);
+        SharedHttpClientConnectionManager second = new SharedHttpClientConnectionManager(scope, KEY,
+                TestSharedHttpClientConnectionManager::createPool);
+        SharedHttpClientConnectionManager other = new SharedHttpClientConnectionManager(new Object(), KEY,
+                TestSharedHttpClientConnectionManager::createPool);
+        PoolingHttpClientConnectionManager pool = first.getPool();
+        assertSame(pool, second.getPool());
+        assertNotSame(pool, other.getPool());
+
+        first.shutdown();
+        // Still used by the second client, the first one gets it back
+        assertSame(pool, first.getPool());
+
+        first.shutdown();
+        second.shutdown();
+        other.shutdown();
+        SharedHttpClientConnectionManager next = new SharedHttpClientConnectionManager(scope, KEY,
+                TestSharedHttpClientConnectionManager::createPool);
+        assertNotSame(pool, next.getPool());
+        next.shutdown();
+    }
+
+    @Test
+    public void testMaxPerRouteIsRaisedForClient() {
+        Object scope = new Object();
+        SharedHttpClientConnectionManager client = new SharedHttpClientConnectionManager(scope, KEY,
+                TestSharedHttpClientConnectionManager::createPool, 6);
+        try {
+            assertEquals(6, client.getPool().getDefaultMaxPerRoute());
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static String openAndRelease(SharedHttpClientConnectionManager client, HttpRoute route)
+            throws Exception {
+        HttpClientConnection conn = client.requestConnection(route, "user").get(1, TimeUnit.SECONDS);
+        HttpClientContext context = HttpClientContext.create();
+        if (!conn.isOpen()) {
+            client.connect(conn, route, 1000, context);
+            client.routeComplete(conn, route, context);
+        }
+        String id = ((ManagedHttpClientConnection) conn).getId();
+        client.releaseConnection(conn, "user", 10, TimeUnit.SECONDS);
+        return id;
+    }
+
+    @Test
+    public void testConnectionsAreReusedByClientsOfSameKey() throws Exception {
+        Object scope = new Object();
+        SharedHttpClientConnectionManager first = new SharedHttpClientConnectionManager(scope, KEY,
+                PoolingHttpClientConnectionManager::new);
+        SharedHttpClientConnectionManager second = new SharedHttpClientConnectionManager(scope, KEY,
+                PoolingHttpClientConnectionManager::new);
+        try (ServerSocket server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress())) {
+            HttpRoute route = new HttpRoute(new HttpHost("127.0.0.1", server.getLocalPort()));
+            String firstId = openAndRelease(first, route);
+            assertEquals(firstId, openAndRelease(second, route));
+            assertEquals(firstId, openAndRelease(first, route));
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+
+    @Test
+    public void testConnectionsAreNotReusedByClientsOfOtherKeys() throws Exception {
+        Object scope = new Object();
+        SharedHttpClientConnectionManager first = new SharedHttpClientConnectionManager(scope, KEY,
+                PoolingHttpClientConnectionManager::new);
+        SharedHttpClientConnectionManager second = new SharedHttpClientConnectionManager(scope, "other",
+                PoolingHttpClientConnectionManager::new);
+        try (ServerSocket server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress())) {
+            HttpRoute route = new HttpRoute(new HttpHost("127.0.0.1", server.getLocalPort()));
+            String firstId = openAndRelease(first, route);
+            // Same user token, but another key
+            String secondId = openAndRelease(second, route);
+            assertNotEquals(firstId, secondId);
+            assertEquals(firstId, openAndRelease(first, route));
+            assertEquals(secondId, openAndRelease(second, route));
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+
+    @Test
+    public void testLeaseWaitTime() throws Exception {
+        Object scope = new Object();
+        SharedHttpClientConnectionManager holder = new SharedHttpClientConnectionManager(scope, KEY,
+                TestSharedHttpClientConnectionManager::createPool);
+        SharedHttpClientConnectionManager waiter = new SharedHttpClientConnectionManager(scope, KEY,
+                TestSharedHttpClientConnectionManager::createPool);
+        try {
+            SharedHttpClientConnectionManager.getAndResetLeaseWaitTime();
+            HttpClientConnection conn = holder.requestConnection(ROUTE, null).get(1, TimeUnit.SECONDS);
+            assertTrue(SharedHttpClientConnectionManager.getAndResetLeaseWaitTime() < 200);
+
+            AtomicLong waitTime = new AtomicLong(-1);
+            Thread thread = new Thread(() -> {
+                try {
+                    HttpClientConnection waited = waiter.requestConnection(ROUTE, null).get(5, TimeUnit.SECONDS);
+                    waitTime.set(SharedHttpClientConnectionManager.getAndResetLeaseWaitTime());
+                    waiter.releaseConnection(waited, null, 0, TimeUnit.MILLISECONDS);
+                } catch (Exception e) { // NOSONAR Failure checked by the assertion below
+                    waitTime.set(-2);
+                }
+            });
+            thread.start();
+            Thread.sleep(300);
+            holder.releaseConnection(conn, null, 0, TimeUnit.MILLISECONDS);
+            thread.join(5000);
+            assertTrue("Unexpected wait time " + waitTime.get(), waitTime.get() >= 250);
+            // Waits of other threads are not accounted to the current one
+            assertEquals(0, SharedHttpClientConnectionManager.getAndResetLeaseWaitTime());
+        } finally {
+            holder.shutdown();
+            waiter.shutdown();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+import org.apache.jorphan.util.JOrphanUtils;
+
+/**
+ * Minimal HTTP/2 server with prior knowledge (h2c) answering each request
+ * with its method, path and content. Requests whose path starts with /slow
+ * are answered after 300 ms.
+ */
+final class Http2TestServer implements Closeable {
+
+    private static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final ServerSocket serverSocket;
+
+    private final List<Socket> sockets = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private final AtomicInteger openStreams = new AtomicInteger();
+
+    private final AtomicInteger maxOpenStreams = new AtomicInteger();
+
+    Http2TestServer() throws IOException {
+        this(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()));
+    }
+
+    /**
+     * @param serverSocket bound server socket, which may negotiate TLS
+     */
+    Http2TestServer(ServerSocket serverSocket) {
+        this.serverSocket = serverSocket;
+        Thread acceptor = new Thread(this::accept, "Http2TestServer");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    int getMaxOpenStreams() {
+        return maxOpenStreams.get();
+    }
+
+    @Override
+    public void close() {
+        JOrphanUtils.closeQuietly(serverSocket);
+        synchronized (sockets) {
+            for (Socket socket : sockets) {
+                JOrphanUtils.closeQuietly(socket);
+            }
+        }
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                sockets.add(socket);
+                connectionCount.incrementAndGet();
+                Thread connectionThread = new Thread(() -> serve(socket), "Http2TestServer connection");
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            }
+        } catch (IOException e) { // NOSONAR Server closed
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            byte[] preface = new byte[PREFACE.length];
+            in.readFully(preface);
+            if (!Arrays.equals(PREFACE, preface)) {
+                throw new IOException("Invalid preface");
+            }
+            HpackEncoder encoder = new HpackEncoder();
+            HpackDecoder decoder = new HpackDecoder();
+            writeFrame(out, 0x4, 0, 0, new byte[] {0, 0x3, 0, 0, 0, 100}); // SETTINGS_MAX_CONCURRENT_STREAMS
+            Map<Integer, List<Header>> requestHeaders = new HashMap<>();
+            Map<Integer, ByteArrayOutputStream> requestContents = new HashMap<>();
+            byte[] header = new byte[9];
+            while (true) {
+                in.readFully(header);
+                int length = ((header[0] & 0xff) << 16) | ((header[1] & 0xff) << 8) | (header[2] & 0xff);
+                int type = header[3];
+                int flags = header[4];
+                int streamId = ((header[5] & 0x7f) << 24) | ((header[6] & 0xff) << 16)
+                        | ((header[7] & 0xff) << 8) | (header[8] & 0xff);
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                switch (type) {
+                    case 0x1: // HEADERS, sent in one frame without padding nor priority by the client
+                        requestHeaders.put(streamId, decoder.decode(payload));
+                        requestContents.put(streamId, new ByteArrayOutputStream());
+                        int open = openStreams.incrementAndGet();
+                        maxOpenStreams.accumulateAndGet(open, Math::max);
+                        break;
+                    case 0x0: // DATA
+                        requestContents.get(streamId).write(payload, 0, length);
+                        break;
+                    case 0x4: // SETTINGS
+                        if ((flags & 0x1) == 0) {
+                            writeFrame(out, 0x4, 0x1, 0, new byte[0]);
+                        }
+                        break;
+                    case 0x7: // GOAWAY
+                        socket.close();
+                        return;
+                    default:
+                        break;
+                }
+                if ((type == 0x0 || type == 0x1) && (flags & 0x1) != 0) { // END_STREAM
+                    List<Header> headers = requestHeaders.remove(streamId);
+                    byte[] content = requestContents.remove(streamId).toByteArray();
+                    Thread responder = new Thread(() -> respond(out, encoder, streamId, headers, content));
+                    responder.setDaemon(true);
+                    responder.start();
+                }
+            }
+        } catch (IOException e) { // NOSONAR Connection closed
+        } finally {
+            JOrphanUtils.closeQuietly(socket);
+        }
+    }
+
+    private void respond(OutputStream out, HpackEncoder encoder, int streamId, List<Header> headers, byte[] content) {
+        Map<String, String> request = new HashMap<>();
+        for (Header header : headers) {
+            request.put(header.getName(), header.getValue());
+        }
+        String path = request.get(":path");
+        try {
+            if (path.startsWith("/slow")) {
+                Thread.sleep(300);
+            }
+            byte[] body = (request.get(":method") + " " + path + (content.length > 0 ? "\n" : "")
+                    + new String(content, StandardCharsets.ISO_8859_1)).getBytes(StandardCharsets.ISO_8859_1);
+            synchronized (out) {
+                openStreams.decrementAndGet();
+                byte[] block = encoder.encode(Arrays.<Header>asList(new BasicHeader(":status", "200"),
+                        new BasicHeader("content-type", "text/plain"),
+                        new BasicHeader("content-length", Integer.toString(body.length))));
+                writeFrame(out, 0x1, 0x4, streamId, block); // END_HEADERS
+                writeFrame(out, 0x0, 0x1, streamId, body); // END_STREAM
+            }
+        } catch (IOException e) { // NOSONAR Connection closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void writeFrame(OutputStream out, int type, int flags, int streamId, byte[] payload)
+            throws IOException {
+        synchronized (out) {
+            out.write(new byte[] {(byte) (payload.length >>> 16), (byte) (payload.length >>> 8), (byte) payload.length,
+                    (byte) type, (byte) flags, (byte) (streamId >>> 24), (byte) (streamId >>> 16),
+                    (byte) (streamId >>> 8), (byte) streamId});
+            out.write(payload);
+            out.flush();
+        }
+    }
+}
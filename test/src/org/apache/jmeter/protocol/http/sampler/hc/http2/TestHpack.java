@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc.http2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+import org.junit.Test;
+
+/**
+ * Check the HPACK codec with the examples of RFC 7541, appendix C
+ */
+public class TestHpack {
+
+    private static final List<List<Header>> REQUESTS = Arrays.asList(
+            headers(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com"),
+            headers(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+                    "cache-control", "no-cache"),
+            headers(":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+                    "custom-key", "custom-value"));
+
+    // C.3, without Huffman coding
+    private static final String[] REQUESTS_PLAIN = {
+            "828684410f7777772e6578616d706c652e636f6d",
+            "828684be58086e6f2d6361636865",
+            "828785bf400a637573746f6d2d6b65790c637573746f6d2d76616c7565"};
+
+    // C.4, with Huffman coding
+    private static final String[] REQUESTS_HUFFMAN = {
+            "828684418cf1e3c2e5f23a6ba0ab90f4ff",
+            "828684be5886a8eb10649cbf",
+            "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"};
+
+    private static List<Header> headers(String... namesAndValues) {
+        List<Header> headers = new ArrayList<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            headers.add(new BasicHeader(namesAndValues[i], namesAndValues[i + 1]));
+        }
+        return headers;
+    }
+
+    private static byte[] hex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static void assertHeaders(List<Header> expected, List<Header> actual) {
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void testEncodeRequests() {
+        HpackEncoder encoder = new HpackEncoder();
+        for (int i = 0; i < REQUESTS.size(); i++) {
+            assertArrayEquals("Request " + i, hex(REQUESTS_HUFFMAN[i]), encoder.encode(REQUESTS.get(i)));
+        }
+    }
+
+    @Test
+    public void testDecodeRequestsWithHuffman() throws Exception {
+        HpackDecoder decoder = new HpackDecoder();
+        for (int i = 0; i < REQUESTS.size(); i++) {
+            assertHeaders(REQUESTS.get(i), decoder.decode(hex(REQUESTS_HUFFMAN[i])));
+        }
+    }
+
+    @Test
+    public void testDecodeRequestsWithoutHuffman() throws Exception {
+        HpackDecoder decoder = new HpackDecoder();
+        for (int i = 0; i < REQUESTS.size(); i++) {
+            assertHeaders(REQUESTS.get(i), decoder.decode(hex(REQUESTS_PLAIN[i])));
+        }
+    }
+
+    @Test
+    public void testDecodeResponsesWithEviction() throws Exception {
+        // C.6, with a table of 256 bytes, set by the size update of the first block
+        HpackDecoder decoder = new HpackDecoder();
+        assertHeaders(headers(":status", "302", "cache-control", "private",
+                "date", "Mon, 21 Oct 2013 20:13:21 GMT", "location", "https://www.example.com"),
+                decoder.decode(hex("3fe101" + "488264025885aec3771a4b6196d07abe941054d444a8200595040b8166"
+                        + "e082a62d1bff6e919d29ad171863c78f0b97c8e9ae82ae43d3")));
+        assertHeaders(headers(":status", "307", "cache-control", "private",
+                "date", "Mon, 21 Oct 2013 20:13:21 GMT", "location", "https://www.example.com"),
+                decoder.decode(hex("4883640effc1c0bf")));
+    }
+
+    @Test
+    public void testSensitiveHeadersAreNeverIndexed() throws Exception {
+        List<Header> headers = headers("Authorization", "Basic dXNlcjpwYXNz");
+        HpackEncoder encoder = new HpackEncoder();
+        byte[] block = encoder.encode(headers);
+        assertEquals(0x10, block[0] & 0xf0);
+        assertArrayEquals("Not added to the table", block, encoder.encode(headers));
+        assertHeaders(headers("authorization", "Basic dXNlcjpwYXNz"), new HpackDecoder().decode(block));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.http.sampler.hc.http2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.DefaultHttpClientConnectionOperator;
+import org.apache.http.util.EntityUtils;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerFactory;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerProxy;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestHttp2ConnectionManager extends JMeterTestCase {
+
+    private Http2TestServer server;
+
+    private Http2ConnectionManager manager;
+
+    private CloseableHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new Http2TestServer();
+        manager = new Http2ConnectionManager(new DefaultHttpClientConnectionOperator(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory()).build(), null, null),
+                2000, TimeUnit.MILLISECONDS);
+        client = HttpClients.custom().setConnectionManager(manager).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getPort() + path;
+    }
+
+    private String execute(HttpUriRequest request) throws Exception {
+        try (CloseableHttpResponse response = client.execute(request)) {
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals("HTTP/2.0", response.getStatusLine().getProtocolVersion().toString());
+            return EntityUtils.toString(response.getEntity(), StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    @Test
+    public void testRequestsShareOneConnection() throws Exception {
+        assertEquals("GET /get?a=b", execute(new HttpGet(url("/get?a=b"))));
+        HttpPost post = new HttpPost(url("/post"));
+        post.setEntity(new StringEntity("content of the post"));
+        assertEquals("POST /post\ncontent of the post", execute(post));
+        assertEquals("GET /again", execute(new HttpGet(url("/again"))));
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    public void testConcurrentRequestsAreMultiplexed() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                String path = "/slow/" + i;
+                responses.add(executor.submit(() -> execute(new HttpGet(url(path)))));
+            }
+            for (int i = 0; i < 4; i++) {
+                assertEquals("GET /slow/" + i, responses.get(i).get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, server.getConnectionCount());
+        assertTrue("Streams should be concurrent, max was " + server.getMaxOpenStreams(),
+                server.getMaxOpenStreams() > 1);
+    }
+
+    @Test
+    public void testUnreadResponseResetsOnlyItsStream() throws Exception {
+        client.execute(new HttpGet(url("/unread"))).close();
+        assertEquals("GET /read", execute(new HttpGet(url("/read"))));
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    public void testSampler() throws Exception {
+        JMeterContextService.getContext().setVariables(new JMeterVariables());
+        HTTPSamplerProxy sampler = new HTTPSamplerProxy(HTTPSamplerFactory.IMPL_HTTP2);
+        sampler.setProtocol("http");
+        sampler.setDomain("127.0.0.1");
+        sampler.setPort(server.getPort());
+        sampler.setPath("/sampler");
+        sampler.setMethod("GET");
+        try {
+            HTTPSampleResult result = (HTTPSampleResult) sampler.sample();
+            assertTrue(result.getResponseMessage(), result.isSuccessful());
+            assertEquals("GET /sampler", result.getResponseDataAsString());
+            assertTrue(result.getResponseHeaders(), result.getResponseHeaders().startsWith("HTTP/2.0 200 OK"));
+            assertTrue(result.getSentBytes() > 0);
+        } finally {
+            sampler.threadFinished();
+        }
+    }
+}
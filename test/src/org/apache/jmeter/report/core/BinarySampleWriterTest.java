@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.report.core;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.save.BinaryResultReader;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinarySampleWriterTest extends JMeterTestCase {
+
+    private static final int NR_ROWS = 100;
+    private File tempCsv;
+    private File tempBinary;
+    private SampleMetadata metadata = new SampleMetadata(',', "timeStamp", "label", "responseMessage");
+
+    @Before
+    public void setUp() throws IOException {
+        tempCsv = File.createTempFile("samplecsv", ".csv");
+        tempCsv.deleteOnExit();
+        tempBinary = File.createTempFile("samplebin", ".jtl");
+        tempBinary.deleteOnExit();
+        try (CsvSampleWriter writer = new CsvSampleWriter(tempCsv, metadata)) {
+            writer.setSeparator(',');
+            writer.writeHeader();
+            for (long i = 0; i < NR_ROWS; i++) {
+                writer.write(sample(i));
+            }
+        }
+    }
+
+    private Sample sample(long i) {
+        return new SampleBuilder(metadata)
+                .add(1_500_000_000_000L + i)
+                .add("a" + (i % 3))
+                .add("message, \"" + i + "\"")
+                .build();
+    }
+
+    @Test
+    public void testConvertAndRead() throws Exception {
+        Assert.assertFalse(BinaryResultReader.isBinaryResultFile(tempCsv));
+        Assert.assertEquals(NR_ROWS, BinarySampleWriter.convert(tempCsv, tempBinary));
+        Assert.assertTrue(BinaryResultReader.isBinaryResultFile(tempBinary));
+        Assert.assertTrue(tempBinary.length() < tempCsv.length());
+        try (CsvSampleReader reader = new CsvSampleReader(tempBinary, ',', true)) {
+            Assert.assertThat(reader.getMetadata().toString(),
+                    CoreMatchers.is(metadata.toString()));
+            for (long i = 0; i < NR_ROWS; i++) {
+                Assert.assertTrue(reader.hasNext());
+                Sample read = reader.readSample();
+                Assert.assertEquals(i, read.getSampleRow());
+                Assert.assertThat(read.toString(), CoreMatchers.is(sample(i).toString()));
+            }
+            Assert.assertFalse(reader.hasNext());
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.report.dashboard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.processor.NormalizerSampleConsumer;
+import org.apache.jmeter.report.processor.SampleContext;
+import org.apache.jmeter.reporters.ResultCollector;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestLiveReportGenerator extends JMeterTestCase {
+
+    private File tmpDir;
+
+    private File workingDirectory;
+
+    private RecordingReportGenerator reportGenerator;
+
+    private RecordingConsumer consumer;
+
+    /**
+     * Records the samples instead of normalizing them, only used by the
+     * generator thread until it ends
+     */
+    private static class RecordingConsumer extends NormalizerSampleConsumer {
+        private final List<String> labels = new ArrayList<>();
+        private final List<Integer> storedCounts = new ArrayList<>();
+        private boolean started;
+        private boolean stopped;
+
+        @Override
+        public void startConsuming() {
+            started = true;
+        }
+
+        @Override
+        public void consume(Sample s, int channel) {
+            labels.add(s.getName());
+        }
+
+        @Override
+        public void storeIntermediateResults() {
+            storedCounts.add(Integer.valueOf(labels.size()));
+        }
+
+        @Override
+        public void stopConsuming() {
+            stopped = true;
+        }
+    }
+
+    /**
+     * Gives the recording consumer to the live generator and records the
+     * exports instead of running the exporters
+     */
+    private static class RecordingReportGenerator extends ReportGenerator {
+        private final RecordingConsumer consumer;
+        private final List<Boolean> exportedBefore = new ArrayList<>();
+        private final CountDownLatch exports = new CountDownLatch(2);
+        private int createdConsumers;
+
+        RecordingReportGenerator(File resultsFile, RecordingConsumer consumer) throws Exception {
+            super(resultsFile.getAbsolutePath(), new ResultCollector());
+            this.consumer = consumer;
+        }
+
+        @Override
+        NormalizerSampleConsumer createConsumers(int reorderBufferSize) {
+            createdConsumers++;
+            return consumer;
+        }
+
+        @Override
+        void exportData(SampleContext sampleContext) {
+            exportedBefore.add(Boolean.valueOf(
+                    sampleContext.getData().containsKey(LIVE_REPORT_EXPORTED_KEY)));
+            exports.countDown();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        tmpDir = Files.createTempDirectory("live").toFile();
+        workingDirectory = new File(tmpDir, "work");
+        consumer = new RecordingConsumer();
+        reportGenerator = new RecordingReportGenerator(new File(tmpDir, "results.csv"), consumer);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    private LiveReportGenerator createGenerator(long refreshInterval, int queueCapacity) {
+        return new LiveReportGenerator(reportGenerator, ',', workingDirectory, 100,
+                refreshInterval, queueCapacity);
+    }
+
+    private static SampleEvent createEvent(String label) {
+        SampleResult result = SampleResult.createTestSample(1000, 1250);
+        result.setSampleLabel(label);
+        // Set by the result collector before notifying the listener
+        result.setSaveConfig(new SampleSaveConfiguration());
+        return new SampleEvent(result, "tg");
+    }
+
+    @Test
+    public void testQueuedSamplesAreProcessedOnStop() throws Exception {
+        LiveReportGenerator generator = createGenerator(60000, 10);
+        generator.start();
+        for (int i = 0; i < 3; i++) {
+            generator.sampleOccurred(createEvent("label" + i));
+        }
+
+        // Not exported yet as the refresh interval did not elapse
+        assertFalse(generator.stop());
+        assertTrue(consumer.started);
+        assertTrue(consumer.stopped);
+        assertEquals(3, consumer.labels.size());
+        assertEquals("label0", consumer.labels.get(0));
+        assertEquals("label2", consumer.labels.get(2));
+        assertFalse(workingDirectory.exists());
+    }
+
+    @Test
+    public void testSamplesAreDroppedWhenQueueIsFull() throws Exception {
+        // Not started, so the queue is not drained
+        LiveReportGenerator generator = createGenerator(60000, 2);
+        for (int i = 0; i < 5; i++) {
+            generator.sampleOccurred(createEvent("label" + i));
+        }
+        assertEquals(3, generator.getDroppedCount());
+
+        generator.start();
+        generator.stop();
+        assertEquals(2, consumer.labels.size());
+        assertEquals("label1", consumer.labels.get(1));
+    }
+
+    @Test
+    public void testDashboardIsExportedPeriodically() throws Exception {
+        LiveReportGenerator generator = createGenerator(50, 10);
+        for (int i = 0; i < 3; i++) {
+            generator.sampleOccurred(createEvent("label" + i));
+        }
+        generator.start();
+        assertTrue("Dashboard not exported twice",
+                reportGenerator.exports.await(10, TimeUnit.SECONDS));
+
+        assertTrue(generator.stop());
+        // Results of the samples are stored before each export
+        assertEquals(Integer.valueOf(3), consumer.storedCounts.get(0));
+        List<Boolean> exportedBefore = reportGenerator.exportedBefore;
+        assertEquals(exportedBefore.size(), consumer.storedCounts.size());
+        // Exporters are told from the second export that they can overwrite
+        // the output directory
+        assertEquals(Boolean.FALSE, exportedBefore.get(0));
+        assertEquals(Boolean.TRUE, exportedBefore.get(1));
+        assertTrue(consumer.stopped);
+    }
+
+    @Test
+    public void testStopWithoutSamples() throws Exception {
+        LiveReportGenerator generator = createGenerator(50, 10);
+        generator.start();
+        assertFalse(generator.stop());
+        assertEquals(0, reportGenerator.createdConsumers);
+        assertTrue(reportGenerator.exportedBefore.isEmpty());
+        assertFalse(workingDirectory.exists());
+
+        // Samples are ignored once stopped
+        generator.sampleOccurred(createEvent("late"));
+        assertEquals(0, generator.getDroppedCount());
+        assertTrue(consumer.labels.isEmpty());
+    }
+}
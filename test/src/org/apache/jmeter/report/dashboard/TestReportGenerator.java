@@ -1,11 +1,25 @@
 package org.apache.jmeter.report.dashboard;
 
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jmeter.junit.JMeterTestCase;
 import org.apache.jmeter.report.core.JsonUtil;
+import org.apache.jmeter.report.processor.ResultData;
+import org.apache.jmeter.util.JMeterUtils;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class TestReportGenerator extends JMeterTestCase {
+
+	private static final String OVERALL_GRANULARITY = "jmeter.reportgenerator.overall_granularity";
 
-public class TestReportGenerator {
+	private static final String VERSUS_GRAPH = "responseTimeVsRequest";
 
 	@Test
 	public void testToJsonArray() {
@@ -15,4 +29,52 @@ public class TestReportGenerator {
 
 	}
 
+	/**
+	 * A sample ending long before the previous ones makes the "Vs Request"
+	 * graphs fail, samples are then processed again using temporary files
+	 */
+	@Test
+	public void testLateSampleIsProcessedAgainWithTemporaryFiles() throws Exception {
+		File tmpDir = Files.createTempDirectory("report").toFile();
+		File results = new File(tmpDir, "results.csv");
+		long start = 1500000000000L;
+		try (PrintWriter writer = new PrintWriter(results, StandardCharsets.UTF_8.name())) {
+			writer.println("timeStamp,elapsed,label,responseCode,responseMessage,threadName,"
+					+ "dataType,success,failureMessage,bytes,sentBytes,grpThreads,allThreads,"
+					+ "URL,Latency,IdleTime,Connect");
+			for (int i = 0; i < 120; i++) {
+				writer.println(createRow(start + 500L * i, i % 50));
+			}
+			// Ends 50 seconds before the previous sample
+			writer.println(createRow(start + 10000, 20));
+		}
+		String oldGranularity = JMeterUtils.getProperty(OVERALL_GRANULARITY);
+		JMeterUtils.setProperty(OVERALL_GRANULARITY, "1000");
+		try {
+			ReportGenerator generator = new ReportGenerator(results.getAbsolutePath(), null);
+			String reordered = toJson(generator.processSamples(tmpDir, 100)
+					.getData().get(VERSUS_GRAPH));
+			String buffered = toJson(generator.processSamples(tmpDir, 0)
+					.getData().get(VERSUS_GRAPH));
+			assertEquals(buffered, reordered);
+		} finally {
+			if (oldGranularity == null) {
+				JMeterUtils.getJMeterProperties().remove(OVERALL_GRANULARITY);
+			} else {
+				JMeterUtils.setProperty(OVERALL_GRANULARITY, oldGranularity);
+			}
+			FileUtils.deleteDirectory(tmpDir);
+		}
+	}
+
+	private static String createRow(long timeStamp, long elapsed) {
+		return timeStamp + "," + elapsed + ",label,200,OK,tg 1-1,text,true,,100,10,1,1,"
+				+ "http://localhost/,0,0,0";
+	}
+
+	private static String toJson(Object data) {
+		assertNotNull(data);
+		return ((ResultData) data).accept(new JsonizerVisitor());
+	}
+
 }
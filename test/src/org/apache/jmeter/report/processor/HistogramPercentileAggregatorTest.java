@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.report.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HistogramPercentileAggregatorTest {
+
+    @Test
+    public void testEmpty() {
+        HistogramPercentileAggregator aggregator = new HistogramPercentileAggregator(90, 3);
+        assertEquals(0, aggregator.getCount());
+        assertTrue(Double.isNaN(aggregator.getResult()));
+    }
+
+    @Test
+    public void testExactLowValues() {
+        HistogramPercentileAggregator aggregator = new HistogramPercentileAggregator(50, 3);
+        for (int i = 1; i <= 1000; i++) {
+            aggregator.addValue(i);
+        }
+        assertEquals(1000, aggregator.getCount());
+        assertEquals(500, aggregator.getResult(), 0);
+        aggregator.reset();
+        assertEquals(0, aggregator.getCount());
+        aggregator.addValue(7);
+        assertEquals(7, aggregator.getResult(), 0);
+    }
+
+    @Test
+    public void testRelativeError() {
+        Random random = new Random(42);
+        long[] values = new long[100000];
+        HistogramPercentileAggregator[] aggregators = new HistogramPercentileAggregator[3];
+        double[] indexes = {90, 95, 99};
+        for (int i = 0; i < aggregators.length; i++) {
+            aggregators[i] = new HistogramPercentileAggregator(indexes[i], 2);
+        }
+        for (int i = 0; i < values.length; i++) {
+            // Long tailed distribution up to several minutes
+            values[i] = (long) Math.exp(random.nextDouble() * 12);
+            for (HistogramPercentileAggregator aggregator : aggregators) {
+                aggregator.addValue(values[i]);
+            }
+        }
+        Arrays.sort(values);
+        for (int i = 0; i < aggregators.length; i++) {
+            long expected = values[(int) Math.ceil(indexes[i] / 100 * values.length) - 1];
+            double result = aggregators[i].getResult();
+            assertTrue("Percentile " + indexes[i] + " is " + result + ", expected " + expected,
+                    Math.abs(result - expected) <= expected / 100.0);
+        }
+    }
+
+    @Test
+    public void testMerge() {
+        HistogramPercentileAggregator first = new HistogramPercentileAggregator(99, 3);
+        HistogramPercentileAggregator second = new HistogramPercentileAggregator(99, 3);
+        for (int i = 0; i < 99; i++) {
+            first.addValue(10);
+        }
+        second.addValue(1_000_000);
+        second.addValue(1_000_000);
+        first.merge(second);
+        assertEquals(101, first.getCount());
+        assertEquals(1_000_000, first.getResult(), 1_000_000 / 1000.0);
+        HistogramPercentileAggregator copy = new HistogramPercentileAggregator(first);
+        assertEquals(first.getResult(), copy.getResult(), 0);
+    }
+
+    @Test
+    public void testValueCounts() {
+        HistogramPercentileAggregator aggregator = new HistogramPercentileAggregator(50, 3);
+        aggregator.addValue(10, 90);
+        aggregator.addValue(123456, 10);
+        assertEquals(100, aggregator.getCount());
+        HistogramPercentileAggregator copy = new HistogramPercentileAggregator(50, 3);
+        aggregator.forEachValue(copy::addValue);
+        assertEquals(100, copy.getCount());
+        assertEquals(10, copy.getPercentile(90), 0);
+        assertEquals(aggregator.getPercentile(91), copy.getPercentile(91), 0);
+        assertEquals(123456, copy.getPercentile(91), 123456 / 1000.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecision() {
+        new HistogramPercentileAggregator(50, 2).merge(new HistogramPercentileAggregator(50, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPrecision() {
+        new HistogramPercentileAggregator(50, 6);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.report.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleException;
+import org.apache.jmeter.report.core.SampleMetadata;
+import org.junit.Test;
+
+public class ParallelSampleConsumerTest {
+
+    private static final int NR_SAMPLES = 2500;
+
+    private final SampleMetadata metadata = new SampleMetadata(',', "row");
+
+    private static class RecordingConsumer extends AbstractSampleConsumer {
+        private final List<Sample> samples = new ArrayList<>();
+        private final List<Integer> channels = new ArrayList<>();
+        private Thread consumingThread;
+        private Thread startThread;
+        private Thread stopThread;
+        private SampleMetadata metadata;
+        private int storedCount = -1;
+
+        @Override
+        public void startConsuming() {
+            startThread = Thread.currentThread();
+            metadata = getConsumedMetadata(1);
+        }
+
+        @Override
+        public void consume(Sample s, int channel) {
+            if (consumingThread == null) {
+                consumingThread = Thread.currentThread();
+            }
+            assertSame(consumingThread, Thread.currentThread());
+            samples.add(s);
+            channels.add(Integer.valueOf(channel));
+        }
+
+        @Override
+        public void storeIntermediateResults() {
+            storedCount = samples.size();
+        }
+
+        @Override
+        public void stopConsuming() {
+            stopThread = Thread.currentThread();
+        }
+    }
+
+    private List<RecordingConsumer> run(ParallelSampleConsumer parallelConsumer, int consumerCount) {
+        List<RecordingConsumer> consumers = new ArrayList<>();
+        for (int i = 0; i < consumerCount; i++) {
+            RecordingConsumer consumer = new RecordingConsumer();
+            consumers.add(consumer);
+            parallelConsumer.addSampleConsumer(consumer);
+        }
+        parallelConsumer.setConsumedMetadata(metadata, 0);
+        parallelConsumer.setConsumedMetadata(metadata, 1);
+        parallelConsumer.startConsuming();
+        for (int i = 0; i < NR_SAMPLES; i++) {
+            parallelConsumer.consume(new Sample(i, metadata, Integer.toString(i)), i % 2);
+        }
+        parallelConsumer.stopConsuming();
+        return consumers;
+    }
+
+    @Test
+    public void testEachConsumerGetsAllSamplesInOrder() {
+        List<RecordingConsumer> consumers = run(new ParallelSampleConsumer(2), 3);
+        for (RecordingConsumer consumer : consumers) {
+            assertSame(metadata, consumer.metadata);
+            assertSame(Thread.currentThread(), consumer.startThread);
+            assertSame(Thread.currentThread(), consumer.stopThread);
+            assertNotEquals(Thread.currentThread(), consumer.consumingThread);
+            assertEquals(NR_SAMPLES, consumer.samples.size());
+            for (int i = 0; i < NR_SAMPLES; i++) {
+                assertEquals(i, consumer.samples.get(i).getSampleRow());
+                assertEquals(i % 2, consumer.channels.get(i).intValue());
+            }
+        }
+        // 2 threads for 3 consumers
+        assertSame(consumers.get(0).consumingThread, consumers.get(2).consumingThread);
+        assertNotEquals(consumers.get(0).consumingThread, consumers.get(1).consumingThread);
+    }
+
+    @Test
+    public void testStoreIntermediateResultsWaitsForWorkers() {
+        ParallelSampleConsumer parallelConsumer = new ParallelSampleConsumer(2);
+        List<RecordingConsumer> consumers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RecordingConsumer consumer = new RecordingConsumer();
+            consumers.add(consumer);
+            parallelConsumer.addSampleConsumer(consumer);
+        }
+        parallelConsumer.setConsumedMetadata(metadata, 0);
+        parallelConsumer.startConsuming();
+        for (int i = 0; i < 1500; i++) {
+            parallelConsumer.consume(new Sample(i, metadata, Integer.toString(i)), 0);
+        }
+        parallelConsumer.storeIntermediateResults();
+        for (int i = 1500; i < NR_SAMPLES; i++) {
+            parallelConsumer.consume(new Sample(i, metadata, Integer.toString(i)), 0);
+        }
+        parallelConsumer.stopConsuming();
+        for (RecordingConsumer consumer : consumers) {
+            assertEquals(1500, consumer.storedCount);
+            assertEquals(NR_SAMPLES, consumer.samples.size());
+        }
+    }
+
+    @Test
+    public void testPartitionedConsumerMergesCopies() {
+        ParallelSampleConsumer parallelConsumer = new ParallelSampleConsumer(3);
+        RecordingConsumer consumer = new RecordingConsumer();
+        List<RecordingConsumer> copies = new ArrayList<>();
+        copies.add(new RecordingConsumer());
+        copies.add(new RecordingConsumer());
+        List<Integer> mergedCounts = new ArrayList<>();
+        parallelConsumer.addPartitionedConsumer(consumer, copies, (target, copy) -> {
+            mergedCounts.add(Integer.valueOf(copy.samples.size()));
+            target.samples.addAll(copy.samples);
+            copy.samples.clear();
+        });
+        RecordingConsumer other = run(parallelConsumer, 1).get(0);
+
+        assertEquals(NR_SAMPLES, other.samples.size());
+        // Batches of 1000 samples are dealt to the consumer and its copies
+        assertEquals(NR_SAMPLES, consumer.samples.size());
+        boolean[] seen = new boolean[NR_SAMPLES];
+        for (Sample sample : consumer.samples) {
+            seen[(int) sample.getSampleRow()] = true;
+        }
+        for (boolean sampleSeen : seen) {
+            assertTrue(sampleSeen);
+        }
+        assertEquals(Arrays.asList(Integer.valueOf(1000), Integer.valueOf(500)), mergedCounts);
+        assertSame(Thread.currentThread(), consumer.stopThread);
+        for (RecordingConsumer copy : copies) {
+            assertSame(metadata, copy.metadata);
+            assertSame(Thread.currentThread(), copy.startThread);
+            assertNull(copy.stopThread);
+            assertNotEquals(consumer.consumingThread, copy.consumingThread);
+        }
+    }
+
+    @Test
+    public void testWithoutConsumer() {
+        assertTrue(run(new ParallelSampleConsumer(4), 0).isEmpty());
+    }
+
+    @Test
+    public void testConsumerFailure() {
+        ParallelSampleConsumer parallelConsumer = new ParallelSampleConsumer(2);
+        parallelConsumer.addSampleConsumer(new RecordingConsumer() {
+            @Override
+            public void consume(Sample s, int channel) {
+                if (s.getSampleRow() == 1500) {
+                    throw new IllegalStateException("failure at 1500");
+                }
+            }
+        });
+        try {
+            run(parallelConsumer, 1);
+            fail("Expected a SampleException");
+        } catch (SampleException e) {
+            assertEquals("Consumer failed with message :failure at 1500", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreadCount() {
+        new ParallelSampleConsumer(0);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.report.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleMetadata;
+import org.apache.jmeter.save.CSVSaveService;
+import org.junit.Test;
+
+public class SampleCountSplitterConsumerTest {
+
+    private static class RecordingConsumer extends AbstractSampleConsumer {
+        private final List<Sample> samples = new ArrayList<>();
+
+        @Override
+        public void startConsuming() {
+            // NOOP
+        }
+
+        @Override
+        public void consume(Sample s, int channel) {
+            samples.add(s);
+        }
+
+        @Override
+        public void stopConsuming() {
+            // NOOP
+        }
+    }
+
+    private static List<Sample> split(SampleMetadata metadata, Sample... samples) {
+        SampleCountSplitterConsumer splitter = new SampleCountSplitterConsumer();
+        RecordingConsumer recorder = new RecordingConsumer();
+        splitter.addSampleConsumer(recorder);
+        splitter.setConsumedMetadata(metadata, 0);
+        splitter.startConsuming();
+        for (Sample sample : samples) {
+            splitter.consume(sample, 0);
+        }
+        splitter.stopConsuming();
+        return recorder.samples;
+    }
+
+    @Test
+    public void testSplitAggregate() {
+        SampleMetadata metadata = new SampleMetadata(',', CSVSaveService.TIME_STAMP, CSVSaveService.CSV_ELAPSED,
+                CSVSaveService.SUCCESSFUL, CSVSaveService.CSV_BYTES, CSVSaveService.CSV_SAMPLE_COUNT,
+                CSVSaveService.CSV_ERROR_COUNT);
+        Sample single = new Sample(0, metadata, "1000", "120", "true", "500", "1", "0");
+        List<Sample> samples = split(metadata, single,
+                new Sample(1, metadata, "2000", "1003", "false", "10", "4", "1"));
+
+        assertEquals(5, samples.size());
+        assertSame(single, samples.get(0));
+        long elapsedSum = 0;
+        long bytesSum = 0;
+        for (int i = 1; i < samples.size(); i++) {
+            Sample sample = samples.get(i);
+            assertEquals(1, sample.getSampleRow());
+            assertEquals(2000, sample.getTimestamp());
+            assertEquals(i <= 3 ? 251 : 250, sample.getElapsedTime());
+            assertEquals(i <= 2 ? 3 : 2, sample.getReceivedBytes());
+            assertEquals(i != 1, sample.getSuccess());
+            assertEquals("1", sample.getData(CSVSaveService.CSV_SAMPLE_COUNT));
+            assertEquals(i == 1 ? "1" : "0", sample.getData(CSVSaveService.CSV_ERROR_COUNT));
+            elapsedSum += sample.getElapsedTime();
+            bytesSum += sample.getReceivedBytes();
+        }
+        assertEquals(1003, elapsedSum);
+        assertEquals(10, bytesSum);
+    }
+
+    @Test
+    public void testWithoutSampleCount() {
+        SampleMetadata metadata = new SampleMetadata(',', CSVSaveService.TIME_STAMP, CSVSaveService.CSV_ELAPSED);
+        Sample sample = new Sample(0, metadata, "1000", "120");
+        List<Sample> samples = split(metadata, sample);
+        assertEquals(1, samples.size());
+        assertSame(sample, samples.get(0));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.report.processor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleMetadata;
+import org.apache.jmeter.save.CSVSaveService;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StatisticsSummaryConsumerTest extends JMeterTestCase {
+
+    private static final String[] COLUMNS = { CSVSaveService.TIME_STAMP, CSVSaveService.CSV_ELAPSED,
+            CSVSaveService.LABEL, CSVSaveService.RESPONSE_MESSAGE, CSVSaveService.SUCCESSFUL,
+            CSVSaveService.CSV_BYTES };
+
+    private static final String[] COLUMNS_WITH_CORRECTED = { CSVSaveService.TIME_STAMP, CSVSaveService.CSV_ELAPSED,
+            CSVSaveService.LABEL, CSVSaveService.RESPONSE_MESSAGE, CSVSaveService.SUCCESSFUL,
+            CSVSaveService.CSV_BYTES, CSVSaveService.CSV_CORRECTED_ELAPSED };
+
+    @Test
+    public void testNoCorrectedRowWithoutColumn() {
+        StatisticsSummaryConsumer consumer = new StatisticsSummaryConsumer();
+        SampleMetadata metadata = new SampleMetadata(',', COLUMNS);
+        consume(consumer, new Sample(0, metadata, "1000", "20", "Home", "OK", "true", "100"));
+        Assert.assertEquals(1, consumer.getSummaryInfos().size());
+        Assert.assertEquals(20, consumer.getSummaryInfos().get("Home").getData().getMax());
+    }
+
+    @Test
+    public void testCorrectedRow() {
+        StatisticsSummaryConsumer consumer = new StatisticsSummaryConsumer();
+        SampleMetadata metadata = new SampleMetadata(',', COLUMNS_WITH_CORRECTED);
+        consume(consumer, new Sample(0, metadata, "1000", "20", "Home", "OK", "true", "100", "20"));
+        consume(consumer, new Sample(1, metadata, "1100", "30", "Home", "OK", "true", "100", "530"));
+
+        StatisticsSummaryData raw = consumer.getSummaryInfos().get("Home").getData();
+        Assert.assertEquals(2, raw.getTotal());
+        Assert.assertEquals(20, raw.getMin());
+        Assert.assertEquals(30, raw.getMax());
+
+        StatisticsSummaryData corrected = consumer.getSummaryInfos()
+                .get(String.format(Sample.CORRECTED_NAME_FORMAT, "Home")).getData();
+        Assert.assertEquals(2, corrected.getTotal());
+        Assert.assertEquals(20, corrected.getMin());
+        Assert.assertEquals(530, corrected.getMax());
+
+        // Overall row only holds raw elapsed times
+        Assert.assertEquals(30, consumer.getOverallInfo().getData().getMax());
+    }
+
+    @Test
+    public void testCorrectedRowIsProduced() {
+        StatisticsSummaryConsumer consumer = new StatisticsSummaryConsumer();
+        consumer.setName("statistics");
+        consumer.setHasOverallResult(true);
+        SampleContext context = new SampleContext();
+        consumer.setSampleContext(context);
+        SampleMetadata metadata = new SampleMetadata(',', COLUMNS_WITH_CORRECTED);
+        consumer.startConsuming();
+        consumer.consume(new Sample(0, metadata, "1000", "20", "Home", "OK", "true", "100", "20"), 0);
+        consumer.consume(new Sample(1, metadata, "1100", "30", "Home", "OK", "true", "100", "530"), 0);
+        consumer.consume(new Sample(2, metadata, "1200", "40", "Login", "OK", "true", "100", "40"), 0);
+        consumer.stopConsuming();
+
+        MapResultData result = (MapResultData) context.getData().get("statistics");
+        Map<String, ListResultData> rows = new HashMap<>();
+        for (ResultData item : (ListResultData) result.getResult(AbstractSummaryConsumer.RESULT_VALUE_ITEMS)) {
+            ListResultData row = (ListResultData) ((MapResultData) item)
+                    .getResult(AbstractSummaryConsumer.RESULT_VALUE_DATA);
+            rows.put((String) ((ValueResultData) row.get(0)).getValue(), row);
+        }
+        Assert.assertEquals(rows.keySet().toString(), 4, rows.size());
+        // Columns are name, count, errors, error %, mean, min, max...
+        Assert.assertEquals(Long.valueOf(30), ((ValueResultData) rows.get("Home").get(6)).getValue());
+        ListResultData corrected = rows.get("Home (corrected)");
+        Assert.assertEquals(Long.valueOf(2), ((ValueResultData) corrected.get(1)).getValue());
+        Assert.assertEquals(Long.valueOf(530), ((ValueResultData) corrected.get(6)).getValue());
+        Assert.assertEquals(Long.valueOf(40),
+                ((ValueResultData) rows.get("Login (corrected)").get(6)).getValue());
+
+        MapResultData overall = (MapResultData) result.getResult(AbstractSummaryConsumer.RESULT_VALUE_OVERALL);
+        ListResultData overallRow = (ListResultData) overall.getResult(AbstractSummaryConsumer.RESULT_VALUE_DATA);
+        // Corrected rows are not counted twice in the total
+        Assert.assertEquals(Long.valueOf(3), ((ValueResultData) overallRow.get(1)).getValue());
+        Assert.assertEquals(Long.valueOf(40), ((ValueResultData) overallRow.get(6)).getValue());
+    }
+
+    private static void consume(StatisticsSummaryConsumer consumer, Sample sample) {
+        AbstractSummaryConsumer<StatisticsSummaryData>.SummaryInfo info =
+                consumer.getSummaryInfos().get(sample.getName());
+        if (info == null) {
+            info = consumer.new SummaryInfo(false);
+            consumer.getSummaryInfos().put(sample.getName(), info);
+        }
+        consumer.updateData(info, sample);
+    }
+}
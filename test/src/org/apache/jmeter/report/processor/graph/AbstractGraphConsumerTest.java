@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.report.processor.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleMetadata;
+import org.apache.jmeter.report.processor.Aggregator;
+import org.apache.jmeter.report.processor.graph.impl.ResponseTimeOverTimeGraphConsumer;
+import org.apache.jmeter.report.processor.graph.impl.ResponseTimePercentilesOverTimeGraphConsumer;
+import org.apache.jmeter.save.CSVSaveService;
+import org.junit.Test;
+
+public class AbstractGraphConsumerTest {
+
+    private static final int NR_SAMPLES = 1000;
+
+    private final SampleMetadata metadata = new SampleMetadata(',', CSVSaveService.TIME_STAMP,
+            CSVSaveService.CSV_ELAPSED, CSVSaveService.LABEL, CSVSaveService.RESPONSE_MESSAGE,
+            CSVSaveService.SUCCESSFUL);
+
+    private static ResponseTimeOverTimeGraphConsumer createGraph() {
+        ResponseTimeOverTimeGraphConsumer graph = new ResponseTimeOverTimeGraphConsumer();
+        graph.setGranularity(100);
+        graph.startConsuming();
+        return graph;
+    }
+
+    private Sample createSample(int i) {
+        return new Sample(i, metadata, Integer.toString(1000 + 7 * i), Integer.toString(i % 97),
+                "label" + i % 3, "OK", "true");
+    }
+
+    @Test
+    public void testMergedCopiesGetSameDataAsSingleGraph() {
+        ResponseTimeOverTimeGraphConsumer single = createGraph();
+        ResponseTimeOverTimeGraphConsumer merged = createGraph();
+        ResponseTimeOverTimeGraphConsumer copy = createGraph();
+        for (int i = 0; i < NR_SAMPLES; i++) {
+            Sample sample = createSample(i);
+            single.consume(sample, 0);
+            // Interleave parts of the samples like a parallel consumer does
+            ((i / 100) % 2 == 0 ? merged : copy).consume(sample, 0);
+        }
+        assertTrue(single.isMergeable());
+        merged.merge(copy);
+
+        GroupData expected = single.getGroupInfos().get(AbstractGraphConsumer.DEFAULT_GROUP).getGroupData();
+        GroupData actual = merged.getGroupInfos().get(AbstractGraphConsumer.DEFAULT_GROUP).getGroupData();
+        assertEquals(expected.getSeriesInfo().keySet(), actual.getSeriesInfo().keySet());
+        for (Map.Entry<String, SeriesData> entry : expected.getSeriesInfo().entrySet()) {
+            SeriesData expectedSeries = entry.getValue();
+            SeriesData actualSeries = actual.getSeriesInfo().get(entry.getKey());
+            assertEquals(expectedSeries.getCount(), actualSeries.getCount());
+            assertEquals(expectedSeries.getAggregatorInfo().keySet(), actualSeries.getAggregatorInfo().keySet());
+            for (Map.Entry<Double, Aggregator> aggregator : expectedSeries.getAggregatorInfo().entrySet()) {
+                Aggregator actualAggregator = actualSeries.getAggregatorInfo().get(aggregator.getKey());
+                assertEquals(aggregator.getValue().getCount(), actualAggregator.getCount());
+                assertEquals(aggregator.getValue().getResult(), actualAggregator.getResult(), 1e-9);
+            }
+        }
+
+        // The copy can go on consuming from an empty state
+        GroupData copyData = copy.getGroupInfos().get(AbstractGraphConsumer.DEFAULT_GROUP).getGroupData();
+        assertTrue(copyData.getSeriesInfo().isEmpty());
+    }
+
+    @Test
+    public void testOrderDependentGraphIsNotMergeable() {
+        assertFalse(new ResponseTimePercentilesOverTimeGraphConsumer().isMergeable());
+    }
+}
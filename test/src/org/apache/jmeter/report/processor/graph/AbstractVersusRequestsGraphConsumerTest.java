@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.report.processor.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.report.core.OutOfOrderSampleException;
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleMetadata;
+import org.apache.jmeter.report.processor.AbstractSampleConsumer;
+import org.apache.jmeter.report.processor.SampleContext;
+import org.apache.jmeter.report.processor.graph.impl.ResponseTimeVSRequestGraphConsumer;
+import org.apache.jmeter.save.CSVSaveService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AbstractVersusRequestsGraphConsumerTest extends JMeterTestCase {
+
+    private static final long GRANULARITY = 1000;
+
+    private final SampleMetadata metadata = new SampleMetadata(',', CSVSaveService.TIME_STAMP,
+            CSVSaveService.CSV_ELAPSED, CSVSaveService.LABEL, CSVSaveService.RESPONSE_MESSAGE,
+            CSVSaveService.SUCCESSFUL);
+
+    private File workDir;
+
+    /**
+     * Records the samples tagged with the count of their interval
+     */
+    private static class RecordingConsumer extends AbstractSampleConsumer {
+        private final List<Long> rows = new ArrayList<>();
+        private final List<Double> counts = new ArrayList<>();
+
+        @Override
+        public void startConsuming() {
+            // Nothing to do
+        }
+
+        @Override
+        public void consume(Sample sample, int channel) {
+            rows.add(Long.valueOf(sample.getSampleRow()));
+            counts.add(sample.getData(Double.class, AbstractVersusRequestsGraphConsumer.TIME_INTERVAL_LABEL));
+        }
+
+        @Override
+        public void stopConsuming() {
+            // Nothing to do
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("versus").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(workDir);
+    }
+
+    private ResponseTimeVSRequestGraphConsumer createGraph(RecordingConsumer recorder,
+            int reorderBufferSize, long reorderMaxDelay) {
+        ResponseTimeVSRequestGraphConsumer graph = new ResponseTimeVSRequestGraphConsumer();
+        graph.setName("versus");
+        graph.setGranularity(GRANULARITY);
+        graph.setReorderBufferSize(reorderBufferSize);
+        graph.setReorderMaxDelay(reorderMaxDelay);
+        graph.addSampleConsumer(recorder);
+        SampleContext context = new SampleContext();
+        context.setWorkingDirectory(workDir);
+        graph.setSampleContext(context);
+        graph.setConsumedMetadata(metadata, 0);
+        graph.startConsuming();
+        return graph;
+    }
+
+    // Elapsed time is 0 so that end time is the time stamp
+    private Sample createSample(long row, long endTime) {
+        return new Sample(row, metadata, Long.toString(endTime), "0", "label", "OK", "true");
+    }
+
+    private void consume(ResponseTimeVSRequestGraphConsumer graph, long... endTimes) {
+        for (int i = 0; i < endTimes.length; i++) {
+            graph.consume(createSample(i, endTimes[i]), 0);
+        }
+    }
+
+    private static List<Long> rows(long... rows) {
+        List<Long> list = new ArrayList<>();
+        for (long row : rows) {
+            list.add(Long.valueOf(row));
+        }
+        return list;
+    }
+
+    private static List<Double> counts(double... counts) {
+        List<Double> list = new ArrayList<>();
+        for (double count : counts) {
+            list.add(Double.valueOf(count));
+        }
+        return list;
+    }
+
+    @Test
+    public void testSamplesReorderedWithinDelayAreCounted() {
+        RecordingConsumer recorder = new RecordingConsumer();
+        ResponseTimeVSRequestGraphConsumer graph = createGraph(recorder, 100, 1000);
+        // Rows 1 and 4 end before the previous row, in the same window
+        consume(graph, 1100, 1050, 1900, 2200, 2100, 5000);
+
+        // The watermark 4000 completes the intervals 1000 and 2000
+        assertEquals(rows(0, 1, 2, 3, 4), recorder.rows);
+        assertEquals(0, workDir.list().length);
+
+        graph.stopConsuming();
+        assertEquals(rows(0, 1, 2, 3, 4, 5), recorder.rows);
+        assertEquals(counts(3, 3, 3, 2, 2, 1), recorder.counts);
+    }
+
+    @Test
+    public void testSamplesAreBufferedToDiskWhenBufferIsFull() {
+        RecordingConsumer recorder = new RecordingConsumer();
+        ResponseTimeVSRequestGraphConsumer graph = createGraph(recorder, 2, 60000);
+        consume(graph, 1100, 1050, 1900, 2200, 2100, 5000);
+
+        // No interval is complete, the buffer was written to a temporary file
+        assertTrue(recorder.rows.isEmpty());
+        assertEquals(1, workDir.list().length);
+
+        graph.stopConsuming();
+        assertEquals(rows(0, 1, 2, 3, 4, 5), recorder.rows);
+        assertEquals(counts(3, 3, 3, 2, 2, 1), recorder.counts);
+        assertEquals(0, workDir.list().length);
+    }
+
+    @Test
+    public void testSameCountsWithTemporaryFilesOnly() {
+        RecordingConsumer recorder = new RecordingConsumer();
+        ResponseTimeVSRequestGraphConsumer graph = createGraph(recorder, 0, 1000);
+        consume(graph, 1100, 1050, 1900, 2200, 2100, 5000);
+        assertTrue(recorder.rows.isEmpty());
+
+        graph.stopConsuming();
+        assertEquals(rows(0, 1, 2, 3, 4, 5), recorder.rows);
+        assertEquals(counts(3, 3, 3, 2, 2, 1), recorder.counts);
+    }
+
+    @Test
+    public void testSampleOfProducedIntervalIsRejected() {
+        RecordingConsumer recorder = new RecordingConsumer();
+        ResponseTimeVSRequestGraphConsumer graph = createGraph(recorder, 100, 1000);
+        consume(graph, 1100, 1900, 5000);
+        assertEquals(rows(0, 1), recorder.rows);
+        try {
+            graph.consume(createSample(3, 1500), 0);
+            fail("Expected OutOfOrderSampleException");
+        } catch (OutOfOrderSampleException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("row 3"));
+        }
+        // Counts already produced are unchanged
+        assertEquals(counts(2, 2), recorder.counts);
+    }
+}
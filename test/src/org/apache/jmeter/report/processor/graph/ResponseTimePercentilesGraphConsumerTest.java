@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.report.processor.graph;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleMetadata;
+import org.apache.jmeter.report.processor.Aggregator;
+import org.apache.jmeter.report.processor.graph.impl.ResponseTimePercentilesGraphConsumer;
+import org.apache.jmeter.save.CSVSaveService;
+import org.junit.Test;
+
+public class ResponseTimePercentilesGraphConsumerTest {
+
+    private static ResponseTimePercentilesGraphConsumer createGraph() {
+        ResponseTimePercentilesGraphConsumer graph = new ResponseTimePercentilesGraphConsumer();
+        graph.startConsuming();
+        return graph;
+    }
+
+    private static Map<String, SeriesData> getSeries(ResponseTimePercentilesGraphConsumer graph) {
+        return graph.getGroupInfos().get(AbstractGraphConsumer.DEFAULT_GROUP).getGroupData().getSeriesInfo();
+    }
+
+    private static Set<Double> keys(double... keys) {
+        Set<Double> set = new HashSet<>();
+        for (double key : keys) {
+            set.add(Double.valueOf(key));
+        }
+        return set;
+    }
+
+    @Test
+    public void testNoCorrectedSeriesWithoutColumn() {
+        SampleMetadata metadata = new SampleMetadata(',', CSVSaveService.TIME_STAMP,
+                CSVSaveService.CSV_ELAPSED, CSVSaveService.LABEL, CSVSaveService.RESPONSE_MESSAGE,
+                CSVSaveService.SUCCESSFUL);
+        ResponseTimePercentilesGraphConsumer graph = createGraph();
+        graph.consume(new Sample(0, metadata, "1000", "20", "Home", "OK", "true"), 0);
+
+        Map<String, SeriesData> series = getSeries(graph);
+        assertEquals(new HashSet<>(Arrays.asList("Home")), series.keySet());
+        assertEquals(keys(20), series.get("Home").getAggregatorInfo().keySet());
+    }
+
+    @Test
+    public void testCorrectedSeries() {
+        SampleMetadata metadata = new SampleMetadata(',', CSVSaveService.TIME_STAMP,
+                CSVSaveService.CSV_ELAPSED, CSVSaveService.LABEL, CSVSaveService.RESPONSE_MESSAGE,
+                CSVSaveService.SUCCESSFUL, CSVSaveService.CSV_CORRECTED_ELAPSED);
+        ResponseTimePercentilesGraphConsumer graph = createGraph();
+        graph.consume(new Sample(0, metadata, "1000", "20", "Home", "OK", "true", "20"), 0);
+        graph.consume(new Sample(1, metadata, "1100", "30", "Home", "OK", "true", "530"), 0);
+        graph.consume(new Sample(2, metadata, "1200", "30", "Home", "OK", "true", "530"), 0);
+
+        Map<String, SeriesData> series = getSeries(graph);
+        assertEquals(new HashSet<>(Arrays.asList("Home", "Home (corrected)")), series.keySet());
+        // Raw series is keyed by the elapsed times
+        Map<Double, Aggregator> raw = series.get("Home").getAggregatorInfo();
+        assertEquals(keys(20, 30), raw.keySet());
+        assertEquals(2, raw.get(Double.valueOf(30)).getCount());
+        // Corrected series is keyed by the corrected elapsed times
+        Map<Double, Aggregator> corrected = series.get("Home (corrected)").getAggregatorInfo();
+        assertEquals(keys(20, 530), corrected.keySet());
+        assertEquals(1, corrected.get(Double.valueOf(20)).getCount());
+        assertEquals(2, corrected.get(Double.valueOf(530)).getCount());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.reporters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.junit.Test;
+
+public class TestAsyncResultWriter extends JMeterTestCase {
+
+    private static SampleEvent event(String label) {
+        SampleResult result = SampleResult.createTestSample(10);
+        result.setSampleLabel(label);
+        return new SampleEvent(result, "tg");
+    }
+
+    @Test
+    public void testWritesInOrderAndFlushWaits() throws Exception {
+        List<String> labels = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger flushes = new AtomicInteger();
+        AsyncResultWriter writer = new AsyncResultWriter("test", 10, false,
+                (event, config) -> labels.add(event.getResult().getSampleLabel()),
+                flushes::incrementAndGet, false);
+        SampleSaveConfiguration config = new SampleSaveConfiguration();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(writer.submit(event("s" + i), config));
+        }
+        writer.flush();
+        assertEquals(1000, labels.size());
+        assertEquals(1, flushes.get());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("s" + i, labels.get(i));
+        }
+        writer.close();
+        assertEquals(1000, writer.getWrittenCount());
+        assertEquals(0, writer.getDroppedCount());
+        assertFalse("Closed writer drops events", writer.submit(event("late"), config));
+        assertEquals(1, writer.getDroppedCount());
+    }
+
+    @Test
+    public void testUsesGivenSaveConfiguration() throws Exception {
+        StringWriter out = new StringWriter();
+        AsyncResultWriter writer = new AsyncResultWriter("test", 10, false,
+                (event, config) -> out.write(config.getDelimiter()), out, false);
+        SampleSaveConfiguration config = new SampleSaveConfiguration();
+        config.setDelimiter(";");
+        SampleEvent event = event("s");
+        event.getResult().setSaveConfig(new SampleSaveConfiguration());
+        writer.submit(event, config);
+        writer.close();
+        assertEquals(";", out.toString());
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncResultWriter writer = new AsyncResultWriter("test", 2, true,
+                (event, config) -> {
+                    writing.countDown();
+                    release.await();
+                }, () -> { }, false);
+        SampleSaveConfiguration config = new SampleSaveConfiguration();
+        assertTrue(writer.submit(event("taken by the worker"), config));
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        assertTrue(writer.submit(event("queued 1"), config));
+        assertTrue(writer.submit(event("queued 2"), config));
+        assertFalse(writer.submit(event("dropped"), config));
+        assertEquals(1, writer.getDroppedCount());
+        assertEquals(2, writer.getQueueSize());
+        release.countDown();
+        writer.close();
+        assertEquals(3, writer.getWrittenCount());
+        assertEquals(0, writer.getQueueWaits());
+    }
+
+    @Test
+    public void testBlockWhenFull() throws Exception {
+        AtomicInteger written = new AtomicInteger();
+        AsyncResultWriter writer = new AsyncResultWriter("test", 1, false,
+                (event, config) -> {
+                    Thread.sleep(1);
+                    written.incrementAndGet();
+                }, () -> { }, false);
+        SampleSaveConfiguration config = new SampleSaveConfiguration();
+        for (int i = 0; i < 20; i++) {
+            assertTrue(writer.submit(event("s" + i), config));
+        }
+        writer.close();
+        assertEquals(20, written.get());
+        assertEquals(0, writer.getDroppedCount());
+        assertTrue(writer.getQueueWaits() > 0);
+    }
+}
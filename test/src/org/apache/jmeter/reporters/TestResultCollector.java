@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.reporters;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.save.BinaryResultReader;
+import org.apache.jmeter.save.BinaryResultWriter;
+import org.apache.jmeter.save.CSVSaveService;
+import org.apache.jmeter.visualizers.Visualizer;
+import org.apache.jorphan.test.JMeterSerialTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// The result files are shared by all the collectors until the last one ends
+public class TestResultCollector extends JMeterTestCase implements JMeterSerialTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("TestResultCollector", ".jtl");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static SampleSaveConfiguration createConfig(boolean binary) {
+        SampleSaveConfiguration config = new SampleSaveConfiguration(false);
+        config.setTime(true);
+        config.setTimestamp(true);
+        config.setLabel(true);
+        config.setSuccess(true);
+        config.setAsBinary(binary);
+        return config;
+    }
+
+    private static SampleEvent createEvent(String label, boolean success) {
+        SampleResult result = SampleResult.createTestSample(1000, 1250);
+        result.setSampleLabel(label);
+        result.setSuccessful(success);
+        return new SampleEvent(result, "tg");
+    }
+
+    private ResultCollector createCollector(SampleSaveConfiguration config) {
+        ResultCollector collector = new ResultCollector();
+        collector.setFilename(file.getAbsolutePath());
+        collector.setSaveConfig(config);
+        return collector;
+    }
+
+    private static void saveSample(ResultCollector collector, SampleEvent event) {
+        collector.testStarted();
+        try {
+            collector.sampleOccurred(event);
+        } finally {
+            collector.testEnded();
+        }
+    }
+
+    private List<SampleResult> loadResults(SampleSaveConfiguration config) throws Exception {
+        List<SampleResult> loaded = new ArrayList<>();
+        ResultCollector collector = createCollector(config);
+        collector.setListener(new Visualizer() {
+            @Override
+            public void add(SampleResult sample) {
+                loaded.add(sample);
+            }
+
+            @Override
+            public boolean isStats() {
+                return false;
+            }
+        });
+        collector.loadExistingFile();
+        return loaded;
+    }
+
+    @Test
+    public void testLoadBinaryFile() throws Exception {
+        SampleSaveConfiguration config = createConfig(true);
+        try (BinaryResultWriter writer = new BinaryResultWriter(new FileOutputStream(file),
+                CSVSaveService.printableFieldNames(config))) {
+            for (int i = 0; i < 3; i++) {
+                SampleEvent event = createEvent("label" + i, i != 1);
+                event.getResult().setSaveConfig(config);
+                writer.write(event);
+            }
+        }
+        List<SampleResult> loaded = loadResults(config);
+        assertEquals(3, loaded.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("label" + i, loaded.get(i).getSampleLabel());
+            assertEquals(i != 1, loaded.get(i).isSuccessful());
+            assertEquals(250, loaded.get(i).getTime());
+        }
+    }
+
+    private List<SampleResult> saveAndLoadCorrectedTime(boolean xml, String expectedContent)
+            throws Exception {
+        SampleSaveConfiguration config = createConfig(false);
+        config.setAsXml(xml);
+        config.setCorrectedTime(true);
+        config.setFieldNames(true);
+        SampleEvent late = createEvent("late", true);
+        late.getResult().setIntendedStartTime(960);
+        // So that the header of the CSV file is written
+        file.delete();
+        ResultCollector collector = createCollector(config);
+        collector.testStarted();
+        try {
+            collector.sampleOccurred(late);
+            collector.sampleOccurred(createEvent("onTime", true));
+        } finally {
+            collector.testEnded();
+        }
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(content, content.contains(expectedContent));
+
+        List<SampleResult> loaded = loadResults(config);
+        assertEquals(2, loaded.size());
+        assertEquals(250, loaded.get(0).getTime());
+        assertEquals(290, loaded.get(0).getCorrectedTime());
+        assertEquals(250, loaded.get(1).getCorrectedTime());
+        return loaded;
+    }
+
+    @Test
+    public void testCorrectedTimeIsSavedAndLoadedAsCsv() throws Exception {
+        saveAndLoadCorrectedTime(false, "correctedElapsed");
+    }
+
+    @Test
+    public void testCorrectedTimeIsSavedAndLoadedAsXml() throws Exception {
+        List<SampleResult> loaded = saveAndLoadCorrectedTime(true, "its=\"960\"");
+        assertEquals(960, loaded.get(0).getIntendedStartTime());
+        assertEquals(0, loaded.get(1).getIntendedStartTime());
+    }
+
+    @Test
+    public void testBinaryResultsAreNotAppendedToTextFile() throws Exception {
+        byte[] csv = "timeStamp,elapsed,label,success\n1000,250,label,true\n"
+                .getBytes(StandardCharsets.UTF_8);
+        Files.write(file.toPath(), csv);
+        saveSample(createCollector(createConfig(true)), createEvent("binary", true));
+        assertArrayEquals(csv, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void testTextResultsAreNotAppendedToBinaryFile() throws Exception {
+        saveSample(createCollector(createConfig(true)), createEvent("binary", true));
+        assertTrue(BinaryResultReader.isBinaryResultFile(file));
+        byte[] binary = Files.readAllBytes(file.toPath());
+        saveSample(createCollector(createConfig(false)), createEvent("text", true));
+        assertArrayEquals(binary, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void testBinaryResultsAreAppendedToBinaryFile() throws Exception {
+        saveSample(createCollector(createConfig(true)), createEvent("first", true));
+        long length = file.length();
+        saveSample(createCollector(createConfig(true)), createEvent("second", true));
+        assertFalse(file.length() == length);
+        assertTrue(BinaryResultReader.isBinaryResultFile(file));
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.Socket;
+import java.net.URL;
+import java.rmi.RemoteException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.junit.Test;
+
+public class TestBinarySampleSender extends JMeterTestCase {
+
+    private static SampleResult createResult(String label, long start, boolean success) {
+        SampleResult result = new SampleResult();
+        result.setStampAndTime(start, 0);
+        result.setIdleTime(3);
+        result.setEndTime(start + 120);
+        result.setSampleLabel(label);
+        result.setThreadName("Thread Group 1-1");
+        result.setLatency(50);
+        result.setConnectTime(10);
+        result.setConnectionWaitTime(5);
+        result.setTlsHandshakeTime(4);
+        result.setTlsSessionResumed(success);
+        result.setSuccessful(success);
+        result.setResponseCode(success ? "200" : "500");
+        result.setResponseMessage(success ? "OK" : "Internal Server Error");
+        result.setDataType(SampleResult.TEXT);
+        result.setContentType("text/html; charset=UTF-8");
+        result.setDataEncoding("UTF-8");
+        result.setHeadersSize(200);
+        result.setBodySize(1000L);
+        result.setSentBytes(300);
+        result.setGroupThreads(2);
+        result.setAllThreads(4);
+        result.setRequestHeaders("Accept: */*");
+        result.setResponseData("<html>\u00e9t\u00e9</html>", "UTF-8");
+        return result;
+    }
+
+    @Test
+    public void testEncodingRoundTrip() throws Exception {
+        SampleResult parent = createResult("Transaction", 1500000000000L, false);
+        parent.setURL(new URL("http://jmeter.apache.org/index.html"));
+        parent.setIntendedStartTime(1500000000000L - 40);
+        AssertionResult assertion = new AssertionResult("Response Assertion");
+        assertion.setFailure(true);
+        assertion.setFailureMessage("Test failed");
+        parent.addAssertionResult(assertion);
+        parent.storeSubResult(createResult("Sub", 1500000000010L, true));
+        SampleEvent first = new SampleEvent(parent, "Thread Group", "host1");
+        SampleEvent second = new SampleEvent(createResult("Transaction", 1499999999000L, true),
+                "Thread Group", "host1");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinarySampleWriter writer = new BinarySampleWriter(bytes);
+        writer.writeBatch(Arrays.asList(first, second));
+        int firstBatchSize = bytes.size();
+        writer.writeBatch(Collections.singletonList(second));
+        // Strings of the second batch are coded by the dictionary
+        assertTrue(bytes.size() - firstBatchSize < firstBatchSize / 2);
+        writer.writeEnd();
+
+        BinarySampleReader reader = new BinarySampleReader(new ByteArrayInputStream(bytes.toByteArray()));
+        List<SampleEvent> events = reader.readBatch();
+        assertEquals(2, events.size());
+        SampleEvent decoded = events.get(0);
+        assertEquals("Thread Group", decoded.getThreadGroup());
+        assertEquals("host1", decoded.getHostname());
+        assertFalse(decoded.isTransactionSampleEvent());
+        assertResultEquals(parent, decoded.getResult());
+        assertEquals(new URL("http://jmeter.apache.org/index.html"), decoded.getResult().getURL());
+        assertEquals(parent.getIntendedStartTime(), decoded.getResult().getIntendedStartTime());
+        AssertionResult[] assertions = decoded.getResult().getAssertionResults();
+        assertEquals(1, assertions.length);
+        assertEquals("Response Assertion", assertions[0].getName());
+        assertTrue(assertions[0].isFailure());
+        assertFalse(assertions[0].isError());
+        assertEquals("Test failed", assertions[0].getFailureMessage());
+        SampleResult[] subResults = decoded.getResult().getSubResults();
+        assertEquals(1, subResults.length);
+        assertResultEquals(parent.getSubResults()[0], subResults[0]);
+        assertResultEquals(second.getResult(), events.get(1).getResult());
+
+        events = reader.readBatch();
+        assertEquals(1, events.size());
+        assertResultEquals(second.getResult(), events.get(0).getResult());
+        assertNull(reader.readBatch());
+    }
+
+    @Test
+    public void testEncodingOfHttpResults() throws Exception {
+        HTTPSampleResult parent = new HTTPSampleResult();
+        parent.setSampleLabel("Home");
+        parent.setURL(new URL("http://jmeter.apache.org/index.html"));
+        parent.setHTTPMethod("POST");
+        parent.setCookies("JSESSIONID=1234");
+        parent.setQueryString("a=1&b=2");
+        parent.setRedirectLocation("http://jmeter.apache.org/");
+        parent.setSamplerData("Redirected");
+        HTTPSampleResult sub = new HTTPSampleResult();
+        sub.setSampleLabel("Image");
+        sub.setHTTPMethod("GET");
+        parent.storeSubResult(sub);
+        SampleResult plain = createResult("Plain", 1500000000000L, true);
+        plain.setSamplerData("Plain data");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinarySampleWriter writer = new BinarySampleWriter(bytes);
+        writer.writeBatch(Arrays.asList(new SampleEvent(parent, "Thread Group"), new SampleEvent(plain, "Thread Group")));
+        List<SampleEvent> events = new BinarySampleReader(new ByteArrayInputStream(bytes.toByteArray())).readBatch();
+
+        assertEquals(HTTPSampleResult.class, events.get(0).getResult().getClass());
+        HTTPSampleResult decoded = (HTTPSampleResult) events.get(0).getResult();
+        assertEquals("Home", decoded.getSampleLabel());
+        assertEquals("POST", decoded.getHTTPMethod());
+        assertEquals("JSESSIONID=1234", decoded.getCookies());
+        assertEquals("a=1&b=2", decoded.getQueryString());
+        assertEquals("http://jmeter.apache.org/", decoded.getRedirectLocation());
+        assertEquals(parent.getSamplerData(), decoded.getSamplerData());
+        assertEquals(HTTPSampleResult.class, decoded.getSubResults()[0].getClass());
+        assertEquals("GET", ((HTTPSampleResult) decoded.getSubResults()[0]).getHTTPMethod());
+        assertEquals(SampleResult.class, events.get(1).getResult().getClass());
+        assertEquals("Plain data", events.get(1).getResult().getSamplerData());
+    }
+
+    private static void assertResultEquals(SampleResult expected, SampleResult actual) {
+        assertEquals(expected.getSampleLabel(), actual.getSampleLabel());
+        assertEquals(expected.getThreadName(), actual.getThreadName());
+        assertEquals(expected.getTimeStamp(), actual.getTimeStamp());
+        assertEquals(expected.getStartTime(), actual.getStartTime());
+        assertEquals(expected.getEndTime(), actual.getEndTime());
+        assertEquals(expected.getTime(), actual.getTime());
+        assertEquals(expected.getIdleTime(), actual.getIdleTime());
+        assertEquals(expected.getLatency(), actual.getLatency());
+        assertEquals(expected.getConnectTime(), actual.getConnectTime());
+        assertEquals(expected.getConnectionWaitTime(), actual.getConnectionWaitTime());
+        assertEquals(expected.getTlsHandshakeTime(), actual.getTlsHandshakeTime());
+        assertEquals(expected.isTlsSessionResumed(), actual.isTlsSessionResumed());
+        assertEquals(expected.isSuccessful(), actual.isSuccessful());
+        assertEquals(expected.getResponseCode(), actual.getResponseCode());
+        assertEquals(expected.getResponseMessage(), actual.getResponseMessage());
+        assertEquals(expected.getDataType(), actual.getDataType());
+        assertEquals(expected.getContentType(), actual.getContentType());
+        assertEquals(expected.getDataEncodingNoDefault(), actual.getDataEncodingNoDefault());
+        assertEquals(expected.getHeadersSize(), actual.getHeadersSize());
+        assertEquals(expected.getBodySizeAsLong(), actual.getBodySizeAsLong());
+        assertEquals(expected.getBytesAsLong(), actual.getBytesAsLong());
+        assertEquals(expected.getSentBytes(), actual.getSentBytes());
+        assertEquals(expected.getGroupThreads(), actual.getGroupThreads());
+        assertEquals(expected.getAllThreads(), actual.getAllThreads());
+        assertEquals(expected.getSampleCount(), actual.getSampleCount());
+        assertEquals(expected.getRequestHeaders(), actual.getRequestHeaders());
+        assertEquals(expected.getResponseHeaders(), actual.getResponseHeaders());
+        assertArrayEquals(expected.getResponseData(), actual.getResponseData());
+        assertEquals(expected.getResponseDataAsString(), actual.getResponseDataAsString());
+    }
+
+    @Test
+    public void testSendToReceiver() throws Exception {
+        CollectingListener clientListener = new CollectingListener();
+        BinarySampleSender sender = new BinarySampleSender(clientListener, null, null);
+
+        // Remote engines get their sender the way RMI sends it
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(sender);
+        }
+        SampleSender remoteSender;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            remoteSender = (SampleSender) in.readObject();
+        }
+        int sampleCount = 5000;
+        for (int i = 0; i < sampleCount; i++) {
+            remoteSender.sampleOccurred(new SampleEvent(
+                    createResult("Label " + (i % 10), 1500000000000L + i, i % 7 != 0), "Thread Group", "remote"));
+        }
+        remoteSender.testEnded("remote");
+
+        // All the samples were sent to the receiver and processed when the sender ends
+        assertEquals(sampleCount, clientListener.events.size());
+        for (int i = 0; i < sampleCount; i++) {
+            SampleResult result = clientListener.events.get(i).getResult();
+            assertEquals("Label " + (i % 10), result.getSampleLabel());
+            assertEquals(1500000000000L + i, result.getStartTime());
+            assertEquals(i % 7 != 0, result.isSuccessful());
+            assertEquals("remote", clientListener.events.get(i).getHostname());
+        }
+        assertEquals("<html>\u00e9t\u00e9</html>",
+                new String(clientListener.events.get(0).getResult().getResponseData(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testOnlyUnacknowledgedSamplesAreSentByRmi() throws Exception {
+        FailingListener clientListener = new FailingListener();
+        BinarySampleSender sender = new BinarySampleSender(clientListener, null, null);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(sender);
+        }
+        SampleSender remoteSender;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            remoteSender = (SampleSender) in.readObject();
+        }
+
+        int sampleCount = 0;
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 100; j++) {
+                remoteSender.sampleOccurred(new SampleEvent(
+                        createResult("Label " + sampleCount++, 1500000000000L, true), "Thread Group", "remote"));
+            }
+            // Wait for the samples to be processed, and acknowledged
+            long end = System.currentTimeMillis() + 10000;
+            while (FailingListener.RECEIVED.size() < sampleCount && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+        }
+        assertEquals(200, FailingListener.RECEIVED.size());
+
+        // The receiver fails to process the next samples and closes the connection
+        FailingListener.failing = true;
+        for (int j = 0; j < 100; j++) {
+            remoteSender.sampleOccurred(new SampleEvent(
+                    createResult("Label " + sampleCount++, 1500000000000L, true), "Thread Group", "remote"));
+        }
+        remoteSender.testEnded("remote");
+
+        assertEquals(200, FailingListener.RECEIVED.size());
+        assertEquals(100, FailingListener.RESENT.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Label " + (200 + i), FailingListener.RESENT.get(i).getResult().getSampleLabel());
+        }
+    }
+
+    @Test
+    public void testReceiverIsClosedAfterAcceptTimeout() throws Exception {
+        BinarySampleReceiver receiver = new BinarySampleReceiver(new CollectingListener(), "token", 0, null, 200);
+        receiver.start();
+        try (Socket socket = new Socket("localhost", receiver.getPort())) {
+            assertTrue(socket.isConnected());
+            assertFalse(receiver.isClosed());
+        }
+        long end = System.currentTimeMillis() + 10000;
+        while (!receiver.isClosed() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertTrue(receiver.isClosed());
+    }
+
+    /**
+     * Records the samples received by the client, and those sent by RMI by
+     * the remote engine, once they cannot be processed by the client
+     */
+    private static class FailingListener extends CollectingListener {
+        private static final long serialVersionUID = 1L;
+
+        private static final List<SampleEvent> RECEIVED = Collections.synchronizedList(new ArrayList<>());
+
+        private static final List<SampleEvent> RESENT = Collections.synchronizedList(new ArrayList<>());
+
+        private static volatile boolean failing;
+
+        // False in the instance deserialized by the remote engine
+        private final transient boolean client;
+
+        FailingListener() {
+            client = true;
+            RECEIVED.clear();
+            RESENT.clear();
+            failing = false;
+        }
+
+        @Override
+        public void processBatch(List<SampleEvent> samples) throws RemoteException {
+            if (!client) {
+                RESENT.addAll(samples);
+            } else if (failing) {
+                throw new RemoteException("Failing listener");
+            } else {
+                RECEIVED.addAll(samples);
+            }
+        }
+    }
+
+    private static class CollectingListener implements RemoteSampleListener, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        // Null in the instance deserialized by the remote engine
+        private final transient List<SampleEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void testStarted() {
+            // NOOP
+        }
+
+        @Override
+        public void testStarted(String host) {
+            // NOOP
+        }
+
+        @Override
+        public void testEnded() {
+            // NOOP
+        }
+
+        @Override
+        public void testEnded(String host) {
+            // NOOP
+        }
+
+        @Override
+        public void processBatch(List<SampleEvent> samples) throws RemoteException {
+            if (events != null) {
+                events.addAll(samples);
+            }
+        }
+
+        @Override
+        public void sampleOccurred(SampleEvent e) throws RemoteException {
+            processBatch(Collections.singletonList(e));
+        }
+
+        @Override
+        public void sampleStarted(SampleEvent e) {
+            // NOOP
+        }
+
+        @Override
+        public void sampleStopped(SampleEvent e) {
+            // NOOP
+        }
+    }
+}
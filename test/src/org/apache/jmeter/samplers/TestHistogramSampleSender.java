@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.visualizers.SamplingStatCalculator;
+import org.junit.Test;
+
+public class TestHistogramSampleSender extends JMeterTestCase {
+
+    private static SampleResult createResult(long elapsed, boolean success) {
+        SampleResult result = new SampleResult();
+        result.setStampAndTime(1500000000000L, elapsed);
+        result.setSampleLabel("Label");
+        result.setThreadName("Thread Group 1-1");
+        result.setLatency(elapsed / 2);
+        result.setSuccessful(success);
+        result.setResponseCode(success ? "200" : "500");
+        result.setResponseMessage(success ? "OK" : "Internal Server Error");
+        result.setBodySize(100L);
+        result.setSentBytes(10);
+        return result;
+    }
+
+    private static HistogramSampleResult createHistogramResult() {
+        HistogramSampleResult histogramResult = new HistogramSampleResult(createResult(0, true), 3);
+        for (int i = 1; i <= 1000; i++) {
+            histogramResult.add(createResult(i, i % 100 != 0));
+        }
+        return histogramResult;
+    }
+
+    @Test
+    public void testHistogramResult() {
+        HistogramSampleResult histogramResult = createHistogramResult();
+        assertEquals(1000, histogramResult.getSampleCount());
+        assertEquals(10, histogramResult.getErrorCount());
+        assertEquals(500500, histogramResult.getTime());
+        assertEquals(1, histogramResult.getMinTime());
+        assertEquals(1000, histogramResult.getMaxTime());
+        assertEquals(900, histogramResult.getPercentile(90), 1);
+        assertEquals(Collections.singletonMap("500", Long.valueOf(10)),
+                histogramResult.getErrorCountsByResponseCode());
+
+        List<SampleResult> rows = histogramResult.toSampleResults();
+        long sampleCount = 0;
+        long errorCount = 0;
+        long bytes = 0;
+        long latency = 0;
+        for (SampleResult row : rows) {
+            assertEquals("Label", row.getSampleLabel());
+            assertEquals(row.isSuccessful() ? "200" : "500", row.getResponseCode());
+            assertEquals(row.isSuccessful() ? 0 : row.getSampleCount(), row.getErrorCount());
+            sampleCount += row.getSampleCount();
+            errorCount += row.getErrorCount();
+            bytes += row.getBytesAsLong();
+            latency += row.getLatency();
+        }
+        assertEquals(1000, sampleCount);
+        assertEquals(10, errorCount);
+        assertEquals(histogramResult.getBytesAsLong(), bytes);
+        assertEquals(histogramResult.getLatency(), latency);
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        HistogramSampleResult histogramResult = createHistogramResult();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(histogramResult);
+        }
+        HistogramSampleResult copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (HistogramSampleResult) in.readObject();
+        }
+        assertEquals(histogramResult.getSampleCount(), copy.getSampleCount());
+        assertEquals(histogramResult.getErrorCount(), copy.getErrorCount());
+        assertEquals(histogramResult.getTime(), copy.getTime());
+        assertEquals(histogramResult.getMinTime(), copy.getMinTime());
+        assertEquals(histogramResult.getMaxTime(), copy.getMaxTime());
+        assertEquals(histogramResult.getPercentile(99), copy.getPercentile(99), 0);
+        assertEquals(histogramResult.getErrorCountsByResponseCode(), copy.getErrorCountsByResponseCode());
+        assertEquals(histogramResult.toSampleResults().size(), copy.toSampleResults().size());
+    }
+
+    @Test
+    public void testMergedPercentiles() {
+        // Two remote engines with different response times
+        SamplingStatCalculator calculator = new SamplingStatCalculator("Label");
+        HistogramSampleResult fast = new HistogramSampleResult(createResult(0, true), 3);
+        HistogramSampleResult slow = new HistogramSampleResult(createResult(0, true), 3);
+        for (int i = 0; i < 900; i++) {
+            fast.add(createResult(10, true));
+        }
+        for (int i = 0; i < 100; i++) {
+            slow.add(createResult(1000, true));
+        }
+        calculator.addSample(fast);
+        calculator.addSample(slow);
+        assertEquals(1000, calculator.getCount());
+        assertEquals(10, calculator.getPercentPoint(0.9).longValue());
+        assertEquals(1000, calculator.getPercentPoint(0.95).longValue());
+        assertEquals(10, calculator.getMin().longValue());
+        assertEquals(1000, calculator.getMax().longValue());
+    }
+
+    @Test
+    public void testSendOnTestEnded() throws Exception {
+        CollectingListener.events.clear();
+        HistogramSampleSender sender = new HistogramSampleSender(new CollectingListener());
+        // Remote engines get their sender the way RMI sends it
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(sender);
+        }
+        SampleSender remoteSender;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            remoteSender = (SampleSender) in.readObject();
+        }
+        for (int i = 1; i <= 100; i++) {
+            remoteSender.sampleOccurred(new SampleEvent(createResult(i, true), "Thread Group", "remote"));
+        }
+        remoteSender.testEnded("remote");
+
+        long sampleCount = 0;
+        for (SampleEvent event : CollectingListener.events) {
+            assertTrue(event.getResult() instanceof HistogramSampleResult);
+            sampleCount += event.getResult().getSampleCount();
+        }
+        assertEquals(100, sampleCount);
+    }
+
+    private static class CollectingListener implements RemoteSampleListener, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        // Shared with the instance deserialized by the remote engine, which calls it
+        private static final List<SampleEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void testStarted() {
+            // NOOP
+        }
+
+        @Override
+        public void testStarted(String host) {
+            // NOOP
+        }
+
+        @Override
+        public void testEnded() {
+            // NOOP
+        }
+
+        @Override
+        public void testEnded(String host) {
+            // NOOP
+        }
+
+        @Override
+        public void processBatch(List<SampleEvent> samples) {
+            events.addAll(samples);
+        }
+
+        @Override
+        public void sampleOccurred(SampleEvent e) {
+            processBatch(Collections.singletonList(e));
+        }
+
+        @Override
+        public void sampleStarted(SampleEvent e) {
+            // NOOP
+        }
+
+        @Override
+        public void sampleStopped(SampleEvent e) {
+            // NOOP
+        }
+    }
+}
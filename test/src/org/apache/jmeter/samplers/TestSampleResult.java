@@ -365,6 +365,56 @@ public class TestSampleResult implements JMeterSerialTest {
             assertEquals("jan", value2.get(0).getUser());
         }
 
+        @Test
+        public void testSnapshotIsNotChangedByTheSamplingThread() {
+            SampleResult child = new SampleResult();
+            child.setSampleLabel("child");
+            child.sampleStart();
+            child.sampleEnd();
+            child.setThreadName("thread 1");
+            SampleResult grandChild = new SampleResult();
+            child.storeSubResult(grandChild);
+            SampleResult snapshot = child.snapshot();
+
+            SampleResult transaction = new SampleResult();
+            transaction.setThreadName("transaction thread");
+            transaction.sampleStart();
+            transaction.addSubResult(child);
+            child.storeSubResult(new SampleResult());
+            child.setResponseData("changed", null);
+
+            assertNull(snapshot.getParent());
+            assertEquals("thread 1", snapshot.getThreadName());
+            assertEquals(1, snapshot.getSubResults().length);
+            assertEquals(grandChild, snapshot.getSubResults()[0]);
+            assertEquals("", snapshot.getResponseDataAsString());
+            assertEquals("child", snapshot.getSampleLabel());
+            assertEquals(transaction, child.getParent());
+        }
+
+        @Test
+        public void testSnapshotDoesNotShareMarkedFiles() {
+            SampleResult res = new SampleResult();
+            assertFalse(res.markFile("first.csv"));
+            SampleResult snapshot = res.snapshot();
+            assertFalse(snapshot.markFile("second.csv"));
+            assertFalse("Not marked in the original", res.markFile("second.csv"));
+            assertTrue(snapshot.markFile("first.csv"));
+        }
+
+        @Test
+        public void testCorrectedTime() {
+            SampleResult res = SampleResult.createTestSample(1000, 1250);
+            assertEquals("No intended start time", 250, res.getCorrectedTime());
+            res.setIntendedStartTime(1000);
+            assertEquals("Started on time", 250, res.getCorrectedTime());
+            res.setIntendedStartTime(1010);
+            assertEquals("Started before the intended start time", 250, res.getCorrectedTime());
+            res.setIntendedStartTime(960);
+            assertEquals("Started 40 ms late", 290, res.getCorrectedTime());
+            assertEquals(250, res.getTime());
+        }
+
         @Test
         public void testCacheManager() throws MalformedURLException {
             HTTPSamplerBase http = new HTTPSampler();
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.save;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.junit.Test;
+
+public class TestBinaryResultWriter extends JMeterTestCase {
+
+    private static final String[] COLUMNS = { "timeStamp", "label", "mixed", "unique" };
+
+    private static String[] row(int i) {
+        return new String[] {
+                Long.toString(1_500_000_000_000L + i * 7L - (i % 3) * 20L),
+                "label" + (i % 5),
+                // Switches to strings in the middle of each block, "-0" and "007" are not canonical
+                i % 1000 == 999 ? "-0" : (i % 1000 == 500 ? "007" : Long.toString(-i)),
+                "value" + i };
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        int rows = BinaryResultWriter.BLOCK_ROWS * 2 + 10;
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (BinaryResultWriter writer = new BinaryResultWriter(baos, COLUMNS)) {
+            for (int i = 0; i < rows; i++) {
+                writer.writeRow(row(i));
+            }
+        }
+        try (BinaryResultReader reader = new BinaryResultReader(new ByteArrayInputStream(baos.toByteArray()))) {
+            assertArrayEquals(COLUMNS, reader.getColumnNames());
+            for (int i = 0; i < rows; i++) {
+                assertArrayEquals("Row " + i, row(i), reader.readRow());
+            }
+            assertNull(reader.readRow());
+        }
+    }
+
+    @Test
+    public void testPlainEncodingWhenDictionaryIsFull() throws Exception {
+        int rows = BinaryResultWriter.MAX_DICTIONARY_SIZE + BinaryResultWriter.BLOCK_ROWS;
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (BinaryResultWriter writer = new BinaryResultWriter(baos, new String[] { "unique" })) {
+            for (int i = 0; i < rows; i++) {
+                writer.writeRow("u" + i);
+            }
+        }
+        try (BinaryResultReader reader = new BinaryResultReader(new ByteArrayInputStream(baos.toByteArray()))) {
+            for (int i = 0; i < rows; i++) {
+                assertArrayEquals(new String[] { "u" + i }, reader.readRow());
+            }
+            assertNull(reader.readRow());
+        }
+    }
+
+    @Test
+    public void testAppendedSegments() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (BinaryResultWriter writer = new BinaryResultWriter(baos, COLUMNS)) {
+            writer.writeRow(row(1));
+        }
+        try (BinaryResultWriter writer = new BinaryResultWriter(baos, COLUMNS)) {
+            writer.writeRow(row(2));
+            writer.flush();
+            writer.writeRow(row(3));
+        }
+        try (BinaryResultReader reader = new BinaryResultReader(new ByteArrayInputStream(baos.toByteArray()))) {
+            assertArrayEquals(row(1), reader.readRow());
+            assertArrayEquals(row(2), reader.readRow());
+            assertArrayEquals(row(3), reader.readRow());
+            assertNull(reader.readRow());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testAppendedSegmentWithOtherColumns() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (BinaryResultWriter writer = new BinaryResultWriter(baos, COLUMNS)) {
+            writer.writeRow(row(1));
+        }
+        try (BinaryResultWriter writer = new BinaryResultWriter(baos, new String[] { "other" })) {
+            writer.writeRow("value");
+        }
+        try (BinaryResultReader reader = new BinaryResultReader(new ByteArrayInputStream(baos.toByteArray()))) {
+            assertArrayEquals(row(1), reader.readRow());
+            reader.readRow();
+        }
+    }
+
+    @Test
+    public void testTruncatedLastBlockIsIgnored() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (BinaryResultWriter writer = new BinaryResultWriter(baos, COLUMNS)) {
+            writer.writeRow(row(1));
+            writer.flush();
+            writer.writeRow(row(2));
+        }
+        byte[] bytes = baos.toByteArray();
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+        try (BinaryResultReader reader = new BinaryResultReader(new ByteArrayInputStream(truncated))) {
+            assertArrayEquals(row(1), reader.readRow());
+            assertNull(reader.readRow());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongNumberOfValues() throws Exception {
+        try (BinaryResultWriter writer = new BinaryResultWriter(new ByteArrayOutputStream(), COLUMNS)) {
+            writer.writeRow("1", "2");
+        }
+    }
+
+    @Test
+    public void testWriteSampleEventLikeCsv() throws Exception {
+        SampleSaveConfiguration config = new SampleSaveConfiguration(false);
+        config.setTime(true);
+        config.setLabel(true);
+        config.setCode(true);
+        config.setSuccess(true);
+        config.setThreadName(true);
+        SampleResult result = SampleResult.createTestSample(1000, 1250);
+        result.setSampleLabel("a, \"quoted\" label");
+        result.setResponseCode("200");
+        result.setSuccessful(true);
+        result.setThreadName("Thread Group 1-1");
+        result.setSaveConfig(config);
+        SampleEvent event = new SampleEvent(result, "Thread Group");
+
+        String[] columns = CSVSaveService.printableFieldNames(config);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (BinaryResultWriter writer = new BinaryResultWriter(baos, columns)) {
+            writer.write(event);
+        }
+        String csv = CSVSaveService.resultToDelimitedString(event, ",");
+        try (BinaryResultReader reader = new BinaryResultReader(new ByteArrayInputStream(baos.toByteArray()))) {
+            assertArrayEquals(columns, reader.getColumnNames());
+            String[] values = reader.readRow();
+            assertArrayEquals(CSVSaveService.csvSplitString(csv, ','), values);
+            assertEquals("a, \"quoted\" label", values[Arrays.asList(columns).indexOf("label")]);
+            assertTrue(Boolean.parseBoolean(values[Arrays.asList(columns).indexOf("success")]));
+        }
+    }
+}
@@ -186,6 +186,71 @@ public class TestCSVSaveService extends JMeterTestCase {
         assertEquals("Result text has changed", RESULT, CSVSaveService.resultToDelimitedString(new SampleEvent(result,"")));
     }
 
+    @Test
+    public void testCorrectedElapsed() {
+        SampleSaveConfiguration saveConfig = new SampleSaveConfiguration(false);
+        saveConfig.setTime(true);
+        saveConfig.setCorrectedTime(true);
+        final String header = "elapsed,correctedElapsed";
+        assertEquals(header, CSVSaveService.printableFieldNamesToString(saveConfig));
+        assertTrue(CSVSaveService.getSampleSaveConfiguration(header, "test").saveCorrectedTime());
+
+        SampleResult result = SampleResult.createTestSample(980, 1000);
+        result.setSaveConfig(saveConfig);
+        assertEquals("No intended start time", "20,20",
+                CSVSaveService.resultToDelimitedString(new SampleEvent(result, "")));
+        result.setIntendedStartTime(970);
+        assertEquals("Sample started 10 ms late", "20,30",
+                CSVSaveService.resultToDelimitedString(new SampleEvent(result, "")));
+    }
+
+    @Test
+    public void testResultToFields() {
+        SampleSaveConfiguration saveConfig = new SampleSaveConfiguration(false);
+        saveConfig.setLabel(true);
+        saveConfig.setTime(true);
+        saveConfig.setSuccess(true);
+        SampleResult result = SampleResult.createTestSample(980, 1000);
+        result.setSampleLabel("a,\"b\"");
+        result.setSuccessful(true);
+        assertArrayEquals(new String[] { "elapsed", "label", "success" },
+                CSVSaveService.printableFieldNames(saveConfig));
+        // Values are not quoted
+        assertArrayEquals(new String[] { "20", "a,\"b\"", "true" },
+                CSVSaveService.resultToFields(new SampleEvent(result, ""), saveConfig));
+    }
+
+    @Test
+    public void testConnectionWaitTime() {
+        SampleSaveConfiguration saveConfig = new SampleSaveConfiguration(false);
+        saveConfig.setTime(true);
+        saveConfig.setConnectionWaitTime(true);
+        final String header = "elapsed,ConnectionWait";
+        assertEquals(header, CSVSaveService.printableFieldNamesToString(saveConfig));
+        assertTrue(CSVSaveService.getSampleSaveConfiguration(header, "test").saveConnectionWaitTime());
+
+        SampleResult result = SampleResult.createTestSample(980, 1000);
+        result.setConnectionWaitTime(15);
+        result.setSaveConfig(saveConfig);
+        assertEquals("20,15", CSVSaveService.resultToDelimitedString(new SampleEvent(result, "")));
+    }
+
+    @Test
+    public void testTlsHandshake() {
+        SampleSaveConfiguration saveConfig = new SampleSaveConfiguration(false);
+        saveConfig.setTime(true);
+        saveConfig.setTlsHandshake(true);
+        final String header = "elapsed,TlsHandshake,TlsSessionResumed";
+        assertEquals(header, CSVSaveService.printableFieldNamesToString(saveConfig));
+        assertTrue(CSVSaveService.getSampleSaveConfiguration(header, "test").saveTlsHandshake());
+
+        SampleResult result = SampleResult.createTestSample(980, 1000);
+        result.setTlsHandshakeTime(12);
+        result.setTlsSessionResumed(true);
+        result.setSaveConfig(saveConfig);
+        assertEquals("20,12,true", CSVSaveService.resultToDelimitedString(new SampleEvent(result, "")));
+    }
+
     //TODO: Now we have to change the isVariableName()'s accessibility to public to be able to test it.
     @Test
     //test the method which checks whether a String is indeed a variable name. A variable name starts and ends with a
@@ -20,6 +20,9 @@ package org.apache.jmeter.save;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedReader;
@@ -32,9 +35,13 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringWriter;
 import java.util.List;
 
 import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.collections.HashTree;
 import org.junit.Test;
@@ -220,6 +227,32 @@ public class TestSaveService extends JMeterTestCase {
         }
     }
 
+    @Test
+    public void testSaveSampleResultWithConfig() throws Exception {
+        SampleResult result = SampleResult.createTestSample(1000, 1250);
+        result.setSampleLabel("parent");
+        SampleResult child = SampleResult.createTestSample(1000, 1100);
+        child.setSampleLabel("child");
+        result.addRawSubResult(child);
+        SampleSaveConfiguration resultConfig = new SampleSaveConfiguration(false);
+        result.setSaveConfig(resultConfig);
+
+        SampleSaveConfiguration config = new SampleSaveConfiguration(false);
+        config.setLabel(true);
+        config.setTime(true);
+        config.setSubresults(true);
+        StringWriter writer = new StringWriter();
+        SaveService.saveSampleResult(new SampleEvent(result, "tg"), config, writer);
+
+        String xml = writer.toString();
+        assertTrue(xml, xml.contains("lb=\"parent\""));
+        assertTrue(xml, xml.contains("lb=\"child\""));
+        assertTrue(xml, xml.contains("t=\"250\""));
+        // The configurations of the results are unchanged
+        assertSame(resultConfig, result.getSaveConfig());
+        assertNull(child.getSaveConfig());
+    }
+
     private static class FileStats {
         int size;
         int lines;
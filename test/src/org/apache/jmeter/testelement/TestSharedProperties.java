@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.testelement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.testelement.property.AbstractProperty;
+import org.apache.jmeter.testelement.property.CollectionProperty;
+import org.apache.jmeter.testelement.property.StringProperty;
+import org.junit.Test;
+
+public class TestSharedProperties {
+
+    private static ConfigTestElement createRunningElement() {
+        ConfigTestElement element = new ConfigTestElement();
+        element.setName("name");
+        element.setProperty("string", "value");
+        element.setProperty("int", 10);
+        element.setProperty(new CollectionProperty("collection", new ArrayList<>()));
+        element.setRunningVersion(true);
+        return element;
+    }
+
+    @Test
+    public void testNotRunningClonesDoNotShare() {
+        ConfigTestElement element = new ConfigTestElement();
+        element.setProperty("string", "value");
+        TestElement clone = (TestElement) element.clone();
+        assertNotSame(element.getProperty("string"), clone.getProperty("string"));
+        assertFalse(((AbstractProperty) clone.getProperty("string")).isShared());
+    }
+
+    @Test
+    public void testRunningClonesShareImmutableProperties() {
+        ConfigTestElement element = createRunningElement();
+        TestElement clone1 = (TestElement) element.clone();
+        TestElement clone2 = (TestElement) element.clone();
+        TestElement cloneOfClone = (TestElement) clone1.clone();
+        assertNotSame(element.getProperty("string"), clone1.getProperty("string"));
+        assertSame(clone1.getProperty("string"), clone2.getProperty("string"));
+        assertSame(clone1.getProperty("string"), cloneOfClone.getProperty("string"));
+        assertSame(clone1.getProperty("int"), clone2.getProperty("int"));
+        assertTrue(((AbstractProperty) clone1.getProperty("string")).isShared());
+        assertTrue(clone1.getProperty("string").isRunningVersion());
+        // Collections can be modified through their items
+        assertNotSame(clone1.getProperty("collection"), clone2.getProperty("collection"));
+    }
+
+    @Test
+    public void testModifiedSharedPropertyIsCopied() {
+        ConfigTestElement element = createRunningElement();
+        TestElement clone1 = (TestElement) element.clone();
+        TestElement clone2 = (TestElement) element.clone();
+        clone1.setProperty("string", "changed");
+        assertEquals("changed", clone1.getPropertyAsString("string"));
+        assertEquals("value", clone2.getPropertyAsString("string"));
+        assertEquals("value", element.getPropertyAsString("string"));
+        assertFalse(((AbstractProperty) clone1.getProperty("string")).isShared());
+
+        clone1.recoverRunningVersion();
+        assertEquals("value", clone1.getPropertyAsString("string"));
+        clone2.recoverRunningVersion();
+        assertEquals("value", clone2.getPropertyAsString("string"));
+    }
+
+    @Test
+    public void testMergedPropertiesAreTemporary() {
+        ConfigTestElement element = createRunningElement();
+        TestElement clone = (TestElement) element.clone();
+        ConfigTestElement config = new ConfigTestElement();
+        config.setProperty(new StringProperty("other", "config"));
+        clone.addTestElement(config);
+        assertEquals("config", clone.getPropertyAsString("other"));
+        clone.recoverRunningVersion();
+        assertEquals("", clone.getPropertyAsString("other"));
+        assertEquals("value", clone.getPropertyAsString("string"));
+    }
+
+    @Test
+    public void testSharedCopyFollowsChanges() {
+        ConfigTestElement element = createRunningElement();
+        TestElement clone1 = (TestElement) element.clone();
+        element.setProperty("string", "changed");
+        TestElement clone2 = (TestElement) element.clone();
+        assertEquals("value", clone1.getPropertyAsString("string"));
+        assertEquals("changed", clone2.getPropertyAsString("string"));
+    }
+
+    @Test
+    public void testClonesWithOnlySharedProperties() throws Exception {
+        ConfigTestElement element = new ConfigTestElement();
+        element.setProperty("string", "value");
+        element.setProperty("boolean", true);
+        element.setRunningVersion(true);
+        TestElement clone1 = (TestElement) element.clone();
+        TestElement clone2 = (TestElement) clone1.clone();
+        TestElement clone3 = (TestElement) element.clone();
+        assertSame(clone1.getProperty("string"), clone2.getProperty("string"));
+
+        clone1.removeProperty("string");
+        assertEquals("", clone1.getPropertyAsString("string"));
+        assertEquals("value", clone2.getPropertyAsString("string"));
+        clone2.clear();
+        assertEquals("value", clone3.getPropertyAsString("string"));
+        assertTrue(clone3.getPropertyAsBoolean("boolean"));
+
+        ConfigTestElement config = new ConfigTestElement();
+        config.setProperty(new StringProperty("other", "config"));
+        clone3.addTestElement(config);
+        clone3.recoverRunningVersion();
+        assertEquals("", clone3.getPropertyAsString("other"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(element.clone());
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            TestElement deserialized = (TestElement) in.readObject();
+            assertEquals("value", deserialized.getPropertyAsString("string"));
+            deserialized.setProperty("string", "changed");
+            assertEquals("changed", deserialized.getPropertyAsString("string"));
+        }
+    }
+
+    @Test
+    public void testStopRunningUnshares() {
+        ConfigTestElement element = createRunningElement();
+        TestElement clone1 = (TestElement) element.clone();
+        TestElement clone2 = (TestElement) element.clone();
+        clone1.setRunningVersion(false);
+        assertFalse(clone1.getProperty("string").isRunningVersion());
+        assertTrue(clone2.getProperty("string").isRunningVersion());
+        assertNotSame(clone1.getProperty("string"), clone2.getProperty("string"));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.threads;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.AbstractTestElement;
+import org.junit.After;
+import org.junit.Test;
+
+public class TestArrivalsThreadGroup extends JMeterTestCase {
+
+    private static class CollectingListener extends AbstractTestElement implements SampleListener {
+        private static final long serialVersionUID = 1L;
+
+        private final List<SampleResult> results = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void sampleOccurred(SampleEvent e) {
+            results.add(e.getResult());
+        }
+
+        @Override
+        public void sampleStarted(SampleEvent e) {
+            // not used
+        }
+
+        @Override
+        public void sampleStopped(SampleEvent e) {
+            // not used
+        }
+    }
+
+    /** Records the workers the dispatcher starts instead of starting threads */
+    private static class RecordingArrivalsThreadGroup extends ArrivalsThreadGroup {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Integer> startedWorkers = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        void startWorker(int workerNum) {
+            startedWorkers.add(Integer.valueOf(workerNum));
+        }
+    }
+
+    private final CollectingListener listener = new CollectingListener();
+
+    private RecordingArrivalsThreadGroup createThreadGroup(int maxConcurrency) {
+        RecordingArrivalsThreadGroup threadGroup = new RecordingArrivalsThreadGroup();
+        threadGroup.setName("Arrivals");
+        threadGroup.setNumThreads(5);
+        threadGroup.setMaxConcurrency(maxConcurrency);
+        threadGroup.prepareArrivals(maxConcurrency, new ListenerNotifier(),
+                Collections.<SampleListener>singletonList(listener));
+        return threadGroup;
+    }
+
+    @After
+    public void tearDown() {
+        JMeterContextService.getContext().setIntendedStartTime(0);
+    }
+
+    @Test
+    public void testDispatcherStartsWorkersAndDropsArrivals() {
+        RecordingArrivalsThreadGroup threadGroup = createThreadGroup(2);
+        long intendedStart = System.currentTimeMillis() - 1000;
+        threadGroup.dispatch(intendedStart);
+        threadGroup.dispatch(intendedStart + 1);
+        assertEquals("A worker is started for each queued arrival", 2, threadGroup.startedWorkers.size());
+        assertEquals(Integer.valueOf(0), threadGroup.startedWorkers.get(0));
+        assertEquals(Integer.valueOf(1), threadGroup.startedWorkers.get(1));
+
+        threadGroup.dispatch(intendedStart + 2);
+        assertEquals(3, threadGroup.getScheduledArrivals());
+        assertEquals(1, threadGroup.getDroppedArrivals());
+        assertEquals(1, listener.results.size());
+        SampleResult dropped = listener.results.get(0);
+        assertFalse(dropped.isSuccessful());
+        assertEquals(ArrivalsThreadGroup.DROPPED_RESPONSE_CODE, dropped.getResponseCode());
+        assertEquals(intendedStart + 2, dropped.getIntendedStartTime());
+
+        assertTrue(threadGroup.takeArrival(true));
+        assertEquals(intendedStart, JMeterContextService.getContext().getIntendedStartTime());
+        assertEquals(1, threadGroup.getLateArrivals());
+        assertEquals("The saved number of threads is not changed", 5, threadGroup.getNumThreads());
+        assertEquals(0, threadGroup.getNumThreadsToStart());
+    }
+
+    @Test
+    public void testIdleWorkerTakesArrival() throws Exception {
+        RecordingArrivalsThreadGroup threadGroup = createThreadGroup(2);
+        AtomicBoolean taken = new AtomicBoolean();
+        Thread worker = new Thread(() -> taken.set(threadGroup.takeArrival(false)));
+        worker.start();
+        Thread.sleep(200);
+        threadGroup.dispatch(System.currentTimeMillis());
+        worker.join(5000);
+        assertTrue(taken.get());
+        assertEquals("The idle worker takes the arrival", 0, threadGroup.startedWorkers.size());
+        assertEquals(0, threadGroup.getDroppedArrivals());
+    }
+
+    @Test
+    public void testIdleWorkerLeavesPool() {
+        RecordingArrivalsThreadGroup threadGroup = createThreadGroup(2);
+        threadGroup.setIdleTimeout(50);
+        long start = System.currentTimeMillis();
+        assertFalse(threadGroup.takeArrival(false));
+        long waited = System.currentTimeMillis() - start;
+        assertTrue("Unexpected wait " + waited, waited >= 50 && waited < 1000);
+
+        // The worker is no longer idle, the next arrival starts a new one
+        threadGroup.dispatch(System.currentTimeMillis());
+        assertEquals(1, threadGroup.startedWorkers.size());
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.threads;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.AbstractTestElement;
+import org.junit.Test;
+
+public class TestAsyncListenerDispatcher extends JMeterTestCase {
+
+    private static class RecordingListener extends AbstractTestElement implements SampleListener {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> labels = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void sampleOccurred(SampleEvent e) {
+            labels.add(e.getResult().getSampleLabel());
+        }
+
+        @Override
+        public void sampleStarted(SampleEvent e) {
+            // NOOP
+        }
+
+        @Override
+        public void sampleStopped(SampleEvent e) {
+            // NOOP
+        }
+    }
+
+    private static SampleEvent createEvent(String label) {
+        SampleResult result = new SampleResult();
+        result.setSampleLabel(label);
+        return new SampleEvent(result, "tg");
+    }
+
+    @Test
+    public void testEventsAreDeliveredInOrderPerThread() throws Exception {
+        AsyncListenerDispatcher dispatcher = new AsyncListenerDispatcher(3, 10, false);
+        RecordingListener listener1 = new RecordingListener();
+        RecordingListener listener2 = new RecordingListener();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            String prefix = "t" + i + "-";
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 500; j++) {
+                    SampleEvent event = createEvent(prefix + j);
+                    dispatcher.dispatch(listener1, event);
+                    dispatcher.dispatch(listener2, event);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        dispatcher.waitForListeners();
+
+        for (RecordingListener listener : Arrays.asList(listener1, listener2)) {
+            assertEquals(2000, listener.labels.size());
+            Map<String, Integer> lastByThread = new HashMap<>();
+            for (String label : listener.labels) {
+                String[] parts = label.split("-");
+                int index = Integer.parseInt(parts[1]);
+                Integer last = lastByThread.put(parts[0], index);
+                assertEquals("Order of " + parts[0], last == null ? 0 : last + 1, index);
+            }
+        }
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+        AsyncListenerDispatcher dispatcher = new AsyncListenerDispatcher(1, 1, true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener listener = new RecordingListener() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void sampleOccurred(SampleEvent e) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                super.sampleOccurred(e);
+            }
+        };
+        dispatcher.dispatch(listener, createEvent("1"));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(listener, createEvent("2"));
+        // The queue only holds "2"
+        dispatcher.dispatch(listener, createEvent("3"));
+        dispatcher.dispatch(listener, createEvent("4"));
+        release.countDown();
+        dispatcher.waitForListeners();
+        assertEquals(Arrays.asList("1", "2"), listener.labels);
+    }
+
+    @Test
+    public void testListenersAreForgottenAfterWait() throws Exception {
+        AsyncListenerDispatcher dispatcher = new AsyncListenerDispatcher(1, 10, false);
+        RecordingListener listener = new RecordingListener();
+        dispatcher.dispatch(listener, createEvent("1"));
+        dispatcher.waitForListeners();
+        assertEquals(Collections.singletonList("1"), listener.labels);
+        // The calling thread cache must not keep the previous queue
+        dispatcher.dispatch(listener, createEvent("2"));
+        dispatcher.waitForListeners();
+        assertEquals(Arrays.asList("1", "2"), listener.labels);
+    }
+
+    @Test
+    public void testListenerFailureDoesNotStopDelivery() throws Exception {
+        AsyncListenerDispatcher dispatcher = new AsyncListenerDispatcher(1, 10, false);
+        RecordingListener listener = new RecordingListener() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void sampleOccurred(SampleEvent e) {
+                super.sampleOccurred(e);
+                if ("1".equals(e.getResult().getSampleLabel())) {
+                    throw new IllegalStateException("Expected failure");
+                }
+            }
+        };
+        dispatcher.dispatch(listener, createEvent("1"));
+        dispatcher.dispatch(listener, createEvent("2"));
+        dispatcher.waitForListeners();
+        assertEquals(Arrays.asList("1", "2"), listener.labels);
+    }
+
+    @Test
+    public void testEventsAreDeliveredByCallerAfterShutdown() throws Exception {
+        AsyncListenerDispatcher dispatcher = new AsyncListenerDispatcher(1, 10, false);
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        RecordingListener listener = new RecordingListener() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void sampleOccurred(SampleEvent e) {
+                super.sampleOccurred(e);
+                threads.add(Thread.currentThread().getName());
+            }
+        };
+        dispatcher.dispatch(listener, createEvent("1"));
+        dispatcher.waitForListeners();
+        dispatcher.shutdown();
+        // Event of a thread still running at the end of the test
+        dispatcher.dispatch(listener, createEvent("2"));
+        dispatcher.waitForListeners();
+        assertEquals(Arrays.asList("1", "2"), listener.labels);
+        assertTrue(threads.get(0).startsWith("ListenerNotifier-"));
+        assertEquals(Thread.currentThread().getName(), threads.get(1));
+    }
+}
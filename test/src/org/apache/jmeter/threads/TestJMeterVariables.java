@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.threads;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+
+public class TestJMeterVariables {
+
+    private static Map<String, Object> toMap(JMeterVariables vars) {
+        Map<String, Object> map = new HashMap<>();
+        for (Entry<String, Object> entry : vars.entrySet()) {
+            map.put(entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+
+    @Test
+    public void testSlotIsStable() {
+        int slot = JMeterVariables.getSlot("TestJMeterVariables.stable");
+        assertEquals(slot, JMeterVariables.getSlot("TestJMeterVariables.stable"));
+    }
+
+    @Test
+    public void testSlotAndNameAccess() {
+        int slot = JMeterVariables.getSlot("TestJMeterVariables.slot");
+        JMeterVariables vars = new JMeterVariables();
+        assertNull(vars.get(slot));
+        vars.put("TestJMeterVariables.slot", "byName");
+        assertEquals("byName", vars.get(slot));
+        vars.putObject(slot, Integer.valueOf(1));
+        assertEquals("1", vars.get("TestJMeterVariables.slot"));
+        assertEquals(Integer.valueOf(1), vars.getObject("TestJMeterVariables.slot"));
+        assertEquals(Integer.valueOf(1), toMap(vars).get("TestJMeterVariables.slot"));
+        assertEquals(Integer.valueOf(1), vars.remove("TestJMeterVariables.slot"));
+        assertNull(vars.getObject(slot));
+        assertNull(toMap(vars).get("TestJMeterVariables.slot"));
+    }
+
+    @Test
+    public void testNameInternedAfterPut() {
+        JMeterVariables vars = new JMeterVariables();
+        vars.put("TestJMeterVariables.late", "value");
+        int slot = JMeterVariables.getSlot("TestJMeterVariables.late");
+        assertEquals("value", vars.get(slot));
+        assertEquals("value", vars.get("TestJMeterVariables.late"));
+        vars.put("TestJMeterVariables.late", "changed");
+        assertEquals("changed", vars.get(slot));
+        assertEquals("changed", toMap(vars).get("TestJMeterVariables.late"));
+    }
+
+    @Test
+    public void testPutAll() {
+        int slot = JMeterVariables.getSlot("TestJMeterVariables.putAll");
+        JMeterVariables vars = new JMeterVariables();
+        vars.putObject(slot, "slot");
+        vars.put("TestJMeterVariables.notInterned", "name");
+        JMeterVariables copy = new JMeterVariables();
+        copy.putAll(vars);
+        assertEquals("slot", copy.get(slot));
+        assertEquals("name", copy.get("TestJMeterVariables.notInterned"));
+        assertEquals(toMap(vars), toMap(copy));
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("TestJMeterVariables.putAll", "fromMap");
+        copy.putAll(map);
+        assertEquals("fromMap", copy.get(slot));
+    }
+
+    @Test
+    public void testPutAllWithNameInternedAfterPut() {
+        JMeterVariables vars = new JMeterVariables();
+        vars.put("TestJMeterVariables.putAllLate", "value");
+        int slot = JMeterVariables.getSlot("TestJMeterVariables.putAllLate");
+        JMeterVariables copy = new JMeterVariables();
+        copy.putAll(vars);
+        assertEquals("value", copy.get(slot));
+        assertEquals("value", vars.get(slot));
+        assertEquals(toMap(vars), toMap(copy));
+    }
+
+    @Test
+    public void testEntrySetSkipsVariablesNotSet() {
+        int slot = JMeterVariables.getSlot("TestJMeterVariables.notSet");
+        JMeterVariables vars = new JMeterVariables();
+        int size = vars.entrySet().size();
+        assertNull(vars.get(slot));
+        assertEquals(size, vars.entrySet().size());
+        assertFalse(toMap(vars).containsKey("TestJMeterVariables.notSet"));
+
+        vars.putObject(slot, "slot");
+        assertEquals(size + 1, vars.entrySet().size());
+        vars.remove("TestJMeterVariables.notSet");
+        assertEquals(size, vars.entrySet().size());
+        vars.put("TestJMeterVariables.notSet", "name");
+        assertEquals("name", vars.get(slot));
+        assertEquals(size + 1, toMap(vars).size());
+    }
+
+    @Test
+    public void testNoSlotWhenTableIsFull() {
+        int slot = JMeterVariables.getSlot("TestJMeterVariables.full");
+        assertEquals(slot, JMeterVariables.getSlot("TestJMeterVariables.full", 0));
+        assertEquals(-1, JMeterVariables.getSlot("TestJMeterVariables.notInternedWhenFull", 0));
+        JMeterVariables vars = new JMeterVariables();
+        vars.put("TestJMeterVariables.notInternedWhenFull", "name");
+        assertEquals("name", vars.get("TestJMeterVariables.notInternedWhenFull"));
+    }
+}
@@ -19,15 +19,27 @@
 package org.apache.jmeter.threads;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
 
 import org.apache.jmeter.config.ConfigTestElement;
 import org.apache.jmeter.control.GenericController;
+import org.apache.jmeter.control.TransactionController;
+import org.apache.jmeter.control.TransactionSampler;
+import org.apache.jmeter.engine.TreeCloner;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.reporters.ResultCollector;
 import org.apache.jmeter.samplers.AbstractSampler;
+import org.apache.jmeter.samplers.SampleListener;
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jorphan.collections.HashTree;
 import org.apache.jorphan.collections.ListedHashTree;
 import org.junit.Test;
 
-public class TestTestCompiler {
+public class TestTestCompiler extends JMeterTestCase {
 
         @Test
         public void testConfigGathering() throws Exception {
@@ -48,7 +60,123 @@ public class TestTestCompiler {
             assertEquals("A test value", sampler.getPropertyAsString("test.property"));
         }
 
-        class TestSampler extends AbstractSampler {
+        private static ListedHashTree createTree() {
+            ListedHashTree tree = new ListedHashTree();
+            GenericController controller = new GenericController();
+            controller.setName("controller");
+            TransactionController transaction = new TransactionController();
+            transaction.setName("transaction");
+            HashTree controllerTree = tree.add(controller);
+            controllerTree.add(newConfig("outer"));
+            controllerTree.add(newListener("outerListener"));
+            HashTree transactionTree = controllerTree.add(transaction);
+            transactionTree.add(newListener("innerListener"));
+            transactionTree.add(newSampler("sampler1")).add(newConfig("inner"));
+            transactionTree.add(newSampler("sampler2"));
+            controllerTree.add(newSampler("sampler3"));
+            controllerTree.add(newListener("lastListener"));
+            return tree;
+        }
+
+        private static ConfigTestElement newConfig(String name) {
+            ConfigTestElement config = new ConfigTestElement();
+            config.setName(name);
+            config.setProperty(name, "value");
+            return config;
+        }
+
+        private static ResultCollector newListener(String name) {
+            ResultCollector listener = new ResultCollector();
+            listener.setName(name);
+            return listener;
+        }
+
+        private static TestSampler newSampler(String name) {
+            TestSampler sampler = new TestSampler();
+            sampler.setName(name);
+            return sampler;
+        }
+
+        private static ListedHashTree cloneTree(ListedHashTree tree) {
+            TreeCloner cloner = new TreeCloner(true);
+            tree.traverse(cloner);
+            return cloner.getClonedTree();
+        }
+
+        private static <T extends TestElement> T find(HashTree tree, String name, Class<T> clazz) {
+            for (Object key : tree.list()) {
+                TestElement element = (TestElement) key;
+                if (clazz.isInstance(element) && name.equals(element.getName())) {
+                    return clazz.cast(element);
+                }
+                T found = find(tree.getTree(key), name, clazz);
+                if (found != null) {
+                    return found;
+                }
+            }
+            return null;
+        }
+
+        private static String names(List<?> elements) {
+            StringBuilder names = new StringBuilder();
+            for (Object element : elements) {
+                names.append(((TestElement) element).getName()).append(',');
+            }
+            return names.toString();
+        }
+
+        private static void checkPackages(ListedHashTree tree, TestCompiler compiler) {
+            SamplePackage pack = compiler.configureSampler(find(tree, "sampler1", Sampler.class));
+            assertEquals("value", pack.getSampler().getPropertyAsString("inner"));
+            assertEquals("value", pack.getSampler().getPropertyAsString("outer"));
+            // TransactionController is a SampleListener
+            assertEquals("innerListener,outerListener,transaction,lastListener,", names(pack.getSampleListeners()));
+            for (SampleListener listener : pack.getSampleListeners()) {
+                assertSame(listener, find(tree, ((TestElement) listener).getName(), TestElement.class));
+            }
+
+            pack = compiler.configureSampler(find(tree, "sampler3", Sampler.class));
+            assertEquals("", pack.getSampler().getPropertyAsString("inner"));
+            assertEquals("outerListener,transaction,lastListener,", names(pack.getSampleListeners()));
+
+            TransactionController transaction = find(tree, "transaction", TransactionController.class);
+            pack = compiler.configureTransactionSampler(new TransactionSampler(transaction, "transaction"));
+            assertEquals("innerListener,outerListener,transaction,lastListener,", names(pack.getSampleListeners()));
+        }
+
+        @Test
+        public void testPlanSharedByClones() throws Exception {
+            ListedHashTree tree = createTree();
+            TestCompilerPlan plan = TestCompilerPlan.compile(tree);
+            for (int i = 0; i < 2; i++) {
+                ListedHashTree clone = cloneTree(tree);
+                TestCompiler compiler = new TestCompiler(clone);
+                compiler.setPlan(plan);
+                clone.traverse(compiler);
+                checkPackages(clone, compiler);
+            }
+        }
+
+        @Test
+        public void testPlanOfOtherTreeIsIgnored() throws Exception {
+            ListedHashTree other = createTree();
+            other.getTree(other.list().iterator().next()).add(newConfig("added"));
+            ListedHashTree tree = createTree();
+            TestCompiler compiler = new TestCompiler(tree);
+            compiler.setPlan(TestCompilerPlan.compile(other));
+            tree.traverse(compiler);
+            checkPackages(tree, compiler);
+        }
+
+        @Test
+        public void testWithoutPlan() throws Exception {
+            ListedHashTree tree = createTree();
+            TestCompiler compiler = new TestCompiler(tree);
+            tree.traverse(compiler);
+            checkPackages(tree, compiler);
+        }
+
+        static class TestSampler extends AbstractSampler {
             private static final long serialVersionUID = 240L;
 
             @Override
@@ -58,7 +186,9 @@ public class TestTestCompiler {
 
             @Override
             public Object clone() {
-                return new TestSampler();
+                TestSampler clone = new TestSampler();
+                clone.setName(getName());
+                return clone;
             }
         }
 }
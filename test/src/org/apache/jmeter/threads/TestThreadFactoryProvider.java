@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.threads;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.jmeter.control.LoopController;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jorphan.collections.HashTree;
+import org.junit.Test;
+
+public class TestThreadFactoryProvider extends JMeterTestCase {
+
+    public static class DaemonThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    @Test
+    public void testPlatformMode() {
+        ThreadFactory factory = ThreadFactoryProvider.getThreadFactory(ThreadFactoryProvider.MODE_PLATFORM);
+        JMeterThread jmeterThread = new JMeterThread(new HashTree(new LoopController()), null, null);
+        jmeterThread.setThreadName("TG 1-1");
+        Thread thread = ThreadFactoryProvider.newThread(factory, jmeterThread);
+        assertEquals("TG 1-1", thread.getName());
+        assertFalse(thread.isDaemon());
+    }
+
+    @Test
+    public void testDefaultModeIsPlatform() {
+        assertEquals(ThreadFactoryProvider.MODE_PLATFORM, ThreadFactoryProvider.getDefaultExecutionMode());
+        assertFalse(ThreadFactoryProvider.getThreadFactory("").newThread(() -> {}).isDaemon());
+    }
+
+    @Test
+    public void testVirtualModeFallsBackOrCreatesVirtualThreads() {
+        ThreadFactory factory = ThreadFactoryProvider.getThreadFactory(ThreadFactoryProvider.MODE_VIRTUAL);
+        assertNotNull(factory.newThread(() -> {}));
+    }
+
+    @Test
+    public void testCustomThreadFactory() {
+        ThreadFactory factory = ThreadFactoryProvider.getThreadFactory(DaemonThreadFactory.class.getName());
+        assertTrue(factory instanceof DaemonThreadFactory);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMode() {
+        ThreadFactoryProvider.getThreadFactory("no.such.ThreadFactory");
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.timers.poissonarrivals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ArrivalsScheduleTest {
+
+    @Test
+    public void testSteady() {
+        ArrivalsSchedule schedule = ArrivalsSchedule.parse("steady 10 5");
+        assertEquals(5, schedule.getDuration(), 1e-9);
+        assertEquals(50, schedule.getTotalArrivals(), 1e-9);
+        assertEquals(10, schedule.getRate(2), 1e-9);
+        assertEquals(0.1, schedule.getTimeOfArrival(1), 1e-9);
+        assertEquals(5, schedule.getTimeOfArrival(50), 1e-9);
+        assertTrue(Double.isInfinite(schedule.getTimeOfArrival(51)));
+    }
+
+    @Test
+    public void testRamp() {
+        ArrivalsSchedule schedule = ArrivalsSchedule.parse("ramp 0 10 10");
+        assertEquals(50, schedule.getTotalArrivals(), 1e-9);
+        assertEquals(5, schedule.getRate(5), 1e-9);
+        // Cumulative arrivals are t^2/2, so 12.5 arrivals after 5 seconds
+        assertEquals(5, schedule.getTimeOfArrival(12.5), 1e-9);
+        assertEquals(10, schedule.getTimeOfArrival(50), 1e-9);
+    }
+
+    @Test
+    public void testDecreasingRamp() {
+        ArrivalsSchedule schedule = ArrivalsSchedule.parse("ramp 10 0 10");
+        assertEquals(50, schedule.getTotalArrivals(), 1e-9);
+        // Cumulative arrivals are 10t - t^2/2, so 37.5 arrivals after 5 seconds
+        assertEquals(5, schedule.getTimeOfArrival(37.5), 1e-9);
+    }
+
+    @Test
+    public void testStepAndSegments() {
+        ArrivalsSchedule schedule = ArrivalsSchedule.parse("step 1 3 3 30;\nsteady 0 10\n steady 2 5");
+        assertEquals(45, schedule.getDuration(), 1e-9);
+        assertEquals(10 + 20 + 30 + 10, schedule.getTotalArrivals(), 1e-9);
+        assertEquals(1, schedule.getRate(5), 1e-9);
+        assertEquals(2, schedule.getRate(15), 1e-9);
+        assertEquals(3, schedule.getRate(25), 1e-9);
+        assertEquals(0, schedule.getRate(35), 1e-9);
+        // Arrivals following the idle segment
+        assertEquals(40.5, schedule.getTimeOfArrival(61), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSegment() {
+        ArrivalsSchedule.parse("constant 10 10");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidNumberOfValues() {
+        ArrivalsSchedule.parse("ramp 10 10");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeRate() {
+        ArrivalsSchedule.parse("steady -1 10");
+    }
+
+    @Test
+    public void testEvenArrivals() {
+        ScheduledArrivalsGenerator generator = new ScheduledArrivalsGenerator(
+                ArrivalsSchedule.parse("steady 2 2"), false, null);
+        assertEquals(0.5, generator.next(), 1e-9);
+        assertEquals(1.0, generator.next(), 1e-9);
+        assertEquals(1.5, generator.next(), 1e-9);
+        assertEquals(2.0, generator.next(), 1e-9);
+        assertTrue(Double.isInfinite(generator.next()));
+    }
+
+    @Test
+    public void testRandomArrivals() {
+        ScheduledArrivalsGenerator generator = new ScheduledArrivalsGenerator(
+                ArrivalsSchedule.parse("steady 100 100"), true, 42L);
+        int count = 0;
+        double previous = 0;
+        double next;
+        while (!Double.isInfinite(next = generator.next())) {
+            assertTrue("Arrivals must be ordered", next >= previous);
+            previous = next;
+            count++;
+        }
+        // 10000 expected arrivals, standard deviation is 100
+        assertTrue("Unexpected number of arrivals " + count, Math.abs(count - 10000) < 500);
+    }
+}
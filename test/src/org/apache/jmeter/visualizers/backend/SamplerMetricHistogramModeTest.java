@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.visualizers.backend;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.Test;
+
+public class SamplerMetricHistogramModeTest {
+
+    private static final int DEFAULT_ELAPSED_TIME = 1_000;
+
+    @Test
+    public void checkResetOkAndKoStats() throws Exception {
+        SamplerMetric metric = new SamplerMetric(WindowMode.HISTOGRAM);
+        metric.add(createSampleResult(true, DEFAULT_ELAPSED_TIME));
+        metric.add(createSampleResult(false, 3 * DEFAULT_ELAPSED_TIME));
+        assertEquals("Before reset ok.max", DEFAULT_ELAPSED_TIME, metric.getOkMaxTime(), 0.001);
+        assertEquals("Before reset ko.max", 3 * DEFAULT_ELAPSED_TIME, metric.getKoMaxTime(), 0.001);
+        assertEquals("Before reset all.min", DEFAULT_ELAPSED_TIME, metric.getAllMinTime(), 0.001);
+        assertEquals("Before reset all.mean", 2 * DEFAULT_ELAPSED_TIME, metric.getAllMean(), 0.001);
+        assertEquals("Before reset total", 2, metric.getTotal());
+        assertEquals("Before reset hits", 2, metric.getHits());
+        assertEquals("Before reset sent bytes", 2000, metric.getSentBytes());
+        assertEquals("Before reset received bytes", 4000, metric.getReceivedBytes());
+        assertEquals("Before reset errors", 1, metric.getErrors().size());
+
+        // Added after the first read, belongs to the next interval
+        metric.add(createSampleResult(true, 2 * DEFAULT_ELAPSED_TIME));
+        assertEquals("Same interval until reset", 2, metric.getTotal());
+
+        metric.resetForTimeInterval();
+
+        assertEquals("After reset ok.max", 2 * DEFAULT_ELAPSED_TIME, metric.getOkMaxTime(), 0.001);
+        assertEquals("After reset ko.max", Double.NaN, metric.getKoMaxTime(), 0.0);
+        assertEquals("After reset total", 1, metric.getTotal());
+        assertEquals("After reset failures", 0, metric.getFailures());
+        assertEquals("After reset errors", 0, metric.getErrors().size());
+
+        metric.resetForTimeInterval();
+        assertEquals("After second reset total", 0, metric.getTotal());
+        assertEquals("After second reset all.max", Double.NaN, metric.getAllMaxTime(), 0.0);
+    }
+
+    @Test
+    public void checkPercentiles() throws Exception {
+        SamplerMetric metric = new SamplerMetric(WindowMode.HISTOGRAM);
+        for (int i = 1; i <= 100; i++) {
+            metric.add(createSampleResult(true, i));
+        }
+        assertEquals(90, metric.getOkPercentile(90), 0.0);
+        assertEquals(99, metric.getAllPercentile(99), 0.0);
+        assertEquals(Double.NaN, metric.getKoPercentile(99), 0.0);
+    }
+
+    @Test
+    public void checkNoSampleLostWhileResetting() throws Exception {
+        final SamplerMetric metric = new SamplerMetric(WindowMode.HISTOGRAM);
+        final int samples = 100_000;
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < samples; i++) {
+                metric.add(createSampleResult(true, i % 100));
+            }
+        });
+        writer.start();
+        long total = 0;
+        while (writer.isAlive()) {
+            total += metric.getTotal();
+            metric.resetForTimeInterval();
+        }
+        writer.join();
+        total += metric.getTotal();
+        assertEquals(samples, total);
+    }
+
+    private static SampleResult createSampleResult(boolean success, long elapsed) {
+        SampleResult result = new SampleResult();
+        result.setSuccessful(success);
+        result.setSampleCount(1);
+        result.setErrorCount(success ? 0 : 1);
+        result.setStampAndTime(0, elapsed);
+        result.setSentBytes(1000);
+        result.setBytes(2000L);
+        return result;
+    }
+}